@@ -5,6 +5,7 @@ import com.toolrent.backend.entities.FineEntity;
 import com.toolrent.backend.entities.ClientEntity;
 import com.toolrent.backend.services.FineService;
 import com.toolrent.backend.services.ClientService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +21,7 @@ import java.util.Map;
 @RestController
 @RequestMapping("/api/v1/fines")
 @CrossOrigin("*")
+@Slf4j
 public class FineController {
 
     @Autowired
@@ -31,13 +33,12 @@ public class FineController {
     @GetMapping("/")
     public ResponseEntity<?> listFines() {
         try {
-            System.out.println("Getting all fines...");
+            log.debug("Getting all fines...");
             List<FineEntity> fines = fineService.getAllFines();
-            System.out.println("Found " + fines.size() + " fines");
+            log.debug("Found {} fines", fines.size());
             return ResponseEntity.ok(fines);
         } catch (Exception e) {
-            System.err.println("Error listing fines: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error listing fines: {}", e.getMessage(), e);
 
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", true);
@@ -55,8 +56,7 @@ public class FineController {
             FineEntity fine = fineService.getFineById(id);
             return ResponseEntity.ok(fine);
         } catch (Exception e) {
-            System.err.println("Error getting fine by ID: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting fine by ID: {}", e.getMessage(), e);
 
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", true);
@@ -73,7 +73,7 @@ public class FineController {
             FineEntity newFine = fineService.createFine(fine);
             return ResponseEntity.ok(newFine);
         } catch (Exception e) {
-            System.err.println("Error creating fine: " + e.getMessage());
+            log.warn("Error creating fine: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
@@ -89,7 +89,7 @@ public class FineController {
             FineEntity updatedFine = fineService.updateFine(id, description, dueDate);
             return ResponseEntity.ok(updatedFine);
         } catch (Exception e) {
-            System.err.println("Error updating fine: " + e.getMessage());
+            log.warn("Error updating fine: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
@@ -100,7 +100,7 @@ public class FineController {
             fineService.deleteFine(id);
             return ResponseEntity.ok("Fine deleted successfully");
         } catch (Exception e) {
-            System.err.println("Error deleting fine: " + e.getMessage());
+            log.warn("Error deleting fine: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error deleting fine: " + e.getMessage());
         }
@@ -112,7 +112,7 @@ public class FineController {
             FineEntity paidFine = fineService.payFine(id);
             return ResponseEntity.ok(paidFine);
         } catch (Exception e) {
-            System.err.println("Error paying fine: " + e.getMessage());
+            log.warn("Error paying fine: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
@@ -123,7 +123,7 @@ public class FineController {
             fineService.cancelFine(id);
             return ResponseEntity.ok("Fine cancelled successfully");
         } catch (Exception e) {
-            System.err.println("Error cancelling fine: " + e.getMessage());
+            log.warn("Error cancelling fine: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error cancelling fine: " + e.getMessage());
         }
@@ -132,7 +132,7 @@ public class FineController {
     @GetMapping("/client/{clientId}")
     public ResponseEntity<?> getFinesByClient(@PathVariable Long clientId) {
         try {
-            System.out.println("Getting fines for client ID: " + clientId);
+            log.debug("Getting fines for client ID: {}", clientId);
 
             if (clientId == null || clientId <= 0) {
                 Map<String, Object> errorResponse = new HashMap<>();
@@ -144,7 +144,7 @@ public class FineController {
 
             ClientEntity client = clientService.getClientById(clientId);
             if (client == null) {
-                System.out.println("Client not found with ID: " + clientId);
+                log.debug("Client not found with ID: {}", clientId);
                 Map<String, Object> errorResponse = new HashMap<>();
                 errorResponse.put("error", true);
                 errorResponse.put("message", "Cliente no encontrado");
@@ -153,12 +153,11 @@ public class FineController {
             }
 
             List<FineEntity> fines = fineService.getFinesByClient(client);
-            System.out.println("Found " + fines.size() + " fines for client " + clientId);
+            log.debug("Found {} fines for client {}", fines.size(), clientId);
             return ResponseEntity.ok(fines);
 
         } catch (Exception e) {
-            System.err.println("Error getting fines by client: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting fines by client: {}", e.getMessage(), e);
 
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", true);
@@ -180,7 +179,7 @@ public class FineController {
             List<FineEntity> unpaidFines = fineService.getUnpaidFinesByClient(client);
             return ResponseEntity.ok(unpaidFines);
         } catch (Exception e) {
-            System.err.println("Error getting unpaid fines by client: " + e.getMessage());
+            log.warn("Error getting unpaid fines by client: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(List.of());
         }
     }
@@ -195,7 +194,7 @@ public class FineController {
             BigDecimal totalUnpaid = fineService.getTotalUnpaidAmount(client);
             return ResponseEntity.ok(Map.of("totalUnpaid", totalUnpaid));
         } catch (Exception e) {
-            System.err.println("Error getting total unpaid amount: " + e.getMessage());
+            log.warn("Error getting total unpaid amount: {}", e.getMessage());
             return ResponseEntity.ok(Map.of("totalUnpaid", BigDecimal.ZERO));
         }
     }
@@ -206,7 +205,7 @@ public class FineController {
             List<FineEntity> unpaidFines = fineService.getAllUnpaidFines();
             return ResponseEntity.ok(unpaidFines);
         } catch (Exception e) {
-            System.err.println("Error getting all unpaid fines: " + e.getMessage());
+            log.warn("Error getting all unpaid fines: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(List.of());
         }
     }
@@ -217,7 +216,7 @@ public class FineController {
             List<FineEntity> overdueFines = fineService.getOverdueFines();
             return ResponseEntity.ok(overdueFines);
         } catch (Exception e) {
-            System.err.println("Error getting overdue fines: " + e.getMessage());
+            log.warn("Error getting overdue fines: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(List.of());
         }
     }
@@ -229,10 +228,10 @@ public class FineController {
             List<FineEntity> fines = fineService.getFinesByType(fineType);
             return ResponseEntity.ok(fines);
         } catch (IllegalArgumentException e) {
-            System.err.println("Invalid fine type: " + type);
+            log.warn("Invalid fine type: {}", type);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(List.of());
         } catch (Exception e) {
-            System.err.println("Error getting fines by type: " + e.getMessage());
+            log.warn("Error getting fines by type: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(List.of());
         }
     }
@@ -243,7 +242,7 @@ public class FineController {
             Map<String, Object> statistics = fineService.getFineStatistics();
             return ResponseEntity.ok(statistics);
         } catch (Exception e) {
-            System.err.println("Error getting fine statistics: " + e.getMessage());
+            log.warn("Error getting fine statistics: {}", e.getMessage());
             Map<String, Object> errorStats = new HashMap<>();
             errorStats.put("error", "Error getting statistics");
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorStats);
@@ -260,7 +259,7 @@ public class FineController {
             List<FineEntity> fines = fineService.getFinesInDateRange(start, end);
             return ResponseEntity.ok(fines);
         } catch (Exception e) {
-            System.err.println("Error getting fines in date range: " + e.getMessage());
+            log.warn("Error getting fines in date range: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(List.of());
         }
     }
@@ -272,7 +271,7 @@ public class FineController {
             Map<String, Object> restrictions = fineService.checkClientRestrictions(clientId);
             return ResponseEntity.ok(restrictions);
         } catch (Exception e) {
-            System.err.println("Error checking client restrictions: " + e.getMessage());
+            log.warn("Error checking client restrictions: {}", e.getMessage());
 
             // Respuesta de error estructurada
             Map<String, Object> errorResponse = new HashMap<>();
@@ -0,0 +1,66 @@
+package com.toolrent.backend.controllers;
+
+import com.toolrent.backend.dto.ImportReportDTO;
+import com.toolrent.backend.services.CatalogImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// Importación masiva de catálogo desde CSV (alta de sucursales).
+// El archivo va como multipart (campo "file") o directo en el cuerpo con Content-Type text/csv.
+// La respuesta trae el conteo de filas importadas y rechazadas con el motivo por línea.
+@RestController
+@RequestMapping("/api/v1/imports")
+@CrossOrigin("*")
+@Slf4j
+public class ImportController {
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    // Columnas: name, category (id o nombre), initial_stock, replacement_value, rental_rate
+    @PostMapping("/tools")
+    public ResponseEntity<?> importTools(@RequestParam(value = "file", required = false) MultipartFile file,
+                                         HttpServletRequest request) {
+        return runImport(file, request, catalogImportService::importTools);
+    }
+
+    // Columnas: name, rut, phone, email y status opcional
+    @PostMapping("/clients")
+    public ResponseEntity<?> importClients(@RequestParam(value = "file", required = false) MultipartFile file,
+                                           HttpServletRequest request) {
+        return runImport(file, request, catalogImportService::importClients);
+    }
+
+    private ResponseEntity<?> runImport(MultipartFile file, HttpServletRequest request,
+                                        Function<InputStream, ImportReportDTO> importer) {
+        try (InputStream csv = file != null ? file.getInputStream() : request.getInputStream()) {
+            return ResponseEntity.ok(importer.apply(csv));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(errorBody(e.getMessage()));
+        } catch (IOException e) {
+            log.warn("Error leyendo archivo de importación: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(errorBody("No se pudo leer el archivo: " + e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error en importación masiva: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorBody(e.getMessage()));
+        }
+    }
+
+    private Map<String, Object> errorBody(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", true);
+        errorResponse.put("message", message);
+        return errorResponse;
+    }
+}
@@ -4,6 +4,7 @@ import com.toolrent.backend.entities.*;
 import com.toolrent.backend.dto.KardexMovementDTO;
 import com.toolrent.backend.services.KardexMovementService;
 import com.toolrent.backend.services.ToolService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,6 +18,7 @@ import java.util.stream.Collectors;
 @RestController
 @RequestMapping("/api/kardex-movements")
 @CrossOrigin(origins = "*")
+@Slf4j
 public class KardexMovementController {
 
     private final KardexMovementService kardexMovementService;
@@ -209,9 +211,9 @@ public class KardexMovementController {
     @GetMapping
     public ResponseEntity<?> getAllMovements() {
         try {
-            System.out.println("=== DEBUG: Getting all kardex movements ===");
+            log.debug("=== DEBUG: Getting all kardex movements ===");
             List<KardexMovementEntity> movements = kardexMovementService.getAllMovements();
-            System.out.println("=== DEBUG: Found " + movements.size() + " movements ===");
+            log.debug("=== DEBUG: Found {} movements ===", movements.size());
 
             // Convertir a DTOs para evitar problemas de serialización con lazy loading
             List<KardexMovementDTO> movementDTOs = movements.stream()
@@ -219,7 +221,7 @@ public class KardexMovementController {
                         try {
                             return KardexMovementDTO.fromEntity(movement);
                         } catch (Exception e) {
-                            System.err.println("Error converting movement to DTO: " + e.getMessage());
+                            log.warn("Error converting movement to DTO: {}", e.getMessage());
                             // Crear un DTO básico con información mínima en caso de error
                             KardexMovementDTO basicDto = new KardexMovementDTO();
                             basicDto.setId(movement.getId());
@@ -234,11 +236,10 @@ public class KardexMovementController {
                     })
                     .collect(Collectors.toList());
 
-            System.out.println("=== DEBUG: Successfully converted " + movementDTOs.size() + " movements to DTOs ===");
+            log.debug("=== DEBUG: Successfully converted {} movements to DTOs ===", movementDTOs.size());
             return new ResponseEntity<>(movementDTOs, HttpStatus.OK);
         } catch (Exception e) {
-            System.err.println("=== DEBUG: Error in getAllMovements: " + e.getMessage());
-            e.printStackTrace();
+            log.error("=== DEBUG: Error in getAllMovements: {}", e.getMessage(), e);
             return new ResponseEntity<>("Error retrieving movements: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
@@ -279,12 +280,12 @@ public class KardexMovementController {
             @RequestParam String startDate,
             @RequestParam String endDate) {
         try {
-            System.out.println("=== DEBUG: Getting movements by date range: " + startDate + " to " + endDate + " ===");
+            log.debug("=== DEBUG: Getting movements by date range: {} to {} ===", startDate, endDate);
             LocalDate start = LocalDate.parse(startDate);
             LocalDate end = LocalDate.parse(endDate);
 
             List<KardexMovementEntity> movements = kardexMovementService.getMovementsByDateRange(start, end);
-            System.out.println("=== DEBUG: Found " + movements.size() + " movements in date range ===");
+            log.debug("=== DEBUG: Found {} movements in date range ===", movements.size());
 
             // 🔧 CORRECCIÓN: Convertir a DTOs para evitar problemas de serialización
             List<KardexMovementDTO> movementDTOs = movements.stream()
@@ -292,7 +293,7 @@ public class KardexMovementController {
                         try {
                             return KardexMovementDTO.fromEntity(movement);
                         } catch (Exception e) {
-                            System.err.println("Error converting movement to DTO: " + e.getMessage());
+                            log.warn("Error converting movement to DTO: {}", e.getMessage());
                             // Crear un DTO básico con información mínima en caso de error
                             KardexMovementDTO basicDto = new KardexMovementDTO();
                             basicDto.setId(movement.getId());
@@ -307,11 +308,10 @@ public class KardexMovementController {
                     })
                     .collect(Collectors.toList());
 
-            System.out.println("=== DEBUG: Successfully converted " + movementDTOs.size() + " movements to DTOs ===");
+            log.debug("=== DEBUG: Successfully converted {} movements to DTOs ===", movementDTOs.size());
             return new ResponseEntity<>(movementDTOs, HttpStatus.OK);
         } catch (Exception e) {
-            System.err.println("=== DEBUG: Error in getMovementsByDateRange: " + e.getMessage());
-            e.printStackTrace();
+            log.error("=== DEBUG: Error in getMovementsByDateRange: {}", e.getMessage(), e);
             return new ResponseEntity<>("Error parsing dates or retrieving movements: " + e.getMessage(),
                     HttpStatus.INTERNAL_SERVER_ERROR);
         }
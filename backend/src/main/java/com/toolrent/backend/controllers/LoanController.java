@@ -1,5 +1,6 @@
 package com.toolrent.backend.controllers;
 
+import com.toolrent.backend.dto.LoanSearchCriteria;
 import com.toolrent.backend.entities.LoanEntity;
 import com.toolrent.backend.entities.ClientEntity;
 import com.toolrent.backend.entities.ToolEntity;
@@ -7,10 +8,14 @@ import com.toolrent.backend.services.LoanService;
 import com.toolrent.backend.services.ClientService;
 import com.toolrent.backend.services.ToolService;
 import com.toolrent.backend.services.RateService;
+import com.toolrent.backend.services.OverdueFineJobService;
+import com.toolrent.backend.services.IdempotencyService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashMap;
@@ -21,6 +26,7 @@ import java.util.Map;
 @RequestMapping("/api/v1/loans")
 @CrossOrigin("*")
 @Transactional
+@Slf4j
 public class LoanController {
 
     @Autowired
@@ -35,18 +41,69 @@ public class LoanController {
     @Autowired
     private RateService rateService;
 
+    @Autowired
+    private OverdueFineJobService overdueFineJobService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @GetMapping("/")
     public ResponseEntity<List<LoanEntity>> getAllLoans() {
         try {
             List<LoanEntity> loans = loanService.getAllLoans();
             return ResponseEntity.ok(loans);
         } catch (Exception e) {
-            System.err.println("Error getting all loans: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting all loans: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
 
+    // Listado paginado y filtrable: GET /api/v1/loans/page?size=50&status=ACTIVE&cursor=...
+    // La respuesta trae nextCursor, que se envía tal cual para pedir la siguiente página.
+    @GetMapping("/page")
+    public ResponseEntity<?> getLoansPage(@RequestParam(required = false) String cursor,
+                                          @RequestParam(required = false) Integer size,
+                                          @RequestParam(required = false) String status,
+                                          @RequestParam(required = false) Boolean overdue,
+                                          @RequestParam(required = false) Long clientId,
+                                          @RequestParam(required = false) Long toolId,
+                                          @RequestParam(required = false) Long categoryId,
+                                          @RequestParam(required = false) String from,
+                                          @RequestParam(required = false) String to,
+                                          @RequestParam(required = false, defaultValue = "desc") String sort) {
+        try {
+            LoanSearchCriteria criteria = new LoanSearchCriteria();
+            try {
+                if (status != null && !status.isBlank()) {
+                    criteria.setStatus(LoanEntity.LoanStatus.valueOf(status.trim().toUpperCase()));
+                }
+                if (from != null && !from.isBlank()) {
+                    criteria.setLoanDateFrom(java.time.LocalDate.parse(from.trim()));
+                }
+                if (to != null && !to.isBlank()) {
+                    criteria.setLoanDateTo(java.time.LocalDate.parse(to.trim()));
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Filtro inválido: " + e.getMessage());
+            }
+            if (!"asc".equalsIgnoreCase(sort) && !"desc".equalsIgnoreCase(sort)) {
+                throw new RuntimeException("Orden inválido: use asc o desc");
+            }
+            criteria.setOverdue(overdue);
+            criteria.setClientId(clientId);
+            criteria.setToolId(toolId);
+            criteria.setCategoryId(categoryId);
+            criteria.setAscending("asc".equalsIgnoreCase(sort));
+
+            return ResponseEntity.ok(loanService.getLoansPage(criteria, cursor, size));
+        } catch (RuntimeException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            errorResponse.put("timestamp", java.time.LocalDateTime.now());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<LoanEntity> getLoanById(@PathVariable Long id) {
         try {
@@ -56,14 +113,20 @@ public class LoanController {
             }
             return ResponseEntity.ok(loan);
         } catch (Exception e) {
-            System.err.println("Error getting loan by id: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting loan by id: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
 
+    // Con el header Idempotency-Key, un reintento (p. ej. tras un timeout) recibe la respuesta original
+    // sin crear otro préstamo ni descontar stock de nuevo
     @PostMapping("/")
-    public ResponseEntity<LoanEntity> createLoan(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<?> createLoan(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                        @RequestBody Map<String, Object> request) {
+        return idempotencyService.execute(idempotencyKey, "loan.create", request, () -> doCreateLoan(request));
+    }
+
+    private ResponseEntity<LoanEntity> doCreateLoan(Map<String, Object> request) {
         try {
             // Validar que los datos requeridos estén presentes
             if (!request.containsKey("clientId") || !request.containsKey("toolId") ||
@@ -152,8 +215,7 @@ public class LoanController {
 
         } catch (Exception e) {
             // Log detallado del error
-            System.err.println("Error creating loan: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error creating loan: {}", e.getMessage(), e);
 
             // Respuesta de error estructurada
             Map<String, Object> errorResponse = new HashMap<>();
@@ -166,6 +228,64 @@ public class LoanController {
         }
     }
 
+    // RF2.1: Préstamo múltiple - varias herramientas para un mismo cliente en una sola llamada
+    @PostMapping("/batch")
+    public ResponseEntity<?> createLoansBatch(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                              @RequestBody Map<String, Object> request) {
+        return idempotencyService.execute(idempotencyKey, "loan.create-batch", request, () -> doCreateLoansBatch(request));
+    }
+
+    private ResponseEntity<Map<String, Object>> doCreateLoansBatch(Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            if (!request.containsKey("clientId") || !request.containsKey("agreedReturnDate") ||
+                    !(request.get("items") instanceof List)) {
+                throw new RuntimeException("Datos requeridos faltantes: clientId, agreedReturnDate, items");
+            }
+
+            Long clientId = Long.valueOf(request.get("clientId").toString());
+            String returnDateStr = request.get("agreedReturnDate").toString();
+            java.time.LocalDate returnDate = java.time.LocalDate.parse(
+                    returnDateStr.contains("T") ? returnDateStr.substring(0, 10) : returnDateStr);
+            String notes = request.get("notes") != null ? request.get("notes").toString().trim() : "";
+
+            List<LoanService.BatchLoanLine> lines = new java.util.ArrayList<>();
+            for (Object item : (List<?>) request.get("items")) {
+                if (!(item instanceof Map)) {
+                    throw new RuntimeException("Formato de ítem inválido: " + item);
+                }
+                Map<?, ?> itemMap = (Map<?, ?>) item;
+                Object toolIdObj = itemMap.get("toolId");
+                Object quantityObj = itemMap.get("quantity");
+                lines.add(new LoanService.BatchLoanLine(
+                        toolIdObj != null ? Long.valueOf(toolIdObj.toString()) : null,
+                        quantityObj != null ? Integer.valueOf(quantityObj.toString()) : 1));
+            }
+
+            ClientEntity client = clientService.getClientById(clientId);
+            if (client == null) {
+                throw new RuntimeException("Cliente no encontrado con ID: " + clientId);
+            }
+
+            List<LoanService.BatchLoanLineResult> results =
+                    loanService.createLoansBatch(client, returnDate, notes, lines);
+            long successCount = results.stream().filter(LoanService.BatchLoanLineResult::isSuccess).count();
+
+            response.put("clientId", clientId);
+            response.put("results", results);
+            response.put("successCount", successCount);
+            response.put("failureCount", results.size() - successCount);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.warn("Error creating batch loan: {}", e.getMessage());
+            response.put("error", true);
+            response.put("message", e.getMessage());
+            response.put("timestamp", java.time.LocalDateTime.now());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     // Patrón del profesor - PUT sin ID en la URL
     @PutMapping("/")
     public ResponseEntity<LoanEntity> updateLoan(@RequestBody LoanEntity loan) {
@@ -181,24 +301,79 @@ public class LoanController {
 
     // Endpoints específicos del negocio
     @PutMapping("/{id}/return")
-    public ResponseEntity<LoanEntity> returnTool(@PathVariable Long id,
-                                                 @RequestParam(required = false, defaultValue = "false") Boolean damaged,
-                                                 @RequestParam(required = false, defaultValue = "MINOR") String damageType,
-                                                 @RequestParam(required = false, defaultValue = "") String notes) {
-        LoanEntity returnedLoan = loanService.returnTool(id, damaged, damageType, notes);
-        return ResponseEntity.ok(returnedLoan);
+    public ResponseEntity<?> returnTool(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                        @PathVariable Long id,
+                                        @RequestParam(required = false, defaultValue = "false") Boolean damaged,
+                                        @RequestParam(required = false, defaultValue = "MINOR") String damageType,
+                                        @RequestParam(required = false, defaultValue = "") String notes) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("loanId", id);
+        request.put("damaged", damaged);
+        request.put("damageType", damageType);
+        request.put("notes", notes);
+        return idempotencyService.execute(idempotencyKey, "loan.return", request, () -> {
+            LoanEntity returnedLoan = loanService.returnTool(id, damaged, damageType, notes);
+            return ResponseEntity.ok(returnedLoan);
+        });
     }
 
+    // Devolución múltiple: lista de préstamos con su condición, resultado por préstamo
+    @PutMapping("/return/batch")
+    public ResponseEntity<?> returnToolsBatch(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                              @RequestBody Map<String, Object> request) {
+        return idempotencyService.execute(idempotencyKey, "loan.return-batch", request, () -> doReturnToolsBatch(request));
+    }
+
+    private ResponseEntity<Map<String, Object>> doReturnToolsBatch(Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            if (!(request.get("items") instanceof List)) {
+                throw new RuntimeException("Datos requeridos faltantes: items");
+            }
+
+            List<LoanService.BatchReturnLine> lines = new java.util.ArrayList<>();
+            for (Object item : (List<?>) request.get("items")) {
+                if (!(item instanceof Map)) {
+                    throw new RuntimeException("Formato de ítem inválido: " + item);
+                }
+                Map<?, ?> itemMap = (Map<?, ?>) item;
+                Object loanIdObj = itemMap.get("loanId");
+                Object damagedObj = itemMap.get("damaged");
+                Object damageTypeObj = itemMap.get("damageType");
+                Object notesObj = itemMap.get("notes");
+                lines.add(new LoanService.BatchReturnLine(
+                        loanIdObj != null ? Long.valueOf(loanIdObj.toString()) : null,
+                        damagedObj != null && Boolean.parseBoolean(damagedObj.toString()),
+                        damageTypeObj != null ? damageTypeObj.toString() : "MINOR",
+                        notesObj != null ? notesObj.toString() : ""));
+            }
+
+            List<LoanService.BatchReturnLineResult> results = loanService.returnToolsBatch(lines);
+            long successCount = results.stream().filter(LoanService.BatchReturnLineResult::isSuccess).count();
+
+            response.put("results", results);
+            response.put("successCount", successCount);
+            response.put("failureCount", results.size() - successCount);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.warn("Error processing batch return: {}", e.getMessage());
+            response.put("error", true);
+            response.put("message", e.getMessage());
+            response.put("timestamp", java.time.LocalDateTime.now());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    // Sin transacción: las verificaciones corren en paralelo, cada una con su propia transacción de solo lectura
     @PostMapping("/validate-comprehensive")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ResponseEntity<LoanService.LoanValidationSummary> validateLoanComprehensive(@RequestBody Map<String, Object> request) {
         Long clientId = Long.valueOf(request.get("clientId").toString());
         Long toolId = Long.valueOf(request.get("toolId").toString());
         Integer quantity = Integer.valueOf(request.get("quantity").toString());
 
-        ClientEntity client = clientService.getClientById(clientId);
-        ToolEntity tool = toolService.getToolById(toolId).orElse(null);
-
-        LoanService.LoanValidationSummary summary = loanService.getLoanValidationSummary(client, tool, quantity);
+        LoanService.LoanValidationSummary summary = loanService.getLoanValidationSummary(clientId, toolId, quantity);
         return ResponseEntity.ok(summary);
     }
 
@@ -208,24 +383,94 @@ public class LoanController {
         return ResponseEntity.ok(restrictions);
     }
 
+    // from/to opcionales: sin fechas, disponibilidad para prestar hoy; con fechas, unidades libres en ese período
     @GetMapping("/tool/{toolId}/availability")
     public ResponseEntity<Map<String, Object>> checkToolAvailability(@PathVariable Long toolId,
-                                                                     @RequestParam(defaultValue = "1") Integer quantity) {
+                                                                     @RequestParam(defaultValue = "1") Integer quantity,
+                                                                     @RequestParam(required = false) String from,
+                                                                     @RequestParam(required = false) String to) {
         ToolEntity tool = toolService.getToolById(toolId).orElse(null);
-        Map<String, Object> availability = loanService.checkToolAvailability(tool, quantity);
+        java.time.LocalDate fromDate = null;
+        java.time.LocalDate toDate = null;
+        try {
+            if (from != null && !from.isBlank()) {
+                fromDate = java.time.LocalDate.parse(from.contains("T") ? from.substring(0, 10) : from);
+            }
+            if (to != null && !to.isBlank()) {
+                toDate = java.time.LocalDate.parse(to.contains("T") ? to.substring(0, 10) : to);
+            }
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("available", false);
+            errorResponse.put("issue", "Formato de fecha inválido");
+            errorResponse.put("error", true);
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        Map<String, Object> availability = loanService.checkToolAvailability(tool, quantity, fromDate, toDate);
         return ResponseEntity.ok(availability);
     }
 
+    // Disponibilidad de varias herramientas en una sola llamada.
+    // Body: { toolIds: [1, 2, ...] } o { tools: [{ toolId, quantity? }, ...] }, más quantity?, from?, to? opcionales
+    @PostMapping("/availability")
+    public ResponseEntity<?> checkToolsAvailability(@RequestBody Map<String, Object> request) {
+        try {
+            Integer defaultQuantity = request.get("quantity") != null
+                    ? Integer.valueOf(request.get("quantity").toString()) : 1;
+            Map<Long, Integer> quantities = new java.util.LinkedHashMap<>();
+            try {
+                if (request.get("toolIds") instanceof List<?> toolIds) {
+                    for (Object toolId : toolIds) {
+                        quantities.put(Long.valueOf(toolId.toString()), defaultQuantity);
+                    }
+                }
+                if (request.get("tools") instanceof List<?> tools) {
+                    for (Object item : tools) {
+                        if (!(item instanceof Map<?, ?> tool) || tool.get("toolId") == null) {
+                            throw new RuntimeException("Cada herramienta debe incluir toolId");
+                        }
+                        Integer quantity = tool.get("quantity") != null
+                                ? Integer.valueOf(tool.get("quantity").toString()) : defaultQuantity;
+                        quantities.put(Long.valueOf(tool.get("toolId").toString()), quantity);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Identificador o cantidad inválida: " + e.getMessage());
+            }
+
+            java.time.LocalDate fromDate = parseOptionalDate(request.get("from"));
+            java.time.LocalDate toDate = parseOptionalDate(request.get("to"));
+            return ResponseEntity.ok(loanService.checkToolsAvailability(quantities, fromDate, toDate));
+        } catch (RuntimeException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", true);
+            errorResponse.put("message", e.getMessage());
+            errorResponse.put("timestamp", java.time.LocalDateTime.now());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    private java.time.LocalDate parseOptionalDate(Object value) {
+        if (value == null || value.toString().isBlank()) {
+            return null;
+        }
+        String text = value.toString().trim();
+        try {
+            return java.time.LocalDate.parse(text.contains("T") ? text.substring(0, 10) : text);
+        } catch (Exception e) {
+            throw new RuntimeException("Formato de fecha inválido: " + text);
+        }
+    }
+
     @GetMapping("/active")
     public ResponseEntity<?> getActiveLoans() {
         try {
-            System.out.println("Getting active loans...");
+            log.debug("Getting active loans...");
             List<LoanEntity> activeLoans = loanService.getActiveLoans();
-            System.out.println("Found " + activeLoans.size() + " active loans");
+            log.debug("Found {} active loans", activeLoans.size());
             return ResponseEntity.ok(activeLoans);
         } catch (Exception e) {
-            System.err.println("Error getting active loans: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting active loans: {}", e.getMessage(), e);
 
             // Respuesta de error estructurada
             Map<String, Object> errorResponse = new HashMap<>();
@@ -244,8 +489,7 @@ public class LoanController {
             List<LoanEntity> overdueLoans = loanService.getOverdueLoans();
             return ResponseEntity.ok(overdueLoans);
         } catch (Exception e) {
-            System.err.println("Error getting overdue loans: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting overdue loans: {}", e.getMessage(), e);
 
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", true);
@@ -311,8 +555,7 @@ public class LoanController {
             Map<String, Object> result = loanService.generateOverdueFinesForAllLoans();
             return ResponseEntity.ok(result);
         } catch (Exception e) {
-            System.err.println("Error generating overdue fines: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error generating overdue fines: {}", e.getMessage(), e);
             
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
@@ -323,6 +566,42 @@ public class LoanController {
         }
     }
 
+    /**
+     * Inicia (o retoma) en segundo plano el cálculo diario de multas por tramos
+     */
+    @PostMapping("/overdue-fines/job")
+    public ResponseEntity<Map<String, Object>> startOverdueFinesJob() {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(overdueFineJobService.startRun());
+        } catch (Exception e) {
+            log.warn("Error starting overdue fines job: {}", e.getMessage());
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            errorResponse.put("timestamp", java.time.LocalDateTime.now());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    /**
+     * Avance y rendimiento de la última ejecución del cálculo de multas
+     */
+    @GetMapping("/overdue-fines/job")
+    public ResponseEntity<Map<String, Object>> getOverdueFinesJobProgress() {
+        try {
+            return ResponseEntity.ok(overdueFineJobService.getProgress());
+        } catch (Exception e) {
+            log.warn("Error getting overdue fines job progress: {}", e.getMessage());
+
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            errorResponse.put("timestamp", java.time.LocalDateTime.now());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
     /**
      * Obtiene estadísticas sobre multas por préstamos atrasados
      */
@@ -332,8 +611,7 @@ public class LoanController {
             Map<String, Object> stats = loanService.getOverdueFinesStatistics();
             return ResponseEntity.ok(stats);
         } catch (Exception e) {
-            System.err.println("Error getting overdue fines statistics: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting overdue fines statistics: {}", e.getMessage(), e);
             
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", e.getMessage());
@@ -2,6 +2,7 @@ package com.toolrent.backend.controllers;
 
 import com.toolrent.backend.entities.RateEntity;
 import com.toolrent.backend.services.RateService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +17,7 @@ import java.util.Map;
 @RestController
 @RequestMapping("/api/v1/rates")
 @CrossOrigin("*")
+@Slf4j
 public class RateController {
 
     @Autowired
@@ -26,7 +28,7 @@ public class RateController {
     @GetMapping("/current/rental")
     public ResponseEntity<?> getCurrentRentalRate() {
         try {
-            System.out.println("Obteniendo tarifa de arriendo actual...");
+            log.debug("Obteniendo tarifa de arriendo actual...");
             BigDecimal rate = rateService.getCurrentRentalRate();
 
             Map<String, Object> response = new HashMap<>();
@@ -35,8 +37,7 @@ public class RateController {
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            System.err.println("Error en getCurrentRentalRate: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error en getCurrentRentalRate: {}", e.getMessage(), e);
 
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", e.getMessage());
@@ -49,7 +50,7 @@ public class RateController {
     @GetMapping("/current/late-fee")
     public ResponseEntity<?> getCurrentLateFeeRate() {
         try {
-            System.out.println("Obteniendo tarifa de multa actual...");
+            log.debug("Obteniendo tarifa de multa actual...");
             BigDecimal rate = rateService.getCurrentLateFeeRate();
 
             Map<String, Object> response = new HashMap<>();
@@ -58,8 +59,7 @@ public class RateController {
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            System.err.println("Error en getCurrentLateFeeRate: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error en getCurrentLateFeeRate: {}", e.getMessage(), e);
 
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", e.getMessage());
@@ -72,7 +72,7 @@ public class RateController {
     @GetMapping("/current/repair")
     public ResponseEntity<?> getCurrentRepairRate() {
         try {
-            System.out.println("Obteniendo tarifa de reparación actual...");
+            log.debug("Obteniendo tarifa de reparación actual...");
             BigDecimal rate = rateService.getCurrentRepairRate();
 
             Map<String, Object> response = new HashMap<>();
@@ -81,8 +81,7 @@ public class RateController {
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            System.err.println("Error en getCurrentRepairRate: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error en getCurrentRepairRate: {}", e.getMessage(), e);
 
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", e.getMessage());
@@ -97,12 +96,11 @@ public class RateController {
     @GetMapping("/")
     public ResponseEntity<?> listRates() {
         try {
-            System.out.println("Listando todas las tarifas...");
+            log.debug("Listando todas las tarifas...");
             List<RateEntity> rates = rateService.getAllRates();
             return ResponseEntity.ok(rates);
         } catch (Exception e) {
-            System.err.println("Error listando tarifas: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error listando tarifas: {}", e.getMessage(), e);
 
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", e.getMessage());
@@ -113,16 +111,16 @@ public class RateController {
     @GetMapping("/{id}")
     public ResponseEntity<?> getRateById(@PathVariable Long id) {
         try {
-            System.out.println("Obteniendo tarifa con ID: " + id);
+            log.debug("Obteniendo tarifa con ID: {}", id);
             RateEntity rate = rateService.getRateById(id);
             return ResponseEntity.ok(rate);
         } catch (RuntimeException e) {
-            System.err.println("Tarifa no encontrada con ID: " + id);
+            log.warn("Tarifa no encontrada con ID: {}", id);
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Tarifa no encontrada");
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
         } catch (Exception e) {
-            System.err.println("Error obteniendo tarifa: " + e.getMessage());
+            log.warn("Error obteniendo tarifa: {}", e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
@@ -132,17 +130,16 @@ public class RateController {
     @PostMapping("/")
     public ResponseEntity<?> saveRate(@RequestBody RateEntity rate) {
         try {
-            System.out.println("Creando nueva tarifa: " + rate);
+            log.debug("Creando nueva tarifa: {}", rate);
             RateEntity newRate = rateService.createRate(rate);
             return ResponseEntity.ok(newRate);
         } catch (RuntimeException e) {
-            System.err.println("Error de validación creando tarifa: " + e.getMessage());
+            log.warn("Error de validación creando tarifa: {}", e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
         } catch (Exception e) {
-            System.err.println("Error interno creando tarifa: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error interno creando tarifa: {}", e.getMessage(), e);
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Error interno del servidor: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
@@ -152,7 +149,7 @@ public class RateController {
     @PutMapping("/")
     public ResponseEntity<?> updateRate(@RequestBody RateEntity rate) {
         try {
-            System.out.println("Actualizando tarifa: " + rate);
+            log.debug("Actualizando tarifa: {}", rate);
             if (rate.getId() == null) {
                 Map<String, Object> errorResponse = new HashMap<>();
                 errorResponse.put("error", "ID de tarifa es requerido para actualizar");
@@ -162,13 +159,12 @@ public class RateController {
             RateEntity updatedRate = rateService.updateRate(rate.getId(), rate);
             return ResponseEntity.ok(updatedRate);
         } catch (RuntimeException e) {
-            System.err.println("Error actualizando tarifa: " + e.getMessage());
+            log.warn("Error actualizando tarifa: {}", e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
         } catch (Exception e) {
-            System.err.println("Error interno actualizando tarifa: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error interno actualizando tarifa: {}", e.getMessage(), e);
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Error interno del servidor: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
@@ -178,16 +174,16 @@ public class RateController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteRateById(@PathVariable Long id) {
         try {
-            System.out.println("Desactivando tarifa con ID: " + id);
+            log.debug("Desactivando tarifa con ID: {}", id);
             RateEntity deactivatedRate = rateService.deactivateRate(id);
             return ResponseEntity.ok(deactivatedRate);
         } catch (RuntimeException e) {
-            System.err.println("Error desactivando tarifa: " + e.getMessage());
+            log.warn("Error desactivando tarifa: {}", e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
         } catch (Exception e) {
-            System.err.println("Error interno desactivando tarifa: " + e.getMessage());
+            log.warn("Error interno desactivando tarifa: {}", e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Error interno del servidor: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
@@ -199,11 +195,11 @@ public class RateController {
     @PutMapping("/{id}/deactivate")
     public ResponseEntity<?> deactivateRate(@PathVariable Long id) {
         try {
-            System.out.println("Desactivando tarifa con ID: " + id);
+            log.debug("Desactivando tarifa con ID: {}", id);
             RateEntity rate = rateService.deactivateRate(id);
             return ResponseEntity.ok(rate);
         } catch (Exception e) {
-            System.err.println("Error desactivando tarifa: " + e.getMessage());
+            log.warn("Error desactivando tarifa: {}", e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
@@ -213,7 +209,7 @@ public class RateController {
     @GetMapping("/type/{type}")
     public ResponseEntity<?> getRatesByType(@PathVariable String type) {
         try {
-            System.out.println("Obteniendo tarifas por tipo: " + type);
+            log.debug("Obteniendo tarifas por tipo: {}", type);
             RateEntity.RateType rateType = RateEntity.RateType.valueOf(type.toUpperCase());
             List<RateEntity> rates = rateService.getRatesByType(rateType);
             return ResponseEntity.ok(rates);
@@ -231,7 +227,7 @@ public class RateController {
     @PostMapping("/calculate-repair")
     public ResponseEntity<?> calculateRepairCost(@RequestParam BigDecimal replacementValue) {
         try {
-            System.out.println("Calculando costo de reparación para valor: " + replacementValue);
+            log.debug("Calculando costo de reparación para valor: {}", replacementValue);
             BigDecimal repairCost = rateService.calculateRepairCost(replacementValue);
 
             Map<String, Object> response = new HashMap<>();
@@ -240,7 +236,7 @@ public class RateController {
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            System.err.println("Error calculando costo de reparación: " + e.getMessage());
+            log.warn("Error calculando costo de reparación: {}", e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
@@ -250,7 +246,7 @@ public class RateController {
     @GetMapping("/history/{type}")
     public ResponseEntity<?> getRateHistory(@PathVariable String type) {
         try {
-            System.out.println("Obteniendo historial de tarifas para tipo: " + type);
+            log.debug("Obteniendo historial de tarifas para tipo: {}", type);
             RateEntity.RateType rateType = RateEntity.RateType.valueOf(type.toUpperCase());
             List<RateEntity> history = rateService.getRateHistory(rateType);
             return ResponseEntity.ok(history);
@@ -1,16 +1,24 @@
 package com.toolrent.backend.controllers;
 
 import com.toolrent.backend.dto.ActiveLoansReportDTO;
+import com.toolrent.backend.dto.DailyLoanStatsDTO;
 import com.toolrent.backend.dto.OverdueClientsReportDTO;
 import com.toolrent.backend.dto.PopularToolsReportDTO;
 import com.toolrent.backend.dto.ReportSummaryDTO;
+import com.toolrent.backend.services.LoanDailyRollupService;
+import com.toolrent.backend.services.ReportExportService;
 import com.toolrent.backend.services.ReportService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/reports")
@@ -20,6 +28,12 @@ public class ReportController {
     @Autowired
     private ReportService reportService;
 
+    @Autowired
+    private ReportExportService reportExportService;
+
+    @Autowired
+    private LoanDailyRollupService loanDailyRollupService;
+
     /**
      * RF6.1: Listar préstamos activos y su estado (vigentes, atrasados)
      */
@@ -84,4 +98,72 @@ public class ReportController {
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * Serie diaria de préstamos, devoluciones e ingresos (desde loan_daily_rollup)
+     */
+    @GetMapping("/daily")
+    public ResponseEntity<List<DailyLoanStatsDTO>> getDailyStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+
+        try {
+            return ResponseEntity.ok(reportService.getDailyStats(startDate, endDate));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Reconstruir loan_daily_rollup desde loans y fines para un rango de días (por defecto, todo el historial)
+     */
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildRollups(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+
+        try {
+            LocalDate from = startDate != null ? startDate : loanDailyRollupService.getFirstLoanDate();
+            LocalDate to = endDate != null ? endDate : LocalDate.now();
+            if (from == null) {
+                return ResponseEntity.ok(Map.of("rows", 0, "message", "No hay préstamos registrados"));
+            }
+            return ResponseEntity.ok(loanDailyRollupService.rebuild(from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Exportación en streaming: loans, active-loans o kardex, en CSV o NDJSON (format=csv|ndjson).
+     * Las filas se escriben a la respuesta a medida que se leen de la base de datos.
+     */
+    @GetMapping("/export/{dataset}")
+    public ResponseEntity<StreamingResponseBody> exportReport(
+            @PathVariable String dataset,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+
+        ReportExportService.Dataset exportDataset;
+        ReportExportService.Format exportFormat;
+        try {
+            exportDataset = ReportExportService.Dataset.fromPath(dataset);
+            exportFormat = ReportExportService.Format.fromParam(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        String filename = exportDataset.getPath() + "_" + LocalDate.now() + "." + exportFormat.getExtension();
+        StreamingResponseBody body = out -> reportExportService.export(exportDataset, exportFormat, startDate, endDate, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
 }
@@ -0,0 +1,128 @@
+package com.toolrent.backend.controllers;
+
+import com.toolrent.backend.entities.LoanEntity;
+import com.toolrent.backend.entities.ReservationEntity;
+import com.toolrent.backend.entities.ToolEntity;
+import com.toolrent.backend.services.LoanService;
+import com.toolrent.backend.services.ReservationService;
+import com.toolrent.backend.services.ToolService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/reservations")
+@CrossOrigin("*")
+public class ReservationController {
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private ToolService toolService;
+
+    // Reservas confirmadas que aún no terminan
+    @GetMapping("/")
+    public ResponseEntity<List<ReservationEntity>> getUpcomingReservations() {
+        return ResponseEntity.ok(reservationService.getUpcomingReservations());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ReservationEntity> getReservationById(@PathVariable Long id) {
+        ReservationEntity reservation = reservationService.getReservationById(id);
+        if (reservation == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(reservation);
+    }
+
+    @GetMapping("/tool/{toolId}")
+    public ResponseEntity<List<ReservationEntity>> getReservationsByTool(@PathVariable Long toolId) {
+        return ResponseEntity.ok(reservationService.getUpcomingReservationsByTool(toolId));
+    }
+
+    @GetMapping("/client/{clientId}")
+    public ResponseEntity<List<ReservationEntity>> getReservationsByClient(@PathVariable Long clientId) {
+        return ResponseEntity.ok(reservationService.getReservationsByClient(clientId));
+    }
+
+    // Unidades libres de una herramienta en un período: GET /api/v1/reservations/availability?toolId=1&from=...&to=...
+    @GetMapping("/availability")
+    public ResponseEntity<Map<String, Object>> checkAvailability(@RequestParam Long toolId,
+                                                                 @RequestParam String from,
+                                                                 @RequestParam String to,
+                                                                 @RequestParam(defaultValue = "1") Integer quantity) {
+        try {
+            ToolEntity tool = toolService.getToolById(toolId).orElse(null);
+            return ResponseEntity.ok(loanService.checkToolAvailability(tool, quantity, parseDate(from), parseDate(to)));
+        } catch (RuntimeException e) {
+            return errorResponse(e);
+        }
+    }
+
+    // Body: { clientId, toolId, startDate, endDate, quantity?, notes? }
+    @PostMapping("/")
+    public ResponseEntity<?> createReservation(@RequestBody Map<String, Object> request) {
+        try {
+            if (request.get("clientId") == null || request.get("toolId") == null ||
+                    request.get("startDate") == null || request.get("endDate") == null) {
+                throw new RuntimeException("Datos requeridos faltantes: clientId, toolId, startDate, endDate");
+            }
+            Long clientId = Long.valueOf(request.get("clientId").toString());
+            Long toolId = Long.valueOf(request.get("toolId").toString());
+            Integer quantity = request.get("quantity") != null ? Integer.valueOf(request.get("quantity").toString()) : 1;
+            String notes = request.get("notes") != null ? request.get("notes").toString() : "";
+
+            ReservationEntity reservation = reservationService.createReservation(clientId, toolId,
+                    parseDate(request.get("startDate").toString()), parseDate(request.get("endDate").toString()),
+                    quantity, notes);
+            return ResponseEntity.ok(reservation);
+        } catch (RuntimeException e) {
+            return errorResponse(e);
+        }
+    }
+
+    @PutMapping("/{id}/cancel")
+    public ResponseEntity<?> cancelReservation(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(reservationService.cancelReservation(id));
+        } catch (RuntimeException e) {
+            return errorResponse(e);
+        }
+    }
+
+    // Retiro de la reserva: crea el préstamo y lo retorna
+    @PostMapping("/{id}/fulfill")
+    public ResponseEntity<?> fulfillReservation(@PathVariable Long id) {
+        try {
+            LoanEntity loan = reservationService.fulfillReservation(id);
+            return ResponseEntity.ok(loan);
+        } catch (RuntimeException e) {
+            return errorResponse(e);
+        }
+    }
+
+    private LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value.contains("T") ? value.substring(0, 10) : value);
+        } catch (Exception e) {
+            throw new RuntimeException("Formato de fecha inválido: " + value);
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> errorResponse(RuntimeException e) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", true);
+        errorResponse.put("message", e.getMessage());
+        errorResponse.put("timestamp", java.time.LocalDateTime.now());
+        return ResponseEntity.badRequest().body(errorResponse);
+    }
+}
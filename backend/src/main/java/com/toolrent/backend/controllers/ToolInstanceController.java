@@ -43,6 +43,22 @@ public class ToolInstanceController {
         return ResponseEntity.ok(stats);
     }
 
+    // GET /api/tool-instances/counters/verify - Tools whose counters do not match the instance table
+    @GetMapping("/counters/verify")
+    public ResponseEntity<Map<String, Object>> verifyCounters() {
+        List<Long> inconsistentToolIds = toolInstanceService.findInconsistentCounters();
+        return ResponseEntity.ok(Map.of(
+                "consistent", inconsistentToolIds.isEmpty(),
+                "inconsistentToolIds", inconsistentToolIds));
+    }
+
+    // POST /api/tool-instances/counters/rebuild - Rebuild all counters from the instance table
+    @PostMapping("/counters/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildCounters() {
+        int rebuiltTools = toolInstanceService.rebuildAllCounters();
+        return ResponseEntity.ok(Map.of("rebuiltTools", rebuiltTools));
+    }
+
     // GET /api/tool-instances/status/{status} - Get instances by status
     @GetMapping("/status/{status}")
     public ResponseEntity<List<ToolInstanceEntity>> getInstancesByStatus(@PathVariable String status) {
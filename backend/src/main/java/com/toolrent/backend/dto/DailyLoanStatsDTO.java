@@ -0,0 +1,23 @@
+package com.toolrent.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Totales de un día (ReportService.getDailyStats): días cerrados desde loan_daily_rollup, hoy en vivo.
+// uniqueClients es una estimación (sketch de clientes que iniciaron préstamos ese día).
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyLoanStatsDTO {
+    private LocalDate day;
+    private int loansStarted;
+    private int loansReturned;
+    private int overdueReturns;
+    private int damagedReturns;
+    private double rentalRevenue;
+    private double lateFeeRevenue;
+    private int uniqueClients;
+}
@@ -0,0 +1,32 @@
+package com.toolrent.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resultado de una importación masiva (CatalogImportService): filas leídas, insertadas y rechazadas,
+// con el motivo por fila. row es el número de línea del archivo (la cabecera es la línea 1).
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportReportDTO {
+    private String type;
+    private int totalRows;
+    private int importedRows;
+    private int rejectedRows;
+    private long elapsedMs;
+    private List<RowError> errors = new ArrayList<>();
+    // true si hubo más rechazos que los incluidos en errors
+    private boolean errorsTruncated;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private int row;
+        private String message;
+    }
+}
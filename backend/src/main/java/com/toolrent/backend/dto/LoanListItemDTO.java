@@ -0,0 +1,74 @@
+package com.toolrent.backend.dto;
+
+import com.toolrent.backend.entities.LoanEntity;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Fila liviana del listado paginado de préstamos (GET /api/v1/loans/page).
+// client y tool llevan solo los campos que muestran las listas, con los mismos nombres que LoanEntity.
+@Data
+@NoArgsConstructor
+public class LoanListItemDTO {
+    private Long id;
+    private LocalDate loanDate;
+    private LocalDate agreedReturnDate;
+    private LocalDate actualReturnDate;
+    private LoanEntity.LoanStatus status;
+    private Integer quantity;
+    private BigDecimal dailyRate;
+    private String notes;
+    private ClientSummary client;
+    private ToolSummary tool;
+
+    // Constructor usado por la consulta (SELECT new ...)
+    public LoanListItemDTO(Long id, LocalDate loanDate, LocalDate agreedReturnDate, LocalDate actualReturnDate,
+                           LoanEntity.LoanStatus status, Integer quantity, BigDecimal dailyRate, String notes,
+                           Long clientId, String clientName, String clientRut, String clientEmail, String clientPhone,
+                           Long toolId, String toolName, BigDecimal toolReplacementValue,
+                           Long categoryId, String categoryName) {
+        this.id = id;
+        this.loanDate = loanDate;
+        this.agreedReturnDate = agreedReturnDate;
+        this.actualReturnDate = actualReturnDate;
+        this.status = status;
+        this.quantity = quantity;
+        this.dailyRate = dailyRate;
+        this.notes = notes;
+        this.client = new ClientSummary(clientId, clientName, clientRut, clientEmail, clientPhone);
+        this.tool = new ToolSummary(toolId, toolName, toolReplacementValue,
+                categoryId != null ? new CategorySummary(categoryId, categoryName) : null);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ClientSummary {
+        private Long id;
+        private String name;
+        private String rut;
+        private String email;
+        private String phone;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ToolSummary {
+        private Long id;
+        private String name;
+        private BigDecimal replacementValue;
+        private CategorySummary category;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CategorySummary {
+        private Long id;
+        private String name;
+    }
+}
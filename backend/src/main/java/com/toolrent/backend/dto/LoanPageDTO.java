@@ -0,0 +1,18 @@
+package com.toolrent.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Página del listado de préstamos. nextCursor se envía tal cual en la siguiente petición (null = no hay más).
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanPageDTO {
+    private List<LoanListItemDTO> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private int size;
+}
@@ -0,0 +1,21 @@
+package com.toolrent.backend.dto;
+
+import com.toolrent.backend.entities.LoanEntity;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Filtros del listado paginado de préstamos; los campos null no filtran
+@Data
+@NoArgsConstructor
+public class LoanSearchCriteria {
+    private LoanEntity.LoanStatus status;
+    private Boolean overdue;           // true: activos con fecha acordada vencida (mismo criterio que /overdue)
+    private Long clientId;
+    private Long toolId;
+    private Long categoryId;
+    private LocalDate loanDateFrom;    // inclusive
+    private LocalDate loanDateTo;      // inclusive
+    private boolean ascending;         // orden por (loanDate, id); por defecto más recientes primero
+}
@@ -0,0 +1,19 @@
+package com.toolrent.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Resumen de préstamos para el dashboard (LoanService.getCachedLoanSummary)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanSummaryDTO {
+    private Long totalLoans;
+    private Long activeLoans;
+    private Long overdueLoans;
+    private Long returnedLoans;
+    private Long damagedLoans;
+    private Long loansThisMonth;
+    private Long uniqueActiveClients;
+}
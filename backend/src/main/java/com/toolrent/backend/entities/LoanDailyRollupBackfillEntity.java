@@ -0,0 +1,52 @@
+package com.toolrent.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Reconstrucción de loan_daily_rollup (backfill) de un rango de días, una por cada llamada a rebuild.
+// next_date avanza en la misma transacción que cada mes reconstruido: si la aplicación se detiene a mitad,
+// al iniciar se retoma desde ese día.
+@Entity
+@Table(name = "loan_daily_rollup_backfills")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanDailyRollupBackfillEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "from_date", nullable = false)
+    private LocalDate fromDate;
+
+    @Column(name = "to_date", nullable = false)
+    private LocalDate toDate;
+
+    // Primer día que falta reconstruir
+    @Column(name = "next_date", nullable = false)
+    private LocalDate nextDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BackfillStatus status;
+
+    @Column(name = "rows_inserted", nullable = false)
+    private Long rowsInserted = 0L;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    public enum BackfillStatus {
+        RUNNING,      // En curso o interrumpida (se retoma desde next_date)
+        COMPLETED     // Todos los meses del rango reconstruidos
+    }
+}
@@ -0,0 +1,81 @@
+package com.toolrent.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Totales diarios de préstamos por herramienta y categoría (analítica de rangos largos).
+// Cada evento suma en la fila del día en que ocurrió: inicio en loan_date, devolución en actual_return_date
+// y multa por atraso en la fecha de creación de la multa. Se mantiene en LoanDailyRollupService en la misma
+// transacción que el préstamo, la devolución o la multa, y se puede reconstruir desde loans y fines.
+// category_id = 0 para herramientas sin categoría (es parte de la clave primaria).
+@Entity
+@Table(name = "loan_daily_rollup", indexes = {
+        @Index(name = "idx_loan_daily_rollup_tool_day", columnList = "tool_id, day")
+})
+@IdClass(LoanDailyRollupEntity.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanDailyRollupEntity {
+
+    @Id
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Id
+    @Column(name = "tool_id", nullable = false)
+    private Long toolId;
+
+    @Id
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    @Column(name = "loans_started", nullable = false)
+    private Long loansStarted;
+
+    @Column(name = "quantity_started", nullable = false)
+    private Long quantityStarted;
+
+    // Todas las devoluciones; overdue_returns y damaged_returns siguen el estado final del préstamo
+    // (OVERDUE y DAMAGED), así que loans_returned - overdue_returns - damaged_returns = RETURNED
+    @Column(name = "loans_returned", nullable = false)
+    private Long loansReturned;
+
+    @Column(name = "overdue_returns", nullable = false)
+    private Long overdueReturns;
+
+    @Column(name = "damaged_returns", nullable = false)
+    private Long damagedReturns;
+
+    // Suma de días (devolución - préstamo) de los préstamos devueltos ese día: duración promedio
+    @Column(name = "returned_loan_days", nullable = false)
+    private Long returnedLoanDays;
+
+    // Tarifa diaria * cantidad * días arrendados (mínimo 1), reconocido al devolver
+    @Column(name = "rental_revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal rentalRevenue;
+
+    @Column(name = "late_fee_revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal lateFeeRevenue;
+
+    // Sketch de clientes distintos (conteo lineal): un bit por hash del client_id, se combina con bit_or.
+    // Solo se escribe con SQL nativo (LoanDailyRollupRepository).
+    @Column(name = "client_sketch", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bit(1024) DEFAULT CAST(B'0' AS bit(1024))")
+    private String clientSketch;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private Long toolId;
+        private Long categoryId;
+    }
+}
@@ -9,7 +9,15 @@ import java.time.LocalDate;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "loans")
+// Índices para el listado paginado por keyset (orden loan_date, id), con y sin filtro
+@Table(name = "loans", indexes = {
+        @Index(name = "idx_loans_loan_date_id", columnList = "loan_date, id"),
+        @Index(name = "idx_loans_client_loan_date_id", columnList = "client_id, loan_date, id"),
+        @Index(name = "idx_loans_tool_loan_date_id", columnList = "tool_id, loan_date, id"),
+        @Index(name = "idx_loans_status_loan_date_id", columnList = "status, loan_date, id"),
+        // Devoluciones del día (lecturas en vivo de loan_daily_rollup y su reconstrucción)
+        @Index(name = "idx_loans_actual_return_date", columnList = "actual_return_date")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
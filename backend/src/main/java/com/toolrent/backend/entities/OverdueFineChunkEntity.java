@@ -0,0 +1,47 @@
+package com.toolrent.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Checkpoint de un tramo terminado de una ejecución de multas por atraso.
+// Se guarda en la misma transacción que las multas del tramo: si existe, el tramo no se vuelve a procesar.
+@Entity
+@Table(name = "overdue_fine_chunks",
+        uniqueConstraints = @UniqueConstraint(name = "uk_overdue_fine_chunks_run_chunk", columnNames = {"run_id", "chunk_index"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OverdueFineChunkEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex;
+
+    @Column(name = "from_loan_id", nullable = false)
+    private Long fromLoanId;
+
+    @Column(name = "to_loan_id", nullable = false)
+    private Long toLoanId;
+
+    @Column(name = "fines_created", nullable = false)
+    private Integer finesCreated;
+
+    @Column(name = "amounts_updated", nullable = false)
+    private Integer amountsUpdated;
+
+    @Column(name = "duration_ms", nullable = false)
+    private Long durationMs;
+
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+}
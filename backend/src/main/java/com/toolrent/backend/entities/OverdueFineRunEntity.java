@@ -0,0 +1,78 @@
+package com.toolrent.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Ejecución diaria del cálculo de multas por atraso (una por fecha).
+// Los préstamos atrasados se dividen en tramos de IDs; cada tramo terminado queda en overdue_fine_chunks.
+@Entity
+@Table(name = "overdue_fine_runs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OverdueFineRunEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_date", nullable = false, unique = true)
+    private LocalDate runDate;
+
+    // Tarifa fijada al iniciar, para que una ejecución retomada calcule igual que la original
+    @Column(name = "late_fee_rate", nullable = false, precision = 10, scale = 2)
+    private BigDecimal lateFeeRate;
+
+    @Column(name = "first_loan_id", nullable = false)
+    private Long firstLoanId;
+
+    @Column(name = "last_loan_id", nullable = false)
+    private Long lastLoanId;
+
+    @Column(name = "chunk_size", nullable = false)
+    private Integer chunkSize;
+
+    @Column(name = "total_chunks", nullable = false)
+    private Integer totalChunks;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RunStatus status;
+
+    @Column(name = "fines_created", nullable = false)
+    private Long finesCreated = 0L;
+
+    @Column(name = "amounts_updated", nullable = false)
+    private Long amountsUpdated = 0L;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    public enum RunStatus {
+        RUNNING,      // En curso o interrumpida (se retoma desde los tramos pendientes)
+        COMPLETED,    // Todos los tramos terminados
+        FAILED,       // Terminó con tramos fallidos (se reintentan en la próxima ejecución del día)
+        ABANDONED     // Quedó pendiente de un día anterior; la ejecución del día nuevo la reemplaza
+    }
+
+    // Business methods
+    public long getChunkFromLoanId(int chunkIndex) {
+        return firstLoanId + (long) chunkIndex * chunkSize;
+    }
+
+    public long getChunkToLoanId(int chunkIndex) {
+        return Math.min(lastLoanId, getChunkFromLoanId(chunkIndex) + chunkSize - 1);
+    }
+}
@@ -0,0 +1,65 @@
+package com.toolrent.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Reserva de una herramienta para un rango de fechas futuro.
+// Ocupa unidades en ToolAvailabilityIndexService igual que un préstamo activo; al retirarla se convierte en préstamo.
+@Entity
+@Table(name = "reservations", indexes = {
+        @Index(name = "idx_reservations_tool_status_end", columnList = "tool_id, status, end_date"),
+        @Index(name = "idx_reservations_client_status", columnList = "client_id, status")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "client_id", nullable = false)
+    private ClientEntity client;
+
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "tool_id", nullable = false)
+    private ToolEntity tool;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    // Día de retiro y día acordado de devolución del préstamo que se creará
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+
+    @Column(name = "end_date", nullable = false)
+    private LocalDate endDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ReservationStatus status;
+
+    // Préstamo creado al retirar la reserva
+    @Column(name = "loan_id")
+    private Long loanId;
+
+    @Column(length = 500)
+    private String notes;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public enum ReservationStatus {
+        CONFIRMED,  // ocupa unidades en su rango de fechas
+        FULFILLED,  // retirada: convertida en préstamo
+        CANCELLED,
+        EXPIRED     // terminó su rango sin retirarse
+    }
+}
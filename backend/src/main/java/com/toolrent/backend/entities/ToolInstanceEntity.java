@@ -7,7 +7,10 @@ import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
-@Table(name = "tool_instances")
+// Índice por herramienta y estado: conteos y reservas por herramienta no recorren toda la tabla
+@Table(name = "tool_instances", indexes = {
+        @Index(name = "idx_tool_instances_tool_status", columnList = "tool_id, status")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
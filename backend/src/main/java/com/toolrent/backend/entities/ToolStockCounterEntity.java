@@ -0,0 +1,32 @@
+package com.toolrent.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Conteo de instancias por estado para cada herramienta.
+// Se mantiene en ToolInstanceService en cada cambio de estado y se puede reconstruir desde tool_instances.
+@Entity
+@Table(name = "tool_stock_counters")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ToolStockCounterEntity {
+
+    @Id
+    @Column(name = "tool_id")
+    private Long toolId;
+
+    @Column(nullable = false)
+    private Long available;
+
+    @Column(nullable = false)
+    private Long loaned;
+
+    @Column(name = "under_repair", nullable = false)
+    private Long underRepair;
+
+    @Column(nullable = false)
+    private Long decommissioned;
+}
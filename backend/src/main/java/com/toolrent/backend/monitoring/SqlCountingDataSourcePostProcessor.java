@@ -0,0 +1,107 @@
+package com.toolrent.backend.monitoring;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+// Envuelve el DataSource de la aplicación para contar y cronometrar cada sentencia SQL ejecutada.
+// Proxies JDK sobre DataSource -> Connection -> Statement: solo se interceptan los métodos execute*,
+// el resto se delega tal cual (unwrap incluido, así Hikari y el driver siguen accesibles).
+// Un executeBatch cuenta como una sentencia: es un solo viaje a la base de datos.
+@Component
+@ConditionalOnProperty(name = "toolrent.sql-stats.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlCountingDataSourcePostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !Proxy.isProxyClass(bean.getClass())) {
+            return proxy(DataSource.class, dataSource, new DataSourceHandler(dataSource));
+        }
+        return bean;
+    }
+
+    private static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(SqlCountingDataSourcePostProcessor.class.getClassLoader(),
+                new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class DataSourceHandler implements InvocationHandler {
+        private final DataSource target;
+
+        DataSourceHandler(DataSource target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SqlCountingDataSourcePostProcessor.invoke(target, method, args);
+            if (result instanceof Connection connection && method.getName().equals("getConnection")) {
+                return proxy(Connection.class, connection, new ConnectionHandler(connection));
+            }
+            return result;
+        }
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SqlCountingDataSourcePostProcessor.invoke(target, method, args);
+            switch (method.getName()) {
+                case "prepareCall":
+                    return proxy(CallableStatement.class, result, new StatementHandler((Statement) result));
+                case "prepareStatement":
+                    return proxy(PreparedStatement.class, result, new StatementHandler((Statement) result));
+                case "createStatement":
+                    return proxy(Statement.class, result, new StatementHandler((Statement) result));
+                default:
+                    return result;
+            }
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement target;
+
+        StatementHandler(Statement target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            SqlStatementStats stats = SqlStatementStats.current();
+            if (stats == null || !method.getName().startsWith("execute")) {
+                return SqlCountingDataSourcePostProcessor.invoke(target, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return SqlCountingDataSourcePostProcessor.invoke(target, method, args);
+            } finally {
+                stats.record(System.nanoTime() - start);
+            }
+        }
+    }
+}
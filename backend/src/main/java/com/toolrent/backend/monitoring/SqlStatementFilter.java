@@ -0,0 +1,91 @@
+package com.toolrent.backend.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Sentencias SQL y tiempo en base de datos por request HTTP.
+//  - Métricas toolrent.http.sql.statements / toolrent.http.sql.time por endpoint (patrón de la ruta, no la URL)
+//  - WARN cuando un request supera toolrent.sql-stats.statement-budget sentencias (típico N+1)
+//  - Con toolrent.sql-stats.response-headers=true, headers X-SQL-Count y X-SQL-Time-Ms. Para que incluyan
+//    las consultas hechas al serializar la respuesta, el cuerpo se retiene hasta el final: solo para desarrollo.
+@Component
+@Slf4j
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(name = "toolrent.sql-stats.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlStatementFilter extends OncePerRequestFilter {
+
+    public static final String COUNT_HEADER = "X-SQL-Count";
+    public static final String TIME_HEADER = "X-SQL-Time-Ms";
+
+    private final MeterRegistry meterRegistry;
+    private final int statementBudget;
+    private final boolean responseHeaders;
+
+    public SqlStatementFilter(MeterRegistry meterRegistry,
+                              @Value("${toolrent.sql-stats.statement-budget:30}") int statementBudget,
+                              @Value("${toolrent.sql-stats.response-headers:false}") boolean responseHeaders) {
+        this.meterRegistry = meterRegistry;
+        this.statementBudget = statementBudget;
+        this.responseHeaders = responseHeaders;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper cachingResponse = responseHeaders ? new ContentCachingResponseWrapper(response) : null;
+        SqlStatementStats stats = SqlStatementStats.start();
+        try {
+            filterChain.doFilter(request, cachingResponse != null ? cachingResponse : response);
+        } finally {
+            SqlStatementStats.stop();
+            record(request, stats);
+            if (cachingResponse != null) {
+                cachingResponse.setHeader(COUNT_HEADER, String.valueOf(stats.getStatements()));
+                cachingResponse.setHeader(TIME_HEADER, String.valueOf(stats.getElapsedMillis()));
+                cachingResponse.copyBodyToResponse();
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStatementStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = pattern != null ? pattern.toString() : "UNMAPPED";
+        String method = request.getMethod();
+
+        DistributionSummary.builder("toolrent.http.sql.statements")
+                .description("Sentencias SQL ejecutadas por request")
+                .tag("method", method)
+                .tag("uri", endpoint)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        Timer.builder("toolrent.http.sql.time")
+                .description("Tiempo en base de datos por request")
+                .tag("method", method)
+                .tag("uri", endpoint)
+                .register(meterRegistry)
+                .record(stats.getElapsedNanos(), TimeUnit.NANOSECONDS);
+
+        if (stats.getStatements() > statementBudget) {
+            log.warn("{} {} ejecutó {} sentencias SQL ({} ms en base de datos); presupuesto: {}",
+                    method, endpoint, stats.getStatements(), stats.getElapsedMillis(), statementBudget);
+        }
+    }
+}
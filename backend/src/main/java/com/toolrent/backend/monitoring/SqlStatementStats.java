@@ -0,0 +1,46 @@
+package com.toolrent.backend.monitoring;
+
+// Contador de sentencias SQL del request en curso (un ThreadLocal por hilo de request).
+// Lo abre y cierra SqlStatementFilter; lo alimenta el DataSource envuelto por SqlCountingDataSourcePostProcessor.
+// Fuera de un request (jobs programados, hilos de pools propios) no hay contador y las sentencias no se cuentan.
+public final class SqlStatementStats {
+
+    private static final ThreadLocal<SqlStatementStats> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private long elapsedNanos;
+
+    private SqlStatementStats() {
+    }
+
+    static SqlStatementStats start() {
+        SqlStatementStats stats = new SqlStatementStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    static SqlStatementStats current() {
+        return CURRENT.get();
+    }
+
+    void record(long nanos) {
+        statements++;
+        elapsedNanos += nanos;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+}
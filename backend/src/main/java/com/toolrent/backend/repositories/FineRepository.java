@@ -4,6 +4,7 @@ import com.toolrent.backend.entities.FineEntity;
 import com.toolrent.backend.entities.ClientEntity;
 import com.toolrent.backend.entities.LoanEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -54,6 +55,10 @@ public interface FineRepository extends JpaRepository<FineEntity, Long> {
     @Query("SELECT COALESCE(SUM(f.amount), 0) FROM FineEntity f WHERE f.client = :client AND f.paid = false")
     BigDecimal getTotalUnpaidAmountByClient(@Param("client") ClientEntity client);
 
+    // RF2.5: Cantidad y monto de multas impagas del cliente en una sola consulta
+    @Query("SELECT COUNT(f), COALESCE(SUM(f.amount), 0) FROM FineEntity f WHERE f.client.id = :clientId AND f.paid = false")
+    List<Object[]> findUnpaidSummaryByClientId(@Param("clientId") Long clientId);
+
     // Get total unpaid amount for all clients
     @Query("SELECT COALESCE(SUM(f.amount), 0) FROM FineEntity f WHERE f.paid = false")
     BigDecimal getTotalUnpaidAmount();
@@ -76,4 +81,44 @@ public interface FineRepository extends JpaRepository<FineEntity, Long> {
     @Query("SELECT f FROM FineEntity f WHERE f.amount BETWEEN :minAmount AND :maxAmount")
     List<FineEntity> findByAmountBetween(@Param("minAmount") BigDecimal minAmount,
                                          @Param("maxAmount") BigDecimal maxAmount);
-}
\ No newline at end of file
+
+    // Multas por atraso en bloque (préstamos con ID entre :fromLoanId y :toLoanId).
+    // Una multa de atraso "abierta" es LATE_RETURN, impaga y sin tipo de daño.
+
+    // Crear la multa de los préstamos atrasados que aún no tienen una multa de atraso abierta y restringir
+    // a los clientes de las multas creadas (como createFine). Retorna la cantidad de multas creadas.
+    @Query(value = "WITH inserted AS (" +
+            "INSERT INTO fines (client_id, loan_id, type, amount, description, paid, due_date, created_at) " +
+            "SELECT l.client_id, l.id, 'LATE_RETURN', :rate * (CAST(:today AS date) - l.agreed_return_date), " +
+            "'Multa por préstamo atrasado - ' || (CAST(:today AS date) - l.agreed_return_date) || ' día(s) de atraso ' || " +
+            "'(Préstamo #' || l.id || ' - Cliente: ' || c.name || ')', " +
+            "false, CAST(:today AS date) + 30, LOCALTIMESTAMP " +
+            "FROM loans l JOIN clients c ON c.id = l.client_id " +
+            "WHERE l.status = 'ACTIVE' AND l.actual_return_date IS NULL " +
+            "AND l.agreed_return_date < CAST(:today AS date) " +
+            "AND l.id BETWEEN :fromLoanId AND :toLoanId " +
+            "AND NOT EXISTS (SELECT 1 FROM fines f WHERE f.loan_id = l.id AND f.type = 'LATE_RETURN' " +
+            "AND f.paid = false AND f.damage_type IS NULL) " +
+            "RETURNING client_id), " +
+            "restricted AS (UPDATE clients SET status = 'RESTRICTED' " +
+            "WHERE status <> 'RESTRICTED' AND id IN (SELECT client_id FROM inserted)) " +
+            "SELECT COUNT(*) FROM inserted",
+            nativeQuery = true)
+    int insertMissingLateFines(@Param("today") LocalDate today, @Param("rate") BigDecimal rate,
+                               @Param("fromLoanId") Long fromLoanId, @Param("toLoanId") Long toLoanId);
+
+    // Recalcular el monto (tarifa * días de atraso) de las multas abiertas; solo sube, nunca baja
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE fines f SET amount = :rate * (CAST(:today AS date) - l.agreed_return_date), " +
+            "description = 'Multa por préstamo atrasado - ' || (CAST(:today AS date) - l.agreed_return_date) || " +
+            "' día(s) de atraso (Préstamo #' || l.id || ' - Cliente: ' || c.name || ')' " +
+            "FROM loans l JOIN clients c ON c.id = l.client_id " +
+            "WHERE f.loan_id = l.id AND f.type = 'LATE_RETURN' AND f.paid = false AND f.damage_type IS NULL " +
+            "AND l.status = 'ACTIVE' AND l.actual_return_date IS NULL " +
+            "AND l.agreed_return_date < CAST(:today AS date) " +
+            "AND l.id BETWEEN :fromLoanId AND :toLoanId " +
+            "AND f.amount < :rate * (CAST(:today AS date) - l.agreed_return_date)",
+            nativeQuery = true)
+    int updateLateFineAmounts(@Param("today") LocalDate today, @Param("rate") BigDecimal rate,
+                              @Param("fromLoanId") Long fromLoanId, @Param("toLoanId") Long toLoanId);
+}
@@ -0,0 +1,34 @@
+package com.toolrent.backend.repositories;
+
+import com.toolrent.backend.entities.IdempotencyKeyEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKeyEntity, Long> {
+
+    Optional<IdempotencyKeyEntity> findByIdempotencyKey(String idempotencyKey);
+
+    // Liberar una clave cuya operación falló, para que el reintento la vuelva a ejecutar
+    @Modifying
+    @Query("DELETE FROM IdempotencyKeyEntity k WHERE k.idempotencyKey = :key AND k.status = 'IN_PROGRESS'")
+    int deleteInProgress(@Param("key") String key);
+
+    // Borrar una clave vencida (o una en proceso abandonada) antes de reutilizarla
+    @Modifying
+    @Query("DELETE FROM IdempotencyKeyEntity k WHERE k.id = :id")
+    int deleteByIdNow(@Param("id") Long id);
+
+    // Purga por lotes de claves vencidas: cada llamada borra a lo más :batchSize filas
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_keys WHERE id IN (" +
+            "SELECT id FROM idempotency_keys WHERE expires_at < :now ORDER BY expires_at LIMIT :batchSize)",
+            nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("batchSize") int batchSize);
+}
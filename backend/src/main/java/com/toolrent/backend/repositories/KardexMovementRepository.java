@@ -4,6 +4,7 @@ import com.toolrent.backend.entities.KardexMovementEntity;
 import com.toolrent.backend.entities.ToolEntity;
 import com.toolrent.backend.entities.LoanEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -14,6 +15,20 @@ import java.util.List;
 @Repository
 public interface KardexMovementRepository extends JpaRepository<KardexMovementEntity, Long> {
 
+    // Movimientos LOAN de un préstamo múltiple en una sola sentencia. El stock previo y posterior sale de la
+    // herramienta, que la transacción del préstamo tiene bloqueada (una línea por herramienta en el lote).
+    // :loanIds y :instanceIds son arreglos ('{1,2}') en el mismo orden; NULL = préstamo sin instancia.
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO kardex_movements (tool_id, tool_instance_id, type, quantity, stock_before, stock_after, " +
+            "description, related_loan_id, created_at) " +
+            "SELECT l.tool_id, m.instance_id, 'LOAN', l.quantity, t.current_stock + l.quantity, t.current_stock, " +
+            "'Loan #' || l.id || ' - Client: ' || CAST(:clientName AS varchar), l.id, CAST(:createdAt AS timestamp) " +
+            "FROM unnest(CAST(:loanIds AS bigint[]), CAST(:instanceIds AS bigint[])) AS m(loan_id, instance_id) " +
+            "JOIN loans l ON l.id = m.loan_id JOIN tools t ON t.id = l.tool_id ORDER BY l.id",
+            nativeQuery = true)
+    int insertLoanMovements(@Param("loanIds") String loanIds, @Param("instanceIds") String instanceIds,
+                            @Param("clientName") String clientName, @Param("createdAt") LocalDateTime createdAt);
+
     // RF5.2: Query movement history by tool
     @Query("SELECT k FROM KardexMovementEntity k WHERE k.tool = :tool ORDER BY k.createdAt DESC")
     List<KardexMovementEntity> findByToolOrderByCreatedAtDesc(@Param("tool") ToolEntity tool);
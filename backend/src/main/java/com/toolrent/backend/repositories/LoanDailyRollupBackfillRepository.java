@@ -0,0 +1,14 @@
+package com.toolrent.backend.repositories;
+
+import com.toolrent.backend.entities.LoanDailyRollupBackfillEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LoanDailyRollupBackfillRepository extends JpaRepository<LoanDailyRollupBackfillEntity, Long> {
+
+    // Reconstrucciones que quedaron sin terminar, en el orden en que se iniciaron
+    List<LoanDailyRollupBackfillEntity> findByStatusOrderByIdAsc(LoanDailyRollupBackfillEntity.BackfillStatus status);
+}
@@ -0,0 +1,156 @@
+package com.toolrent.backend.repositories;
+
+import com.toolrent.backend.entities.LoanDailyRollupEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface LoanDailyRollupRepository extends JpaRepository<LoanDailyRollupEntity, LoanDailyRollupEntity.Key> {
+
+    // Posición del bit de un cliente en el sketch (hash multiplicativo de 32 bits, 10 bits altos).
+    // Debe coincidir con LoanDailyRollupService.clientBit.
+    String CLIENT_BIT = "CAST(((l.client_id * 2654435761) % 4294967296) / 4194304 AS int)";
+
+    String EMPTY_SKETCH = "CAST(B'0' AS bit(1024))";
+
+    // Eventos de préstamos entre :eventFrom y :eventTo con la misma atribución que el mantenimiento
+    // incremental: inicio en loan_date, devolución en actual_return_date, multa por atraso en su creación.
+    // La reconstrucción agrupa estos eventos y los reportes los leen en vivo para el día de hoy.
+    String EVENTS = "SELECT l.loan_date AS day, l.tool_id, COALESCE(t.category_id, 0) AS category_id, " +
+            "1 AS loans_started, l.quantity AS quantity_started, 0 AS loans_returned, 0 AS overdue_returns, " +
+            "0 AS damaged_returns, 0 AS returned_loan_days, CAST(0 AS numeric) AS rental_revenue, " +
+            "CAST(0 AS numeric) AS late_fee_revenue, CAST(B'1' AS bit(1024)) >> " + CLIENT_BIT + " AS client_sketch " +
+            "FROM loans l JOIN tools t ON t.id = l.tool_id " +
+            "WHERE l.loan_date BETWEEN :eventFrom AND :eventTo " +
+            "UNION ALL " +
+            "SELECT l.actual_return_date, l.tool_id, COALESCE(t.category_id, 0), 0, 0, 1, " +
+            "CASE WHEN l.status = 'OVERDUE' THEN 1 ELSE 0 END, CASE WHEN l.status = 'DAMAGED' THEN 1 ELSE 0 END, " +
+            "l.actual_return_date - l.loan_date, " +
+            "l.daily_rate * l.quantity * GREATEST(l.actual_return_date - l.loan_date, 1), 0, " + EMPTY_SKETCH + " " +
+            "FROM loans l JOIN tools t ON t.id = l.tool_id " +
+            "WHERE l.actual_return_date BETWEEN :eventFrom AND :eventTo " +
+            "UNION ALL " +
+            "SELECT CAST(f.created_at AS date), l.tool_id, COALESCE(t.category_id, 0), 0, 0, 0, 0, 0, 0, 0, " +
+            "f.amount, " + EMPTY_SKETCH + " " +
+            "FROM fines f JOIN loans l ON l.id = f.loan_id JOIN tools t ON t.id = l.tool_id " +
+            "WHERE f.type = 'LATE_RETURN' AND f.created_at >= :eventFrom " +
+            "AND f.created_at < CAST(:eventTo AS date) + 1";
+
+    // Filas de días cerrados (anteriores a :today) dentro del período, con las mismas columnas que EVENTS
+    String CLOSED_DAYS = "SELECT r.day, r.tool_id, r.category_id, r.loans_started, r.quantity_started, " +
+            "r.loans_returned, r.overdue_returns, r.damaged_returns, r.returned_loan_days, r.rental_revenue, " +
+            "r.late_fee_revenue, r.client_sketch FROM loan_daily_rollup r " +
+            "WHERE r.day BETWEEN :startDate AND :endDate AND r.day < :today";
+
+    String COLUMNS = "day, tool_id, category_id, loans_started, quantity_started, loans_returned, overdue_returns, " +
+            "damaged_returns, returned_loan_days, rental_revenue, late_fee_revenue, client_sketch";
+
+    // Bloqueo consultivo de la transacción: el mantenimiento incremental lo toma compartido y la reconstrucción
+    // de cada mes exclusivo, para que una reconstrucción no borre ni agrupe días mientras otra transacción
+    // les suma deltas (se libera al confirmar o revertir)
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock_shared(hashtext('loan_daily_rollup'))", nativeQuery = true)
+    Integer lockForIncrementalUpdate();
+
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtext('loan_daily_rollup'))", nativeQuery = true)
+    Integer lockForRebuild();
+
+    // Sumar deltas a la fila del día (crea la fila si no existe); el sketch se combina con OR
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO loan_daily_rollup (" + COLUMNS + ") " +
+            "VALUES (:day, :toolId, :categoryId, :loansStarted, :quantityStarted, :loansReturned, :overdueReturns, " +
+            ":damagedReturns, :returnedLoanDays, :rentalRevenue, :lateFeeRevenue, CAST(:clientSketch AS bit(1024))) " +
+            "ON CONFLICT (day, tool_id, category_id) DO UPDATE SET " +
+            "loans_started = loan_daily_rollup.loans_started + EXCLUDED.loans_started, " +
+            "quantity_started = loan_daily_rollup.quantity_started + EXCLUDED.quantity_started, " +
+            "loans_returned = loan_daily_rollup.loans_returned + EXCLUDED.loans_returned, " +
+            "overdue_returns = loan_daily_rollup.overdue_returns + EXCLUDED.overdue_returns, " +
+            "damaged_returns = loan_daily_rollup.damaged_returns + EXCLUDED.damaged_returns, " +
+            "returned_loan_days = loan_daily_rollup.returned_loan_days + EXCLUDED.returned_loan_days, " +
+            "rental_revenue = loan_daily_rollup.rental_revenue + EXCLUDED.rental_revenue, " +
+            "late_fee_revenue = loan_daily_rollup.late_fee_revenue + EXCLUDED.late_fee_revenue, " +
+            "client_sketch = loan_daily_rollup.client_sketch | EXCLUDED.client_sketch",
+            nativeQuery = true)
+    int addToRollup(@Param("day") LocalDate day, @Param("toolId") Long toolId, @Param("categoryId") Long categoryId,
+                    @Param("loansStarted") long loansStarted, @Param("quantityStarted") long quantityStarted,
+                    @Param("loansReturned") long loansReturned, @Param("overdueReturns") long overdueReturns,
+                    @Param("damagedReturns") long damagedReturns, @Param("returnedLoanDays") long returnedLoanDays,
+                    @Param("rentalRevenue") BigDecimal rentalRevenue, @Param("lateFeeRevenue") BigDecimal lateFeeRevenue,
+                    @Param("clientSketch") String clientSketch);
+
+    // Reconstrucción de un rango de días desde loans y fines (backfill): borrar y volver a agrupar
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM loan_daily_rollup WHERE day BETWEEN :eventFrom AND :eventTo", nativeQuery = true)
+    int deleteRange(@Param("eventFrom") LocalDate eventFrom, @Param("eventTo") LocalDate eventTo);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO loan_daily_rollup (" + COLUMNS + ") " +
+            "SELECT e.day, e.tool_id, e.category_id, SUM(e.loans_started), SUM(e.quantity_started), " +
+            "SUM(e.loans_returned), SUM(e.overdue_returns), SUM(e.damaged_returns), SUM(e.returned_loan_days), " +
+            "SUM(e.rental_revenue), SUM(e.late_fee_revenue), BIT_OR(e.client_sketch) " +
+            "FROM (" + EVENTS + ") e GROUP BY e.day, e.tool_id, e.category_id",
+            nativeQuery = true)
+    int insertRange(@Param("eventFrom") LocalDate eventFrom, @Param("eventTo") LocalDate eventTo);
+
+    // El cálculo diario de multas sube los montos de las multas por atraso impagas: recalcular el total
+    // de multas por atraso de los días en que se crearon esas multas
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO loan_daily_rollup (day, tool_id, category_id, loans_started, quantity_started, " +
+            "loans_returned, overdue_returns, damaged_returns, returned_loan_days, rental_revenue, late_fee_revenue) " +
+            "SELECT CAST(f.created_at AS date), l.tool_id, COALESCE(t.category_id, 0), 0, 0, 0, 0, 0, 0, 0, SUM(f.amount) " +
+            "FROM fines f JOIN loans l ON l.id = f.loan_id JOIN tools t ON t.id = l.tool_id " +
+            "WHERE f.type = 'LATE_RETURN' AND CAST(f.created_at AS date) IN " +
+            "(SELECT DISTINCT CAST(o.created_at AS date) FROM fines o WHERE o.type = 'LATE_RETURN' AND o.paid = false) " +
+            "GROUP BY CAST(f.created_at AS date), l.tool_id, COALESCE(t.category_id, 0) " +
+            "ON CONFLICT (day, tool_id, category_id) DO UPDATE SET late_fee_revenue = EXCLUDED.late_fee_revenue",
+            nativeQuery = true)
+    int refreshOpenLateFees();
+
+    // ========== LECTURAS: días cerrados desde la rollup, hoy en vivo ==========
+
+    // RF6.3: una fila por herramienta con préstamos iniciados en el período: id, nombre, categoría, préstamos,
+    // unidades, bits del sketch de clientes, duración promedio de las devoluciones del período;
+    // más el total de herramientas y de préstamos del período (ventana)
+    @Query(value = "SELECT t.id, t.name, cat.name AS category_name, SUM(e.loans_started) AS total_loans, " +
+            "SUM(e.quantity_started) AS total_quantity, " +
+            "LENGTH(REPLACE(CAST(BIT_OR(e.client_sketch) AS text), '0', '')) AS client_bits, " +
+            "CAST(SUM(e.returned_loan_days) AS numeric) / NULLIF(SUM(e.loans_returned), 0) AS avg_duration, " +
+            "COUNT(*) OVER () AS tools_analyzed, SUM(SUM(e.loans_started)) OVER () AS loans_analyzed " +
+            "FROM (" + CLOSED_DAYS + " UNION ALL " + EVENTS + ") e " +
+            "JOIN tools t ON t.id = e.tool_id LEFT JOIN categories cat ON cat.id = t.category_id " +
+            "GROUP BY t.id, t.name, cat.name " +
+            "HAVING SUM(e.loans_started) > 0 " +
+            "ORDER BY total_loans DESC, t.id " +
+            "LIMIT :limit",
+            nativeQuery = true)
+    List<Object[]> aggregatePopularTools(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate,
+                                         @Param("today") LocalDate today, @Param("eventFrom") LocalDate eventFrom,
+                                         @Param("eventTo") LocalDate eventTo, @Param("limit") int limit);
+
+    // Serie diaria del período: día, préstamos iniciados, devoluciones, devoluciones atrasadas y con daño,
+    // ingresos por arriendo y por multas de atraso, bits del sketch de clientes
+    @Query(value = "SELECT e.day, SUM(e.loans_started), SUM(e.loans_returned), SUM(e.overdue_returns), " +
+            "SUM(e.damaged_returns), SUM(e.rental_revenue), SUM(e.late_fee_revenue), " +
+            "LENGTH(REPLACE(CAST(BIT_OR(e.client_sketch) AS text), '0', '')) " +
+            "FROM (" + CLOSED_DAYS + " UNION ALL " + EVENTS + ") e " +
+            "GROUP BY e.day ORDER BY e.day",
+            nativeQuery = true)
+    List<Object[]> findDailyTotals(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate,
+                                   @Param("today") LocalDate today, @Param("eventFrom") LocalDate eventFrom,
+                                   @Param("eventTo") LocalDate eventTo);
+
+    // Resumen del dashboard, parte de días cerrados: préstamos, devueltos (estado RETURNED), con daño y del mes
+    @Query(value = "SELECT COALESCE(SUM(r.loans_started), 0), " +
+            "COALESCE(SUM(r.loans_returned - r.overdue_returns - r.damaged_returns), 0), " +
+            "COALESCE(SUM(r.damaged_returns), 0), " +
+            "COALESCE(SUM(r.loans_started) FILTER (WHERE r.day >= :monthStart), 0) " +
+            "FROM loan_daily_rollup r WHERE r.day < :today",
+            nativeQuery = true)
+    List<Object[]> summarizeClosedDays(@Param("today") LocalDate today, @Param("monthStart") LocalDate monthStart);
+}
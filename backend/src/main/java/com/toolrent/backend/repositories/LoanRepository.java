@@ -3,16 +3,20 @@ package com.toolrent.backend.repositories;
 import com.toolrent.backend.entities.LoanEntity;
 import com.toolrent.backend.entities.ClientEntity;
 import com.toolrent.backend.entities.ToolEntity;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface LoanRepository extends JpaRepository<LoanEntity, Long> {
+public interface LoanRepository extends JpaRepository<LoanEntity, Long>, LoanRepositoryCustom {
 
     // RF2.5: Bloquear préstamos - buscar préstamos vencidos del cliente
     @Query("SELECT l FROM LoanEntity l WHERE l.client = :client AND l.status = 'ACTIVE' AND l.agreedReturnDate < :currentDate")
@@ -26,10 +30,50 @@ public interface LoanRepository extends JpaRepository<LoanEntity, Long> {
     @Query("SELECT CASE WHEN COUNT(l) > 0 THEN true ELSE false END FROM LoanEntity l WHERE l.client = :client AND l.tool = :tool AND l.status = 'ACTIVE'")
     boolean existsActiveLoanByClientAndTool(@Param("client") ClientEntity client, @Param("tool") ToolEntity tool);
 
+    // Mismo chequeo por IDs, para validar sin cargar antes el cliente y la herramienta
+    @Query("SELECT CASE WHEN COUNT(l) > 0 THEN true ELSE false END FROM LoanEntity l WHERE l.client.id = :clientId AND l.tool.id = :toolId AND l.status = 'ACTIVE'")
+    boolean existsActiveLoanByClientIdAndToolId(@Param("clientId") Long clientId, @Param("toolId") Long toolId);
+
     // RF2.5: Contar préstamos activos del cliente (máximo 5)
     @Query("SELECT COUNT(l) FROM LoanEntity l WHERE l.client = :client AND l.status = 'ACTIVE'")
     long countActiveLoansByClient(@Param("client") ClientEntity client);
 
+    // RF2.5: Herramientas con préstamo activo del cliente (validación de préstamos múltiples)
+    @Query("SELECT l.tool.id FROM LoanEntity l WHERE l.client = :client AND l.status = 'ACTIVE'")
+    List<Long> findActiveToolIdsByClient(@Param("client") ClientEntity client);
+
+    // RF2.5: Fechas acordadas de los préstamos activos del cliente (snapshot de elegibilidad)
+    @Query("SELECT l.agreedReturnDate FROM LoanEntity l WHERE l.client.id = :clientId AND l.status = 'ACTIVE'")
+    List<LocalDate> findActiveReturnDatesByClientId(@Param("clientId") Long clientId);
+
+    // Devoluciones: bloquear el préstamo antes de revisar que siga ACTIVE, para que dos devoluciones
+    // simultáneas (individual y múltiple) no devuelvan el stock dos veces
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM LoanEntity l WHERE l.id = :id")
+    Optional<LoanEntity> findByIdForUpdate(@Param("id") Long id);
+
+    // Mismo bloqueo para la devolución múltiple, en orden de ID para no bloquearse en orden inverso
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM LoanEntity l WHERE l.id IN :ids ORDER BY l.id")
+    List<LoanEntity> findAllByIdForUpdate(@Param("ids") List<Long> ids);
+
+    // Préstamo múltiple: insertar los préstamos de todas las herramientas en una sola sentencia
+    // (con IDENTITY, Hibernate hace un INSERT por entidad); la tarifa diaria es la de cada herramienta.
+    // Fila: id del préstamo, tool_id
+    @Query(value = "INSERT INTO loans (client_id, tool_id, quantity, loan_date, agreed_return_date, daily_rate, notes, status) " +
+            "SELECT :clientId, t.id, :quantity, CAST(:loanDate AS date), CAST(:agreedReturnDate AS date), " +
+            "t.rental_rate, CAST(:notes AS varchar), 'ACTIVE' " +
+            "FROM tools t WHERE t.id IN (:toolIds) ORDER BY t.id RETURNING id, tool_id",
+            nativeQuery = true)
+    List<Object[]> insertActiveLoans(@Param("clientId") Long clientId, @Param("toolIds") Collection<Long> toolIds,
+                                     @Param("quantity") int quantity, @Param("loanDate") LocalDate loanDate,
+                                     @Param("agreedReturnDate") LocalDate agreedReturnDate,
+                                     @Param("notes") String notes);
+
+    // Carga del índice de disponibilidad: id, herramienta, rango y cantidad de los préstamos activos
+    @Query("SELECT l.id, l.tool.id, l.loanDate, l.agreedReturnDate, l.quantity FROM LoanEntity l WHERE l.status = 'ACTIVE'")
+    List<Object[]> findActiveIntervals();
+
     // Consultas para reportes - RF6.1, RF6.2, RF6.3
     @Query("SELECT l FROM LoanEntity l WHERE l.loanDate BETWEEN :startDate AND :endDate")
     List<LoanEntity> findByLoanDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
@@ -48,6 +92,87 @@ public interface LoanRepository extends JpaRepository<LoanEntity, Long> {
     @Query("SELECT l FROM LoanEntity l WHERE l.status = 'ACTIVE' AND l.actualReturnDate IS NULL AND l.agreedReturnDate <= :currentDate")
     List<LoanEntity> findOverdueLoans(@Param("currentDate") LocalDate currentDate);
 
+    // Cantidad de préstamos atrasados (mismo criterio que findOverdueLoans)
+    @Query("SELECT COUNT(l) FROM LoanEntity l WHERE l.status = 'ACTIVE' AND l.actualReturnDate IS NULL AND l.agreedReturnDate <= :currentDate")
+    long countOverdueLoans(@Param("currentDate") LocalDate currentDate);
+
+    // Rango de IDs de los préstamos con al menos un día de atraso (para dividir el cálculo de multas en tramos)
+    @Query("SELECT MIN(l.id), MAX(l.id) FROM LoanEntity l WHERE l.status = 'ACTIVE' AND l.actualReturnDate IS NULL AND l.agreedReturnDate < :currentDate")
+    List<Object[]> findOverdueLoanIdRange(@Param("currentDate") LocalDate currentDate);
+
+    // Resumen del dashboard, parte en vivo: préstamos iniciados hoy (y del mes desde hoy), devueltos hoy
+    // por estado, y el estado actual de los préstamos activos. Los días cerrados vienen de loan_daily_rollup.
+    @Query(value = "SELECT COUNT(*) FILTER (WHERE l.loan_date >= :today), " +
+            "COUNT(*) FILTER (WHERE l.loan_date >= :today AND l.loan_date <= :monthEnd), " +
+            "COUNT(*) FILTER (WHERE l.actual_return_date >= :today AND l.status = 'RETURNED'), " +
+            "COUNT(*) FILTER (WHERE l.actual_return_date >= :today AND l.status = 'DAMAGED'), " +
+            "COUNT(*) FILTER (WHERE l.status = 'ACTIVE' AND l.actual_return_date IS NULL), " +
+            "COUNT(*) FILTER (WHERE l.status = 'ACTIVE' AND l.actual_return_date IS NULL AND l.agreed_return_date <= :today), " +
+            "COUNT(DISTINCT l.client_id) FILTER (WHERE l.status = 'ACTIVE' AND l.actual_return_date IS NULL) " +
+            "FROM loans l WHERE l.loan_date >= :today OR l.actual_return_date >= :today " +
+            "OR (l.status = 'ACTIVE' AND l.actual_return_date IS NULL)",
+            nativeQuery = true)
+    List<Object[]> summarizeLiveLoans(@Param("today") LocalDate today, @Param("monthEnd") LocalDate monthEnd);
+
+    // Fecha del primer préstamo (inicio del backfill de loan_daily_rollup)
+    @Query("SELECT MIN(l.loanDate) FROM LoanEntity l")
+    LocalDate findFirstLoanDate();
+
+    // ========== REPORTES (agregación en la base de datos) ==========
+    // Los rangos llegan siempre acotados (ReportService reemplaza los extremos nulos) para usar el índice de loan_date.
+    // Días de atraso = hoy - fecha acordada, solo para préstamos no devueltos con la fecha acordada ya pasada.
+
+    // RF6.2: una fila por cliente con préstamos atrasados: id, nombre, email, teléfono, préstamos,
+    // máximo, promedio y suma de días de atraso
+    @Query(value = "SELECT c.id, c.name, c.email, c.phone, COUNT(*) AS loans_count, " +
+            "MAX(CAST(:today AS date) - l.agreed_return_date) AS max_days, " +
+            "AVG(CAST(:today AS date) - l.agreed_return_date) AS avg_days, " +
+            "SUM(CAST(:today AS date) - l.agreed_return_date) AS total_days " +
+            "FROM loans l JOIN clients c ON c.id = l.client_id " +
+            "WHERE l.actual_return_date IS NULL AND l.agreed_return_date < CAST(:today AS date) " +
+            "AND l.loan_date BETWEEN :startDate AND :endDate " +
+            "GROUP BY c.id, c.name, c.email, c.phone " +
+            "ORDER BY max_days DESC, c.id",
+            nativeQuery = true)
+    List<Object[]> aggregateOverdueClients(@Param("startDate") LocalDate startDate,
+                                           @Param("endDate") LocalDate endDate,
+                                           @Param("today") LocalDate today);
+
+    // RF6.2: detalle de los préstamos atrasados (client_id, id, herramienta, días de atraso)
+    @Query(value = "SELECT l.client_id, l.id, t.name, CAST(:today AS date) - l.agreed_return_date AS days_overdue " +
+            "FROM loans l JOIN tools t ON t.id = l.tool_id " +
+            "WHERE l.actual_return_date IS NULL AND l.agreed_return_date < CAST(:today AS date) " +
+            "AND l.loan_date BETWEEN :startDate AND :endDate " +
+            "ORDER BY l.client_id, days_overdue DESC, l.id",
+            nativeQuery = true)
+    List<Object[]> findOverdueLoanRows(@Param("startDate") LocalDate startDate,
+                                       @Param("endDate") LocalDate endDate,
+                                       @Param("today") LocalDate today);
+
+    // RF6.1: préstamos no devueltos proyectados a las columnas del reporte (sin cargar entidades)
+    @Query(value = "SELECT l.id, c.name AS client_name, t.name AS tool_name, cat.name AS category_name, l.quantity, " +
+            "l.loan_date, l.agreed_return_date, " +
+            "CASE WHEN l.agreed_return_date < CAST(:today AS date) " +
+            "THEN CAST(:today AS date) - l.agreed_return_date ELSE 0 END AS days_overdue, l.notes " +
+            "FROM loans l JOIN clients c ON c.id = l.client_id JOIN tools t ON t.id = l.tool_id " +
+            "LEFT JOIN categories cat ON cat.id = t.category_id " +
+            "WHERE l.actual_return_date IS NULL AND l.loan_date BETWEEN :startDate AND :endDate " +
+            "ORDER BY l.loan_date, l.id",
+            nativeQuery = true)
+    List<Object[]> findActiveLoanRows(@Param("startDate") LocalDate startDate,
+                                      @Param("endDate") LocalDate endDate,
+                                      @Param("today") LocalDate today);
+
+    // RF6.1: resumen de préstamos no devueltos: total, atrasados y promedio de días de atraso
+    @Query(value = "SELECT COUNT(*), " +
+            "COUNT(*) FILTER (WHERE l.agreed_return_date < CAST(:today AS date)), " +
+            "AVG(CAST(:today AS date) - l.agreed_return_date) FILTER (WHERE l.agreed_return_date < CAST(:today AS date)) " +
+            "FROM loans l WHERE l.actual_return_date IS NULL AND l.loan_date BETWEEN :startDate AND :endDate",
+            nativeQuery = true)
+    List<Object[]> summarizeActiveLoans(@Param("startDate") LocalDate startDate,
+                                        @Param("endDate") LocalDate endDate,
+                                        @Param("today") LocalDate today);
+
     // Buscar préstamos por cliente
     List<LoanEntity> findByClient(ClientEntity client);
 
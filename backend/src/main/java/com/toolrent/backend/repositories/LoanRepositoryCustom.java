@@ -0,0 +1,14 @@
+package com.toolrent.backend.repositories;
+
+import com.toolrent.backend.dto.LoanListItemDTO;
+import com.toolrent.backend.dto.LoanSearchCriteria;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface LoanRepositoryCustom {
+
+    // Página por keyset sobre (loanDate, id): filas estrictamente después de (afterLoanDate, afterId)
+    // en el orden pedido. Sin cursor (null) empieza desde el principio.
+    List<LoanListItemDTO> findLoanPage(LoanSearchCriteria criteria, LocalDate afterLoanDate, Long afterId, int limit);
+}
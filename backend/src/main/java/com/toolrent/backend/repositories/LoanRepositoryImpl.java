@@ -0,0 +1,81 @@
+package com.toolrent.backend.repositories;
+
+import com.toolrent.backend.dto.LoanListItemDTO;
+import com.toolrent.backend.dto.LoanSearchCriteria;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// La consulta se arma solo con los filtros presentes, para que PostgreSQL use el índice que corresponde
+// (loan_date, o client_id/tool_id/status + loan_date) y lea solo una página, sin importar el tamaño de la tabla.
+public class LoanRepositoryImpl implements LoanRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<LoanListItemDTO> findLoanPage(LoanSearchCriteria criteria, LocalDate afterLoanDate, Long afterId, int limit) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new com.toolrent.backend.dto.LoanListItemDTO(" +
+                "l.id, l.loanDate, l.agreedReturnDate, l.actualReturnDate, l.status, l.quantity, l.dailyRate, l.notes, " +
+                "c.id, c.name, c.rut, c.email, c.phone, t.id, t.name, t.replacementValue, cat.id, cat.name) " +
+                "FROM LoanEntity l JOIN l.client c JOIN l.tool t LEFT JOIN t.category cat WHERE 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+
+        if (criteria.getStatus() != null) {
+            jpql.append(" AND l.status = :status");
+            params.put("status", criteria.getStatus());
+        }
+        if (Boolean.TRUE.equals(criteria.getOverdue())) {
+            jpql.append(" AND l.status = 'ACTIVE' AND l.actualReturnDate IS NULL AND l.agreedReturnDate <= :today");
+            params.put("today", LocalDate.now());
+        }
+        if (criteria.getClientId() != null) {
+            jpql.append(" AND c.id = :clientId");
+            params.put("clientId", criteria.getClientId());
+        }
+        if (criteria.getToolId() != null) {
+            jpql.append(" AND t.id = :toolId");
+            params.put("toolId", criteria.getToolId());
+        }
+        if (criteria.getCategoryId() != null) {
+            jpql.append(" AND cat.id = :categoryId");
+            params.put("categoryId", criteria.getCategoryId());
+        }
+        if (criteria.getLoanDateFrom() != null) {
+            jpql.append(" AND l.loanDate >= :loanDateFrom");
+            params.put("loanDateFrom", criteria.getLoanDateFrom());
+        }
+        if (criteria.getLoanDateTo() != null) {
+            jpql.append(" AND l.loanDate <= :loanDateTo");
+            params.put("loanDateTo", criteria.getLoanDateTo());
+        }
+
+        // Keyset: la primera condición es la que usa el índice, la segunda desempata por id
+        if (afterLoanDate != null && afterId != null) {
+            if (criteria.isAscending()) {
+                jpql.append(" AND l.loanDate >= :afterLoanDate" +
+                        " AND (l.loanDate > :afterLoanDate OR l.id > :afterId)");
+            } else {
+                jpql.append(" AND l.loanDate <= :afterLoanDate" +
+                        " AND (l.loanDate < :afterLoanDate OR l.id < :afterId)");
+            }
+            params.put("afterLoanDate", afterLoanDate);
+            params.put("afterId", afterId);
+        }
+
+        jpql.append(criteria.isAscending()
+                ? " ORDER BY l.loanDate ASC, l.id ASC"
+                : " ORDER BY l.loanDate DESC, l.id DESC");
+
+        TypedQuery<LoanListItemDTO> query = entityManager.createQuery(jpql.toString(), LoanListItemDTO.class);
+        params.forEach(query::setParameter);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+}
@@ -0,0 +1,23 @@
+package com.toolrent.backend.repositories;
+
+import com.toolrent.backend.entities.OverdueFineChunkEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OverdueFineChunkRepository extends JpaRepository<OverdueFineChunkEntity, Long> {
+
+    // Tramos ya terminados de una ejecución (checkpoint para retomar)
+    @Query("SELECT c.chunkIndex FROM OverdueFineChunkEntity c WHERE c.runId = :runId")
+    List<Integer> findCompletedChunkIndexes(@Param("runId") Long runId);
+
+    // Avance de una ejecución: tramos terminados, multas creadas, montos actualizados y tiempo acumulado
+    @Query("SELECT COUNT(c), COALESCE(SUM(c.finesCreated), 0), COALESCE(SUM(c.amountsUpdated), 0), " +
+            "COALESCE(SUM(c.durationMs), 0), MIN(c.completedAt), MAX(c.completedAt) " +
+            "FROM OverdueFineChunkEntity c WHERE c.runId = :runId")
+    List<Object[]> summarizeRun(@Param("runId") Long runId);
+}
@@ -0,0 +1,20 @@
+package com.toolrent.backend.repositories;
+
+import com.toolrent.backend.entities.OverdueFineRunEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OverdueFineRunRepository extends JpaRepository<OverdueFineRunEntity, Long> {
+
+    Optional<OverdueFineRunEntity> findByRunDate(LocalDate runDate);
+
+    // Ejecuciones que quedaron sin terminar (por ejemplo, si la aplicación se detuvo a mitad)
+    List<OverdueFineRunEntity> findByStatus(OverdueFineRunEntity.RunStatus status);
+
+    Optional<OverdueFineRunEntity> findTopByOrderByIdDesc();
+}
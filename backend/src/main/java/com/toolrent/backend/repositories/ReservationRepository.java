@@ -0,0 +1,53 @@
+package com.toolrent.backend.repositories;
+
+import com.toolrent.backend.entities.ReservationEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReservationRepository extends JpaRepository<ReservationEntity, Long> {
+
+    // Cargar la reserva bloqueando su fila (SELECT ... FOR UPDATE) hasta que termine la transacción:
+    // dos retiros, o un retiro y una cancelación, de la misma reserva pasan de a uno y el segundo ve el estado final
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM ReservationEntity r WHERE r.id = :id")
+    Optional<ReservationEntity> findByIdForUpdate(@Param("id") Long id);
+
+    // Reservas vigentes de una herramienta, en orden de retiro
+    @Query("SELECT r FROM ReservationEntity r WHERE r.tool.id = :toolId AND r.status = 'CONFIRMED' " +
+            "AND r.endDate >= :fromDate ORDER BY r.startDate, r.id")
+    List<ReservationEntity> findUpcomingByTool(@Param("toolId") Long toolId, @Param("fromDate") LocalDate fromDate);
+
+    @Query("SELECT r FROM ReservationEntity r WHERE r.client.id = :clientId ORDER BY r.startDate DESC, r.id DESC")
+    List<ReservationEntity> findByClientId(@Param("clientId") Long clientId);
+
+    @Query("SELECT r FROM ReservationEntity r WHERE r.status = 'CONFIRMED' AND r.endDate >= :fromDate " +
+            "ORDER BY r.startDate, r.id")
+    List<ReservationEntity> findUpcoming(@Param("fromDate") LocalDate fromDate);
+
+    // El cliente ya tiene una reserva vigente de la herramienta que se cruza con el rango
+    @Query("SELECT CASE WHEN COUNT(r) > 0 THEN true ELSE false END FROM ReservationEntity r " +
+            "WHERE r.client.id = :clientId AND r.tool.id = :toolId AND r.status = 'CONFIRMED' " +
+            "AND r.startDate <= :endDate AND r.endDate >= :startDate")
+    boolean existsOverlappingForClient(@Param("clientId") Long clientId, @Param("toolId") Long toolId,
+                                       @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Carga del índice de disponibilidad: id, herramienta, rango y cantidad de las reservas vigentes
+    @Query("SELECT r.id, r.tool.id, r.startDate, r.endDate, r.quantity FROM ReservationEntity r " +
+            "WHERE r.status = 'CONFIRMED' AND r.endDate >= :fromDate")
+    List<Object[]> findConfirmedIntervals(@Param("fromDate") LocalDate fromDate);
+
+    // Reservas cuyo rango terminó sin retirarse (ya no pueden convertirse en préstamo)
+    @Modifying
+    @Query("UPDATE ReservationEntity r SET r.status = 'EXPIRED' WHERE r.status = 'CONFIRMED' AND r.endDate <= :today")
+    int expireEnded(@Param("today") LocalDate today);
+}
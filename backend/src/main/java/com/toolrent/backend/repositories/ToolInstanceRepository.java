@@ -3,9 +3,11 @@ package com.toolrent.backend.repositories;
 import com.toolrent.backend.entities.ToolInstanceEntity;
 import com.toolrent.backend.entities.ToolInstanceEntity.ToolInstanceStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -60,6 +62,37 @@ public interface ToolInstanceRepository extends JpaRepository<ToolInstanceEntity
     @Query("SELECT ti FROM ToolInstanceEntity ti WHERE ti.tool.id = :toolId AND ti.status = 'AVAILABLE'")
     List<ToolInstanceEntity> findAvailableInstancesByToolId(@Param("toolId") Long toolId);
 
+    // Reserve N available instances in a single statement. Rows already locked by a
+    // concurrent loan are skipped, so parallel checkouts get distinct instances without waiting.
+    @Query(value = "UPDATE tool_instances SET status = 'LOANED' WHERE id IN (" +
+            "SELECT id FROM tool_instances WHERE tool_id = :toolId AND status = 'AVAILABLE' " +
+            "ORDER BY id LIMIT :quantity FOR UPDATE SKIP LOCKED) RETURNING id",
+            nativeQuery = true)
+    List<Long> claimAvailableInstances(@Param("toolId") Long toolId, @Param("quantity") int quantity);
+
+    // Batch loans: claim N available instances of each tool in a single statement, with the same
+    // FOR UPDATE SKIP LOCKED as claimAvailableInstances (row: instance id, tool_id)
+    @Query(value = "UPDATE tool_instances SET status = 'LOANED' WHERE id IN (" +
+            "SELECT c.id FROM tools t CROSS JOIN LATERAL (" +
+            "SELECT ti.id FROM tool_instances ti WHERE ti.tool_id = t.id AND ti.status = 'AVAILABLE' " +
+            "ORDER BY ti.id LIMIT :quantity FOR UPDATE SKIP LOCKED) c " +
+            "WHERE t.id IN (:toolIds)) RETURNING id, tool_id",
+            nativeQuery = true)
+    List<Object[]> claimAvailableInstancesForTools(@Param("toolIds") Collection<Long> toolIds,
+                                                  @Param("quantity") int quantity);
+
+    // Provision N new AVAILABLE instances of a tool in a single multi-row insert and return their ids.
+    // Keeps IDENTITY ids without one round trip per unit (IDENTITY disables Hibernate JDBC batching).
+    @Query(value = "INSERT INTO tool_instances (tool_id, status) " +
+            "SELECT :toolId, 'AVAILABLE' FROM generate_series(1, :quantity) RETURNING id",
+            nativeQuery = true)
+    List<Long> insertAvailableInstances(@Param("toolId") Long toolId, @Param("quantity") int quantity);
+
+    // Put instances back to AVAILABLE (undo a partial reservation)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ToolInstanceEntity ti SET ti.status = 'AVAILABLE' WHERE ti.id IN :ids")
+    int releaseInstances(@Param("ids") List<Long> ids);
+
     // Get loaned instances by tool (for returning loans)
     @Query("SELECT ti FROM ToolInstanceEntity ti WHERE ti.tool.id = :toolId AND ti.status = 'LOANED'")
     List<ToolInstanceEntity> findLoanedInstancesByToolId(@Param("toolId") Long toolId);
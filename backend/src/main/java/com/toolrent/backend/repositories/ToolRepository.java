@@ -3,9 +3,11 @@ package com.toolrent.backend.repositories;
 import com.toolrent.backend.entities.ToolEntity;
 import com.toolrent.backend.entities.CategoryEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -59,4 +61,51 @@ public interface ToolRepository extends JpaRepository<ToolEntity, Long> {
     // Get tools with stock greater than zero
     @Query("SELECT t FROM ToolEntity t LEFT JOIN FETCH t.category WHERE t.currentStock > 0")
     List<ToolEntity> findToolsWithStock();
-}
\ No newline at end of file
+
+    // RF2.1: Reservar stock de forma atómica - 0 filas actualizadas = sin stock suficiente
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE tools SET current_stock = current_stock - :quantity, " +
+            "status = CASE WHEN current_stock - :quantity = 0 THEN 'LOANED' ELSE 'AVAILABLE' END " +
+            "WHERE id = :toolId AND status = 'AVAILABLE' AND current_stock >= :quantity",
+            nativeQuery = true)
+    int reserveStock(@Param("toolId") Long toolId, @Param("quantity") int quantity);
+
+    // Devolver stock de forma atómica (devoluciones múltiples)
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE tools SET current_stock = current_stock + :quantity WHERE id = :toolId", nativeQuery = true)
+    int restoreStock(@Param("toolId") Long toolId, @Param("quantity") int quantity);
+
+    // Bloquear la herramienta (SELECT ... FOR UPDATE) y leer su stock: serializa con reserveStock y con
+    // las demás operaciones que calculan capacidad, hasta que la transacción termine
+    @Query(value = "SELECT current_stock FROM tools WHERE id = :toolId FOR UPDATE", nativeQuery = true)
+    Integer lockCurrentStockById(@Param("toolId") Long toolId);
+
+    // Préstamo múltiple: bloquear todas las herramientas del lote en una sola sentencia (en orden de ID)
+    // y leer su stock y estado bajo el bloqueo (fila: id, current_stock, status)
+    @Query(value = "SELECT id, current_stock, status FROM tools WHERE id IN (:ids) ORDER BY id FOR UPDATE",
+            nativeQuery = true)
+    List<Object[]> lockStockByIds(@Param("ids") Collection<Long> ids);
+
+    // Préstamo múltiple: reservar :quantity unidades de cada herramienta en un solo UPDATE, con las mismas
+    // condiciones que reserveStock (fila: id, current_stock nuevo; las herramientas sin stock no aparecen)
+    @Query(value = "UPDATE tools SET current_stock = current_stock - :quantity, " +
+            "status = CASE WHEN current_stock - :quantity = 0 THEN 'LOANED' ELSE 'AVAILABLE' END " +
+            "WHERE id IN (:ids) AND status = 'AVAILABLE' AND current_stock >= :quantity " +
+            "RETURNING id, current_stock",
+            nativeQuery = true)
+    List<Object[]> reserveStockForTools(@Param("ids") Collection<Long> ids, @Param("quantity") int quantity);
+
+    // Read current stock directly from the database (not from the persistence context)
+    @Query("SELECT t.currentStock FROM ToolEntity t WHERE t.id = :toolId")
+    Integer findCurrentStockById(@Param("toolId") Long toolId);
+
+    // Disponibilidad masiva: herramienta y conteo de instancias por estado en una sola consulta, desde
+    // tool_stock_counters (una fila por herramienta, sin recorrer tool_instances)
+    // (fila: id, name, status, currentStock, available, loaned, underRepair, decommissioned)
+    @Query("SELECT t.id, t.name, t.status, t.currentStock, " +
+            "COALESCE(c.available, 0L), COALESCE(c.loaned, 0L), " +
+            "COALESCE(c.underRepair, 0L), COALESCE(c.decommissioned, 0L) " +
+            "FROM ToolEntity t LEFT JOIN ToolStockCounterEntity c ON c.toolId = t.id " +
+            "WHERE t.id IN :ids")
+    List<Object[]> findAvailabilityRowsByIds(@Param("ids") Collection<Long> ids);
+}
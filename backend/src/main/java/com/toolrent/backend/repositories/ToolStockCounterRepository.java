@@ -0,0 +1,94 @@
+package com.toolrent.backend.repositories;
+
+import com.toolrent.backend.entities.ToolStockCounterEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ToolStockCounterRepository extends JpaRepository<ToolStockCounterEntity, Long> {
+
+    // Sumar deltas a los contadores de una herramienta (crea la fila si no existe)
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO tool_stock_counters (tool_id, available, loaned, under_repair, decommissioned) " +
+            "VALUES (:toolId, :available, :loaned, :underRepair, :decommissioned) " +
+            "ON CONFLICT (tool_id) DO UPDATE SET " +
+            "available = tool_stock_counters.available + EXCLUDED.available, " +
+            "loaned = tool_stock_counters.loaned + EXCLUDED.loaned, " +
+            "under_repair = tool_stock_counters.under_repair + EXCLUDED.under_repair, " +
+            "decommissioned = tool_stock_counters.decommissioned + EXCLUDED.decommissioned",
+            nativeQuery = true)
+    int addToCounters(@Param("toolId") Long toolId, @Param("available") long available,
+                      @Param("loaned") long loaned, @Param("underRepair") long underRepair,
+                      @Param("decommissioned") long decommissioned);
+
+    // Instancias tomadas por un préstamo múltiple: :quantity de AVAILABLE a LOANED en cada herramienta
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE tool_stock_counters SET available = available - :quantity, loaned = loaned + :quantity " +
+            "WHERE tool_id IN (:toolIds)",
+            nativeQuery = true)
+    int moveAvailableToLoaned(@Param("toolIds") Collection<Long> toolIds, @Param("quantity") long quantity);
+
+    // Current counters of a tool as scalars (always read from the database, never from the persistence context)
+    @Query("SELECT c.available, c.loaned, c.underRepair, c.decommissioned FROM ToolStockCounterEntity c WHERE c.toolId = :toolId")
+    List<Object[]> findCountsByToolId(@Param("toolId") Long toolId);
+
+    // Reconstruir los contadores de una herramienta desde tool_instances
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO tool_stock_counters (tool_id, available, loaned, under_repair, decommissioned) " +
+            "SELECT :toolId, " +
+            "COUNT(*) FILTER (WHERE status = 'AVAILABLE'), " +
+            "COUNT(*) FILTER (WHERE status = 'LOANED'), " +
+            "COUNT(*) FILTER (WHERE status = 'UNDER_REPAIR'), " +
+            "COUNT(*) FILTER (WHERE status = 'DECOMMISSIONED') " +
+            "FROM tool_instances WHERE tool_id = :toolId " +
+            "ON CONFLICT (tool_id) DO UPDATE SET available = EXCLUDED.available, loaned = EXCLUDED.loaned, " +
+            "under_repair = EXCLUDED.under_repair, decommissioned = EXCLUDED.decommissioned",
+            nativeQuery = true)
+    int rebuildForTool(@Param("toolId") Long toolId);
+
+    // Reconstruir los contadores de todas las herramientas en una sola sentencia
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO tool_stock_counters (tool_id, available, loaned, under_repair, decommissioned) " +
+            "SELECT t.id, " +
+            "COUNT(ti.id) FILTER (WHERE ti.status = 'AVAILABLE'), " +
+            "COUNT(ti.id) FILTER (WHERE ti.status = 'LOANED'), " +
+            "COUNT(ti.id) FILTER (WHERE ti.status = 'UNDER_REPAIR'), " +
+            "COUNT(ti.id) FILTER (WHERE ti.status = 'DECOMMISSIONED') " +
+            "FROM tools t LEFT JOIN tool_instances ti ON ti.tool_id = t.id GROUP BY t.id " +
+            "ON CONFLICT (tool_id) DO UPDATE SET available = EXCLUDED.available, loaned = EXCLUDED.loaned, " +
+            "under_repair = EXCLUDED.under_repair, decommissioned = EXCLUDED.decommissioned",
+            nativeQuery = true)
+    int rebuildAll();
+
+    // Borrar contadores de herramientas que ya no existen
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM tool_stock_counters WHERE tool_id NOT IN (SELECT id FROM tools)", nativeQuery = true)
+    int deleteOrphans();
+
+    // Herramientas cuyos contadores no coinciden con tool_instances (o que no tienen fila de contadores)
+    @Query(value = "SELECT t.id FROM tools t " +
+            "LEFT JOIN tool_stock_counters c ON c.tool_id = t.id " +
+            "LEFT JOIN (SELECT tool_id, " +
+            "COUNT(*) FILTER (WHERE status = 'AVAILABLE') AS available, " +
+            "COUNT(*) FILTER (WHERE status = 'LOANED') AS loaned, " +
+            "COUNT(*) FILTER (WHERE status = 'UNDER_REPAIR') AS under_repair, " +
+            "COUNT(*) FILTER (WHERE status = 'DECOMMISSIONED') AS decommissioned " +
+            "FROM tool_instances GROUP BY tool_id) g ON g.tool_id = t.id " +
+            "WHERE c.tool_id IS NULL " +
+            "OR c.available <> COALESCE(g.available, 0) OR c.loaned <> COALESCE(g.loaned, 0) " +
+            "OR c.under_repair <> COALESCE(g.under_repair, 0) OR c.decommissioned <> COALESCE(g.decommissioned, 0) " +
+            "ORDER BY t.id",
+            nativeQuery = true)
+    List<Long> findInconsistentToolIds();
+
+    // Borrar los contadores de una herramienta (al eliminarla)
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM ToolStockCounterEntity c WHERE c.toolId = :toolId")
+    int deleteByToolId(@Param("toolId") Long toolId);
+}
@@ -26,6 +26,10 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         // Permitir todas las rutas por ahora para desarrollo
                         .requestMatchers("/api/**").permitAll()
+                        // Salud para el balanceador; las métricas exponen datos internos y requieren
+                        // un token con rol ADMINISTRATOR (el scraper de Prometheus se autentica)
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMINISTRATOR")
                         .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 ->
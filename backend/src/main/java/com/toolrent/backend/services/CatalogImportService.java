@@ -0,0 +1,534 @@
+package com.toolrent.backend.services;
+
+import com.toolrent.backend.dto.ImportReportDTO;
+import com.toolrent.backend.entities.CategoryEntity;
+import com.toolrent.backend.entities.ClientEntity;
+import com.toolrent.backend.entities.ToolEntity;
+import com.toolrent.backend.repositories.CategoryRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Importación masiva de herramientas y clientes desde CSV.
+// El archivo se lee en streaming y se valida por tramos en paralelo con las mismas reglas de ToolService y
+// ClientService (sin consultas por fila). Las filas válidas se cargan con COPY a una tabla temporal y desde ahí
+// se integran con sentencias set-based: duplicados (en el archivo y contra la base), inserción, instancias,
+// contadores y movimientos INITIAL_STOCK del kardex. Todo en una sola transacción.
+@Service
+@Slf4j
+public class CatalogImportService {
+
+    public static final String TYPE_TOOLS = "tools";
+    public static final String TYPE_CLIENTS = "clients";
+
+    private static final int CHUNK_SIZE = 2000;
+
+    private static final String[] TOOL_COLUMNS = {"name", "category", "initial_stock", "replacement_value", "rental_rate"};
+    private static final String[] CLIENT_COLUMNS = {"name", "rut", "phone", "email"};
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ToolService toolService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private MetricsService metricsService;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int workers;
+    private final int maxReportedErrors;
+
+    // Pool acotado para validar tramos; con la cola llena valida el mismo hilo que lee el archivo
+    private final ThreadPoolExecutor validationPool;
+
+    @Autowired
+    public CatalogImportService(PlatformTransactionManager transactionManager,
+                                @Value("${toolrent.import.workers:4}") int workers,
+                                @Value("${toolrent.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workers = Math.max(1, workers);
+        this.maxReportedErrors = Math.max(0, maxReportedErrors);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.validationPool = new ThreadPoolExecutor(this.workers, this.workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.workers * 2),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "catalog-import-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdownValidationPool() {
+        validationPool.shutdownNow();
+    }
+
+    // CSV con cabecera: name, category (id o nombre), initial_stock, replacement_value, rental_rate
+    public ImportReportDTO importTools(InputStream csv) {
+        Map<String, Long> categories = new HashMap<>();
+        for (CategoryEntity category : categoryRepository.findAll()) {
+            categories.put(category.getId().toString(), category.getId());
+            categories.put(category.getName().trim().toLowerCase(Locale.ROOT), category.getId());
+        }
+        return run(TYPE_TOOLS, csv, TOOL_COLUMNS, row -> validateTool(row, categories), new ToolMerge());
+    }
+
+    // CSV con cabecera: name, rut, phone, email y status opcional (ACTIVE por defecto)
+    public ImportReportDTO importClients(InputStream csv) {
+        return run(TYPE_CLIENTS, csv, CLIENT_COLUMNS, this::validateClient, new ClientMerge());
+    }
+
+    // ========== VALIDACIÓN POR FILA (sin acceso a la base de datos) ==========
+
+    private String[] validateTool(Map<String, String> row, Map<String, Long> categories) throws Exception {
+        String categoryValue = row.get("category").trim();
+        Long categoryId = categories.get(categoryValue.toLowerCase(Locale.ROOT));
+        if (categoryId == null) {
+            throw new IllegalArgumentException("Categoría no encontrada: " + categoryValue);
+        }
+
+        ToolEntity tool = new ToolEntity();
+        tool.setName(row.get("name"));
+        CategoryEntity category = new CategoryEntity();
+        category.setId(categoryId);
+        tool.setCategory(category);
+        tool.setInitialStock(parseInteger(row.get("initial_stock"), "initial_stock"));
+        tool.setReplacementValue(parseDecimal(row.get("replacement_value"), "replacement_value"));
+        tool.setRentalRate(parseDecimal(row.get("rental_rate"), "rental_rate"));
+        toolService.validateToolData(tool);
+
+        return new String[]{tool.getName().trim(), categoryId.toString(), tool.getInitialStock().toString(),
+                tool.getReplacementValue().toPlainString(), tool.getRentalRate().toPlainString()};
+    }
+
+    private String[] validateClient(Map<String, String> row) throws Exception {
+        ClientEntity client = new ClientEntity();
+        client.setName(row.get("name"));
+        client.setRut(row.get("rut"));
+        client.setPhone(row.get("phone"));
+        client.setEmail(row.get("email"));
+        String status = row.get("status");
+        if (status != null && !status.isBlank()) {
+            try {
+                client.setStatus(ClientEntity.ClientStatus.valueOf(status.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Estado de cliente inválido: " + status);
+            }
+        }
+        clientService.prepareNewClient(client);
+
+        return new String[]{client.getName(), client.getRut(), client.getPhone(), client.getEmail(),
+                client.getStatus().name()};
+    }
+
+    private static Integer parseInteger(String value, String column) {
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Número inválido en " + column + ": " + value);
+        }
+    }
+
+    private static BigDecimal parseDecimal(String value, String column) {
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Número inválido en " + column + ": " + value);
+        }
+    }
+
+    // ========== FLUJO COMÚN: LECTURA, VALIDACIÓN PARALELA, COPY E INTEGRACIÓN ==========
+
+    @FunctionalInterface
+    private interface RowValidator {
+        String[] validate(Map<String, String> row) throws Exception;
+    }
+
+    // Tabla temporal y sentencias de integración de cada tipo de importación
+    private interface StageMerge {
+        String createStage();
+
+        String copyCommand();
+
+        void merge(Connection connection) throws SQLException;
+
+        String stageTable();
+    }
+
+    private record Line(int number, String text) {
+    }
+
+    private record ValidatedChunk(List<String> copyRows, List<ImportReportDTO.RowError> errors, int rows) {
+    }
+
+    private ImportReportDTO run(String type, InputStream csv, String[] requiredColumns,
+                                RowValidator validator, StageMerge stage) {
+        return metricsService.time(MetricsService.CATALOG_IMPORT, () -> {
+            long start = System.nanoTime();
+            ImportReportDTO report = transactionTemplate.execute(status -> {
+                try {
+                    return load(type, csv, requiredColumns, validator, stage);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error leyendo el archivo CSV: " + e.getMessage(), e);
+                } catch (SQLException e) {
+                    throw new RuntimeException("Error cargando la importación: " + e.getMessage(), e);
+                }
+            });
+            report.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            log.info("Importación de {}: {} filas, {} importadas, {} rechazadas en {} ms", type,
+                    report.getTotalRows(), report.getImportedRows(), report.getRejectedRows(), report.getElapsedMs());
+            return report;
+        }, "type", type);
+    }
+
+    private ImportReportDTO load(String type, InputStream csv, String[] requiredColumns,
+                                 RowValidator validator, StageMerge stage) throws IOException, SQLException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        String headerLine = reader.readLine();
+        if (headerLine == null || headerLine.isBlank()) {
+            throw new IllegalArgumentException("El archivo CSV está vacío");
+        }
+        if (headerLine.startsWith("\uFEFF")) {
+            headerLine = headerLine.substring(1);
+        }
+        // Excel en español exporta con ';'
+        char delimiter = headerLine.indexOf(',') < 0 && headerLine.indexOf(';') >= 0 ? ';' : ',';
+        List<String> header = new ArrayList<>();
+        for (String column : parseCsvLine(headerLine, delimiter)) {
+            header.add(column.trim().toLowerCase(Locale.ROOT));
+        }
+        for (String column : requiredColumns) {
+            if (!header.contains(column)) {
+                throw new IllegalArgumentException("Falta la columna '" + column + "' en la cabecera del CSV");
+            }
+        }
+
+        ImportReportDTO report = new ImportReportDTO();
+        report.setType(type);
+        List<ImportReportDTO.RowError> rejected = new ArrayList<>();
+        int totalRows = 0;
+        int rejectedRows = 0;
+
+        // La conexión de la transacción en curso: la tabla temporal, el COPY y la integración comparten sesión
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(stage.createStage());
+        }
+
+        CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(stage.copyCommand());
+        try {
+            Deque<Future<ValidatedChunk>> pending = new ArrayDeque<>();
+            List<Line> chunk = new ArrayList<>(CHUNK_SIZE);
+            int lineNumber = 1;
+            String text;
+            while ((text = reader.readLine()) != null) {
+                lineNumber++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                chunk.add(new Line(lineNumber, text));
+                if (chunk.size() == CHUNK_SIZE) {
+                    pending.addLast(submit(chunk, header, delimiter, validator));
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                    // Se escribe en orden de archivo y con pocos tramos en vuelo: memoria acotada
+                    while (pending.size() > workers * 2) {
+                        ValidatedChunk done = await(pending.removeFirst());
+                        totalRows += done.rows();
+                        rejectedRows += done.errors().size();
+                        writeChunk(copy, done, rejected);
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                pending.addLast(submit(chunk, header, delimiter, validator));
+            }
+            while (!pending.isEmpty()) {
+                ValidatedChunk done = await(pending.removeFirst());
+                totalRows += done.rows();
+                rejectedRows += done.errors().size();
+                writeChunk(copy, done, rejected);
+            }
+            copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+
+        stage.merge(connection);
+
+        // Rechazos de la integración (duplicados en el archivo o ya registrados)
+        int mergeRejected;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + stage.stageTable() + " WHERE error IS NOT NULL")) {
+            rs.next();
+            mergeRejected = rs.getInt(1);
+        }
+        int remaining = maxReportedErrors - rejected.size();
+        if (remaining > 0 && mergeRejected > 0) {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT row_no, error FROM " +
+                    stage.stageTable() + " WHERE error IS NOT NULL ORDER BY row_no LIMIT ?")) {
+                statement.setInt(1, remaining);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        rejected.add(new ImportReportDTO.RowError(rs.getInt(1), rs.getString(2)));
+                    }
+                }
+            }
+        }
+        rejected.sort((a, b) -> Integer.compare(a.getRow(), b.getRow()));
+
+        rejectedRows += mergeRejected;
+        report.setTotalRows(totalRows);
+        report.setRejectedRows(rejectedRows);
+        report.setImportedRows(totalRows - rejectedRows);
+        report.setErrors(rejected);
+        report.setErrorsTruncated(rejected.size() < rejectedRows);
+        return report;
+    }
+
+    private Future<ValidatedChunk> submit(List<Line> lines, List<String> header, char delimiter,
+                                          RowValidator validator) {
+        return validationPool.submit(() -> {
+            List<String> copyRows = new ArrayList<>(lines.size());
+            List<ImportReportDTO.RowError> errors = new ArrayList<>();
+            for (Line line : lines) {
+                try {
+                    List<String> values = parseCsvLine(line.text(), delimiter);
+                    if (values.size() > header.size()) {
+                        throw new IllegalArgumentException("La fila tiene más columnas que la cabecera");
+                    }
+                    Map<String, String> row = new HashMap<>();
+                    for (int i = 0; i < header.size(); i++) {
+                        row.put(header.get(i), i < values.size() ? values.get(i) : "");
+                    }
+                    copyRows.add(toCopyRow(line.number(), validator.validate(row)));
+                } catch (Exception e) {
+                    errors.add(new ImportReportDTO.RowError(line.number(), e.getMessage()));
+                }
+            }
+            return new ValidatedChunk(copyRows, errors, lines.size());
+        });
+    }
+
+    private ValidatedChunk await(Future<ValidatedChunk> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error validando filas: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Importación interrumpida");
+        }
+    }
+
+    private void writeChunk(CopyIn copy, ValidatedChunk chunk, List<ImportReportDTO.RowError> rejected)
+            throws SQLException {
+        if (!chunk.copyRows().isEmpty()) {
+            byte[] bytes = String.join("", chunk.copyRows()).getBytes(StandardCharsets.UTF_8);
+            copy.writeToCopy(bytes, 0, bytes.length);
+        }
+        for (ImportReportDTO.RowError error : chunk.errors()) {
+            if (rejected.size() >= maxReportedErrors) {
+                break;
+            }
+            rejected.add(error);
+        }
+    }
+
+    // Línea para COPY ... FORMAT csv: número de fila y valores entre comillas
+    private static String toCopyRow(int rowNumber, String[] values) {
+        StringBuilder sb = new StringBuilder().append(rowNumber);
+        for (String value : values) {
+            sb.append(',');
+            if (value != null) {
+                sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+            }
+        }
+        return sb.append('\n').toString();
+    }
+
+    // Una línea CSV (RFC 4180 sin saltos de línea dentro de los campos): comillas dobles y "" como escape
+    static List<String> parseCsvLine(String line, char delimiter) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        }
+    }
+
+    // Marca como rechazadas las filas repetidas dentro del archivo; gana la primera aparición
+    private static String markFileDuplicates(String stage, String key, String label) {
+        return "UPDATE " + stage + " s SET error = '" + label + " repetido en el archivo (línea ' || d.first_row || ')' " +
+                "FROM (SELECT row_no, MIN(row_no) OVER (PARTITION BY " + key + ") AS first_row FROM " + stage + ") d " +
+                "WHERE d.row_no = s.row_no AND d.first_row <> s.row_no AND s.error IS NULL";
+    }
+
+    // ========== INTEGRACIÓN DE HERRAMIENTAS ==========
+
+    private static final class ToolMerge implements StageMerge {
+        private static final String STAGE = "import_tools_stage";
+
+        @Override
+        public String stageTable() {
+            return STAGE;
+        }
+
+        @Override
+        public String createStage() {
+            return "CREATE TEMP TABLE " + STAGE + " (row_no integer PRIMARY KEY, name text NOT NULL, " +
+                    "category_id bigint NOT NULL, initial_stock integer NOT NULL, replacement_value numeric NOT NULL, " +
+                    "rental_rate numeric(10,2) NOT NULL, tool_id bigint, error text) ON COMMIT DROP";
+        }
+
+        @Override
+        public String copyCommand() {
+            return "COPY " + STAGE + " (row_no, name, category_id, initial_stock, replacement_value, rental_rate) " +
+                    "FROM STDIN WITH (FORMAT csv)";
+        }
+
+        @Override
+        public void merge(Connection connection) throws SQLException {
+            execute(connection, markFileDuplicates(STAGE, "lower(name), category_id", "Nombre y categoría"));
+
+            // Mismo criterio que ToolService.createTool: nombre (sin mayúsculas) y categoría
+            execute(connection, "UPDATE " + STAGE + " s SET error = 'Ya existe una herramienta con el nombre ''' || s.name || ''' en la categoría' " +
+                    "FROM tools t WHERE lower(t.name) = lower(s.name) AND t.category_id = s.category_id AND s.error IS NULL");
+
+            execute(connection, "WITH inserted AS (" +
+                    "INSERT INTO tools (name, category_id, initial_stock, current_stock, replacement_value, rental_rate, status) " +
+                    "SELECT name, category_id, initial_stock, initial_stock, replacement_value, rental_rate, 'AVAILABLE' " +
+                    "FROM " + STAGE + " WHERE error IS NULL ORDER BY row_no RETURNING id, name, category_id) " +
+                    "UPDATE " + STAGE + " s SET tool_id = i.id FROM inserted i " +
+                    "WHERE i.category_id = s.category_id AND i.name = s.name AND s.error IS NULL");
+
+            execute(connection, "INSERT INTO tool_instances (tool_id, status) " +
+                    "SELECT s.tool_id, 'AVAILABLE' FROM " + STAGE + " s " +
+                    "CROSS JOIN LATERAL generate_series(1, s.initial_stock) WHERE s.tool_id IS NOT NULL ORDER BY s.row_no");
+
+            execute(connection, "INSERT INTO tool_stock_counters (tool_id, available, loaned, under_repair, decommissioned) " +
+                    "SELECT tool_id, initial_stock, 0, 0, 0 FROM " + STAGE + " WHERE tool_id IS NOT NULL");
+
+            execute(connection, "INSERT INTO kardex_movements (tool_id, type, quantity, stock_before, stock_after, description, created_at) " +
+                    "SELECT tool_id, 'INITIAL_STOCK', initial_stock, 0, initial_stock, " +
+                    "'Initial stock registration for ' || name || ' (importación masiva)', now() " +
+                    "FROM " + STAGE + " WHERE tool_id IS NOT NULL ORDER BY row_no");
+        }
+    }
+
+    // ========== INTEGRACIÓN DE CLIENTES ==========
+
+    private static final class ClientMerge implements StageMerge {
+        private static final String STAGE = "import_clients_stage";
+
+        @Override
+        public String stageTable() {
+            return STAGE;
+        }
+
+        @Override
+        public String createStage() {
+            return "CREATE TEMP TABLE " + STAGE + " (row_no integer PRIMARY KEY, name text NOT NULL, rut text NOT NULL, " +
+                    "phone text NOT NULL, email text NOT NULL, status text NOT NULL, error text) ON COMMIT DROP";
+        }
+
+        @Override
+        public String copyCommand() {
+            return "COPY " + STAGE + " (row_no, name, rut, phone, email, status) FROM STDIN WITH (FORMAT csv)";
+        }
+
+        @Override
+        public void merge(Connection connection) throws SQLException {
+            execute(connection, markFileDuplicates(STAGE, "rut", "RUT"));
+            execute(connection, markFileDuplicates(STAGE, "phone", "Teléfono"));
+            execute(connection, markFileDuplicates(STAGE, "email", "Email"));
+
+            // Mismas reglas de unicidad que ClientService.saveClient, contra toda la tabla de una vez
+            execute(connection, "UPDATE " + STAGE + " s SET error = 'Ya existe un cliente con RUT: ' || s.rut " +
+                    "FROM clients c WHERE c.rut = s.rut AND s.error IS NULL");
+            execute(connection, "UPDATE " + STAGE + " s SET error = 'Ya existe un cliente con el teléfono: ' || s.phone " +
+                    "FROM clients c WHERE c.phone = s.phone AND s.error IS NULL");
+            execute(connection, "UPDATE " + STAGE + " s SET error = 'Ya existe un cliente con el email: ' || s.email " +
+                    "FROM clients c WHERE c.email = s.email AND s.error IS NULL");
+
+            // Un alta concurrente por la API entre la verificación y el INSERT se informa como rechazo de la fila
+            execute(connection, "WITH inserted AS (" +
+                    "INSERT INTO clients (name, rut, phone, email, status) " +
+                    "SELECT name, rut, phone, email, status FROM " + STAGE + " WHERE error IS NULL ORDER BY row_no " +
+                    "ON CONFLICT DO NOTHING RETURNING rut) " +
+                    "UPDATE " + STAGE + " s SET error = 'Cliente registrado por otra operación durante la importación' " +
+                    "WHERE s.error IS NULL AND NOT EXISTS (SELECT 1 FROM inserted i WHERE i.rut = s.rut)");
+        }
+    }
+}
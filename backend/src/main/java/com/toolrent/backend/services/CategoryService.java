@@ -2,12 +2,14 @@ package com.toolrent.backend.services;
 
 import com.toolrent.backend.entities.CategoryEntity;
 import com.toolrent.backend.repositories.CategoryRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Optional;
 
 @Service
+@Slf4j
 public class CategoryService implements CommandLineRunner {
     private final CategoryRepository categoryRepository;
 
@@ -18,9 +20,9 @@ public class CategoryService implements CommandLineRunner {
     // IMPLEMENTACIÓN DE CommandLineRunner PARA INICIALIZACIÓN AUTOMÁTICA
     @Override
     public void run(String... args) throws Exception {
-        System.out.println("=== INICIALIZANDO CATEGORÍAS POR DEFECTO ===");
+        log.debug("=== INICIALIZANDO CATEGORÍAS POR DEFECTO ===");
         initializeDefaultCategories();
-        System.out.println("=== CATEGORÍAS INICIALIZADAS ===");
+        log.debug("=== CATEGORÍAS INICIALIZADAS ===");
     }
 
     // MÉTODO DE INICIALIZACIÓN DE CATEGORÍAS POR DEFECTO
@@ -59,18 +61,18 @@ public class CategoryService implements CommandLineRunner {
                 try {
                     categoryRepository.save(category);
                     created++;
-                    System.out.println("✓ Categoría creada: " + name);
+                    log.debug("✓ Categoría creada: {}", name);
                 } catch (Exception e) {
-                    System.err.println("✗ Error creando categoría '" + name + "': " + e.getMessage());
+                    log.warn("✗ Error creando categoría '{}': {}", name, e.getMessage());
                 }
             } else {
                 existing++;
             }
         }
 
-        System.out.println("Categorías creadas: " + created);
-        System.out.println("Categorías existentes: " + existing);
-        System.out.println("Total categorías en sistema: " + categoryRepository.count());
+        log.debug("Categorías creadas: {}", created);
+        log.debug("Categorías existentes: {}", existing);
+        log.debug("Total categorías en sistema: {}", categoryRepository.count());
     }
 
     // MÉTODOS ORIGINALES DEL SERVICIO
@@ -0,0 +1,198 @@
+package com.toolrent.backend.services;
+
+import com.toolrent.backend.entities.ClientEntity;
+import com.toolrent.backend.repositories.ClientRepository;
+import com.toolrent.backend.repositories.FineRepository;
+import com.toolrent.backend.repositories.LoanRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// RF2.5: Snapshot de elegibilidad por cliente (estado, préstamos activos, multas impagas) en memoria.
+// Se consulta en cada selección de cliente y en cada préstamo; la base de datos solo se usa cuando
+// el cliente no está en caché. LoanService, FineService, ClientService y DamageService invalidan
+// la entrada del cliente cada vez que cambian sus préstamos, multas o estado.
+@Service
+public class ClientEligibilityService {
+
+    // Límite de clientes en memoria (se descarta el menos usado) y vida máxima de una entrada,
+    // como respaldo ante cambios hechos directamente en la base de datos
+    private static final int MAX_ENTRIES = 10_000;
+    private static final long TTL_MILLIS = 5 * 60 * 1000L;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private FineRepository fineRepository;
+
+    private final Map<Long, EligibilitySnapshot> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, EligibilitySnapshot> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // Aumenta con cada invalidación: una carga que empezó antes de una invalidación no se guarda
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Snapshot del cliente desde memoria o, si no está, desde la base de datos. null si el cliente no existe.
+    public EligibilitySnapshot getSnapshot(Long clientId) {
+        if (clientId == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            EligibilitySnapshot cached = cache.get(clientId);
+            if (cached != null && now - cached.getLoadedAt() < TTL_MILLIS) {
+                return cached;
+            }
+        }
+
+        long invalidationsBeforeLoad = invalidations.get();
+        EligibilitySnapshot snapshot = load(clientId, now);
+        if (snapshot != null) {
+            synchronized (cache) {
+                if (invalidations.get() == invalidationsBeforeLoad) {
+                    cache.put(clientId, snapshot);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    // Descartar el snapshot del cliente. Dentro de una transacción se descarta de nuevo al terminar,
+    // para que una lectura concurrente no deje en caché el estado anterior al cambio.
+    public void invalidate(Long clientId) {
+        if (clientId == null) {
+            return;
+        }
+        evict(clientId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(clientId);
+                }
+            });
+        }
+    }
+
+    public void invalidate(ClientEntity client) {
+        if (client != null) {
+            invalidate(client.getId());
+        }
+    }
+
+    // Descartar todos los snapshots (p. ej. cálculo masivo de multas), igual que invalidate(Long):
+    // de nuevo al terminar la transacción, si hay una en curso
+    public void invalidateAll() {
+        clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    clear();
+                }
+            });
+        }
+    }
+
+    private void clear() {
+        invalidations.incrementAndGet();
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private void evict(Long clientId) {
+        invalidations.incrementAndGet();
+        synchronized (cache) {
+            cache.remove(clientId);
+        }
+    }
+
+    // Carga desde la base de datos: cliente, fechas acordadas de sus préstamos activos y resumen de multas impagas
+    private EligibilitySnapshot load(Long clientId, long loadedAt) {
+        ClientEntity client = clientRepository.findById(clientId).orElse(null);
+        if (client == null) {
+            return null;
+        }
+
+        List<LocalDate> activeLoanReturnDates = loanRepository.findActiveReturnDatesByClientId(clientId);
+
+        long unpaidFinesCount = 0;
+        BigDecimal unpaidAmount = BigDecimal.ZERO;
+        List<Object[]> fineSummary = fineRepository.findUnpaidSummaryByClientId(clientId);
+        if (!fineSummary.isEmpty()) {
+            Object[] row = fineSummary.get(0);
+            unpaidFinesCount = ((Number) row[0]).longValue();
+            unpaidAmount = row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO;
+        }
+
+        return new EligibilitySnapshot(clientId, client.getStatus(), activeLoanReturnDates,
+                unpaidFinesCount, unpaidAmount, loadedAt);
+    }
+
+    // Se guardan las fechas acordadas y no un flag de atraso: un préstamo pasa a estar vencido
+    // con el cambio de día, sin que ocurra ningún evento que invalide la caché
+    public static class EligibilitySnapshot {
+        private final Long clientId;
+        private final ClientEntity.ClientStatus clientStatus;
+        private final List<LocalDate> activeLoanReturnDates;
+        private final long unpaidFinesCount;
+        private final BigDecimal unpaidAmount;
+        private final long loadedAt;
+
+        public EligibilitySnapshot(Long clientId, ClientEntity.ClientStatus clientStatus,
+                                   List<LocalDate> activeLoanReturnDates, long unpaidFinesCount,
+                                   BigDecimal unpaidAmount, long loadedAt) {
+            this.clientId = clientId;
+            this.clientStatus = clientStatus;
+            this.activeLoanReturnDates = Collections.unmodifiableList(new ArrayList<>(activeLoanReturnDates));
+            this.unpaidFinesCount = unpaidFinesCount;
+            this.unpaidAmount = unpaidAmount;
+            this.loadedAt = loadedAt;
+        }
+
+        public Long getClientId() { return clientId; }
+        public ClientEntity.ClientStatus getClientStatus() { return clientStatus; }
+        public long getActiveLoans() { return activeLoanReturnDates.size(); }
+        public long getUnpaidFinesCount() { return unpaidFinesCount; }
+        public BigDecimal getUnpaidAmount() { return unpaidAmount; }
+        public long getLoadedAt() { return loadedAt; }
+
+        public boolean isClientActive() {
+            return clientStatus == ClientEntity.ClientStatus.ACTIVE;
+        }
+
+        public boolean hasUnpaidFines() {
+            return unpaidFinesCount > 0;
+        }
+
+        // Mismo criterio que LoanRepository.findOverdueLoansByClient: fecha acordada anterior a hoy
+        public long getOverdueLoansCount(LocalDate currentDate) {
+            return activeLoanReturnDates.stream()
+                    .filter(date -> date != null && date.isBefore(currentDate))
+                    .count();
+        }
+
+        public boolean hasOverdueLoans(LocalDate currentDate) {
+            return getOverdueLoansCount(currentDate) > 0;
+        }
+    }
+}
@@ -12,6 +12,9 @@ public class ClientService {
     @Autowired
     ClientRepository clientRepository;
 
+    @Autowired
+    ClientEligibilityService clientEligibilityService;
+
     // Get clients by name
     public List<ClientEntity> getClientsByName(String name) {
         return clientRepository.findByNameContainingIgnoreCase(name);
@@ -47,6 +50,30 @@ public class ClientService {
 
     // CREATE - Save new client with business validations
     public ClientEntity saveClient(ClientEntity client) throws Exception {
+        // Validar formato y normalizar datos
+        prepareNewClient(client);
+
+        // Validar que el RUT no esté registrado
+        if (clientRepository.existsByRut(client.getRut())) {
+            throw new Exception("Ya existe un cliente con RUT: " + formatRut(client.getRut()));
+        }
+
+        // Validar que el teléfono no esté registrado
+        if (existsByPhone(client.getPhone())) {
+            throw new Exception("Ya existe un cliente con el teléfono: " + client.getPhone());
+        }
+
+        // Validar que el email no esté registrado
+        if (existsByEmail(client.getEmail())) {
+            throw new Exception("Ya existe un cliente con el email: " + client.getEmail());
+        }
+
+        return clientRepository.save(client);
+    }
+
+    // Validaciones de formato y normalización de un cliente nuevo, sin consultar la base de datos.
+    // La unicidad de RUT, teléfono y email la verifica quien persiste (saveClient o la importación masiva).
+    public ClientEntity prepareNewClient(ClientEntity client) throws Exception {
         // Validar campos requeridos
         validateRequiredFields(client);
 
@@ -65,28 +92,9 @@ public class ClientService {
             throw new Exception("Formato de email inválido: " + client.getEmail());
         }
 
-        // Normalizar RUT antes de validar unicidad
-        String normalizedRut = normalizeRut(client.getRut());
-
-        // Validar que el RUT no esté registrado
-        if (clientRepository.existsByRut(normalizedRut)) {
-            throw new Exception("Ya existe un cliente con RUT: " + formatRut(normalizedRut));
-        }
-
-        // Validar que el teléfono no esté registrado
-        String normalizedPhone = normalizePhone(client.getPhone());
-        if (existsByPhone(normalizedPhone)) {
-            throw new Exception("Ya existe un cliente con el teléfono: " + client.getPhone());
-        }
-
-        // Validar que el email no esté registrado
-        if (existsByEmail(client.getEmail().toLowerCase())) {
-            throw new Exception("Ya existe un cliente con el email: " + client.getEmail());
-        }
-
         // Normalizar datos antes de guardar
-        client.setRut(normalizedRut);
-        client.setPhone(normalizedPhone);
+        client.setRut(normalizeRut(client.getRut()));
+        client.setPhone(normalizePhone(client.getPhone()));
         client.setEmail(client.getEmail().toLowerCase().trim());
         client.setName(client.getName().trim());
 
@@ -95,7 +103,7 @@ public class ClientService {
             client.setStatus(ClientEntity.ClientStatus.ACTIVE);
         }
 
-        return clientRepository.save(client);
+        return client;
     }
 
     // UPDATE - Update existing client with business validations
@@ -158,7 +166,9 @@ public class ClientService {
         client.setEmail(normalizedEmail);
         client.setName(client.getName().trim());
 
-        return clientRepository.save(client);
+        ClientEntity updatedClient = clientRepository.save(client);
+        clientEligibilityService.invalidate(updatedClient.getId());
+        return updatedClient;
     }
 
     // READ - Get client by ID
@@ -179,6 +189,7 @@ public class ClientService {
             // - Verificar que no tenga deudas pendientes
 
             clientRepository.deleteById(id);
+            clientEligibilityService.invalidate(id);
             return true;
         } catch (Exception e) {
             throw new Exception("Error al eliminar cliente: " + e.getMessage());
@@ -193,7 +204,9 @@ public class ClientService {
         }
 
         client.setStatus(newStatus);
-        return clientRepository.save(client);
+        ClientEntity updatedClient = clientRepository.save(client);
+        clientEligibilityService.invalidate(id);
+        return updatedClient;
     }
 
     // Metodo para obtener RUT formateado para visualización
@@ -410,8 +423,7 @@ public class ClientService {
      */
     private boolean existsByPhone(String phone) {
         try {
-            List<ClientEntity> clients = clientRepository.findAll();
-            return clients.stream().anyMatch(c -> c.getPhone().equals(phone));
+            return clientRepository.existsByPhone(phone);
         } catch (Exception e) {
             return false;
         }
@@ -26,6 +26,9 @@ public class DamageService {
     @Autowired
     private ToolInstanceService toolInstanceService;
 
+    @Autowired
+    private ClientEligibilityService clientEligibilityService;
+
     @Autowired
     @Lazy
     private KardexMovementService kardexMovementService;
@@ -327,6 +330,7 @@ public class DamageService {
             fine.setDueDate(java.time.LocalDate.now().plusDays(30));
 
             fineRepository.save(fine);
+            clientEligibilityService.invalidate(fine.getClient());
         }
     }
 
@@ -345,6 +349,7 @@ public class DamageService {
 
 
         fineRepository.save(fine);
+        clientEligibilityService.invalidate(fine.getClient());
     }
 
     // ========== DASHBOARD SUMMARY METHOD ==========
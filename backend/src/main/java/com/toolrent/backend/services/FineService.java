@@ -8,6 +8,7 @@ import com.toolrent.backend.entities.ToolEntity;
 import com.toolrent.backend.entities.ToolInstanceEntity;
 import com.toolrent.backend.repositories.FineRepository;
 import com.toolrent.backend.repositories.ClientRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,6 +22,7 @@ import java.util.Map;
 
 @Service
 @Transactional
+@Slf4j
 public class FineService {
 
     @Autowired
@@ -38,6 +40,15 @@ public class FineService {
     @Autowired(required = false)
     private ToolInstanceService toolInstanceService;
 
+    @Autowired
+    private ToolStatusService toolStatusService;
+
+    @Autowired
+    private ClientEligibilityService clientEligibilityService;
+
+    @Autowired
+    private LoanDailyRollupService loanDailyRollupService;
+
     // Verificar si el cliente tiene multas impagas - VERSIÓN SEGURA
     public boolean clientHasUnpaidFines(ClientEntity client) {
         try {
@@ -47,7 +58,7 @@ public class FineService {
             long unpaidCount = fineRepository.countUnpaidFinesByClient(client);
             return unpaidCount > 0;
         } catch (Exception e) {
-            System.err.println("Error checking unpaid fines for client: " + e.getMessage());
+            log.warn("Error checking unpaid fines for client: {}", e.getMessage());
             return false; // En caso de error, permitir el préstamo
         }
     }
@@ -61,7 +72,7 @@ public class FineService {
             BigDecimal total = fineRepository.getTotalUnpaidAmountByClient(client);
             return total != null ? total : BigDecimal.ZERO;
         } catch (Exception e) {
-            System.err.println("Error getting total unpaid amount for client: " + e.getMessage());
+            log.warn("Error getting total unpaid amount for client: {}", e.getMessage());
             return BigDecimal.ZERO;
         }
     }
@@ -121,7 +132,7 @@ public class FineService {
             }
 
         } catch (Exception e) {
-            System.err.println("Error checking client restrictions: " + e.getMessage());
+            log.warn("Error checking client restrictions: {}", e.getMessage());
             // En caso de error, no restringir al cliente
             restrictions.put("canRequestLoan", true);
             restrictions.put("isRestricted", false);
@@ -136,20 +147,19 @@ public class FineService {
     public List<FineEntity> getFinesByClient(ClientEntity client) {
         try {
             if (client == null) {
-                System.out.println("Client is null, returning empty list");
+                log.debug("Client is null, returning empty list");
                 return List.of();
             }
 
-            System.out.println("Getting fines for client ID: " + client.getId());
+            log.debug("Getting fines for client ID: {}", client.getId());
 
             // Usar consulta directa del repositorio en lugar de filtrar en memoria
             List<FineEntity> fines = fineRepository.findByClient(client);
-            System.out.println("Found " + fines.size() + " fines for client " + client.getId());
+            log.debug("Found {} fines for client {}", fines.size(), client.getId());
 
             return fines;
         } catch (Exception e) {
-            System.err.println("Error getting fines by client: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting fines by client: {}", e.getMessage(), e);
             return List.of();
         }
     }
@@ -162,7 +172,7 @@ public class FineService {
             }
             return fineRepository.findByClientAndPaidFalse(client);
         } catch (Exception e) {
-            System.err.println("Error getting unpaid fines by client: " + e.getMessage());
+            log.warn("Error getting unpaid fines by client: {}", e.getMessage());
             return List.of();
         }
     }
@@ -175,7 +185,7 @@ public class FineService {
             }
             return fineRepository.findByLoan(loan);
         } catch (Exception e) {
-            System.err.println("Error getting fines by loan: " + e.getMessage());
+            log.warn("Error getting fines by loan: {}", e.getMessage());
             return List.of();
         }
     }
@@ -193,13 +203,14 @@ public class FineService {
 
             fine.markAsPaid();
             FineEntity paidFine = fineRepository.save(fine);
+            clientEligibilityService.invalidate(paidFine.getClient());
 
             // 🔧 ACTUALIZACIÓN DEL ESTADO DE LA HERRAMIENTA SEGÚN TIPO DE DAÑO
             if (paidFine.getDamageType() != null && paidFine.getLoan() != null && paidFine.getLoan().getTool() != null) {
                 try {
                     handleToolStatusAfterFinePayment(paidFine);
                 } catch (Exception e) {
-                    System.err.println("Error updating tool status after fine payment: " + e.getMessage());
+                    log.warn("Error updating tool status after fine payment: {}", e.getMessage());
                     // No fallar el pago de multa por esto
                 }
             }
@@ -216,19 +227,19 @@ public class FineService {
                     if (unpaidFines.isEmpty() && client.getStatus() == ClientEntity.ClientStatus.RESTRICTED) {
                         client.setStatus(ClientEntity.ClientStatus.ACTIVE);
                         clientRepository.save(client);
-                        System.out.println("Client " + client.getName() + " status changed to ACTIVE - all fines paid");
+                        log.debug("Client {} status changed to ACTIVE - all fines paid", client.getName());
                     } else if (!unpaidFines.isEmpty()) {
-                        System.out.println("Client " + client.getName() + " still has " + unpaidFines.size() + " unpaid fine(s)");
+                        log.debug("Client {} still has {} unpaid fine(s)", client.getName(), unpaidFines.size());
                     }
                 } catch (Exception e) {
-                    System.err.println("Error updating client status after fine payment: " + e.getMessage());
+                    log.warn("Error updating client status after fine payment: {}", e.getMessage());
                     // No fallar el pago de multa por esto
                 }
             }
 
             return paidFine;
         } catch (Exception e) {
-            System.err.println("Error paying fine: " + e.getMessage());
+            log.warn("Error paying fine: {}", e.getMessage());
             throw new RuntimeException("Error al pagar la multa: " + e.getMessage());
         }
     }
@@ -241,8 +252,10 @@ public class FineService {
                     .orElseThrow(() -> new RuntimeException("Multa no encontrada con ID: " + fineId));
 
             fineRepository.delete(fine);
+            loanDailyRollupService.recordFineDeleted(fine);
+            clientEligibilityService.invalidate(fine.getClient());
         } catch (Exception e) {
-            System.err.println("Error cancelling fine: " + e.getMessage());
+            log.warn("Error cancelling fine: {}", e.getMessage());
             throw new RuntimeException("Error al cancelar la multa: " + e.getMessage());
         }
     }
@@ -255,6 +268,8 @@ public class FineService {
                 fine.setCreatedAt(LocalDateTime.now());
             }
             FineEntity savedFine = fineRepository.save(fine);
+            loanDailyRollupService.recordFinesCreated(List.of(savedFine));
+            clientEligibilityService.invalidate(savedFine.getClient());
 
             // 🔧 NUEVO: Actualizar estado del cliente a RESTRICTED si tiene multas impagas
             if (savedFine.getClient() != null && !savedFine.getPaid()) {
@@ -263,17 +278,17 @@ public class FineService {
                     if (client.getStatus() != ClientEntity.ClientStatus.RESTRICTED) {
                         client.setStatus(ClientEntity.ClientStatus.RESTRICTED);
                         clientRepository.save(client);
-                        System.out.println("Client " + client.getName() + " status changed to RESTRICTED due to unpaid fine");
+                        log.debug("Client {} status changed to RESTRICTED due to unpaid fine", client.getName());
                     }
                 } catch (Exception e) {
-                    System.err.println("Error updating client status after fine creation: " + e.getMessage());
+                    log.warn("Error updating client status after fine creation: {}", e.getMessage());
                     // No fallar la creación de multa por esto
                 }
             }
 
             return savedFine;
         } catch (Exception e) {
-            System.err.println("Error creating fine: " + e.getMessage());
+            log.warn("Error creating fine: {}", e.getMessage());
             throw new RuntimeException("Error al crear la multa: " + e.getMessage());
         }
     }
@@ -292,9 +307,12 @@ public class FineService {
                 fine.setDueDate(dueDate);
             }
 
-            return fineRepository.save(fine);
+            FineEntity updatedFine = fineRepository.save(fine);
+            // El monto pudo cambiar antes de guardar (multas por atraso que se recalculan)
+            clientEligibilityService.invalidate(updatedFine.getClient());
+            return updatedFine;
         } catch (Exception e) {
-            System.err.println("Error updating fine: " + e.getMessage());
+            log.warn("Error updating fine: {}", e.getMessage());
             throw new RuntimeException("Error al actualizar la multa: " + e.getMessage());
         }
     }
@@ -311,8 +329,10 @@ public class FineService {
             }
 
             fineRepository.delete(fine);
+            loanDailyRollupService.recordFineDeleted(fine);
+            clientEligibilityService.invalidate(fine.getClient());
         } catch (Exception e) {
-            System.err.println("Error deleting fine: " + e.getMessage());
+            log.warn("Error deleting fine: {}", e.getMessage());
             throw new RuntimeException("Error al eliminar la multa: " + e.getMessage());
         }
     }
@@ -321,13 +341,12 @@ public class FineService {
     @Transactional(readOnly = true)
     public List<FineEntity> getAllFines() {
         try {
-            System.out.println("Attempting to get all fines from repository...");
+            log.debug("Attempting to get all fines from repository...");
             List<FineEntity> fines = fineRepository.findAll();
-            System.out.println("Successfully retrieved " + fines.size() + " fines");
+            log.debug("Successfully retrieved {} fines", fines.size());
             return fines;
         } catch (Exception e) {
-            System.err.println("Error getting all fines: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting all fines: {}", e.getMessage(), e);
             return List.of(); // Retornar lista vacía en caso de error
         }
     }
@@ -347,7 +366,7 @@ public class FineService {
         try {
             return fineRepository.findByPaidFalse();
         } catch (Exception e) {
-            System.err.println("Error getting all unpaid fines: " + e.getMessage());
+            log.warn("Error getting all unpaid fines: {}", e.getMessage());
             return List.of();
         }
     }
@@ -357,7 +376,7 @@ public class FineService {
         try {
             return fineRepository.findOverdueFines(LocalDate.now());
         } catch (Exception e) {
-            System.err.println("Error getting overdue fines: " + e.getMessage());
+            log.warn("Error getting overdue fines: {}", e.getMessage());
             return List.of();
         }
     }
@@ -370,7 +389,7 @@ public class FineService {
             }
             return fineRepository.findByType(type);
         } catch (Exception e) {
-            System.err.println("Error getting fines by type: " + e.getMessage());
+            log.warn("Error getting fines by type: {}", e.getMessage());
             return List.of();
         }
     }
@@ -396,7 +415,7 @@ public class FineService {
             statistics.put("totalPaidAmount", totalPaidAmount != null ? totalPaidAmount : BigDecimal.ZERO);
 
         } catch (Exception e) {
-            System.err.println("Error getting fine statistics: " + e.getMessage());
+            log.warn("Error getting fine statistics: {}", e.getMessage());
             statistics.put("error", "Error al obtener estadísticas de multas");
             statistics.put("totalFines", 0);
             statistics.put("unpaidFines", 0);
@@ -417,7 +436,7 @@ public class FineService {
             }
             return fineRepository.findByDateRange(startDate, endDate);
         } catch (Exception e) {
-            System.err.println("Error getting fines in date range: " + e.getMessage());
+            log.warn("Error getting fines in date range: {}", e.getMessage());
             return List.of();
         }
     }
@@ -431,15 +450,14 @@ public class FineService {
         ToolEntity tool = fine.getLoan().getTool();
         Integer quantity = fine.getLoan().getQuantity();
 
-        System.out.println("Processing tool status after fine payment - Tool: " + tool.getName() +
-                         ", Damage Type: " + fine.getDamageType());
+        log.debug("Processing tool status after fine payment - Tool: {}, Damage Type: {}", tool.getName(), fine.getDamageType());
 
         if (fine.getDamageType() == FineEntity.DamageType.MINOR) {
             // Daño leve: NO HACER NADA AUTOMÁTICAMENTE
             // El administrador debe marcar manualmente la herramienta como reparada desde el inventario
             // El pago de la multa NO cambia el estado de la herramienta
-            System.out.println("Minor damage fine paid - Tool instances remain in their current state");
-            System.out.println("Administrator must manually mark tool instances as repaired from inventory");
+            log.debug("Minor damage fine paid - Tool instances remain in their current state");
+            log.debug("Administrator must manually mark tool instances as repaired from inventory");
 
             // NO restaurar stock automáticamente
             // NO cambiar estado de instancias automáticamente
@@ -449,7 +467,7 @@ public class FineService {
 
         } else if (fine.getDamageType() == FineEntity.DamageType.IRREPARABLE) {
             // Daño irreparable: Dar de baja (NO restaurar stock)
-            System.out.println("Irreparable damage - decommissioning tool");
+            log.debug("Irreparable damage - decommissioning tool");
 
             // NO restaurar stock - la herramienta se pierde
 
@@ -458,28 +476,22 @@ public class FineService {
                 try {
                     List<ToolInstanceEntity> decommissionedInstances =
                         toolInstanceService.decommissionInstances(tool.getId(), quantity);
-                    System.out.println("Successfully decommissioned " + decommissionedInstances.size() + " instances");
+                    log.debug("Successfully decommissioned {} instances", decommissionedInstances.size());
                 } catch (Exception e) {
-                    System.err.println("Error decommissioning tool instances: " + e.getMessage());
+                    log.warn("Error decommissioning tool instances: {}", e.getMessage());
                 }
             }
 
             // Verificar si todas las instancias están dadas de baja
             if (toolInstanceService != null) {
                 try {
-                    Long availableCount = toolInstanceService.getAvailableCount(tool.getId());
-                    Long loanedCount = toolInstanceService.getInstancesByStatus(
-                        ToolInstanceEntity.ToolInstanceStatus.LOANED).stream()
-                        .filter(i -> i.getTool().getId().equals(tool.getId()))
-                        .count();
-
-                    if (availableCount == 0 && loanedCount == 0) {
+                    if (toolStatusService.hasNoOperationalInstances(tool.getId())) {
                         // Todas las instancias están dadas de baja o en reparación
                         tool.setStatus(ToolEntity.ToolStatus.DECOMMISSIONED);
-                        System.out.println("All instances decommissioned - tool marked as DECOMMISSIONED");
+                        log.debug("All instances decommissioned - tool marked as DECOMMISSIONED");
                     }
                 } catch (Exception e) {
-                    System.err.println("Error checking tool instance status: " + e.getMessage());
+                    log.warn("Error checking tool instance status: {}", e.getMessage());
                 }
             }
         }
@@ -488,10 +500,9 @@ public class FineService {
         if (toolService != null) {
             try {
                 toolService.updateTool(tool.getId(), tool);
-                System.out.println("Tool status updated successfully: " + tool.getStatus() +
-                                 " (Stock: " + tool.getCurrentStock() + "/" + tool.getInitialStock() + ")");
+                log.debug("Tool status updated successfully: {} (Stock: {}/{})", tool.getStatus(), tool.getCurrentStock(), tool.getInitialStock());
             } catch (Exception e) {
-                System.err.println("Error saving tool changes: " + e.getMessage());
+                log.warn("Error saving tool changes: {}", e.getMessage());
             }
         }
     }
@@ -499,28 +510,32 @@ public class FineService {
     // Crear multa por atraso - método auxiliar para el LoanService
     public FineEntity createLateFine(LoanEntity loan, long daysLate, BigDecimal lateFeeRate) {
         try {
-            if (loan == null || daysLate <= 0 || lateFeeRate == null) {
-                throw new RuntimeException("Parámetros inválidos para crear multa por atraso");
-            }
-
-            BigDecimal fineAmount = lateFeeRate.multiply(BigDecimal.valueOf(daysLate));
-
-            FineEntity fine = new FineEntity();
-            fine.setClient(loan.getClient());
-            fine.setLoan(loan);
-            fine.setType(FineEntity.FineType.LATE_RETURN);
-            fine.setAmount(fineAmount);
-            fine.setDescription("Multa por devolución tardía - " + daysLate + " día(s) de atraso");
-            fine.setDueDate(LocalDate.now().plusDays(30)); // 30 días para pagar
-            fine.setPaid(false);
-
-            return createFine(fine);
+            return createFine(buildLateFine(loan, daysLate, lateFeeRate));
         } catch (Exception e) {
-            System.err.println("Error creating late fine: " + e.getMessage());
+            log.warn("Error creating late fine: {}", e.getMessage());
             throw new RuntimeException("Error al crear multa por atraso: " + e.getMessage());
         }
     }
 
+    // Armar multa por atraso sin guardarla (devoluciones múltiples la guardan junto con las demás)
+    public FineEntity buildLateFine(LoanEntity loan, long daysLate, BigDecimal lateFeeRate) {
+        if (loan == null || daysLate <= 0 || lateFeeRate == null) {
+            throw new RuntimeException("Parámetros inválidos para crear multa por atraso");
+        }
+
+        BigDecimal fineAmount = lateFeeRate.multiply(BigDecimal.valueOf(daysLate));
+
+        FineEntity fine = new FineEntity();
+        fine.setClient(loan.getClient());
+        fine.setLoan(loan);
+        fine.setType(FineEntity.FineType.LATE_RETURN);
+        fine.setAmount(fineAmount);
+        fine.setDescription("Multa por devolución tardía - " + daysLate + " día(s) de atraso");
+        fine.setDueDate(LocalDate.now().plusDays(30)); // 30 días para pagar
+        fine.setPaid(false);
+        return fine;
+    }
+
     // Crear multa por daño - método auxiliar para el LoanService
     public FineEntity createDamageFine(LoanEntity loan, BigDecimal repairCost, String description) {
         try {
@@ -539,7 +554,7 @@ public class FineService {
 
             return createFine(fine);
         } catch (Exception e) {
-            System.err.println("Error creating damage fine: " + e.getMessage());
+            log.warn("Error creating damage fine: {}", e.getMessage());
             throw new RuntimeException("Error al crear multa por daño: " + e.getMessage());
         }
     }
@@ -547,47 +562,111 @@ public class FineService {
     // Crear multa por daño con tipo de daño especificado - NUEVO MÉTODO
     public FineEntity createDamageFineWithType(LoanEntity loan, FineEntity.DamageType damageType, String description) {
         try {
-            if (loan == null || damageType == null) {
-                throw new RuntimeException("Parámetros inválidos para crear multa por daño");
-            }
+            FineEntity fine = buildDamageFine(loan, damageType, description);
+            log.debug("Creating {} damage fine: {} - Amount: ${}", damageType, fine.getType(), fine.getAmount());
+            return createFine(fine);
+        } catch (Exception e) {
+            log.warn("Error creating damage fine with type: {}", e.getMessage());
+            throw new RuntimeException("Error al crear multa por daño: " + e.getMessage());
+        }
+    }
 
-            ToolEntity tool = loan.getTool();
-            if (tool == null || tool.getReplacementValue() == null) {
-                throw new RuntimeException("Herramienta o valor de reposición no encontrado");
-            }
+    // Armar multa por daño sin guardarla (devoluciones múltiples la guardan junto con las demás)
+    public FineEntity buildDamageFine(LoanEntity loan, FineEntity.DamageType damageType, String description) {
+        if (loan == null || damageType == null) {
+            throw new RuntimeException("Parámetros inválidos para crear multa por daño");
+        }
 
-            BigDecimal fineAmount;
-            FineEntity.FineType fineType;
-            String fineDescription;
+        ToolEntity tool = loan.getTool();
+        if (tool == null || tool.getReplacementValue() == null) {
+            throw new RuntimeException("Herramienta o valor de reposición no encontrado");
+        }
 
-            if (damageType == FineEntity.DamageType.MINOR) {
-                // Daño leve: 20% del valor de reposición
-                fineAmount = tool.getReplacementValue().multiply(BigDecimal.valueOf(0.2));
-                fineType = FineEntity.FineType.DAMAGE_REPAIR;
-                fineDescription = "Multa por reparación (daño leve) - " + (description != null ? description : "");
-            } else {
-                // Daño irreparable: valor completo de reposición
-                fineAmount = tool.getReplacementValue();
-                fineType = FineEntity.FineType.TOOL_REPLACEMENT;
-                fineDescription = "Multa por reposición (daño irreparable) - " + (description != null ? description : "");
+        BigDecimal fineAmount;
+        FineEntity.FineType fineType;
+        String fineDescription;
+
+        if (damageType == FineEntity.DamageType.MINOR) {
+            // Daño leve: 20% del valor de reposición
+            fineAmount = tool.getReplacementValue().multiply(BigDecimal.valueOf(0.2));
+            fineType = FineEntity.FineType.DAMAGE_REPAIR;
+            fineDescription = "Multa por reparación (daño leve) - " + (description != null ? description : "");
+        } else {
+            // Daño irreparable: valor completo de reposición
+            fineAmount = tool.getReplacementValue();
+            fineType = FineEntity.FineType.TOOL_REPLACEMENT;
+            fineDescription = "Multa por reposición (daño irreparable) - " + (description != null ? description : "");
+        }
+
+        FineEntity fine = new FineEntity();
+        fine.setClient(loan.getClient());
+        fine.setLoan(loan);
+        fine.setType(fineType);
+        fine.setDamageType(damageType);
+        fine.setAmount(fineAmount);
+        fine.setDescription(fineDescription.trim());
+        fine.setDueDate(LocalDate.now().plusDays(30)); // 30 días para pagar
+        fine.setPaid(false);
+        return fine;
+    }
+
+    // Guardar varias multas de una vez y restringir a cada cliente afectado una sola vez
+    @Transactional
+    public List<FineEntity> createFines(List<FineEntity> fines) {
+        LocalDateTime now = LocalDateTime.now();
+        for (FineEntity fine : fines) {
+            if (fine.getCreatedAt() == null) {
+                fine.setCreatedAt(now);
             }
+        }
+        List<FineEntity> savedFines = fineRepository.saveAll(fines);
+        loanDailyRollupService.recordFinesCreated(savedFines);
+        savedFines.stream()
+                .map(FineEntity::getClient)
+                .filter(java.util.Objects::nonNull)
+                .map(ClientEntity::getId)
+                .distinct()
+                .forEach(clientEligibilityService::invalidate);
+
+        Map<Long, ClientEntity> clientsToRestrict = new HashMap<>();
+        for (FineEntity fine : savedFines) {
+            ClientEntity client = fine.getClient();
+            if (client != null && !fine.getPaid() && client.getStatus() != ClientEntity.ClientStatus.RESTRICTED) {
+                clientsToRestrict.put(client.getId(), client);
+            }
+        }
+        for (ClientEntity client : clientsToRestrict.values()) {
+            client.setStatus(ClientEntity.ClientStatus.RESTRICTED);
+        }
+        clientRepository.saveAll(clientsToRestrict.values());
 
-            FineEntity fine = new FineEntity();
-            fine.setClient(loan.getClient());
-            fine.setLoan(loan);
-            fine.setType(fineType);
-            fine.setDamageType(damageType);
-            fine.setAmount(fineAmount);
-            fine.setDescription(fineDescription.trim());
-            fine.setDueDate(LocalDate.now().plusDays(30)); // 30 días para pagar
-            fine.setPaid(false);
+        return savedFines;
+    }
+
+    // Multas por atraso en bloque para los préstamos con ID entre fromLoanId y toLoanId: crea las que faltan,
+    // recalcula los montos de las existentes y restringe a los clientes con multas nuevas. Dos sentencias SQL,
+    // sin cargar préstamos ni multas en memoria.
+    @Transactional
+    public OverdueFineAccrual accrueOverdueFines(LocalDate today, BigDecimal lateFeeRate, Long fromLoanId, Long toLoanId) {
+        int created = fineRepository.insertMissingLateFines(today, lateFeeRate, fromLoanId, toLoanId);
+        int amountsUpdated = fineRepository.updateLateFineAmounts(today, lateFeeRate, fromLoanId, toLoanId);
+        if (created > 0 || amountsUpdated > 0) {
+            // Cambian montos impagos de muchos clientes a la vez
+            clientEligibilityService.invalidateAll();
+        }
+        return new OverdueFineAccrual(created, amountsUpdated);
+    }
 
-            System.out.println("Creating " + damageType + " damage fine: " + fineType + " - Amount: $" + fineAmount);
+    public static class OverdueFineAccrual {
+        private final int finesCreated;
+        private final int amountsUpdated;
 
-            return createFine(fine);
-        } catch (Exception e) {
-            System.err.println("Error creating damage fine with type: " + e.getMessage());
-            throw new RuntimeException("Error al crear multa por daño: " + e.getMessage());
+        public OverdueFineAccrual(int finesCreated, int amountsUpdated) {
+            this.finesCreated = finesCreated;
+            this.amountsUpdated = amountsUpdated;
         }
+
+        public int getFinesCreated() { return finesCreated; }
+        public int getAmountsUpdated() { return amountsUpdated; }
     }
-}
\ No newline at end of file
+}
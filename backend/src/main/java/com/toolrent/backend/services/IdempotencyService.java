@@ -0,0 +1,349 @@
+package com.toolrent.backend.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.toolrent.backend.entities.IdempotencyKeyEntity;
+import com.toolrent.backend.repositories.IdempotencyKeyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Header Idempotency-Key para operaciones que no deben repetirse (crear préstamo, devolver).
+// La primera solicitud reserva la clave en idempotency_keys (transacción propia, visible de inmediato para
+// reintentos concurrentes) y, cuando la transacción de la operación confirma, guarda su respuesta.
+// Los reintentos reciben esa respuesta desde memoria o desde la tabla, sin volver a ejecutar la operación.
+// Si la operación falla o se revierte, la clave se libera y el reintento se ejecuta normalmente.
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_ENTRIES = 10_000;
+    // Una clave en proceso más antigua que esto se considera abandonada (la aplicación se detuvo a mitad)
+    private static final Duration IN_PROGRESS_TIMEOUT = Duration.ofMinutes(2);
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final TransactionTemplate requiresNew;
+    private final Duration ttl;
+    private final int purgeBatchSize;
+
+    // Respuestas ya guardadas, para no consultar la tabla en cada reintento
+    private final Map<String, StoredResponse> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    @Autowired
+    public IdempotencyService(PlatformTransactionManager transactionManager,
+                              @Value("${toolrent.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${toolrent.idempotency.purge-batch-size:1000}") int purgeBatchSize) {
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ttl = Duration.ofHours(Math.max(1, ttlHours));
+        this.purgeBatchSize = Math.max(1, purgeBatchSize);
+    }
+
+    // Ejecutar la operación una sola vez por clave. Sin clave se ejecuta siempre, como antes.
+    // request identifica la solicitud (cuerpo, parámetros): la misma clave con otra solicitud se rechaza.
+    public ResponseEntity<?> execute(String key, String operation, Object request,
+                                     Supplier<? extends ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        String idempotencyKey = key.trim();
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return errorResponse(HttpStatus.BAD_REQUEST,
+                    "El header " + HEADER + " no puede superar " + MAX_KEY_LENGTH + " caracteres");
+        }
+        String requestHash = hashRequest(operation, request);
+
+        StoredResponse stored = getCached(idempotencyKey);
+        if (stored != null) {
+            return replay(stored, operation, requestHash);
+        }
+
+        ClaimResult claim = claim(idempotencyKey, operation, requestHash);
+        if (claim.response != null) {
+            return claim.response;
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            releaseAfterCompletion(idempotencyKey);
+            throw e;
+        }
+
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            // Los errores no se guardan: el reintento vuelve a intentar la operación
+            releaseAfterCompletion(idempotencyKey);
+            return response;
+        }
+
+        StoredResponse completed = new StoredResponse(operation, requestHash, response.getStatusCode().value(),
+                toJson(response.getBody()), LocalDateTime.now().plus(ttl));
+        completeAfterCommit(idempotencyKey, completed);
+        return response;
+    }
+
+    // Purga de claves vencidas por lotes cortos, para no bloquear la tabla con un DELETE grande
+    @Scheduled(fixedDelayString = "${toolrent.idempotency.purge-interval-ms:3600000}",
+            initialDelayString = "${toolrent.idempotency.purge-interval-ms:3600000}")
+    public int purgeExpiredKeys() {
+        LocalDateTime now = LocalDateTime.now();
+        int totalDeleted = 0;
+        int deleted;
+        do {
+            Integer batchDeleted = requiresNew.execute(status ->
+                    idempotencyKeyRepository.deleteExpiredBatch(now, purgeBatchSize));
+            deleted = batchDeleted != null ? batchDeleted : 0;
+            totalDeleted += deleted;
+        } while (deleted == purgeBatchSize);
+
+        synchronized (cache) {
+            cache.values().removeIf(entry -> entry.isExpired(now));
+        }
+        if (totalDeleted > 0) {
+            log.info("Idempotency keys purged: {}", totalDeleted);
+        }
+        return totalDeleted;
+    }
+
+    // Reservar la clave. Si ya existe, devuelve la respuesta guardada o el error que corresponda.
+    private ClaimResult claim(String key, String operation, String requestHash) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            LocalDateTime now = LocalDateTime.now();
+            IdempotencyKeyEntity existing = requiresNew.execute(status ->
+                    idempotencyKeyRepository.findByIdempotencyKey(key).orElse(null));
+
+            if (existing != null) {
+                boolean expired = existing.getExpiresAt().isBefore(now);
+                boolean abandoned = existing.getStatus() == IdempotencyKeyEntity.KeyStatus.IN_PROGRESS
+                        && existing.getCreatedAt().isBefore(now.minus(IN_PROGRESS_TIMEOUT));
+
+                if (!expired && !abandoned) {
+                    if (existing.getStatus() == IdempotencyKeyEntity.KeyStatus.IN_PROGRESS) {
+                        if (!existing.getRequestHash().equals(requestHash)) {
+                            return ClaimResult.of(mismatchResponse());
+                        }
+                        return ClaimResult.of(errorResponse(HttpStatus.CONFLICT,
+                                "Una solicitud con esta clave de idempotencia aún se está procesando"));
+                    }
+                    StoredResponse stored = new StoredResponse(existing.getOperation(), existing.getRequestHash(),
+                            existing.getResponseStatus(), existing.getResponseBody(), existing.getExpiresAt());
+                    putCached(key, stored);
+                    return ClaimResult.of(replay(stored, operation, requestHash));
+                }
+
+                requiresNew.executeWithoutResult(status -> idempotencyKeyRepository.deleteByIdNow(existing.getId()));
+            }
+
+            try {
+                requiresNew.executeWithoutResult(status -> {
+                    IdempotencyKeyEntity entity = new IdempotencyKeyEntity();
+                    entity.setIdempotencyKey(key);
+                    entity.setOperation(operation);
+                    entity.setRequestHash(requestHash);
+                    entity.setStatus(IdempotencyKeyEntity.KeyStatus.IN_PROGRESS);
+                    entity.setCreatedAt(now);
+                    entity.setExpiresAt(now.plus(ttl));
+                    idempotencyKeyRepository.saveAndFlush(entity);
+                });
+                return ClaimResult.claimed();
+            } catch (DataIntegrityViolationException e) {
+                // Otra solicitud con la misma clave la reservó primero: volver a leerla
+            }
+        }
+        return ClaimResult.of(errorResponse(HttpStatus.CONFLICT,
+                "Una solicitud con esta clave de idempotencia aún se está procesando"));
+    }
+
+    // Guardar la respuesta cuando la operación confirma; si se revierte, liberar la clave
+    private void completeAfterCommit(String key, StoredResponse completed) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete(key, completed);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    complete(key, completed);
+                } else {
+                    release(key);
+                }
+            }
+        });
+    }
+
+    private void releaseAfterCompletion(String key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(key);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                release(key);
+            }
+        });
+    }
+
+    private void complete(String key, StoredResponse completed) {
+        try {
+            requiresNew.executeWithoutResult(status ->
+                    idempotencyKeyRepository.findByIdempotencyKey(key).ifPresent(entity -> {
+                        entity.setStatus(IdempotencyKeyEntity.KeyStatus.COMPLETED);
+                        entity.setResponseStatus(completed.getStatus());
+                        entity.setResponseBody(completed.getBody());
+                        entity.setExpiresAt(completed.getExpiresAt());
+                        idempotencyKeyRepository.save(entity);
+                    }));
+            putCached(key, completed);
+        } catch (Exception e) {
+            // La operación ya confirmó; sin la respuesta guardada un reintento recibirá 409 hasta que la clave se abandone
+            log.warn("Error storing idempotent response for key {}: {}", key, e.getMessage());
+        }
+    }
+
+    private void release(String key) {
+        try {
+            requiresNew.executeWithoutResult(status -> idempotencyKeyRepository.deleteInProgress(key));
+        } catch (Exception e) {
+            log.warn("Error releasing idempotency key {}: {}", key, e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String operation, String requestHash) {
+        if (!stored.getOperation().equals(operation) || !stored.getRequestHash().equals(requestHash)) {
+            return mismatchResponse();
+        }
+        return ResponseEntity.status(stored.getStatus())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(REPLAYED_HEADER, "true")
+                .body(stored.getBody());
+    }
+
+    private StoredResponse getCached(String key) {
+        synchronized (cache) {
+            StoredResponse stored = cache.get(key);
+            if (stored != null && stored.isExpired(LocalDateTime.now())) {
+                cache.remove(key);
+                return null;
+            }
+            return stored;
+        }
+    }
+
+    private void putCached(String key, StoredResponse stored) {
+        synchronized (cache) {
+            cache.put(key, stored);
+        }
+    }
+
+    private ResponseEntity<?> mismatchResponse() {
+        return errorResponse(HttpStatus.UNPROCESSABLE_ENTITY,
+                "La clave de idempotencia ya se usó con una solicitud distinta");
+    }
+
+    private ResponseEntity<?> errorResponse(HttpStatus status, String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", true);
+        errorResponse.put("message", message);
+        errorResponse.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.status(status).body(errorResponse);
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error al guardar la respuesta idempotente: " + e.getMessage());
+        }
+    }
+
+    private String hashRequest(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((operation + ":" + toJson(request)).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class ClaimResult {
+        private final ResponseEntity<?> response;
+
+        private ClaimResult(ResponseEntity<?> response) {
+            this.response = response;
+        }
+
+        static ClaimResult claimed() {
+            return new ClaimResult(null);
+        }
+
+        static ClaimResult of(ResponseEntity<?> response) {
+            return new ClaimResult(response);
+        }
+    }
+
+    public static class StoredResponse {
+        private final String operation;
+        private final String requestHash;
+        private final int status;
+        private final String body;
+        private final LocalDateTime expiresAt;
+
+        public StoredResponse(String operation, String requestHash, int status, String body, LocalDateTime expiresAt) {
+            this.operation = operation;
+            this.requestHash = requestHash;
+            this.status = status;
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getOperation() { return operation; }
+        public String getRequestHash() { return requestHash; }
+        public int getStatus() { return status; }
+        public String getBody() { return body; }
+        public LocalDateTime getExpiresAt() { return expiresAt; }
+
+        public boolean isExpired(LocalDateTime now) {
+            return expiresAt.isBefore(now);
+        }
+    }
+}
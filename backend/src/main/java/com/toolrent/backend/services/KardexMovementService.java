@@ -2,6 +2,7 @@ package com.toolrent.backend.services;
 
 import com.toolrent.backend.entities.*;
 import com.toolrent.backend.repositories.KardexMovementRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
@@ -14,6 +15,7 @@ import java.util.ArrayList;
 
 @Service
 @Transactional
+@Slf4j
 public class KardexMovementService {
 
     private final KardexMovementRepository kardexMovementRepository;
@@ -23,6 +25,9 @@ public class KardexMovementService {
     @Lazy
     private ToolService toolService; // Inyección de ToolService con @Lazy para romper ciclo
 
+    @Autowired
+    private MetricsService metricsService;
+
     public KardexMovementService(KardexMovementRepository kardexMovementRepository,
                                  ToolInstanceService toolInstanceService) {
         this.kardexMovementRepository = kardexMovementRepository;
@@ -37,6 +42,22 @@ public class KardexMovementService {
                                                KardexMovementEntity.MovementType type,
                                                Integer quantity, String description,
                                                LoanEntity relatedLoan, Integer stockBeforeMovement) {
+        return metricsService.time(MetricsService.KARDEX_WRITE, () -> {
+            KardexMovementEntity movement = buildMovement(tool, toolInstance, type, quantity, description,
+                    relatedLoan, stockBeforeMovement);
+
+            // MEJORA: Actualizar instancias automáticamente según el tipo de movimiento
+            updateInstancesBasedOnMovement(tool, type, quantity, movement);
+
+            return kardexMovementRepository.save(movement);
+        }, "mode", "single", "type", type != null ? type.name() : "UNKNOWN");
+    }
+
+    // Build a movement without saving it, so batch operations can save them all together
+    public KardexMovementEntity buildMovement(ToolEntity tool, ToolInstanceEntity toolInstance,
+                                              KardexMovementEntity.MovementType type,
+                                              Integer quantity, String description,
+                                              LoanEntity relatedLoan, Integer stockBeforeMovement) {
 
         validateMovementCreation(tool, type, quantity);
 
@@ -50,14 +71,9 @@ public class KardexMovementService {
         // (LoanService, ToolService) ANTES de actualizar el stock y crear el movimiento kardex
 
         // Create the movement with tool instance
-        KardexMovementEntity movement = new KardexMovementEntity(
+        return new KardexMovementEntity(
                 tool, toolInstance, type, quantity, stockBefore, stockAfter, description, relatedLoan
         );
-
-        // MEJORA: Actualizar instancias automáticamente según el tipo de movimiento
-        updateInstancesBasedOnMovement(tool, type, quantity, movement);
-
-        return kardexMovementRepository.save(movement);
     }
 
     // RF5.1: Create movement with automatic stock tracking and instance management (without specific instance)
@@ -81,6 +97,39 @@ public class KardexMovementService {
         return createMovement(tool, type, quantity, description, relatedLoan, null);
     }
 
+    // Register several already-built movements at once (batch loans and returns)
+    @Transactional
+    public List<KardexMovementEntity> createMovements(List<KardexMovementEntity> movements) {
+        return metricsService.time(MetricsService.KARDEX_WRITE, () -> {
+            for (KardexMovementEntity movement : movements) {
+                validateMovementCreation(movement.getTool(), movement.getType(), movement.getQuantity());
+            }
+            return kardexMovementRepository.saveAll(movements);
+        }, "mode", "batch", "type", "MIXED");
+    }
+
+    // Movimientos LOAN de un préstamo múltiple en un solo INSERT (ver KardexMovementRepository.insertLoanMovements).
+    // instanceIds va en el mismo orden que loanIds, con null para los préstamos sin instancia.
+    @Transactional
+    public int createLoanMovements(List<Long> loanIds, List<Long> instanceIds, String clientName) {
+        return metricsService.time(MetricsService.KARDEX_WRITE,
+                () -> kardexMovementRepository.insertLoanMovements(toArrayLiteral(loanIds),
+                        toArrayLiteral(instanceIds), clientName, LocalDateTime.now()),
+                "mode", "batch", "type", KardexMovementEntity.MovementType.LOAN.name());
+    }
+
+    // Arreglo de PostgreSQL ('{1,NULL,3}') para los parámetros bigint[]
+    private static String toArrayLiteral(List<Long> values) {
+        StringBuilder literal = new StringBuilder("{");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                literal.append(',');
+            }
+            literal.append(values.get(i) != null ? values.get(i).toString() : "NULL");
+        }
+        return literal.append('}').toString();
+    }
+
     // ========== MÉTODOS ESPECÍFICOS POR TIPO DE MOVIMIENTO ==========
 
     // RF5.1: Create initial stock movement for new tools
@@ -161,32 +210,45 @@ public class KardexMovementService {
         return kardexMovementRepository.save(movement);
     }
 
-    // RF5.1: Create restock movement
+    // RF5.1: Create restock movement (crea las instancias nuevas y registra el movimiento)
     @Transactional
     public KardexMovementEntity createRestockMovement(ToolEntity tool, Integer quantity,
                                                       String description) {
-
-        KardexMovementEntity movement = createMovement(tool, KardexMovementEntity.MovementType.RESTOCK,
-                quantity, description);
-
-        // MEJORA: Crear nuevas instancias para el restock
+        List<Long> instanceIds;
         try {
-            List<ToolInstanceEntity> newInstances =
-                    toolInstanceService.createInstances(tool, quantity);
-
-            List<Long> instanceIds = newInstances.stream()
-                    .map(ToolInstanceEntity::getId)
-                    .collect(java.util.stream.Collectors.toList());
-
-            movement.setDescription(description + " - Nuevas instancias creadas: " + instanceIds);
-
+            instanceIds = toolInstanceService.createInstances(tool, quantity);
         } catch (Exception e) {
             throw new RuntimeException("Error al crear nuevas instancias en restock: " + e.getMessage());
         }
 
+        return createRestockMovement(tool, quantity, description, instanceIds);
+    }
+
+    // RF5.1: Create restock movement for instances already created by ToolService.addToolStock()
+    // Solo registra el movimiento; no vuelve a crear instancias
+    @Transactional
+    public KardexMovementEntity createRestockMovement(ToolEntity tool, Integer quantity,
+                                                      String description, List<Long> instanceIds) {
+        String finalDescription = description;
+        if (instanceIds != null && !instanceIds.isEmpty()) {
+            finalDescription = description + " - Nuevas instancias creadas: " + describeInstanceIds(instanceIds);
+        }
+
+        KardexMovementEntity movement = createMovement(tool, KardexMovementEntity.MovementType.RESTOCK,
+                quantity, finalDescription);
+
         return kardexMovementRepository.save(movement);
     }
 
+    // Lista corta tal cual; para reposiciones grandes, rango y total (la descripción admite 500 caracteres)
+    private String describeInstanceIds(List<Long> instanceIds) {
+        if (instanceIds.size() <= 10) {
+            return instanceIds.toString();
+        }
+        return String.format("#%d a #%d (%d instancias)",
+                instanceIds.get(0), instanceIds.get(instanceIds.size() - 1), instanceIds.size());
+    }
+
     // RF5.1: Create repair movement
     public KardexMovementEntity createRepairMovement(ToolEntity tool, String description
             , Long instanceId) {
@@ -311,7 +373,7 @@ public class KardexMovementService {
                     getMovementHistoryByTool(toolId)
             );
         } catch (Exception e) {
-            System.err.println("Error generating audit report: " + e.getMessage());
+            log.warn("Error generating audit report: {}", e.getMessage());
             throw new RuntimeException("Error al generar reporte de auditoría: " + e.getMessage());
         }
     }
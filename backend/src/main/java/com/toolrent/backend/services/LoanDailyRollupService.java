@@ -0,0 +1,332 @@
+package com.toolrent.backend.services;
+
+import com.toolrent.backend.entities.FineEntity;
+import com.toolrent.backend.entities.LoanDailyRollupBackfillEntity;
+import com.toolrent.backend.entities.LoanEntity;
+import com.toolrent.backend.entities.ToolEntity;
+import com.toolrent.backend.repositories.LoanDailyRollupBackfillRepository;
+import com.toolrent.backend.repositories.LoanDailyRollupRepository;
+import com.toolrent.backend.repositories.LoanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Mantenimiento de loan_daily_rollup (totales diarios por herramienta y categoría).
+// Préstamos, devoluciones y multas por atraso suman deltas en la fila de su día dentro de la misma transacción,
+// en orden de clave para que dos transacciones no se bloqueen en orden inverso, y con el bloqueo consultivo
+// compartido que la reconstrucción de cada mes toma exclusivo. El historial se reconstruye
+// mes a mes desde loans y fines (backfill): automáticamente al iniciar si nunca se ha reconstruido, o a pedido.
+// Cada reconstrucción deja su avance en loan_daily_rollup_backfills y una interrumpida se retoma al iniciar.
+@Service
+@Slf4j
+public class LoanDailyRollupService implements CommandLineRunner {
+
+    // Tamaño del sketch de clientes distintos (conteo lineal); debe coincidir con bit(1024) en la tabla
+    public static final int SKETCH_BITS = 1024;
+
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator
+            .comparing(RollupKey::day)
+            .thenComparing(RollupKey::toolId)
+            .thenComparing(RollupKey::categoryId);
+
+    @Autowired
+    private LoanDailyRollupRepository rollupRepository;
+
+    @Autowired
+    private LoanDailyRollupBackfillRepository backfillRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    private final TransactionTemplate transactionTemplate;
+    private final boolean backfillOnStartup;
+
+    @Autowired
+    public LoanDailyRollupService(PlatformTransactionManager transactionManager,
+                                  @Value("${toolrent.rollup.backfill-on-startup:true}") boolean backfillOnStartup) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.backfillOnStartup = backfillOnStartup;
+    }
+
+    // IMPLEMENTACIÓN DE CommandLineRunner: terminar las reconstrucciones interrumpidas y construir la rollup
+    // desde el historial si nunca se ha reconstruido
+    @Override
+    public void run(String... args) {
+        if (!backfillOnStartup) {
+            return;
+        }
+        try {
+            for (LoanDailyRollupBackfillEntity backfill : backfillRepository.findByStatusOrderByIdAsc(
+                    LoanDailyRollupBackfillEntity.BackfillStatus.RUNNING)) {
+                log.info("Retomando la reconstrucción de loan_daily_rollup {} (del {} al {}) desde {}",
+                        backfill.getId(), backfill.getFromDate(), backfill.getToDate(), backfill.getNextDate());
+                resume(backfill);
+            }
+            LocalDate firstLoanDate = getFirstLoanDate();
+            if (firstLoanDate != null && backfillRepository.count() == 0) {
+                log.info("loan_daily_rollup sin reconstrucción previa: reconstruyendo desde {}", firstLoanDate);
+                rebuild(firstLoanDate, LocalDate.now());
+            }
+        } catch (Exception e) {
+            log.warn("Error en la reconstrucción inicial de loan_daily_rollup: {}", e.getMessage());
+        }
+    }
+
+    // ========== MANTENIMIENTO INCREMENTAL ==========
+
+    @Transactional
+    public void recordLoansStarted(List<LoanEntity> loans) {
+        Map<RollupKey, RollupDelta> deltas = new TreeMap<>(KEY_ORDER);
+        for (LoanEntity loan : loans) {
+            RollupDelta delta = deltas.computeIfAbsent(key(loan.getLoanDate(), loan.getTool()), k -> new RollupDelta());
+            delta.loansStarted++;
+            delta.quantityStarted += quantity(loan);
+            delta.clientBits.set(clientBit(loan.getClient().getId()));
+        }
+        apply(deltas);
+    }
+
+    // Llamar con el préstamo ya en su estado final (RETURNED, OVERDUE o DAMAGED) y con fecha de devolución
+    @Transactional
+    public void recordLoansReturned(List<LoanEntity> loans) {
+        Map<RollupKey, RollupDelta> deltas = new TreeMap<>(KEY_ORDER);
+        for (LoanEntity loan : loans) {
+            addReturn(deltas, loan, 1);
+        }
+        apply(deltas);
+    }
+
+    // Eliminación de un préstamo ya devuelto: se descuentan su inicio y su devolución.
+    // El sketch no admite quitar clientes; la próxima reconstrucción del rango lo corrige.
+    @Transactional
+    public void recordLoanDeleted(LoanEntity loan) {
+        Map<RollupKey, RollupDelta> deltas = new TreeMap<>(KEY_ORDER);
+        RollupDelta started = deltas.computeIfAbsent(key(loan.getLoanDate(), loan.getTool()), k -> new RollupDelta());
+        started.loansStarted--;
+        started.quantityStarted -= quantity(loan);
+        addReturn(deltas, loan, -1);
+        apply(deltas);
+    }
+
+    // Multas por atraso creadas (las demás multas no son parte de la rollup)
+    @Transactional
+    public void recordFinesCreated(List<FineEntity> fines) {
+        applyLateFees(fines, BigDecimal.ONE);
+    }
+
+    @Transactional
+    public void recordFineDeleted(FineEntity fine) {
+        applyLateFees(List.of(fine), BigDecimal.ONE.negate());
+    }
+
+    // Después del cálculo de multas por atraso (los montos impagos cambian en bloque)
+    @Transactional
+    public int refreshOpenLateFees() {
+        rollupRepository.lockForIncrementalUpdate();
+        return rollupRepository.refreshOpenLateFees();
+    }
+
+    // ========== RECONSTRUCCIÓN (BACKFILL) ==========
+
+    // Reconstruir los días entre from y to desde loans y fines, un mes por transacción
+    public Map<String, Object> rebuild(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException("Rango de fechas inválido para reconstruir la rollup");
+        }
+        LoanDailyRollupBackfillEntity backfill = new LoanDailyRollupBackfillEntity();
+        backfill.setFromDate(from);
+        backfill.setToDate(to);
+        backfill.setNextDate(from);
+        backfill.setStatus(LoanDailyRollupBackfillEntity.BackfillStatus.RUNNING);
+        backfill.setStartedAt(LocalDateTime.now());
+        return resume(backfillRepository.save(backfill));
+    }
+
+    // Reconstruir desde next_date hasta el final del rango; next_date avanza con cada mes confirmado
+    private Map<String, Object> resume(LoanDailyRollupBackfillEntity backfill) {
+        long start = System.nanoTime();
+        int months = 0;
+        long rows = 0;
+        LocalDate to = backfill.getToDate();
+        for (LocalDate chunkStart = backfill.getNextDate(); !chunkStart.isAfter(to); chunkStart = chunkStart.withDayOfMonth(1).plusMonths(1)) {
+            LocalDate chunkEnd = chunkStart.withDayOfMonth(chunkStart.lengthOfMonth());
+            LocalDate rangeStart = chunkStart;
+            LocalDate rangeEnd = chunkEnd.isAfter(to) ? to : chunkEnd;
+            Integer inserted = transactionTemplate.execute(status -> {
+                // Espera a las transacciones que están sumando deltas y bloquea las nuevas hasta confirmar el mes
+                rollupRepository.lockForRebuild();
+                rollupRepository.deleteRange(rangeStart, rangeEnd);
+                int count = rollupRepository.insertRange(rangeStart, rangeEnd);
+                backfill.setNextDate(rangeEnd.plusDays(1));
+                backfill.setRowsInserted(backfill.getRowsInserted() + count);
+                backfillRepository.save(backfill);
+                return count;
+            });
+            rows += inserted != null ? inserted : 0;
+            months++;
+        }
+        backfill.setStatus(LoanDailyRollupBackfillEntity.BackfillStatus.COMPLETED);
+        backfill.setFinishedAt(LocalDateTime.now());
+        backfillRepository.save(backfill);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("loan_daily_rollup reconstruida del {} al {}: {} filas en {} mes(es), {} ms",
+                backfill.getFromDate(), to, rows, months, elapsedMs);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("startDate", backfill.getFromDate());
+        result.put("endDate", to);
+        result.put("months", months);
+        result.put("rows", rows);
+        result.put("elapsedMs", elapsedMs);
+        return result;
+    }
+
+    // ========== LECTURAS ==========
+    // Los días anteriores a hoy salen de la rollup y el día de hoy (o posteriores) de loans y fines en vivo.
+
+    // Una fila por herramienta con préstamos iniciados en el período (ver LoanDailyRollupRepository.aggregatePopularTools)
+    @Transactional(readOnly = true)
+    public List<Object[]> aggregatePopularTools(LocalDate startDate, LocalDate endDate, int limit) {
+        LocalDate today = LocalDate.now();
+        return rollupRepository.aggregatePopularTools(startDate, endDate, today,
+                liveFrom(startDate, today), endDate, limit);
+    }
+
+    // Totales por día del período (ver LoanDailyRollupRepository.findDailyTotals)
+    @Transactional(readOnly = true)
+    public List<Object[]> findDailyTotals(LocalDate startDate, LocalDate endDate) {
+        LocalDate today = LocalDate.now();
+        return rollupRepository.findDailyTotals(startDate, endDate, today, liveFrom(startDate, today), endDate);
+    }
+
+    // Préstamos, devueltos (RETURNED), con daño y del mes, de los días cerrados
+    @Transactional(readOnly = true)
+    public Object[] summarizeClosedDays(LocalDate today, LocalDate monthStart) {
+        return rollupRepository.summarizeClosedDays(today, monthStart).get(0);
+    }
+
+    public LocalDate getFirstLoanDate() {
+        return loanRepository.findFirstLoanDate();
+    }
+
+    // ========== SKETCH DE CLIENTES DISTINTOS ==========
+
+    // Mismo hash que LoanDailyRollupRepository.CLIENT_BIT
+    public static int clientBit(Long clientId) {
+        return (int) (((clientId * 2654435761L) % 4294967296L) / 4194304L);
+    }
+
+    // Estimación por conteo lineal a partir de los bits en 1 del sketch combinado
+    public static int estimateDistinct(int setBits) {
+        if (setBits <= 0) {
+            return 0;
+        }
+        int bits = Math.min(setBits, SKETCH_BITS - 1); // saturado: cota inferior
+        return (int) Math.round(-SKETCH_BITS * Math.log((double) (SKETCH_BITS - bits) / SKETCH_BITS));
+    }
+
+    // Métodos auxiliares privados
+
+    private void addReturn(Map<RollupKey, RollupDelta> deltas, LoanEntity loan, int sign) {
+        if (loan.getActualReturnDate() == null) {
+            return;
+        }
+        long days = ChronoUnit.DAYS.between(loan.getLoanDate(), loan.getActualReturnDate());
+        RollupDelta delta = deltas.computeIfAbsent(key(loan.getActualReturnDate(), loan.getTool()), k -> new RollupDelta());
+        delta.loansReturned += sign;
+        if (loan.getStatus() == LoanEntity.LoanStatus.OVERDUE) {
+            delta.overdueReturns += sign;
+        } else if (loan.getStatus() == LoanEntity.LoanStatus.DAMAGED) {
+            delta.damagedReturns += sign;
+        }
+        delta.returnedLoanDays += sign * days;
+        if (loan.getDailyRate() != null) {
+            delta.rentalRevenue = delta.rentalRevenue.add(loan.getDailyRate()
+                    .multiply(BigDecimal.valueOf((long) quantity(loan) * Math.max(days, 1) * sign)));
+        }
+    }
+
+    private void applyLateFees(List<FineEntity> fines, BigDecimal sign) {
+        Map<RollupKey, RollupDelta> deltas = new TreeMap<>(KEY_ORDER);
+        for (FineEntity fine : fines) {
+            if (fine.getType() != FineEntity.FineType.LATE_RETURN || fine.getAmount() == null
+                    || fine.getLoan() == null || fine.getCreatedAt() == null) {
+                continue;
+            }
+            RollupDelta delta = deltas.computeIfAbsent(
+                    key(fine.getCreatedAt().toLocalDate(), fine.getLoan().getTool()), k -> new RollupDelta());
+            delta.lateFeeRevenue = delta.lateFeeRevenue.add(fine.getAmount().multiply(sign));
+        }
+        apply(deltas);
+    }
+
+    private void apply(Map<RollupKey, RollupDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        rollupRepository.lockForIncrementalUpdate();
+        for (Map.Entry<RollupKey, RollupDelta> entry : deltas.entrySet()) {
+            RollupKey key = entry.getKey();
+            RollupDelta delta = entry.getValue();
+            rollupRepository.addToRollup(key.day(), key.toolId(), key.categoryId(),
+                    delta.loansStarted, delta.quantityStarted, delta.loansReturned, delta.overdueReturns,
+                    delta.damagedReturns, delta.returnedLoanDays, delta.rentalRevenue, delta.lateFeeRevenue,
+                    toSketch(delta.clientBits));
+        }
+    }
+
+    private LocalDate liveFrom(LocalDate startDate, LocalDate today) {
+        return startDate.isAfter(today) ? startDate : today;
+    }
+
+    private RollupKey key(LocalDate day, ToolEntity tool) {
+        Long categoryId = tool.getCategory() != null ? tool.getCategory().getId() : 0L;
+        return new RollupKey(day, tool.getId(), categoryId);
+    }
+
+    private int quantity(LoanEntity loan) {
+        return loan.getQuantity() != null ? loan.getQuantity() : 1;
+    }
+
+    // Literal de bit(1024): '1' en las posiciones de los clientes
+    private String toSketch(BitSet bits) {
+        char[] sketch = new char[SKETCH_BITS];
+        Arrays.fill(sketch, '0');
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            sketch[i] = '1';
+        }
+        return new String(sketch);
+    }
+
+    private record RollupKey(LocalDate day, Long toolId, Long categoryId) {
+    }
+
+    private static class RollupDelta {
+        long loansStarted;
+        long quantityStarted;
+        long loansReturned;
+        long overdueReturns;
+        long damagedReturns;
+        long returnedLoanDays;
+        BigDecimal rentalRevenue = BigDecimal.ZERO;
+        BigDecimal lateFeeRevenue = BigDecimal.ZERO;
+        final BitSet clientBits = new BitSet(SKETCH_BITS);
+    }
+}
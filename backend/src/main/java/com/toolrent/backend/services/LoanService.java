@@ -1,23 +1,45 @@
 // LoanService.java - VERSION CORREGIDA para manejar errores 500
 package com.toolrent.backend.services;
 
+import com.toolrent.backend.dto.LoanListItemDTO;
+import com.toolrent.backend.dto.LoanPageDTO;
+import com.toolrent.backend.dto.LoanSearchCriteria;
+import com.toolrent.backend.dto.LoanSummaryDTO;
 import com.toolrent.backend.entities.*;
 import com.toolrent.backend.repositories.LoanRepository;
 import com.toolrent.backend.repositories.ToolRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
+@Slf4j
 public class LoanService {
 
     @Autowired
@@ -44,6 +66,61 @@ public class LoanService {
     @Autowired(required = false) // Inyectar el servicio de instancias
     private ToolInstanceService toolInstanceService;
 
+    @Autowired
+    private ToolStatusService toolStatusService;
+
+    @Autowired
+    private ClientEligibilityService clientEligibilityService;
+
+    @Autowired
+    private ToolAvailabilityIndexService toolAvailabilityIndexService;
+
+    @Autowired
+    private MetricsService metricsService;
+
+    @Autowired
+    private LoanDailyRollupService loanDailyRollupService;
+
+    // Validación comprensiva en paralelo: pool acotado (con la cola llena la rama corre en el hilo que valida)
+    // y plazo total para juntar los resultados
+    private final TransactionTemplate readOnlyTransaction;
+    private final ThreadPoolExecutor validationExecutor;
+    private final long validationTimeoutMillis;
+
+    @Autowired
+    public LoanService(PlatformTransactionManager transactionManager,
+                       @Value("${toolrent.validation.timeout-ms:1500}") long validationTimeoutMillis,
+                       @Value("${toolrent.validation.threads:8}") int validationThreads) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.validationTimeoutMillis = Math.max(1, validationTimeoutMillis);
+
+        int threads = Math.max(1, validationThreads);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.validationExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "loan-validation-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.validationExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    // Tamaño de página del listado paginado
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    // Máximo de herramientas por consulta de disponibilidad masiva
+    public static final int MAX_AVAILABILITY_BATCH = 500;
+
+    // Caché del resumen del dashboard (getLoanSummary): resultado y vencimiento se publican juntos,
+    // y el cálculo en curso se comparte con las demás llamadas que lleguen mientras tanto
+    private static final long LOAN_SUMMARY_TTL_MILLIS = 5_000;
+    private volatile CachedLoanSummary cachedLoanSummary;
+    private final AtomicReference<CompletableFuture<LoanSummaryDTO>> loanSummaryRefresh = new AtomicReference<>();
+
     // RF2.5: Check client restrictions - VERSIÓN MEJORADA Y SEGURA
     public Map<String, Object> checkClientRestrictions(Long clientId) {
         Map<String, Object> restrictions = new HashMap<>();
@@ -57,8 +134,9 @@ public class LoanService {
                 return restrictions;
             }
 
-            ClientEntity client = clientService.getClientById(clientId);
-            if (client == null) {
+            // Snapshot en memoria; solo va a la base de datos si el cliente no está en caché
+            ClientEligibilityService.EligibilitySnapshot snapshot = clientEligibilityService.getSnapshot(clientId);
+            if (snapshot == null) {
                 restrictions.put("eligible", false);
                 restrictions.put("canRequestLoan", false);
                 restrictions.put("restriction", "Cliente no encontrado");
@@ -67,25 +145,18 @@ public class LoanService {
             }
 
             // Verificar estado del cliente
-            boolean clientActive = client.getStatus() == ClientEntity.ClientStatus.ACTIVE;
+            boolean clientActive = snapshot.isClientActive();
 
             // Contar préstamos activos
-            long activeLoans = loanRepository.countActiveLoansByClient(client);
+            long activeLoans = snapshot.getActiveLoans();
 
             // Verificar préstamos vencidos
-            List<LoanEntity> overdueLoans = loanRepository.findOverdueLoansByClient(client, LocalDate.now());
-            boolean hasOverdueLoans = !overdueLoans.isEmpty();
+            long overdueLoansCount = snapshot.getOverdueLoansCount(LocalDate.now());
+            boolean hasOverdueLoans = overdueLoansCount > 0;
 
-            // Verificar multas impagas (con manejo de errores)
-            boolean hasUnpaidFines = false;
-            BigDecimal unpaidAmount = BigDecimal.ZERO;
-            try {
-                hasUnpaidFines = fineService.clientHasUnpaidFines(client);
-                unpaidAmount = fineService.getTotalUnpaidAmount(client);
-            } catch (Exception e) {
-                // Si hay error con multas, asumir que no hay multas
-                System.err.println("Error checking fines for client " + clientId + ": " + e.getMessage());
-            }
+            // Verificar multas impagas
+            boolean hasUnpaidFines = snapshot.hasUnpaidFines();
+            BigDecimal unpaidAmount = snapshot.getUnpaidAmount();
 
             // Determinar elegibilidad
             boolean eligible = clientActive &&
@@ -98,7 +169,7 @@ public class LoanService {
             restrictions.put("currentActiveLoans", activeLoans);
             restrictions.put("maxAllowed", 5);
             restrictions.put("remainingLoanSlots", Math.max(0, 5 - activeLoans));
-            restrictions.put("clientStatus", client.getStatus().toString());
+            restrictions.put("clientStatus", snapshot.getClientStatus().toString());
 
             // Agregar detalles de restricciones
             if (!eligible) {
@@ -108,7 +179,7 @@ public class LoanService {
                     restrictionReason.append("Cliente no está activo. ");
                 }
                 if (hasOverdueLoans) {
-                    restrictionReason.append("Cliente tiene ").append(overdueLoans.size()).append(" préstamo(s) vencido(s). ");
+                    restrictionReason.append("Cliente tiene ").append(overdueLoansCount).append(" préstamo(s) vencido(s). ");
                 }
                 if (hasUnpaidFines) {
                     restrictionReason.append("Cliente tiene multas impagas por $").append(unpaidAmount).append(". ");
@@ -123,14 +194,13 @@ public class LoanService {
             }
 
             // Información adicional
-            restrictions.put("overdueLoansCount", overdueLoans.size());
+            restrictions.put("overdueLoansCount", overdueLoansCount);
             restrictions.put("unpaidFinesAmount", unpaidAmount);
             restrictions.put("hasUnpaidFines", hasUnpaidFines);
             restrictions.put("hasOverdueLoans", hasOverdueLoans);
 
         } catch (Exception e) {
-            System.err.println("Error in checkClientRestrictions: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error in checkClientRestrictions: {}", e.getMessage(), e);
 
             // Respuesta de error segura
             restrictions.put("eligible", false);
@@ -145,6 +215,12 @@ public class LoanService {
 
     // Check tool availability - VERSIÓN MEJORADA
     public Map<String, Object> checkToolAvailability(ToolEntity tool, Integer quantity) {
+        return checkToolAvailability(tool, quantity, null, null);
+    }
+
+    // Disponibilidad para un período: sin fechas es un préstamo desde hoy; con fechas futuras, una reserva.
+    // Las unidades libres salen de ToolAvailabilityIndexService (préstamos activos + reservas), sin consultar loans.
+    public Map<String, Object> checkToolAvailability(ToolEntity tool, Integer quantity, LocalDate from, LocalDate to) {
         Map<String, Object> availability = new HashMap<>();
 
         try {
@@ -173,31 +249,38 @@ public class LoanService {
                 return availability;
             }
 
-            // Verificar estado de la herramienta
-            boolean toolAvailable = tool.getStatus() == ToolEntity.ToolStatus.AVAILABLE;
+            PeriodAvailability period = evaluatePeriod(tool.getId(), tool.getStatus(), tool.getCurrentStock(),
+                    quantity, from, to);
 
-            // Verificar stock
-            boolean hasStock = tool.getCurrentStock() >= quantity;
-
-            availability.put("available", toolAvailable && hasStock);
+            availability.put("available", period.isAvailable());
             availability.put("currentStock", tool.getCurrentStock());
             availability.put("requestedQuantity", quantity);
             availability.put("toolName", tool.getName());
             availability.put("toolStatus", tool.getStatus().toString());
-            availability.put("maxAvailableQuantity", tool.getCurrentStock());
+            availability.put("maxAvailableQuantity", period.getMaxAvailableQuantity());
+            availability.put("periodStart", period.getPeriodStart());
+            availability.put("periodEnd", period.getPeriodEnd());
+            availability.put("freeUnits", period.getFreeUnits());
+            availability.put("committedUnits", period.getCommittedUnits());
 
-            if (!toolAvailable) {
+            if ("TOOL_STATUS".equals(period.getIssueType())) {
                 availability.put("issue", "Herramienta no está disponible. Estado actual: " + tool.getStatus());
                 availability.put("issueType", "TOOL_STATUS");
-            } else if (!hasStock) {
+            } else if ("INSUFFICIENT_STOCK".equals(period.getIssueType())) {
                 availability.put("issue", "Stock insuficiente. Solicitado: " + quantity + ", Disponible: " + tool.getCurrentStock());
                 availability.put("issueType", "INSUFFICIENT_STOCK");
+            } else if ("RESERVED".equals(period.getIssueType())) {
+                availability.put("issue", "Unidades reservadas entre " + period.getPeriodStart() + " y " + period.getPeriodEnd() +
+                        ". Solicitado: " + quantity + ", Libres: " + period.getFreeUnits());
+                availability.put("issueType", "RESERVED");
             } else {
-                availability.put("message", "Herramienta disponible para préstamo");
+                availability.put("message", period.isFuturePeriod()
+                        ? "Herramienta disponible para reservar en el período"
+                        : "Herramienta disponible para préstamo");
             }
 
         } catch (Exception e) {
-            System.err.println("Error in checkToolAvailability: " + e.getMessage());
+            log.warn("Error in checkToolAvailability: {}", e.getMessage());
             availability.put("available", false);
             availability.put("issue", "Error al verificar disponibilidad: " + e.getMessage());
             availability.put("error", true);
@@ -206,40 +289,152 @@ public class LoanService {
         return availability;
     }
 
+    // Disponibilidad de muchas herramientas en una sola llamada (catálogo, formulario de préstamo).
+    // Una consulta trae las herramientas y sus instancias por estado; las unidades libres del período
+    // salen del índice en memoria, así que el costo no crece con la cantidad de préstamos.
+    @Transactional(readOnly = true, noRollbackFor = RuntimeException.class)
+    public Map<String, Object> checkToolsAvailability(Map<Long, Integer> quantities, LocalDate from, LocalDate to) {
+        if (quantities == null || quantities.isEmpty()) {
+            throw new RuntimeException("Debe indicar al menos una herramienta");
+        }
+        if (quantities.size() > MAX_AVAILABILITY_BATCH) {
+            throw new RuntimeException("Máximo " + MAX_AVAILABILITY_BATCH + " herramientas por consulta");
+        }
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new RuntimeException("La fecha de término no puede ser anterior a la fecha de inicio");
+        }
+
+        Map<Long, Object[]> rows = new HashMap<>();
+        for (Object[] row : toolRepository.findAvailabilityRowsByIds(quantities.keySet())) {
+            rows.put((Long) row[0], row);
+        }
+
+        Map<Long, Map<String, Object>> tools = new LinkedHashMap<>();
+        LocalDate periodStart = null;
+        LocalDate periodEnd = null;
+        for (Map.Entry<Long, Integer> requested : quantities.entrySet()) {
+            Long toolId = requested.getKey();
+            Integer quantity = requested.getValue() != null ? requested.getValue() : 1;
+            Map<String, Object> entry = new LinkedHashMap<>();
+            Object[] row = rows.get(toolId);
+
+            if (row == null) {
+                entry.put("available", false);
+                entry.put("toolStatus", "NOT_FOUND");
+                entry.put("issueType", "NOT_FOUND");
+                tools.put(toolId, entry);
+                continue;
+            }
+
+            ToolEntity.ToolStatus status = (ToolEntity.ToolStatus) row[2];
+            int currentStock = row[3] != null ? ((Number) row[3]).intValue() : 0;
+            entry.put("toolStatus", status.toString());
+            entry.put("currentStock", currentStock);
+
+            Map<String, Long> instances = new LinkedHashMap<>();
+            instances.put("AVAILABLE", ((Number) row[4]).longValue());
+            instances.put("LOANED", ((Number) row[5]).longValue());
+            instances.put("UNDER_REPAIR", ((Number) row[6]).longValue());
+            instances.put("DECOMMISSIONED", ((Number) row[7]).longValue());
+
+            if (quantity != 1) {
+                // Misma regla que el préstamo individual: solo 1 unidad por préstamo
+                entry.put("available", false);
+                entry.put("issueType", "INVALID_QUANTITY");
+                entry.put("instances", instances);
+                tools.put(toolId, entry);
+                continue;
+            }
+
+            PeriodAvailability period = evaluatePeriod(toolId, status, currentStock, quantity, from, to);
+            periodStart = period.getPeriodStart();
+            periodEnd = period.getPeriodEnd();
+            entry.put("available", period.isAvailable());
+            entry.put("freeUnits", period.getFreeUnits());
+            entry.put("maxAvailableQuantity", period.getMaxAvailableQuantity());
+            if (period.getIssueType() != null) {
+                entry.put("issueType", period.getIssueType());
+            }
+            entry.put("instances", instances);
+            tools.put(toolId, entry);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("periodStart", periodStart);
+        response.put("periodEnd", periodEnd);
+        response.put("count", tools.size());
+        response.put("tools", tools);
+        return response;
+    }
+
+    // Regla común de disponibilidad para un período: sin fechas es un préstamo desde hoy; con fechas futuras
+    // solo importa que la herramienta no esté dada de baja y que queden unidades libres en todo el rango.
+    private PeriodAvailability evaluatePeriod(Long toolId, ToolEntity.ToolStatus status, int currentStock,
+                                              int quantity, LocalDate from, LocalDate to) {
+        LocalDate today = LocalDate.now();
+        LocalDate periodStart = from != null && from.isAfter(today) ? from : today;
+        LocalDate periodEnd = to != null && !to.isBefore(periodStart) ? to : periodStart;
+        boolean futurePeriod = periodStart.isAfter(today);
+
+        // Verificar estado de la herramienta
+        boolean toolAvailable = futurePeriod
+                ? status != ToolEntity.ToolStatus.DECOMMISSIONED
+                : status == ToolEntity.ToolStatus.AVAILABLE;
+
+        // Verificar stock
+        boolean hasStock = futurePeriod || currentStock >= quantity;
+
+        // Unidades libres en todo el período (descontando préstamos activos y reservas)
+        ToolAvailabilityIndexService.Availability indexAvailability = toolAvailabilityIndexService.getAvailability(
+                toolId, currentStock, periodStart, periodEnd);
+        boolean hasFreeUnits = indexAvailability.getFreeUnits() >= quantity;
+
+        String issueType = null;
+        if (!toolAvailable) {
+            issueType = "TOOL_STATUS";
+        } else if (!hasStock) {
+            issueType = "INSUFFICIENT_STOCK";
+        } else if (!hasFreeUnits) {
+            issueType = "RESERVED";
+        }
+
+        return new PeriodAvailability(periodStart, periodEnd, futurePeriod, issueType,
+                indexAvailability.getFreeUnits(),
+                indexAvailability.getPeakUsage() + indexAvailability.getOverdueUnits(),
+                Math.min(currentStock, indexAvailability.getFreeUnits()));
+    }
+
     // RF6.1: Get active loans - VERSIÓN SEGURA
     @Transactional(readOnly = true)
     public List<LoanEntity> getActiveLoans() {
         try {
-            System.out.println("Attempting to get active loans from repository...");
+            log.debug("Attempting to get active loans from repository...");
             List<LoanEntity> loans = loanRepository.findActiveLoans();
-            System.out.println("Successfully retrieved " + loans.size() + " active loans");
+            log.debug("Successfully retrieved {} active loans", loans.size());
             return loans;
         } catch (Exception e) {
-            System.err.println("Error getting active loans with custom query: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting active loans with custom query: {}", e.getMessage(), e);
 
             // Fallback: buscar por status usando método simple
             try {
-                System.out.println("Trying fallback method with findByStatus...");
+                log.debug("Trying fallback method with findByStatus...");
                 List<LoanEntity> fallbackLoans = loanRepository.findByStatus(LoanEntity.LoanStatus.ACTIVE);
-                System.out.println("Fallback method returned " + fallbackLoans.size() + " loans");
+                log.debug("Fallback method returned {} loans", fallbackLoans.size());
                 return fallbackLoans;
             } catch (Exception fallbackError) {
-                System.err.println("Fallback method also failed: " + fallbackError.getMessage());
-                fallbackError.printStackTrace();
+                log.error("Fallback method also failed: {}", fallbackError.getMessage(), fallbackError);
 
                 // Último recurso: buscar todos y filtrar
                 try {
-                    System.out.println("Trying final fallback with findAll...");
+                    log.debug("Trying final fallback with findAll...");
                     List<LoanEntity> allLoans = loanRepository.findAll();
                     List<LoanEntity> activeLoans = allLoans.stream()
                             .filter(loan -> loan.getStatus() == LoanEntity.LoanStatus.ACTIVE)
                             .collect(Collectors.toList());
-                    System.out.println("Final fallback returned " + activeLoans.size() + " active loans");
+                    log.debug("Final fallback returned {} active loans", activeLoans.size());
                     return activeLoans;
                 } catch (Exception finalError) {
-                    System.err.println("All methods failed: " + finalError.getMessage());
-                    finalError.printStackTrace();
+                    log.error("All methods failed: {}", finalError.getMessage(), finalError);
                     return List.of(); // Retornar lista vacía en caso de error
                 }
             }
@@ -251,7 +446,7 @@ public class LoanService {
         try {
             return loanRepository.findOverdueLoans(LocalDate.now());
         } catch (Exception e) {
-            System.err.println("Error getting overdue loans: " + e.getMessage());
+            log.warn("Error getting overdue loans: {}", e.getMessage());
             // Fallback: filtrar manualmente
             try {
                 List<LoanEntity> activeLoans = getActiveLoans();
@@ -260,7 +455,7 @@ public class LoanService {
                         .filter(loan -> !loan.getAgreedReturnDate().isAfter(today))
                         .collect(Collectors.toList());
             } catch (Exception fallbackError) {
-                System.err.println("Fallback for overdue loans failed: " + fallbackError.getMessage());
+                log.warn("Fallback for overdue loans failed: {}", fallbackError.getMessage());
                 return List.of();
             }
         }
@@ -274,7 +469,7 @@ public class LoanService {
             }
             return loanRepository.findByClient(client);
         } catch (Exception e) {
-            System.err.println("Error getting loans by client: " + e.getMessage());
+            log.warn("Error getting loans by client: {}", e.getMessage());
             return List.of();
         }
     }
@@ -329,7 +524,7 @@ public class LoanService {
             }
 
         } catch (Exception e) {
-            System.err.println("Error checking client tool loan: " + e.getMessage());
+            log.warn("Error checking client tool loan: {}", e.getMessage());
             check.put("hasActiveLoanForTool", false);
             check.put("canLoanThisTool", false);
             check.put("error", "Error al verificar préstamo: " + e.getMessage());
@@ -371,7 +566,7 @@ public class LoanService {
             result.put("canRequestMore", count < 5);
 
         } catch (Exception e) {
-            System.err.println("Error getting active loan count: " + e.getMessage());
+            log.warn("Error getting active loan count: {}", e.getMessage());
             result.put("clientId", clientId);
             result.put("activeLoanCount", 0);
             result.put("maxAllowed", 5);
@@ -390,7 +585,7 @@ public class LoanService {
             rates.put("lateFeeRate", rateService.getCurrentLateFeeRate());
             rates.put("repairRate", rateService.getCurrentRepairRate());
         } catch (Exception e) {
-            System.err.println("Error getting current rates: " + e.getMessage());
+            log.warn("Error getting current rates: {}", e.getMessage());
             // Valores por defecto
             rates.put("rentalRate", BigDecimal.valueOf(100.0));
             rates.put("lateFeeRate", BigDecimal.valueOf(10.0));
@@ -405,7 +600,7 @@ public class LoanService {
         try {
             return loanRepository.findAll();
         } catch (Exception e) {
-            System.err.println("Error getting all loans: " + e.getMessage());
+            log.warn("Error getting all loans: {}", e.getMessage());
             return List.of();
         }
     }
@@ -422,6 +617,10 @@ public class LoanService {
     // RF2.1: Create new loan - VERSIÓN MEJORADA CON ESTADOS CORRECTOS E INSTANCIAS
     @Transactional
     public LoanEntity createLoan(LoanEntity loan) {
+        return metricsService.time(MetricsService.LOAN_CREATE, () -> doCreateLoan(loan));
+    }
+
+    private LoanEntity doCreateLoan(LoanEntity loan) {
         try {
             validateLoanCreation(loan);
 
@@ -440,36 +639,39 @@ public class LoanService {
             loan.setDailyRate(dailyRate);
             loan.setStatus(LoanEntity.LoanStatus.ACTIVE);
 
-            // 🔧 CORRECCIÓN: Guardar stock ANTES del movimiento para Kardex
-            int stockBeforeMovement = tool.getCurrentStock();
+            // Reservar stock con un UPDATE condicional: dos préstamos simultáneos de la última
+            // unidad no pueden pasar ambos (el segundo actualiza 0 filas) y el stock nunca queda negativo.
+            // El mismo UPDATE cambia el estado a LOANED cuando el stock llega a 0.
+            int reservedRows = toolRepository.reserveStock(tool.getId(), loan.getQuantity());
+            if (reservedRows == 0) {
+                metricsService.stockConflict("single", "stock");
+                throw new RuntimeException("Stock insuficiente o herramienta no disponible para préstamo");
+            }
 
-            // Update tool stock AND status
-            int newStock = tool.getCurrentStock() - loan.getQuantity();
+            // Sincronizar la entidad en memoria con el valor que quedó en la base de datos
+            int newStock = toolRepository.findCurrentStockById(tool.getId());
+            int stockBeforeMovement = newStock + loan.getQuantity();
             tool.setCurrentStock(newStock);
-
-            // 🔧 CORRECCIÓN: Actualizar estado de la herramienta según el stock
-            // La herramienta solo cambia a LOANED cuando el stock llega a 0 (después del préstamo)
-            if (newStock < 0) {
-                throw new RuntimeException("Error: Stock negativo detectado");
-            } else if (newStock == 0) {
-                tool.setStatus(ToolEntity.ToolStatus.LOANED); // Completamente prestada
-                System.out.println("Tool " + tool.getName() + " status changed to LOANED (stock: " + newStock + ")");
-            } else {
-                // Si aún hay stock disponible, mantener como AVAILABLE
-                tool.setStatus(ToolEntity.ToolStatus.AVAILABLE);
-                System.out.println("Tool " + tool.getName() + " remains AVAILABLE (stock: " + newStock + "/" + tool.getInitialStock() + ")");
-            }
+            tool.setStatus(newStock == 0 ? ToolEntity.ToolStatus.LOANED : ToolEntity.ToolStatus.AVAILABLE);
+            log.debug("Tool stock reserved: {} - New stock: {} - Status: {}", tool.getName(), newStock, tool.getStatus());
 
             // 🔧 NUEVO: Actualizar instancias individuales de herramientas (opcional)
             // Las instancias son opcionales - si no existen, el préstamo se crea igual usando solo el stock
             ToolInstanceEntity reservedInstance = tryReserveToolInstancesAndGetFirst(tool.getId(), loan.getQuantity());
 
-            // 🔧 CORRECCIÓN: Guardar directamente con el repositorio para evitar validaciones innecesarias
-            // updateTool() valida todos los campos, pero aquí solo estamos actualizando stock y estado
-            toolRepository.save(tool);
-            System.out.println("Tool stock updated: " + tool.getName() + " - New stock: " + newStock);
-
             LoanEntity savedLoan = loanRepository.save(loan);
+            clientEligibilityService.invalidate(loan.getClient());
+
+            // Las unidades reservadas para fechas dentro del préstamo no se pueden prestar ahora.
+            // El UPDATE de reserveStock bloquea la herramienta, así los préstamos de la misma herramienta llegan aquí de a uno.
+            if (!toolAvailabilityIndexService.tryBook(ToolAvailabilityIndexService.loanKey(savedLoan.getId()),
+                    tool.getId(), savedLoan.getLoanDate(), savedLoan.getAgreedReturnDate(),
+                    savedLoan.getQuantity(), stockBeforeMovement, true)) {
+                metricsService.stockConflict("single", "reserved");
+                throw new RuntimeException("La herramienta está reservada en ese período; no quedan unidades libres hasta "
+                        + savedLoan.getAgreedReturnDate());
+            }
+            loanDailyRollupService.recordLoansStarted(List.of(savedLoan));
 
             // Create Kardex movement (opcional) - 🔧 CORRECCIÓN: Pasar stock ANTES del movimiento e instancia reservada
             if (kardexMovementService != null) {
@@ -484,15 +686,15 @@ public class LoanService {
                             stockBeforeMovement  // 🔧 NUEVO: Pasar stock antes del movimiento
                     );
                 } catch (Exception e) {
-                    System.err.println("Error creating kardex movement: " + e.getMessage());
+                    log.warn("Error creating kardex movement: {}", e.getMessage());
                     // No fallar el préstamo por esto
                 }
             }
 
             return savedLoan;
         } catch (Exception e) {
-            System.err.println("Error creating loan: " + e.getMessage());
-            throw new RuntimeException("Error al crear préstamo: " + e.getMessage());
+            log.warn("Error creating loan: {}", e.getMessage());
+            throw new RuntimeException("Error al crear préstamo: " + e.getMessage(), e);
         }
     }
 
@@ -518,48 +720,30 @@ public class LoanService {
             throw new RuntimeException("Fecha acordada de devolución es requerida");
         }
 
-        // Verificar estado del cliente
-        if (loan.getClient().getStatus() != ClientEntity.ClientStatus.ACTIVE) {
-            throw new RuntimeException("Cliente está restringido y no puede solicitar préstamos");
-        }
-
-        // Verificar préstamos vencidos
-        List<LoanEntity> overdueLoans = loanRepository.findOverdueLoansByClient(
-                loan.getClient(), LocalDate.now());
-        if (!overdueLoans.isEmpty()) {
-            throw new RuntimeException("Cliente tiene préstamos vencidos y no puede solicitar nuevos préstamos");
-        }
-
-        // Verificar multas impagas (con manejo de errores)
-        try {
-            if (fineService.clientHasUnpaidFines(loan.getClient())) {
-                throw new RuntimeException("Cliente tiene multas impagas y no puede solicitar préstamos");
-            }
-        } catch (Exception e) {
-            System.err.println("Error checking unpaid fines, allowing loan: " + e.getMessage());
+        // Verificar estado, préstamos vencidos, multas impagas y límite de préstamos del cliente
+        String clientIssue = getClientEligibilityIssue(loan.getClient());
+        if (clientIssue != null) {
+            throw new RuntimeException(clientIssue);
         }
 
         // Verificar estado de herramienta
         if (loan.getTool().getStatus() != ToolEntity.ToolStatus.AVAILABLE) {
+            metricsService.stockConflict("single", "unavailable");
             throw new RuntimeException("Herramienta no está disponible para préstamo");
         }
 
         // Verificar stock
         if (loan.getQuantity() > loan.getTool().getCurrentStock()) {
+            metricsService.stockConflict("single", "stock");
             throw new RuntimeException("Stock insuficiente. Solicitado: " + loan.getQuantity() +
                     ", Disponible: " + loan.getTool().getCurrentStock());
         }
 
-        // Verificar límite de préstamos
-        long activeLoanCount = loanRepository.countActiveLoansByClient(loan.getClient());
-        if (activeLoanCount >= 5) {
-            throw new RuntimeException("Cliente ha alcanzado el máximo de 5 préstamos activos");
-        }
-
         // Verificar préstamo existente de la misma herramienta
         boolean hasActiveLoanForTool = loanRepository.existsActiveLoanByClientAndTool(
                 loan.getClient(), loan.getTool());
         if (hasActiveLoanForTool) {
+            metricsService.eligibilityRejection("duplicate_tool");
             throw new RuntimeException("Cliente ya tiene un préstamo activo de esta herramienta");
         }
 
@@ -571,6 +755,214 @@ public class LoanService {
         }
     }
 
+    // RF2.1: Préstamo múltiple - un cliente arrienda varias herramientas en una sola operación.
+    // La elegibilidad del cliente se valida una sola vez y las herramientas se bloquean juntas en orden de ID,
+    // para que dos lotes concurrentes siempre tomen los bloqueos en el mismo orden. Stock, instancias,
+    // préstamos y kardex se escriben con una sentencia cada uno para todo el lote.
+    @Transactional
+    public List<BatchLoanLineResult> createLoansBatch(ClientEntity client, LocalDate agreedReturnDate,
+                                                      String notes, List<BatchLoanLine> lines) {
+        if (client == null) {
+            throw new RuntimeException("Cliente es requerido para el préstamo");
+        }
+        if (lines == null || lines.isEmpty()) {
+            throw new RuntimeException("Debe indicar al menos una herramienta");
+        }
+
+        BatchLoanLineResult[] results = new BatchLoanLineResult[lines.size()];
+
+        // Validaciones del cliente y de la fecha: si fallan, fallan todas las líneas
+        String clientIssue = getBatchClientIssue(client, agreedReturnDate);
+        if (clientIssue != null) {
+            for (int i = 0; i < lines.size(); i++) {
+                results[i] = BatchLoanLineResult.failure(lines.get(i).getToolId(), clientIssue);
+            }
+            return List.of(results);
+        }
+
+        long remainingSlots = 5 - clientEligibilityService.getSnapshot(client.getId()).getActiveLoans();
+        java.util.Set<Long> toolsOnLoan = new java.util.HashSet<>(loanRepository.findActiveToolIdsByClient(client));
+
+        // Cargar todas las herramientas del lote en una sola consulta
+        List<Long> toolIds = lines.stream()
+                .map(BatchLoanLine::getToolId)
+                .filter(java.util.Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, ToolEntity> toolsById = toolRepository.findAllById(toolIds).stream()
+                .collect(Collectors.toMap(ToolEntity::getId, tool -> tool));
+
+        // Bloquear todas las herramientas en una sola sentencia (en orden de ID) y leer stock y estado bajo el bloqueo
+        Map<Long, Integer> lockedStock = new HashMap<>();
+        Map<Long, String> lockedStatus = new HashMap<>();
+        if (!toolsById.isEmpty()) {
+            for (Object[] row : toolRepository.lockStockByIds(toolsById.keySet())) {
+                Long toolId = ((Number) row[0]).longValue();
+                lockedStock.put(toolId, ((Number) row[1]).intValue());
+                lockedStatus.put(toolId, String.valueOf(row[2]));
+            }
+        }
+
+        // Procesar las líneas en orden de ID de herramienta
+        List<Integer> processingOrder = new java.util.ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            processingOrder.add(i);
+        }
+        processingOrder.sort(java.util.Comparator.comparing(
+                i -> lines.get(i).getToolId(), java.util.Comparator.nullsLast(java.util.Comparator.naturalOrder())));
+
+        // Validar cada línea en memoria; las que pasan quedan registradas en el índice con clave provisional
+        // (el préstamo aún no tiene ID) y se escriben todas juntas después. Cada línea es de 1 unidad.
+        Map<Long, Integer> indexByTool = new java.util.TreeMap<>();
+        Map<Long, String> bookingKeyByTool = new HashMap<>();
+
+        for (int index : processingOrder) {
+            BatchLoanLine line = lines.get(index);
+            Long toolId = line.getToolId();
+            ToolEntity tool = toolId != null ? toolsById.get(toolId) : null;
+
+            String lineIssue = null;
+            if (tool == null) {
+                lineIssue = "Herramienta no encontrada con ID: " + toolId;
+            } else if (line.getQuantity() == null || line.getQuantity() != 1) {
+                lineIssue = "Solo se permite prestar 1 unidad por préstamo. Un cliente no puede tener múltiples unidades de la misma herramienta simultáneamente.";
+            } else if (toolsOnLoan.contains(toolId)) {
+                lineIssue = "Cliente ya tiene un préstamo activo de esta herramienta";
+                metricsService.eligibilityRejection("duplicate_tool");
+            } else if (remainingSlots <= 0) {
+                lineIssue = "Cliente ha alcanzado el máximo de 5 préstamos activos";
+                metricsService.eligibilityRejection("loan_limit");
+            } else if (tool.getRentalRate() == null || tool.getRentalRate().compareTo(BigDecimal.ZERO) <= 0) {
+                lineIssue = "La herramienta debe tener una tarifa de arriendo válida";
+            } else if (!ToolEntity.ToolStatus.AVAILABLE.name().equals(lockedStatus.get(toolId))
+                    || lockedStock.getOrDefault(toolId, 0) < line.getQuantity()) {
+                metricsService.stockConflict("batch", "stock");
+                lineIssue = "Stock insuficiente o herramienta no disponible para préstamo";
+            }
+
+            if (lineIssue != null) {
+                results[index] = BatchLoanLineResult.failure(toolId, lineIssue);
+                continue;
+            }
+
+            // Si no quedan unidades libres en el período (reservas), solo esta línea falla
+            String bookingKey = ToolAvailabilityIndexService.provisionalKey();
+            if (!toolAvailabilityIndexService.tryBook(bookingKey, toolId, LocalDate.now(), agreedReturnDate,
+                    line.getQuantity(), lockedStock.get(toolId), true)) {
+                metricsService.stockConflict("batch", "reserved");
+                results[index] = BatchLoanLineResult.failure(toolId,
+                        "La herramienta está reservada en ese período; no quedan unidades libres hasta " + agreedReturnDate);
+                continue;
+            }
+
+            indexByTool.put(toolId, index);
+            bookingKeyByTool.put(toolId, bookingKey);
+            toolsOnLoan.add(toolId);
+            remainingSlots--;
+        }
+
+        if (indexByTool.isEmpty()) {
+            return List.of(results);
+        }
+
+        // Descontar el stock de todas las herramientas en un solo UPDATE. Las herramientas están bloqueadas y
+        // ya se revisó su stock, así que no debería faltar ninguna; si falta, solo esa línea falla.
+        java.util.Set<Long> reservedTools = new java.util.HashSet<>();
+        for (Object[] row : toolRepository.reserveStockForTools(indexByTool.keySet(), 1)) {
+            reservedTools.add(((Number) row[0]).longValue());
+        }
+        for (java.util.Iterator<Map.Entry<Long, Integer>> it = indexByTool.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Integer> entry = it.next();
+            if (!reservedTools.contains(entry.getKey())) {
+                toolAvailabilityIndexService.cancelBooking(bookingKeyByTool.get(entry.getKey()));
+                metricsService.stockConflict("batch", "stock");
+                results[entry.getValue()] = BatchLoanLineResult.failure(entry.getKey(),
+                        "Stock insuficiente o herramienta no disponible para préstamo");
+                it.remove();
+            }
+        }
+        if (indexByTool.isEmpty()) {
+            return List.of(results);
+        }
+
+        // Instancias opcionales, igual que en createLoan, tomadas en una sola sentencia
+        Map<Long, List<Long>> instancesByTool = toolInstanceService != null
+                ? toolInstanceService.tryReserveInstancesForLoans(indexByTool.keySet(), 1)
+                : Map.of();
+
+        // Insertar todos los préstamos en una sola sentencia (INSERT ... RETURNING) y cargarlos en una consulta.
+        // Las herramientas del contexto de persistencia conservan el stock anterior: el lote no las vuelve a leer.
+        Map<Long, Long> loanIdByTool = new HashMap<>();
+        for (Object[] row : loanRepository.insertActiveLoans(client.getId(), indexByTool.keySet(), 1,
+                LocalDate.now(), agreedReturnDate, notes)) {
+            loanIdByTool.put(((Number) row[1]).longValue(), ((Number) row[0]).longValue());
+        }
+        List<Long> loanIds = new java.util.ArrayList<>();
+        List<Long> instanceIds = new java.util.ArrayList<>();
+        for (Long toolId : indexByTool.keySet()) {
+            loanIds.add(loanIdByTool.get(toolId));
+            List<Long> instances = instancesByTool.get(toolId);
+            instanceIds.add(instances != null ? instances.get(0) : null);
+        }
+        List<LoanEntity> savedLoans = loanRepository.findAllById(loanIds);
+        clientEligibilityService.invalidate(client);
+
+        // Las unidades ya quedaron registradas por línea: pasar cada registro a la clave del préstamo
+        for (Map.Entry<Long, Long> entry : loanIdByTool.entrySet()) {
+            toolAvailabilityIndexService.rekey(bookingKeyByTool.get(entry.getKey()),
+                    ToolAvailabilityIndexService.loanKey(entry.getValue()));
+        }
+        loanDailyRollupService.recordLoansStarted(savedLoans);
+
+        if (kardexMovementService != null) {
+            kardexMovementService.createLoanMovements(loanIds, instanceIds, client.getName());
+        }
+
+        for (Map.Entry<Long, Integer> entry : indexByTool.entrySet()) {
+            results[entry.getValue()] = BatchLoanLineResult.success(entry.getKey(), loanIdByTool.get(entry.getKey()));
+        }
+
+        return List.of(results);
+    }
+
+    // Validaciones de createLoan que dependen solo del cliente y la fecha (una vez por lote)
+    private String getBatchClientIssue(ClientEntity client, LocalDate agreedReturnDate) {
+        if (agreedReturnDate == null) {
+            return "Fecha acordada de devolución es requerida";
+        }
+        if (!agreedReturnDate.isAfter(LocalDate.now())) {
+            return "La fecha de devolución debe ser posterior a la fecha del préstamo";
+        }
+        return getClientEligibilityIssue(client);
+    }
+
+    // Reglas del cliente comunes a createLoan y al préstamo múltiple: cliente activo, sin préstamos vencidos,
+    // sin multas impagas y bajo el máximo de préstamos activos. Devuelve el motivo del rechazo o null.
+    private String getClientEligibilityIssue(ClientEntity client) {
+        if (client.getStatus() != ClientEntity.ClientStatus.ACTIVE) {
+            metricsService.eligibilityRejection("inactive");
+            return "Cliente está restringido y no puede solicitar préstamos";
+        }
+        // Préstamos activos, vencidos y multas del cliente desde el snapshot de elegibilidad
+        ClientEligibilityService.EligibilitySnapshot eligibility = clientEligibilityService.getSnapshot(client.getId());
+        if (eligibility == null) {
+            return "Cliente no encontrado";
+        }
+        if (eligibility.hasOverdueLoans(LocalDate.now())) {
+            metricsService.eligibilityRejection("overdue");
+            return "Cliente tiene préstamos vencidos y no puede solicitar nuevos préstamos";
+        }
+        if (eligibility.hasUnpaidFines()) {
+            metricsService.eligibilityRejection("unpaid_fines");
+            return "Cliente tiene multas impagas y no puede solicitar préstamos";
+        }
+        if (eligibility.getActiveLoans() >= 5) {
+            metricsService.eligibilityRejection("loan_limit");
+            return "Cliente ha alcanzado el máximo de 5 préstamos activos";
+        }
+        return null;
+    }
+
     // MÉTODOS FALTANTES QUE NECESITA EL CONTROLADOR:
 
     // Update loan - NUEVO MÉTODO REQUERIDO
@@ -589,6 +981,14 @@ public class LoanService {
                 if (updatedLoan.getAgreedReturnDate().isBefore(LocalDate.now())) {
                     throw new RuntimeException("Agreed return date cannot be in the past");
                 }
+                // Extender el préstamo no puede tomar unidades ya reservadas para esas fechas.
+                // El stock se lee con la herramienta bloqueada (FOR UPDATE) para serializar con préstamos y reservas.
+                int stockInShop = toolRepository.lockCurrentStockById(existingLoan.getTool().getId());
+                if (!toolAvailabilityIndexService.tryMove(ToolAvailabilityIndexService.loanKey(id),
+                        existingLoan.getLoanDate(), updatedLoan.getAgreedReturnDate(), stockInShop)) {
+                    throw new RuntimeException("La herramienta está reservada en ese período; no se puede extender hasta "
+                            + updatedLoan.getAgreedReturnDate());
+                }
                 existingLoan.setAgreedReturnDate(updatedLoan.getAgreedReturnDate());
             }
 
@@ -596,9 +996,12 @@ public class LoanService {
                 existingLoan.setNotes(updatedLoan.getNotes());
             }
 
-            return loanRepository.save(existingLoan);
+            LoanEntity savedLoan = loanRepository.save(existingLoan);
+            // La fecha acordada define si el préstamo está vencido
+            clientEligibilityService.invalidate(savedLoan.getClient());
+            return savedLoan;
         } catch (Exception e) {
-            System.err.println("Error updating loan: " + e.getMessage());
+            log.warn("Error updating loan: {}", e.getMessage());
             throw new RuntimeException("Error al actualizar préstamo: " + e.getMessage());
         }
     }
@@ -621,7 +1024,7 @@ public class LoanService {
                     throw new RuntimeException("Cannot delete loan with associated fines.");
                 }
             } catch (Exception e) {
-                System.err.println("Error checking associated fines: " + e.getMessage());
+                log.warn("Error checking associated fines: {}", e.getMessage());
                 // Continuar con la eliminación si no se pueden verificar las multas
             }
 
@@ -630,13 +1033,14 @@ public class LoanService {
                 try {
                     kardexMovementService.deleteMovementsByLoan(id);
                 } catch (Exception e) {
-                    System.err.println("Error deleting kardex movements: " + e.getMessage());
+                    log.warn("Error deleting kardex movements: {}", e.getMessage());
                 }
             }
 
+            loanDailyRollupService.recordLoanDeleted(loan);
             loanRepository.deleteById(id);
         } catch (Exception e) {
-            System.err.println("Error deleting loan: " + e.getMessage());
+            log.warn("Error deleting loan: {}", e.getMessage());
             throw new RuntimeException("Error al eliminar préstamo: " + e.getMessage());
         }
     }
@@ -644,8 +1048,14 @@ public class LoanService {
     // Return tool - VERSIÓN CORREGIDA CON ESTADOS CORRECTOS E INSTANCIAS Y TIPOS DE DAÑO
     @Transactional
     public LoanEntity returnTool(Long loanId, Boolean damaged, String damageType, String notes) {
+        return metricsService.time(MetricsService.LOAN_RETURN,
+                () -> doReturnTool(loanId, damaged, damageType, notes),
+                "damaged", String.valueOf(Boolean.TRUE.equals(damaged)));
+    }
+
+    private LoanEntity doReturnTool(Long loanId, Boolean damaged, String damageType, String notes) {
         try {
-            LoanEntity loan = loanRepository.findById(loanId)
+            LoanEntity loan = loanRepository.findByIdForUpdate(loanId)
                     .orElseThrow(() -> new RuntimeException("Loan not found with ID: " + loanId));
 
             if (loan.getStatus() != LoanEntity.LoanStatus.ACTIVE) {
@@ -668,21 +1078,21 @@ public class LoanService {
 
             if (damaged != null && damaged) {
                 // Herramienta dañada - verificar tipo de daño
-                System.out.println("Tool " + tool.getName() + " - processing damaged return. Type: " + damageType);
+                log.debug("Tool {} - processing damaged return. Type: {}", tool.getName(), damageType);
 
                 // Verificar si es daño irreparable
                 boolean isIrreparable = damageType != null && damageType.equals("IRREPARABLE");
 
                 if (isIrreparable) {
                     // 🔴 DAÑO IRREPARABLE: Dar de baja inmediatamente
-                    System.out.println("IRREPARABLE DAMAGE - Decommissioning instances immediately");
+                    log.debug("IRREPARABLE DAMAGE - Decommissioning instances immediately");
 
                     if (toolInstanceService != null) {
                         try {
                             // Cambiar instancias directamente a DECOMMISSIONED
                             List<ToolInstanceEntity> decommissionedInstances =
-                                toolInstanceService.decommissionInstances(tool.getId(), loan.getQuantity());
-                            System.out.println("Successfully decommissioned " + decommissionedInstances.size() + " instances");
+                                toolInstanceService.decommissionLoanedInstances(tool.getId(), loan.getQuantity());
+                            log.debug("Successfully decommissioned {} instances", decommissionedInstances.size());
 
                             // 🆕 REGISTRAR MOVIMIENTO DE BAJA (DECOMMISSION) EN EL KARDEX
                             if (kardexMovementService != null && !decommissionedInstances.isEmpty()) {
@@ -699,10 +1109,10 @@ public class LoanService {
                                     decommissionDescription,
                                     instanceIds
                                 );
-                                System.out.println("Registered DECOMMISSION movement in kardex for tool " + tool.getName());
+                                log.debug("Registered DECOMMISSION movement in kardex for tool {}", tool.getName());
                             }
                         } catch (Exception e) {
-                            System.err.println("Error decommissioning tool instances: " + e.getMessage());
+                            log.warn("Error decommissioning tool instances: {}", e.getMessage());
                         }
                     }
 
@@ -711,13 +1121,13 @@ public class LoanService {
 
                 } else {
                     // 🟡 DAÑO LEVE: Marcar en reparación (se restaurará al pagar multa)
-                    System.out.println("MINOR DAMAGE - Marking instances as under repair");
+                    log.debug("MINOR DAMAGE - Marking instances as under repair");
 
                     if (toolInstanceService != null) {
                         try {
                             List<ToolInstanceEntity> returnedInstances = toolInstanceService.returnInstancesFromLoan(
                                     tool.getId(), loan.getQuantity(), true); // true = damaged
-                            System.out.println("Successfully set " + returnedInstances.size() + " instances to UNDER_REPAIR");
+                            log.debug("Successfully set {} instances to UNDER_REPAIR", returnedInstances.size());
 
                             // 🆕 REGISTRAR MOVIMIENTO DE REPARACIÓN EN EL KARDEX
                             if (kardexMovementService != null && !returnedInstances.isEmpty()) {
@@ -725,85 +1135,49 @@ public class LoanService {
                                     " - Cliente: " + loan.getClient().getName();
                                 kardexMovementService.createRepairMovement(tool, repairDescription,
                                     returnedInstances.get(0).getId());
-                                System.out.println("Registered REPAIR movement in kardex for tool " + tool.getName());
+                                log.debug("Registered REPAIR movement in kardex for tool {}", tool.getName());
                             }
                         } catch (Exception e) {
-                            System.err.println("Error updating tool instances to UNDER_REPAIR: " + e.getMessage());
+                            log.warn("Error updating tool instances to UNDER_REPAIR: {}", e.getMessage());
                         }
                     }
 
                     // NO devolver stock aún, se devolverá cuando se pague la multa
                 }
             } else {
-                // Devolución normal - restaurar stock
-                int newStock = tool.getCurrentStock() + loan.getQuantity();
+                // Devolución normal - restaurar stock con un UPDATE atómico (como en la devolución múltiple):
+                // dos devoluciones simultáneas de la misma herramienta no se pisan el stock.
+                // Sincronizar la entidad y el stock previo del kardex con el valor que quedó en la base de datos.
+                toolRepository.restoreStock(tool.getId(), loan.getQuantity());
+                int newStock = toolRepository.findCurrentStockById(tool.getId());
+                stockBeforeReturn = newStock - loan.getQuantity();
                 tool.setCurrentStock(newStock);
-                System.out.println("Tool " + tool.getName() + " stock restored: " + newStock + "/" + tool.getInitialStock());
+                log.debug("Tool {} stock restored: {}/{}", tool.getName(), newStock, tool.getInitialStock());
 
                 // 🔧 NUEVO: Actualizar instancias individuales a AVAILABLE
                 if (toolInstanceService != null) {
                     try {
-                        System.out.println("Returning " + loan.getQuantity() + " instances in good condition...");
+                        log.debug("Returning {} instances in good condition...", loan.getQuantity());
                         List<ToolInstanceEntity> returnedInstances = toolInstanceService.returnInstancesFromLoan(
                                 tool.getId(), loan.getQuantity(), false); // false = not damaged
-                        System.out.println("Successfully set " + returnedInstances.size() + " instances to AVAILABLE");
+                        log.debug("Successfully set {} instances to AVAILABLE", returnedInstances.size());
                     } catch (Exception e) {
-                        System.err.println("Error updating tool instances to AVAILABLE: " + e.getMessage());
+                        log.warn("Error updating tool instances to AVAILABLE: {}", e.getMessage());
                     }
                 } else {
-                    System.out.println("ToolInstanceService not available - skipping individual instance updates");
+                    log.debug("ToolInstanceService not available - skipping individual instance updates");
                 }
             }
 
             // 🔧 CORRECCIÓN CRÍTICA: Actualizar estado basado en stock DISPONIBLE
-            // Usar el servicio de instancias para determinar el estado correcto
+            // Usar los conteos de instancias (un GROUP BY) para determinar el estado correcto
             if (toolInstanceService != null) {
                 try {
-                    Long availableCount = toolInstanceService.getAvailableCount(tool.getId());
-                    Long loanedCount = toolInstanceService.getInstancesByStatus(
-                        ToolInstanceEntity.ToolInstanceStatus.LOANED).stream()
-                        .filter(i -> i.getTool().getId().equals(tool.getId()))
-                        .count();
-                    Long decommissionedCount = toolInstanceService.getInstancesByStatus(
-                        ToolInstanceEntity.ToolInstanceStatus.DECOMMISSIONED).stream()
-                        .filter(i -> i.getTool().getId().equals(tool.getId()))
-                        .count();
-                    Long underRepairCount = toolInstanceService.getInstancesByStatus(
-                        ToolInstanceEntity.ToolInstanceStatus.UNDER_REPAIR).stream()
-                        .filter(i -> i.getTool().getId().equals(tool.getId()))
-                        .count();
-
-                    if (availableCount > 0) {
-                        tool.setStatus(ToolEntity.ToolStatus.AVAILABLE);
-                        System.out.println("Tool " + tool.getName() + " status: AVAILABLE (available: " + availableCount + ")");
-                    } else if (loanedCount > 0) {
-                        tool.setStatus(ToolEntity.ToolStatus.LOANED);
-                        System.out.println("Tool " + tool.getName() + " status: LOANED (loaned: " + loanedCount + ")");
-                    } else if (underRepairCount > 0 && decommissionedCount == 0) {
-                        // Solo en reparación, sin bajas
-                        tool.setStatus(ToolEntity.ToolStatus.UNDER_REPAIR);
-                        System.out.println("Tool " + tool.getName() + " status: UNDER_REPAIR (under repair: " + underRepairCount + ")");
-                    } else if (decommissionedCount > 0) {
-                        // Hay instancias dadas de baja - marcar como DECOMMISSIONED
-                        // Esto sucede si TODAS están dadas de baja o si la mayoría lo están
-                        long totalInstances = availableCount + loanedCount + decommissionedCount + underRepairCount;
-                        if (decommissionedCount >= totalInstances ||
-                            (availableCount == 0 && loanedCount == 0 && underRepairCount == 0)) {
-                            tool.setStatus(ToolEntity.ToolStatus.DECOMMISSIONED);
-                            System.out.println("Tool " + tool.getName() + " status: DECOMMISSIONED (all instances decommissioned)");
-                        } else {
-                            // Algunas dadas de baja pero otras aún operativas
-                            tool.setStatus(ToolEntity.ToolStatus.UNDER_REPAIR);
-                            System.out.println("Tool " + tool.getName() + " status: UNDER_REPAIR (mixed: " +
-                                decommissionedCount + " decommissioned, " + underRepairCount + " under repair)");
-                        }
-                    } else {
-                        // Sin instancias en ningún estado (no debería pasar)
-                        tool.setStatus(ToolEntity.ToolStatus.DECOMMISSIONED);
-                        System.out.println("Tool " + tool.getName() + " status: DECOMMISSIONED (no instances found)");
-                    }
+                    ToolInstanceService.ToolInstanceStats stats = toolStatusService.getStatusCounts(tool.getId());
+                    tool.setStatus(toolStatusService.deriveStatus(stats));
+                    log.debug("Tool {} status: {} (available: {}, loaned: {}, under repair: {}, decommissioned: {})", tool.getName(), tool.getStatus(), stats.getAvailable(), stats.getLoaned(), stats.getUnderRepair(), stats.getDecommissioned());
                 } catch (Exception e) {
-                    System.err.println("Error determining tool status from instances: " + e.getMessage());
+                    log.warn("Error determining tool status from instances: {}", e.getMessage());
                     // Fallback: usar lógica basada en stock
                     if (tool.getCurrentStock() > 0) {
                         tool.setStatus(ToolEntity.ToolStatus.AVAILABLE);
@@ -815,18 +1189,18 @@ public class LoanService {
                 // Fallback si no hay servicio de instancias
                 if (tool.getCurrentStock() > 0) {
                     tool.setStatus(ToolEntity.ToolStatus.AVAILABLE);
-                    System.out.println("Tool " + tool.getName() + " status: AVAILABLE (stock: " + tool.getCurrentStock() + ")");
+                    log.debug("Tool {} status: AVAILABLE (stock: {})", tool.getName(), tool.getCurrentStock());
                 } else {
                     tool.setStatus(ToolEntity.ToolStatus.LOANED);
-                    System.out.println("Tool " + tool.getName() + " status: LOANED (no stock)");
+                    log.debug("Tool {} status: LOANED (no stock)", tool.getName());
                 }
             }
 
             try {
                 toolService.updateTool(tool.getId(), tool);
-                System.out.println("Tool updated successfully: " + tool.getName() + " - Status: " + tool.getStatus());
+                log.debug("Tool updated successfully: {} - Status: {}", tool.getName(), tool.getStatus());
             } catch (Exception e) {
-                System.err.println("Error updating tool stock and status: " + e.getMessage());
+                log.warn("Error updating tool stock and status: {}", e.getMessage());
                 // No fallar la devolución por esto
             }
 
@@ -834,7 +1208,7 @@ public class LoanService {
             try {
                 calculateAndCreateFinesAutomatically(loan, damaged != null && damaged, damageType);
             } catch (Exception e) {
-                System.err.println("Error calculating fines: " + e.getMessage());
+                log.warn("Error calculating fines: {}", e.getMessage());
                 // No fallar la devolución por esto
             }
 
@@ -859,15 +1233,215 @@ public class LoanService {
                             stockBeforeReturn  // 🔧 Pasar el stock ANTES de la devolución
                     );
                 } catch (Exception e) {
-                    System.err.println("Error creating kardex movement: " + e.getMessage());
+                    log.warn("Error creating kardex movement: {}", e.getMessage());
                 }
             }
 
-            return loanRepository.save(loan);
+            LoanEntity returnedLoan = loanRepository.save(loan);
+            loanDailyRollupService.recordLoansReturned(List.of(returnedLoan));
+            clientEligibilityService.invalidate(loan.getClient());
+            toolAvailabilityIndexService.releaseAfterCommit(ToolAvailabilityIndexService.loanKey(loan.getId()));
+            return returnedLoan;
         } catch (Exception e) {
-            System.err.println("Error returning tool: " + e.getMessage());
-            throw new RuntimeException("Error al procesar devolución: " + e.getMessage());
+            log.warn("Error returning tool: {}", e.getMessage());
+            throw new RuntimeException("Error al procesar devolución: " + e.getMessage(), e);
+        }
+    }
+
+    // Devolución múltiple (cierre del día): las devoluciones se agrupan por herramienta para actualizar
+    // instancias, stock y estado una sola vez por herramienta; multas y kardex se guardan juntos al final.
+    @Transactional
+    public List<BatchReturnLineResult> returnToolsBatch(List<BatchReturnLine> lines) {
+        if (lines == null || lines.isEmpty()) {
+            throw new RuntimeException("Debe indicar al menos un préstamo a devolver");
+        }
+
+        BatchReturnLineResult[] results = new BatchReturnLineResult[lines.size()];
+
+        List<Long> loanIds = lines.stream()
+                .map(BatchReturnLine::getLoanId)
+                .filter(java.util.Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        // Bloqueados: una devolución individual simultánea del mismo préstamo espera y luego lo ve devuelto
+        List<LoanEntity> lockedLoans = loanIds.isEmpty() ? List.of() : loanRepository.findAllByIdForUpdate(loanIds);
+        Map<Long, LoanEntity> loansById = lockedLoans.stream()
+                .collect(Collectors.toMap(LoanEntity::getId, loan -> loan));
+
+        // Validar cada línea y agrupar por herramienta (TreeMap: se procesan en orden de ID de herramienta)
+        Map<Long, List<Integer>> lineIndexesByTool = new java.util.TreeMap<>();
+        java.util.Set<Long> seenLoanIds = new java.util.HashSet<>();
+        for (int i = 0; i < lines.size(); i++) {
+            Long loanId = lines.get(i).getLoanId();
+            LoanEntity loan = loanId != null ? loansById.get(loanId) : null;
+
+            if (loan == null) {
+                results[i] = BatchReturnLineResult.failure(loanId, "Loan not found with ID: " + loanId);
+            } else if (!seenLoanIds.add(loanId)) {
+                results[i] = BatchReturnLineResult.failure(loanId, "Préstamo repetido en la devolución");
+            } else if (loan.getStatus() != LoanEntity.LoanStatus.ACTIVE) {
+                results[i] = BatchReturnLineResult.failure(loanId, "Loan is not active and cannot be returned");
+            } else {
+                lineIndexesByTool.computeIfAbsent(loan.getTool().getId(), id -> new java.util.ArrayList<>()).add(i);
+            }
+        }
+
+        LocalDate returnDate = LocalDate.now();
+        BigDecimal lateFeeRate = null;
+        List<LoanEntity> returnedLoans = new java.util.ArrayList<>();
+        List<FineEntity> fines = new java.util.ArrayList<>();
+        List<KardexMovementEntity> movements = new java.util.ArrayList<>();
+
+        for (Map.Entry<Long, List<Integer>> group : lineIndexesByTool.entrySet()) {
+            Long toolId = group.getKey();
+            List<Integer> indexes = group.getValue();
+            ToolEntity tool = loansById.get(lines.get(indexes.get(0)).getLoanId()).getTool();
+
+            // Cantidades por tipo de devolución para esta herramienta
+            int goodQuantity = 0;
+            int minorDamageQuantity = 0;
+            int irreparableQuantity = 0;
+            for (int index : indexes) {
+                BatchReturnLine line = lines.get(index);
+                int quantity = loansById.get(line.getLoanId()).getQuantity();
+                if (!Boolean.TRUE.equals(line.getDamaged())) {
+                    goodQuantity += quantity;
+                } else if ("IRREPARABLE".equals(line.getDamageType())) {
+                    irreparableQuantity += quantity;
+                } else {
+                    minorDamageQuantity += quantity;
+                }
+            }
+
+            // Actualizar instancias una vez por tipo. Se revisan los conteos antes para no llamar
+            // a métodos que lanzan excepción (y marcarían la transacción completa para rollback).
+            java.util.Iterator<ToolInstanceEntity> repairedInstances = java.util.Collections.emptyIterator();
+            java.util.Iterator<ToolInstanceEntity> decommissionedInstances = java.util.Collections.emptyIterator();
+            if (toolInstanceService != null) {
+                long loanedInstances = toolInstanceService.countInstancesByStatus(toolId).getLoaned();
+                if (goodQuantity > 0 && loanedInstances >= goodQuantity) {
+                    toolInstanceService.returnInstancesFromLoan(toolId, goodQuantity, false);
+                    loanedInstances -= goodQuantity;
+                }
+                if (minorDamageQuantity > 0 && loanedInstances >= minorDamageQuantity) {
+                    repairedInstances = toolInstanceService
+                            .returnInstancesFromLoan(toolId, minorDamageQuantity, true).iterator();
+                    loanedInstances -= minorDamageQuantity;
+                }
+                // Solo instancias prestadas y hasta las que quedan: las que están en reparación son de otros préstamos
+                if (irreparableQuantity > 0 && loanedInstances > 0) {
+                    decommissionedInstances = toolInstanceService.decommissionLoanedInstances(
+                            toolId, (int) Math.min(irreparableQuantity, loanedInstances)).iterator();
+                }
+            }
+
+            // Solo las devoluciones en buen estado devuelven stock (las dañadas esperan el pago de la multa)
+            int stock = toolRepository.findCurrentStockById(toolId);
+            if (goodQuantity > 0) {
+                toolRepository.restoreStock(toolId, goodQuantity);
+            }
+
+            for (int index : indexes) {
+                BatchReturnLine line = lines.get(index);
+                LoanEntity loan = loansById.get(line.getLoanId());
+                boolean damaged = Boolean.TRUE.equals(line.getDamaged());
+                boolean irreparable = damaged && "IRREPARABLE".equals(line.getDamageType());
+
+                loan.setActualReturnDate(returnDate);
+                if (line.getNotes() != null && !line.getNotes().trim().isEmpty()) {
+                    String existingNotes = loan.getNotes() != null ? loan.getNotes() : "";
+                    loan.setNotes(existingNotes.isEmpty() ? line.getNotes() : existingNotes + "\n" + line.getNotes());
+                }
+
+                if (kardexMovementService != null) {
+                    if (irreparable) {
+                        List<Long> instanceIds = new java.util.ArrayList<>();
+                        for (int q = 0; q < loan.getQuantity() && decommissionedInstances.hasNext(); q++) {
+                            instanceIds.add(decommissionedInstances.next().getId());
+                        }
+                        if (!instanceIds.isEmpty()) {
+                            movements.add(kardexMovementService.buildMovement(tool, null,
+                                    KardexMovementEntity.MovementType.DECOMMISSION, loan.getQuantity(),
+                                    "Baja por daño irreparable en devolución - Préstamo #" + loan.getId() +
+                                            " - Cliente: " + loan.getClient().getName() +
+                                            " - Instancias dadas de baja: " + instanceIds,
+                                    null, stock));
+                        }
+                    } else if (damaged && repairedInstances.hasNext()) {
+                        ToolInstanceEntity instance = repairedInstances.next();
+                        movements.add(kardexMovementService.buildMovement(tool, null,
+                                KardexMovementEntity.MovementType.REPAIR, 0,
+                                "Daño leve detectado en devolución - Préstamo #" + loan.getId() +
+                                        " - Cliente: " + loan.getClient().getName() +
+                                        " - Instancia en reparación: " + instance.getId(),
+                                null, stock));
+                    }
+                    movements.add(kardexMovementService.buildMovement(tool, null,
+                            KardexMovementEntity.MovementType.RETURN, loan.getQuantity(),
+                            "Return loan #" + loan.getId() + " - " + (damaged ? "With damage" : "Good condition"),
+                            loan, stock));
+                }
+                if (!damaged) {
+                    stock += loan.getQuantity();
+                }
+
+                // Multas: se arman aquí y se guardan todas juntas al final
+                try {
+                    if (returnDate.isAfter(loan.getAgreedReturnDate())) {
+                        if (lateFeeRate == null) {
+                            lateFeeRate = rateService.getCurrentLateFeeRate();
+                        }
+                        long daysLate = ChronoUnit.DAYS.between(loan.getAgreedReturnDate(), returnDate);
+                        fines.add(fineService.buildLateFine(loan, daysLate, lateFeeRate));
+                    }
+                    if (damaged && tool.getReplacementValue() != null) {
+                        FineEntity.DamageType damageType = irreparable ?
+                                FineEntity.DamageType.IRREPARABLE : FineEntity.DamageType.MINOR;
+                        fines.add(fineService.buildDamageFine(loan, damageType, "Herramienta devuelta con daño " +
+                                (irreparable ? "irreparable" : "leve (reparable)")));
+                    }
+                } catch (Exception e) {
+                    log.warn("Error calculating fines for loan #{}: {}", loan.getId(), e.getMessage());
+                }
+
+                if (damaged) {
+                    loan.setStatus(LoanEntity.LoanStatus.DAMAGED);
+                } else if (isOverdue(loan)) {
+                    loan.setStatus(LoanEntity.LoanStatus.OVERDUE);
+                } else {
+                    loan.setStatus(LoanEntity.LoanStatus.RETURNED);
+                }
+                returnedLoans.add(loan);
+                results[index] = BatchReturnLineResult.success(loan.getId(), loan.getStatus());
+            }
+
+            // Recalcular stock y estado de la herramienta una sola vez
+            tool.setCurrentStock(toolRepository.findCurrentStockById(toolId));
+            if (toolInstanceService != null) {
+                tool.setStatus(toolStatusService.deriveStatus(toolId));
+            } else {
+                tool.setStatus(tool.getCurrentStock() > 0 ? ToolEntity.ToolStatus.AVAILABLE : ToolEntity.ToolStatus.LOANED);
+            }
         }
+
+        loanRepository.saveAll(returnedLoans);
+        if (!returnedLoans.isEmpty()) {
+            loanDailyRollupService.recordLoansReturned(returnedLoans);
+        }
+        returnedLoans.forEach(loan ->
+                toolAvailabilityIndexService.releaseAfterCommit(ToolAvailabilityIndexService.loanKey(loan.getId())));
+        returnedLoans.stream()
+                .map(loan -> loan.getClient().getId())
+                .distinct()
+                .forEach(clientEligibilityService::invalidate);
+        if (!fines.isEmpty()) {
+            fineService.createFines(fines);
+        }
+        if (kardexMovementService != null && !movements.isEmpty()) {
+            kardexMovementService.createMovements(movements);
+        }
+
+        return List.of(results);
     }
 
     // Get loans by tool - NUEVO MÉTODO REQUERIDO
@@ -878,58 +1452,70 @@ public class LoanService {
             }
             return loanRepository.findByTool(tool);
         } catch (Exception e) {
-            System.err.println("Error getting loans by tool: " + e.getMessage());
+            log.warn("Error getting loans by tool: {}", e.getMessage());
             return List.of();
         }
     }
 
-    // Get loan summary - NUEVO MÉTODO REQUERIDO
-    public Map<String, Object> getLoanSummary() {
-        try {
-            List<LoanEntity> allLoans = getAllLoans();
-            List<LoanEntity> activeLoans = getActiveLoans();
-            List<LoanEntity> overdueLoans = getOverdueLoans();
-
-            Map<String, Object> summary = new HashMap<>();
-
-            summary.put("totalLoans", allLoans.size());
-            summary.put("activeLoans", activeLoans.size());
-            summary.put("overdueLoans", overdueLoans.size());
-
-            long returnedLoans = allLoans.stream()
-                    .filter(loan -> loan.getStatus() == LoanEntity.LoanStatus.RETURNED)
-                    .count();
-
-            long damagedLoans = allLoans.stream()
-                    .filter(loan -> loan.getStatus() == LoanEntity.LoanStatus.DAMAGED)
-                    .count();
-
-            summary.put("returnedLoans", returnedLoans);
-            summary.put("damagedLoans", damagedLoans);
+    // Listado paginado por keyset: cada página lee solo sus filas usando el índice (loan_date, id),
+    // en vez de cargar toda la tabla como getAllLoans. El cursor es opaco para el cliente.
+    // noRollbackFor: un cursor o tamaño inválido no debe marcar para rollback la transacción del controller
+    @Transactional(readOnly = true, noRollbackFor = RuntimeException.class)
+    public LoanPageDTO getLoansPage(LoanSearchCriteria criteria, String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : size;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new RuntimeException("El tamaño de página debe estar entre 1 y " + MAX_PAGE_SIZE);
+        }
+        if (criteria.getLoanDateFrom() != null && criteria.getLoanDateTo() != null
+                && criteria.getLoanDateFrom().isAfter(criteria.getLoanDateTo())) {
+            throw new RuntimeException("La fecha inicial no puede ser posterior a la fecha final");
+        }
 
-            // Estadísticas del mes actual
-            LocalDate startOfMonth = LocalDate.now().withDayOfMonth(1);
-            LocalDate endOfMonth = LocalDate.now().withDayOfMonth(LocalDate.now().lengthOfMonth());
+        LocalDate afterLoanDate = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                String[] parts = decoded.split("\\|");
+                afterLoanDate = LocalDate.parse(parts[0]);
+                afterId = Long.valueOf(parts[1]);
+            } catch (Exception e) {
+                throw new RuntimeException("Cursor de paginación inválido");
+            }
+        }
 
-            long loansThisMonth = allLoans.stream()
-                    .filter(loan -> loan.getLoanDate() != null &&
-                            loan.getLoanDate().isAfter(startOfMonth.minusDays(1)) &&
-                            loan.getLoanDate().isBefore(endOfMonth.plusDays(1)))
-                    .count();
+        // Se pide una fila extra para saber si hay otra página sin contar el total
+        List<LoanListItemDTO> rows = loanRepository.findLoanPage(criteria, afterLoanDate, afterId, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<LoanListItemDTO> items = hasMore ? rows.subList(0, pageSize) : rows;
 
-            summary.put("loansThisMonth", loansThisMonth);
+        String nextCursor = null;
+        if (hasMore) {
+            LoanListItemDTO last = items.get(items.size() - 1);
+            String raw = last.getLoanDate() + "|" + last.getId();
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
 
-            // Clientes activos únicos
-            long uniqueActiveClients = activeLoans.stream()
-                    .map(loan -> loan.getClient().getId())
-                    .distinct()
-                    .count();
+        return new LoanPageDTO(List.copyOf(items), nextCursor, hasMore, pageSize);
+    }
 
-            summary.put("uniqueActiveClients", uniqueActiveClients);
+    // Get loan summary - NUEVO MÉTODO REQUERIDO
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> getLoanSummary() {
+        try {
+            LoanSummaryDTO loanSummary = getCachedLoanSummary();
 
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("totalLoans", loanSummary.getTotalLoans());
+            summary.put("activeLoans", loanSummary.getActiveLoans());
+            summary.put("overdueLoans", loanSummary.getOverdueLoans());
+            summary.put("returnedLoans", loanSummary.getReturnedLoans());
+            summary.put("damagedLoans", loanSummary.getDamagedLoans());
+            summary.put("loansThisMonth", loanSummary.getLoansThisMonth());
+            summary.put("uniqueActiveClients", loanSummary.getUniqueActiveClients());
             return summary;
         } catch (Exception e) {
-            System.err.println("Error getting loan summary: " + e.getMessage());
+            log.warn("Error getting loan summary: {}", e.getMessage());
             Map<String, Object> errorSummary = new HashMap<>();
             errorSummary.put("error", "Error al obtener resumen de préstamos");
             errorSummary.put("totalLoans", 0);
@@ -939,43 +1525,127 @@ public class LoanService {
         }
     }
 
+    // Resumen con caché de vida corta: los dashboards abiertos a la vez comparten un solo cálculo.
+    // Sin bloqueo ni transacción propia: quien llega mientras otro calcula espera ese mismo resultado sin
+    // retener una conexión, y cada consulta del cálculo usa su propia transacción de solo lectura.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public LoanSummaryDTO getCachedLoanSummary() {
+        CachedLoanSummary cached = cachedLoanSummary;
+        if (cached != null && System.currentTimeMillis() < cached.expiresAt()) {
+            return cached.summary();
+        }
+
+        CompletableFuture<LoanSummaryDTO> refresh = new CompletableFuture<>();
+        CompletableFuture<LoanSummaryDTO> running = loanSummaryRefresh.compareAndExchange(null, refresh);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            LoanSummaryDTO loanSummary = computeLoanSummary();
+            cachedLoanSummary = new CachedLoanSummary(loanSummary,
+                    System.currentTimeMillis() + LOAN_SUMMARY_TTL_MILLIS);
+            refresh.complete(loanSummary);
+            return loanSummary;
+        } catch (RuntimeException e) {
+            refresh.completeExceptionally(e);
+            throw e;
+        } finally {
+            loanSummaryRefresh.set(null);
+        }
+    }
+
+    private LoanSummaryDTO computeLoanSummary() {
+        // Días cerrados desde loan_daily_rollup; hoy y el estado de los préstamos activos, en vivo
+        LocalDate today = LocalDate.now();
+        Object[] closed = loanDailyRollupService.summarizeClosedDays(today, today.withDayOfMonth(1));
+        Object[] live = loanRepository.summarizeLiveLoans(today, today.withDayOfMonth(today.lengthOfMonth())).get(0);
+        return new LoanSummaryDTO(
+                toLong(closed[0]) + toLong(live[0]),
+                toLong(live[4]),
+                toLong(live[5]),
+                toLong(closed[1]) + toLong(live[2]),
+                toLong(closed[2]) + toLong(live[3]),
+                toLong(closed[3]) + toLong(live[1]),
+                toLong(live[6]));
+    }
+
+    private record CachedLoanSummary(LoanSummaryDTO summary, long expiresAt) {
+    }
+
     // Get validation summary - NUEVO MÉTODO REQUERIDO
-    public LoanValidationSummary getLoanValidationSummary(ClientEntity client, ToolEntity tool, Integer quantity) {
+    // Las lecturas independientes (cliente, herramienta, préstamo existente) se lanzan en paralelo, cada una en
+    // su propia transacción de solo lectura, y se esperan hasta validationTimeoutMillis en total. Si alguna no
+    // responde a tiempo se usa un resultado conservador y el resumen queda marcado como parcial;
+    // createLoan vuelve a validar todo de todas formas. Sin transacción propia: el hilo que espera no retiene
+    // una conexión mientras las ramas usan las suyas.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public LoanValidationSummary getLoanValidationSummary(Long clientId, Long toolId, Integer quantity) {
         try {
             LoanValidationSummary summary = new LoanValidationSummary();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(validationTimeoutMillis);
 
             // Validar cliente
+            CompletableFuture<Void> clientCheck = supplyReadOnly(() -> {
+                validateClientEligibility(clientService.getClientById(clientId));
+                return null;
+            });
+
+            // Validar herramienta
+            CompletableFuture<Void> toolCheck = supplyReadOnly(() -> {
+                validateToolAvailability(toolRepository.findById(toolId).orElse(null), quantity);
+                return null;
+            });
+
+            // Préstamo activo del cliente con la misma herramienta
+            CompletableFuture<Boolean> existingLoanCheck = supplyReadOnly(() ->
+                    clientId != null && toolId != null && loanRepository.existsActiveLoanByClientIdAndToolId(clientId, toolId));
+
+            // Obtener tarifas actuales (en memoria, no necesita su propio hilo)
+            try {
+                summary.setCurrentDailyRate(rateService.getCurrentRentalRate());
+                summary.setCurrentLateFeeRate(rateService.getCurrentLateFeeRate());
+            } catch (Exception e) {
+                summary.setCurrentDailyRate(BigDecimal.valueOf(100.0));
+                summary.setCurrentLateFeeRate(BigDecimal.valueOf(10.0));
+            }
+
             try {
-                validateClientEligibility(client);
+                awaitCheck(clientCheck, deadline);
                 summary.setClientEligible(true);
+            } catch (TimeoutException e) {
+                summary.setClientEligible(false);
+                summary.setClientIssue("No se pudo verificar al cliente a tiempo. Intente nuevamente");
+                summary.setPartial(true);
             } catch (RuntimeException e) {
                 summary.setClientEligible(false);
                 summary.setClientIssue(e.getMessage());
             }
 
-            // Validar herramienta
             try {
-                validateToolAvailability(tool, quantity);
+                awaitCheck(toolCheck, deadline);
                 summary.setToolAvailable(true);
+            } catch (TimeoutException e) {
+                summary.setToolAvailable(false);
+                summary.setToolIssue("No se pudo verificar la herramienta a tiempo. Intente nuevamente");
+                summary.setPartial(true);
             } catch (RuntimeException e) {
                 summary.setToolAvailable(false);
                 summary.setToolIssue(e.getMessage());
             }
 
-            summary.setHasExistingLoanForTool(clientHasActiveLoanForTool(client, tool));
-
-            // Obtener tarifas actuales
             try {
-                summary.setCurrentDailyRate(rateService.getCurrentRentalRate());
-                summary.setCurrentLateFeeRate(rateService.getCurrentLateFeeRate());
-            } catch (Exception e) {
-                summary.setCurrentDailyRate(BigDecimal.valueOf(100.0));
-                summary.setCurrentLateFeeRate(BigDecimal.valueOf(10.0));
+                summary.setHasExistingLoanForTool(Boolean.TRUE.equals(awaitCheck(existingLoanCheck, deadline)));
+            } catch (TimeoutException e) {
+                summary.setHasExistingLoanForTool(false);
+                summary.setPartial(true);
             }
 
+            if (summary.isPartial()) {
+                log.warn("Loan validation summary incomplete after {} ms (client {}, tool {})", validationTimeoutMillis, clientId, toolId);
+            }
             return summary;
         } catch (Exception e) {
-            System.err.println("Error getting loan validation summary: " + e.getMessage());
+            log.warn("Error getting loan validation summary: {}", e.getMessage());
             LoanValidationSummary errorSummary = new LoanValidationSummary();
             errorSummary.setClientEligible(false);
             errorSummary.setToolAvailable(false);
@@ -984,6 +1654,34 @@ public class LoanService {
         }
     }
 
+    private <T> CompletableFuture<T> supplyReadOnly(java.util.function.Supplier<T> check) {
+        return CompletableFuture.supplyAsync(() -> readOnlyTransaction.execute(status -> check.get()), validationExecutor);
+    }
+
+    // Esperar una rama hasta el plazo común; la excepción de negocio de la rama se relanza tal cual
+    private <T> T awaitCheck(CompletableFuture<T> check, long deadline) throws TimeoutException {
+        try {
+            return check.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            check.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(cause != null ? cause.getMessage() : e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Validación interrumpida");
+        }
+    }
+
+    @PreDestroy
+    public void shutdownValidationExecutor() {
+        validationExecutor.shutdownNow();
+    }
+
     // ============================================================================
     // MÉTODOS AUXILIARES PRIVADOS
     // ============================================================================
@@ -996,21 +1694,21 @@ public class LoanService {
             throw new RuntimeException("Cliente no está activo y no puede solicitar préstamos");
         }
 
-        List<LoanEntity> overdueLoans = loanRepository.findOverdueLoansByClient(client, LocalDate.now());
-        if (!overdueLoans.isEmpty()) {
-            throw new RuntimeException("Cliente tiene " + overdueLoans.size() + " préstamo(s) vencido(s)");
+        ClientEligibilityService.EligibilitySnapshot eligibility = clientEligibilityService.getSnapshot(client.getId());
+        if (eligibility == null) {
+            throw new RuntimeException("Cliente no encontrado");
         }
 
-        try {
-            if (fineService.clientHasUnpaidFines(client)) {
-                throw new RuntimeException("Cliente tiene multas impagas");
-            }
-        } catch (Exception e) {
-            System.err.println("Error checking unpaid fines: " + e.getMessage());
+        long overdueLoansCount = eligibility.getOverdueLoansCount(LocalDate.now());
+        if (overdueLoansCount > 0) {
+            throw new RuntimeException("Cliente tiene " + overdueLoansCount + " préstamo(s) vencido(s)");
+        }
+
+        if (eligibility.hasUnpaidFines()) {
+            throw new RuntimeException("Cliente tiene multas impagas");
         }
 
-        long activeLoanCount = loanRepository.countActiveLoansByClient(client);
-        if (activeLoanCount >= 5) {
+        if (eligibility.getActiveLoans() >= 5) {
             throw new RuntimeException("Cliente ha alcanzado el límite de 5 préstamos activos");
         }
     }
@@ -1030,11 +1728,8 @@ public class LoanService {
         }
     }
 
-    private boolean clientHasActiveLoanForTool(ClientEntity client, ToolEntity tool) {
-        if (client == null || tool == null) {
-            return false;
-        }
-        return loanRepository.existsActiveLoanByClientAndTool(client, tool);
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
     }
 
     private boolean isOverdue(LoanEntity loan) {
@@ -1061,7 +1756,7 @@ public class LoanService {
                 try {
                     damageType = FineEntity.DamageType.valueOf(damageTypeStr);
                 } catch (Exception e) {
-                    System.err.println("Invalid damage type: " + damageTypeStr + ", defaulting to MINOR");
+                    log.warn("Invalid damage type: {}, defaulting to MINOR", damageTypeStr);
                     damageType = FineEntity.DamageType.MINOR;
                 }
 
@@ -1069,10 +1764,10 @@ public class LoanService {
                     (damageType == FineEntity.DamageType.MINOR ? "leve (reparable)" : "irreparable");
 
                 fineService.createDamageFineWithType(loan, damageType, description);
-                System.out.println("Created " + damageType + " damage fine for loan #" + loan.getId());
+                log.debug("Created {} damage fine for loan #{}", damageType, loan.getId());
             }
         } catch (Exception e) {
-            System.err.println("Error creating automatic fines: " + e.getMessage());
+            log.warn("Error creating automatic fines: {}", e.getMessage());
         }
     }
 
@@ -1086,30 +1781,23 @@ public class LoanService {
     @Transactional(propagation = org.springframework.transaction.annotation.Propagation.REQUIRES_NEW)
     protected ToolInstanceEntity tryReserveToolInstancesAndGetFirst(Long toolId, Integer quantity) {
         if (toolInstanceService == null) {
-            System.out.println("ℹ️ ToolInstanceService not available - using only main tool stock counter");
+            log.debug("ToolInstanceService not available - using only main tool stock counter");
             return null;
         }
 
         try {
-            System.out.println("Attempting to reserve " + quantity + " instances for loan...");
             List<ToolInstanceEntity> reservedInstances = toolInstanceService.reserveInstancesForLoan(
                     toolId, quantity);
-            System.out.println("✅ Successfully reserved " + reservedInstances.size() + " instances:");
-            for (ToolInstanceEntity instance : reservedInstances) {
-                System.out.println("  - Instance ID: " + instance.getId() + " - Status: " + instance.getStatus());
-            }
+            log.debug("Reserved {} instances for tool {}", reservedInstances.size(), toolId);
             // Return the first reserved instance for kardex tracking
             return !reservedInstances.isEmpty() ? reservedInstances.get(0) : null;
         } catch (RuntimeException e) {
-            // This is expected and normal if tool instances are not configured
-            System.err.println("⚠️ Could not reserve tool instances: " + e.getMessage());
-            System.err.println("⚠️ This is normal if tool instances are not configured for this tool.");
-            System.err.println("✅ Loan will proceed using only the main tool stock counter.");
-            // Do NOT rethrow - instances are optional
+            // Expected when tool instances are not configured for this tool: the loan uses only the stock counter
+            log.debug("No tool instances reserved for tool {} ({}); using main stock counter", toolId, e.getMessage());
             return null;
         } catch (Exception e) {
-            System.err.println("⚠️ Unexpected error reserving tool instances: " + e.getMessage());
-            System.err.println("✅ Loan will proceed using only the main tool stock counter.");
+            log.warn("Unexpected error reserving tool instances for tool {}, using main stock counter: {}",
+                    toolId, e.getMessage());
             // Do NOT rethrow - instances are optional
             return null;
         }
@@ -1123,30 +1811,27 @@ public class LoanService {
      * Genera o actualiza multas automáticamente para todos los préstamos atrasados
      * Este método debería ser llamado periódicamente (diariamente) o bajo demanda
      *
+     * Se resuelve con sentencias SQL sobre el conjunto completo (ver FineService.accrueOverdueFines),
+     * no préstamo por préstamo.
+     *
      * @return Resumen de las operaciones realizadas
      */
     @Transactional
     public Map<String, Object> generateOverdueFinesForAllLoans() {
+        return metricsService.time(MetricsService.OVERDUE_FINES, this::doGenerateOverdueFinesForAllLoans,
+                result -> Boolean.FALSE.equals(result.get("success"))
+                        ? MetricsService.OUTCOME_ERROR : MetricsService.OUTCOME_SUCCESS);
+    }
+
+    private Map<String, Object> doGenerateOverdueFinesForAllLoans() {
         Map<String, Object> result = new HashMap<>();
 
         try {
-            System.out.println("========================================");
-            System.out.println("🔄 GENERANDO MULTAS POR PRÉSTAMOS ATRASADOS");
-            System.out.println("📅 Fecha: " + LocalDate.now());
-            System.out.println("========================================");
-
-            // Obtener tarifa de multa actual
-            BigDecimal lateFeeRate = rateService.getCurrentLateFeeRate();
-            System.out.println("💰 Tarifa de multa diaria: $" + lateFeeRate);
-
-            // Obtener todos los préstamos atrasados
             LocalDate today = LocalDate.now();
-            List<LoanEntity> overdueLoans = getOverdueLoans();
-
-            System.out.println("📋 Préstamos atrasados encontrados: " + overdueLoans.size());
+            BigDecimal lateFeeRate = rateService.getCurrentLateFeeRate();
 
-            if (overdueLoans.isEmpty()) {
-                System.out.println("✅ No hay préstamos atrasados.");
+            long overdueLoans = loanRepository.countOverdueLoans(today);
+            if (overdueLoans == 0) {
                 result.put("success", true);
                 result.put("message", "No hay préstamos atrasados");
                 result.put("overdueLoans", 0);
@@ -1155,42 +1840,26 @@ public class LoanService {
                 return result;
             }
 
-            int finesCreated = 0;
-            int finesUpdated = 0;
-            int errors = 0;
+            FineService.OverdueFineAccrual accrual =
+                    fineService.accrueOverdueFines(today, lateFeeRate, 0L, Long.MAX_VALUE);
+            loanDailyRollupService.refreshOpenLateFees();
 
-            // Procesar cada préstamo atrasado
-            for (LoanEntity loan : overdueLoans) {
-                try {
-                    boolean wasCreated = generateOrUpdateOverdueFine(loan, lateFeeRate, today);
-                    if (wasCreated) {
-                        finesCreated++;
-                    } else {
-                        finesUpdated++;
-                    }
-                } catch (Exception e) {
-                    System.err.println("❌ Error procesando préstamo #" + loan.getId() + ": " + e.getMessage());
-                    errors++;
-                }
-            }
+            // Igual que antes: todo préstamo atrasado sin multa nueva cuenta como actualizado
+            long finesUpdated = overdueLoans - accrual.getFinesCreated();
 
-            System.out.println("\n📊 RESUMEN:");
-            System.out.println("   ✅ Multas creadas: " + finesCreated);
-            System.out.println("   🔄 Multas actualizadas: " + finesUpdated);
-            System.out.println("   ⚠️  Errores: " + errors);
-            System.out.println("========================================\n");
+            log.debug("Multas por atraso ({}, tarifa ${}): {} préstamos atrasados, {} multas creadas, {} montos recalculados", today, lateFeeRate, overdueLoans, accrual.getFinesCreated(), accrual.getAmountsUpdated());
 
             result.put("success", true);
             result.put("message", "Multas generadas exitosamente");
-            result.put("overdueLoans", overdueLoans.size());
-            result.put("finesCreated", finesCreated);
+            result.put("overdueLoans", overdueLoans);
+            result.put("finesCreated", accrual.getFinesCreated());
             result.put("finesUpdated", finesUpdated);
-            result.put("errors", errors);
+            result.put("amountsUpdated", accrual.getAmountsUpdated());
+            result.put("errors", 0);
             result.put("lateFeeRate", lateFeeRate);
 
         } catch (Exception e) {
-            System.err.println("❌ ERROR en generación de multas: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error en generación de multas: {}", e.getMessage(), e);
             result.put("success", false);
             result.put("error", e.getMessage());
         }
@@ -1198,111 +1867,6 @@ public class LoanService {
         return result;
     }
 
-    /**
-     * Genera o actualiza una multa por atraso para un préstamo específico
-     *
-     * @param loan Préstamo atrasado
-     * @param lateFeeRate Tarifa de multa diaria
-     * @param currentDate Fecha actual
-     * @return true si se creó una nueva multa, false si se actualizó una existente
-     */
-    @Transactional
-    public boolean generateOrUpdateOverdueFine(LoanEntity loan, BigDecimal lateFeeRate, LocalDate currentDate) {
-        // Calcular días de atraso
-        long daysOverdue = ChronoUnit.DAYS.between(loan.getAgreedReturnDate(), currentDate);
-
-        if (daysOverdue <= 0) {
-            return false; // No está atrasado
-        }
-
-        // Buscar si ya existe una multa de atraso activa para este préstamo
-        List<FineEntity> existingFines = fineService.getFinesByLoan(loan);
-        FineEntity existingLateFine = existingFines.stream()
-                .filter(fine -> fine.getType() == FineEntity.FineType.LATE_RETURN)
-                .filter(fine -> !fine.getPaid())
-                .filter(fine -> fine.getDamageType() == null) // Solo multas por atraso, no por daños
-                .findFirst()
-                .orElse(null);
-
-        if (existingLateFine != null) {
-            // ACTUALIZAR multa existente
-            updateExistingOverdueFine(existingLateFine, daysOverdue, lateFeeRate, loan);
-            return false; // Se actualizó
-        } else {
-            // CREAR nueva multa
-            createNewOverdueFine(loan, daysOverdue, lateFeeRate);
-            return true; // Se creó
-        }
-    }
-
-    /**
-     * Actualiza una multa de atraso existente con los días acumulados
-     */
-    @Transactional
-    protected void updateExistingOverdueFine(FineEntity fine, long daysOverdue, BigDecimal lateFeeRate, LoanEntity loan) {
-        try {
-            // Calcular nuevo monto
-            BigDecimal newAmount = lateFeeRate.multiply(BigDecimal.valueOf(daysOverdue));
-
-            // Solo actualizar si el monto cambió (días aumentaron)
-            if (newAmount.compareTo(fine.getAmount()) > 0) {
-                BigDecimal previousAmount = fine.getAmount();
-                fine.setAmount(newAmount);
-                fine.setDescription(
-                    "Multa por préstamo atrasado - " + daysOverdue + " día(s) de atraso " +
-                    "(Préstamo #" + loan.getId() + " - Cliente: " + loan.getClient().getName() + ")"
-                );
-
-                fineService.updateFine(fine.getId(), fine.getDescription(), fine.getDueDate());
-
-                System.out.println("🔄 Multa #" + fine.getId() + " actualizada:");
-                System.out.println("   Préstamo: #" + loan.getId());
-                System.out.println("   Cliente: " + loan.getClient().getName());
-                System.out.println("   Días atraso: " + daysOverdue);
-                System.out.println("   Monto anterior: $" + previousAmount);
-                System.out.println("   Monto nuevo: $" + newAmount);
-            }
-        } catch (Exception e) {
-            System.err.println("Error actualizando multa #" + fine.getId() + ": " + e.getMessage());
-            throw new RuntimeException("Error actualizando multa: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Crea una nueva multa de atraso para un préstamo
-     */
-    @Transactional
-    protected void createNewOverdueFine(LoanEntity loan, long daysOverdue, BigDecimal lateFeeRate) {
-        try {
-            BigDecimal fineAmount = lateFeeRate.multiply(BigDecimal.valueOf(daysOverdue));
-
-            FineEntity fine = new FineEntity();
-            fine.setClient(loan.getClient());
-            fine.setLoan(loan);
-            fine.setType(FineEntity.FineType.LATE_RETURN);
-            fine.setAmount(fineAmount);
-            fine.setDescription(
-                "Multa por préstamo atrasado - " + daysOverdue + " día(s) de atraso " +
-                "(Préstamo #" + loan.getId() + " - Cliente: " + loan.getClient().getName() + ")"
-            );
-            fine.setDueDate(LocalDate.now().plusDays(30)); // 30 días para pagar
-            fine.setPaid(false);
-
-            FineEntity savedFine = fineService.createFine(fine);
-
-            System.out.println("✅ Nueva multa creada:");
-            System.out.println("   ID: #" + savedFine.getId());
-            System.out.println("   Préstamo: #" + loan.getId());
-            System.out.println("   Cliente: " + loan.getClient().getName());
-            System.out.println("   Días atraso: " + daysOverdue);
-            System.out.println("   Monto: $" + fineAmount);
-
-        } catch (Exception e) {
-            System.err.println("Error creando nueva multa para préstamo #" + loan.getId() + ": " + e.getMessage());
-            throw new RuntimeException("Error creando multa: " + e.getMessage());
-        }
-    }
-
     /**
      * Obtiene estadísticas sobre multas automáticas por préstamos atrasados
      */
@@ -1355,7 +1919,7 @@ public class LoanService {
                     totalFineAmount.compareTo(totalPotentialAmount) < 0);
 
         } catch (Exception e) {
-            System.err.println("Error obteniendo estadísticas: " + e.getMessage());
+            log.warn("Error obteniendo estadísticas: {}", e.getMessage());
             stats.put("error", e.getMessage());
         }
 
@@ -1363,6 +1927,37 @@ public class LoanService {
     }
 
     // CLASE INTERNA PARA VALIDACIÓN - REQUERIDA POR EL CONTROLADOR
+    // Resultado de evaluatePeriod, compartido por la consulta individual y la masiva
+    private static class PeriodAvailability {
+        private final LocalDate periodStart;
+        private final LocalDate periodEnd;
+        private final boolean futurePeriod;
+        private final String issueType;
+        private final int freeUnits;
+        private final int committedUnits;
+        private final int maxAvailableQuantity;
+
+        PeriodAvailability(LocalDate periodStart, LocalDate periodEnd, boolean futurePeriod, String issueType,
+                           int freeUnits, int committedUnits, int maxAvailableQuantity) {
+            this.periodStart = periodStart;
+            this.periodEnd = periodEnd;
+            this.futurePeriod = futurePeriod;
+            this.issueType = issueType;
+            this.freeUnits = freeUnits;
+            this.committedUnits = committedUnits;
+            this.maxAvailableQuantity = maxAvailableQuantity;
+        }
+
+        public boolean isAvailable() { return issueType == null; }
+        public LocalDate getPeriodStart() { return periodStart; }
+        public LocalDate getPeriodEnd() { return periodEnd; }
+        public boolean isFuturePeriod() { return futurePeriod; }
+        public String getIssueType() { return issueType; }
+        public int getFreeUnits() { return freeUnits; }
+        public int getCommittedUnits() { return committedUnits; }
+        public int getMaxAvailableQuantity() { return maxAvailableQuantity; }
+    }
+
     public static class LoanValidationSummary {
         private boolean clientEligible;
         private String clientIssue;
@@ -1371,6 +1966,7 @@ public class LoanService {
         private boolean hasExistingLoanForTool;
         private BigDecimal currentDailyRate;
         private BigDecimal currentLateFeeRate;
+        private boolean partial;
 
         // Getters y setters
         public boolean isClientEligible() { return clientEligible; }
@@ -1400,10 +1996,121 @@ public class LoanService {
             this.currentLateFeeRate = currentLateFeeRate;
         }
 
+        // true si alguna verificación no respondió dentro del plazo
+        public boolean isPartial() { return partial; }
+        public void setPartial(boolean partial) { this.partial = partial; }
+
         public boolean canCreateLoan() {
             return clientEligible && toolAvailable && !hasExistingLoanForTool;
         }
     }
 
+    // CLASES INTERNAS PARA PRÉSTAMOS MÚLTIPLES
+    public static class BatchLoanLine {
+        private Long toolId;
+        private Integer quantity;
+
+        public BatchLoanLine() {}
+
+        public BatchLoanLine(Long toolId, Integer quantity) {
+            this.toolId = toolId;
+            this.quantity = quantity;
+        }
+
+        public Long getToolId() { return toolId; }
+        public void setToolId(Long toolId) { this.toolId = toolId; }
+
+        public Integer getQuantity() { return quantity; }
+        public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    }
+
+    public static class BatchLoanLineResult {
+        private Long toolId;
+        private boolean success;
+        private Long loanId;
+        private String message;
+
+        public static BatchLoanLineResult success(Long toolId, Long loanId) {
+            BatchLoanLineResult result = new BatchLoanLineResult();
+            result.toolId = toolId;
+            result.success = true;
+            result.loanId = loanId;
+            result.message = "Préstamo creado";
+            return result;
+        }
+
+        public static BatchLoanLineResult failure(Long toolId, String message) {
+            BatchLoanLineResult result = new BatchLoanLineResult();
+            result.toolId = toolId;
+            result.success = false;
+            result.message = message;
+            return result;
+        }
+
+        // Getters
+        public Long getToolId() { return toolId; }
+        public boolean isSuccess() { return success; }
+        public Long getLoanId() { return loanId; }
+        public String getMessage() { return message; }
+    }
+
+    public static class BatchReturnLine {
+        private Long loanId;
+        private Boolean damaged;
+        private String damageType;
+        private String notes;
+
+        public BatchReturnLine() {}
+
+        public BatchReturnLine(Long loanId, Boolean damaged, String damageType, String notes) {
+            this.loanId = loanId;
+            this.damaged = damaged;
+            this.damageType = damageType;
+            this.notes = notes;
+        }
+
+        public Long getLoanId() { return loanId; }
+        public void setLoanId(Long loanId) { this.loanId = loanId; }
+
+        public Boolean getDamaged() { return damaged; }
+        public void setDamaged(Boolean damaged) { this.damaged = damaged; }
+
+        public String getDamageType() { return damageType; }
+        public void setDamageType(String damageType) { this.damageType = damageType; }
+
+        public String getNotes() { return notes; }
+        public void setNotes(String notes) { this.notes = notes; }
+    }
+
+    public static class BatchReturnLineResult {
+        private Long loanId;
+        private boolean success;
+        private LoanEntity.LoanStatus status;
+        private String message;
+
+        public static BatchReturnLineResult success(Long loanId, LoanEntity.LoanStatus status) {
+            BatchReturnLineResult result = new BatchReturnLineResult();
+            result.loanId = loanId;
+            result.success = true;
+            result.status = status;
+            result.message = "Devolución registrada";
+            return result;
+        }
+
+        public static BatchReturnLineResult failure(Long loanId, String message) {
+            BatchReturnLineResult result = new BatchReturnLineResult();
+            result.loanId = loanId;
+            result.success = false;
+            result.message = message;
+            return result;
+        }
+
+        // Getters
+        public Long getLoanId() { return loanId; }
+        public boolean isSuccess() { return success; }
+        public LoanEntity.LoanStatus getStatus() { return status; }
+        public String getMessage() { return message; }
+    }
+
     // ============================================================================
 }
@@ -0,0 +1,104 @@
+package com.toolrent.backend.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Métricas de las operaciones críticas (préstamos, devoluciones, multas, reportes y kardex).
+// Cada timer lleva el tag outcome:
+//   success  - la operación terminó bien
+//   rejected - regla de negocio (RuntimeException/IllegalArgumentException lanzadas por los servicios)
+//   error    - falla técnica (base de datos, NullPointerException, etc.)
+// Se exponen en /actuator/prometheus con histograma para calcular percentiles.
+@Service
+public class MetricsService {
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_REJECTED = "rejected";
+    public static final String OUTCOME_ERROR = "error";
+
+    public static final String LOAN_CREATE = "toolrent.loans.create";
+    public static final String LOAN_RETURN = "toolrent.loans.return";
+    public static final String OVERDUE_FINES = "toolrent.fines.overdue.generate";
+    public static final String REPORT = "toolrent.reports.generate";
+    public static final String KARDEX_WRITE = "toolrent.kardex.write";
+    public static final String CATALOG_IMPORT = "toolrent.imports.catalog";
+
+    private static final String STOCK_CONFLICTS = "toolrent.loans.stock.conflicts";
+    private static final String ELIGIBILITY_REJECTIONS = "toolrent.loans.eligibility.rejections";
+
+    private final MeterRegistry meterRegistry;
+
+    public MetricsService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Medir una operación; tags adicionales en pares nombre/valor
+    public <T> T time(String name, Supplier<T> operation, String... tags) {
+        return time(name, operation, result -> OUTCOME_SUCCESS, tags);
+    }
+
+    // Variante para operaciones que informan el fallo en el resultado en vez de lanzar una excepción
+    public <T> T time(String name, Supplier<T> operation, Function<T, String> outcomeOf, String... tags) {
+        long start = System.nanoTime();
+        String outcome = OUTCOME_ERROR;
+        try {
+            T result = operation.get();
+            outcome = outcomeOf.apply(result);
+            return result;
+        } catch (RuntimeException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            timer(name, outcome, tags).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Préstamo rechazado por falta de stock o por unidades reservadas (source: single|batch, reason: stock|reserved)
+    public void stockConflict(String source, String reason) {
+        Counter.builder(STOCK_CONFLICTS)
+                .description("Préstamos rechazados por conflicto de stock")
+                .tag("source", source)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // Préstamo rechazado por el estado del cliente (inactive, overdue, unpaid_fines, loan_limit, duplicate_tool)
+    public void eligibilityRejection(String reason) {
+        Counter.builder(ELIGIBILITY_REJECTIONS)
+                .description("Préstamos rechazados por elegibilidad del cliente")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer timer(String name, String outcome, String... tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+    }
+
+    // Un error es de negocio solo si toda la cadena de causas son excepciones de validación
+    static String outcomeOf(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            boolean business = current.getClass() == RuntimeException.class
+                    || current instanceof IllegalArgumentException
+                    || current instanceof IllegalStateException;
+            if (!business) {
+                return OUTCOME_ERROR;
+            }
+        }
+        return OUTCOME_REJECTED;
+    }
+}
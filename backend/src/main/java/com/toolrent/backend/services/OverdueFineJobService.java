@@ -0,0 +1,344 @@
+package com.toolrent.backend.services;
+
+import com.toolrent.backend.entities.OverdueFineChunkEntity;
+import com.toolrent.backend.entities.OverdueFineRunEntity;
+import com.toolrent.backend.repositories.LoanRepository;
+import com.toolrent.backend.repositories.OverdueFineChunkRepository;
+import com.toolrent.backend.repositories.OverdueFineRunRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Cálculo diario y automático de multas por atraso.
+// Los préstamos atrasados se dividen en tramos de IDs que procesa un pool acotado de workers; cada tramo
+// es una transacción corta (FineService.accrueOverdueFines + su checkpoint en overdue_fine_chunks).
+// Si la aplicación se detiene a mitad, al iniciar se retoma la ejecución del día desde los tramos pendientes.
+@Service
+@Slf4j
+public class OverdueFineJobService implements CommandLineRunner {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private OverdueFineRunRepository runRepository;
+
+    @Autowired
+    private OverdueFineChunkRepository chunkRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private FineService fineService;
+
+    @Autowired
+    private RateService rateService;
+
+    @Autowired
+    private LoanDailyRollupService loanDailyRollupService;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int workers;
+
+    // Un solo coordinador (la ejecución no bloquea a quien la inicia) y un pool acotado para los tramos.
+    // Con la cola llena el coordinador procesa el tramo él mismo, así no se acumulan tramos en memoria.
+    private final ExecutorService coordinator;
+    private final ThreadPoolExecutor workerPool;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Autowired
+    public OverdueFineJobService(PlatformTransactionManager transactionManager,
+                                 @Value("${toolrent.overdue-fines.chunk-size:1000}") int chunkSize,
+                                 @Value("${toolrent.overdue-fines.workers:4}") int workers) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.workers = Math.max(1, workers);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.coordinator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "overdue-fines-coordinator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.workerPool = new ThreadPoolExecutor(this.workers, this.workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.workers * 2),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "overdue-fines-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // IMPLEMENTACIÓN DE CommandLineRunner: retomar la ejecución del día si quedó a medias
+    @Override
+    public void run(String... args) {
+        try {
+            boolean pendingToday = runRepository.findByRunDate(LocalDate.now())
+                    .map(run -> run.getStatus() != OverdueFineRunEntity.RunStatus.COMPLETED)
+                    .orElse(false);
+            if (pendingToday) {
+                log.info("Retomando cálculo de multas por atraso pendiente del día");
+                startRun();
+            }
+        } catch (Exception e) {
+            log.warn("Error revisando ejecuciones pendientes de multas: {}", e.getMessage());
+        }
+    }
+
+    // Ejecución diaria (por defecto 00:15)
+    @Scheduled(cron = "${toolrent.overdue-fines.cron:0 15 0 * * *}")
+    public void scheduledRun() {
+        startRun();
+    }
+
+    // Iniciar (o retomar) la ejecución del día en segundo plano. Retorna el avance actual.
+    public Map<String, Object> startRun() {
+        Map<String, Object> response;
+        if (running.compareAndSet(false, true)) {
+            coordinator.submit(() -> {
+                try {
+                    execute(LocalDate.now());
+                } catch (Exception e) {
+                    log.error("Error en cálculo de multas por atraso: {}", e.getMessage(), e);
+                } finally {
+                    running.set(false);
+                }
+            });
+            response = getProgress();
+            response.put("message", "Cálculo de multas por atraso iniciado");
+            response.put("running", true);
+        } else {
+            response = getProgress();
+            response.put("message", "El cálculo de multas por atraso ya está en curso");
+        }
+        return response;
+    }
+
+    private void execute(LocalDate today) {
+        abandonPreviousRuns(today);
+
+        OverdueFineRunEntity run = prepareRun(today);
+        if (run == null || run.getStatus() == OverdueFineRunEntity.RunStatus.COMPLETED) {
+            return;
+        }
+
+        Set<Integer> completedChunks = new HashSet<>(chunkRepository.findCompletedChunkIndexes(run.getId()));
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        AtomicReference<String> lastError = new AtomicReference<>();
+        AtomicInteger failedChunks = new AtomicInteger();
+
+        for (int chunkIndex = 0; chunkIndex < run.getTotalChunks(); chunkIndex++) {
+            if (completedChunks.contains(chunkIndex)) {
+                continue;
+            }
+            int index = chunkIndex;
+            pending.add(CompletableFuture.runAsync(() -> processChunk(run, index), workerPool)
+                    .exceptionally(error -> {
+                        failedChunks.incrementAndGet();
+                        lastError.set("Tramo " + index + ": " + rootMessage(error));
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+
+        // Los montos de las multas impagas cambiaron: actualizar su total en loan_daily_rollup
+        try {
+            loanDailyRollupService.refreshOpenLateFees();
+        } catch (RuntimeException e) {
+            log.warn("Error actualizando multas por atraso en loan_daily_rollup: {}", e.getMessage());
+        }
+
+        // Totales desde los checkpoints (incluye tramos de intentos anteriores)
+        Object[] summary = chunkRepository.summarizeRun(run.getId()).get(0);
+        run.setFinesCreated(((Number) summary[1]).longValue());
+        run.setAmountsUpdated(((Number) summary[2]).longValue());
+        run.setFinishedAt(LocalDateTime.now());
+        run.setLastError(lastError.get());
+        run.setStatus(failedChunks.get() == 0
+                ? OverdueFineRunEntity.RunStatus.COMPLETED
+                : OverdueFineRunEntity.RunStatus.FAILED);
+        runRepository.save(run);
+
+        log.info("Multas por atraso {}: {} - {} creadas, {} montos recalculados, {} tramo(s) con error", today, run.getStatus(), run.getFinesCreated(), run.getAmountsUpdated(), failedChunks.get());
+    }
+
+    // Ejecuciones de días anteriores que no terminaron: el cálculo de hoy ya cubre sus préstamos
+    private void abandonPreviousRuns(LocalDate today) {
+        List<OverdueFineRunEntity> unfinished = new ArrayList<>(runRepository.findByStatus(OverdueFineRunEntity.RunStatus.RUNNING));
+        unfinished.addAll(runRepository.findByStatus(OverdueFineRunEntity.RunStatus.FAILED));
+        for (OverdueFineRunEntity run : unfinished) {
+            if (run.getRunDate().isBefore(today)) {
+                run.setStatus(OverdueFineRunEntity.RunStatus.ABANDONED);
+                run.setFinishedAt(LocalDateTime.now());
+                runRepository.save(run);
+            }
+        }
+    }
+
+    // Ejecución del día: la existente si quedó pendiente, o una nueva con la tarifa y el rango de IDs actuales
+    private OverdueFineRunEntity prepareRun(LocalDate today) {
+        OverdueFineRunEntity run = runRepository.findByRunDate(today).orElse(null);
+        if (run != null) {
+            if (run.getStatus() != OverdueFineRunEntity.RunStatus.COMPLETED) {
+                run.setStatus(OverdueFineRunEntity.RunStatus.RUNNING);
+                run.setLastError(null);
+                run.setFinishedAt(null);
+                run = runRepository.save(run);
+            }
+            return run;
+        }
+
+        BigDecimal lateFeeRate = rateService.getCurrentLateFeeRate();
+        Object[] range = loanRepository.findOverdueLoanIdRange(today).get(0);
+
+        run = new OverdueFineRunEntity();
+        run.setRunDate(today);
+        run.setLateFeeRate(lateFeeRate);
+        run.setChunkSize(chunkSize);
+        run.setStartedAt(LocalDateTime.now());
+        if (range[0] == null) {
+            // Sin préstamos atrasados
+            run.setFirstLoanId(0L);
+            run.setLastLoanId(0L);
+            run.setTotalChunks(0);
+            run.setStatus(OverdueFineRunEntity.RunStatus.COMPLETED);
+            run.setFinishedAt(LocalDateTime.now());
+        } else {
+            long firstLoanId = ((Number) range[0]).longValue();
+            long lastLoanId = ((Number) range[1]).longValue();
+            run.setFirstLoanId(firstLoanId);
+            run.setLastLoanId(lastLoanId);
+            run.setTotalChunks((int) ((lastLoanId - firstLoanId) / chunkSize + 1));
+            run.setStatus(OverdueFineRunEntity.RunStatus.RUNNING);
+        }
+
+        try {
+            return runRepository.save(run);
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia creó la ejecución del día al mismo tiempo
+            log.warn("La ejecución de multas del {} ya existe: {}", today, e.getMessage());
+            return null;
+        }
+    }
+
+    // Un tramo = una transacción: multas del tramo y su checkpoint se confirman juntos.
+    // El cálculo es idempotente, así que reintentar un tramo (p. ej. tras un deadlock) es seguro.
+    private void processChunk(OverdueFineRunEntity run, int chunkIndex) {
+        long fromLoanId = run.getChunkFromLoanId(chunkIndex);
+        long toLoanId = run.getChunkToLoanId(chunkIndex);
+
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    FineService.OverdueFineAccrual accrual = fineService.accrueOverdueFines(
+                            run.getRunDate(), run.getLateFeeRate(), fromLoanId, toLoanId);
+
+                    OverdueFineChunkEntity chunk = new OverdueFineChunkEntity();
+                    chunk.setRunId(run.getId());
+                    chunk.setChunkIndex(chunkIndex);
+                    chunk.setFromLoanId(fromLoanId);
+                    chunk.setToLoanId(toLoanId);
+                    chunk.setFinesCreated(accrual.getFinesCreated());
+                    chunk.setAmountsUpdated(accrual.getAmountsUpdated());
+                    chunk.setDurationMs((System.nanoTime() - start) / 1_000_000);
+                    chunk.setCompletedAt(LocalDateTime.now());
+                    chunkRepository.save(chunk);
+                });
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("Reintentando tramo {} de multas (intento {}): {}", chunkIndex, attempt, e.getMessage());
+            }
+        }
+    }
+
+    // Avance y rendimiento de la última ejecución
+    public Map<String, Object> getProgress() {
+        Map<String, Object> progress = new HashMap<>();
+        progress.put("running", running.get());
+        progress.put("workers", workers);
+        progress.put("chunkSize", chunkSize);
+
+        OverdueFineRunEntity run = runRepository.findTopByOrderByIdDesc().orElse(null);
+        if (run == null) {
+            progress.put("status", "NEVER_RUN");
+            return progress;
+        }
+
+        Object[] summary = chunkRepository.summarizeRun(run.getId()).get(0);
+        long completedChunks = ((Number) summary[0]).longValue();
+        long finesCreated = ((Number) summary[1]).longValue();
+        long amountsUpdated = ((Number) summary[2]).longValue();
+        long chunkMillis = ((Number) summary[3]).longValue();
+
+        LocalDateTime end = run.getFinishedAt() != null ? run.getFinishedAt() : LocalDateTime.now();
+        double elapsedSeconds = Math.max(0.001, Duration.between(run.getStartedAt(), end).toMillis() / 1000.0);
+
+        progress.put("runId", run.getId());
+        progress.put("runDate", run.getRunDate());
+        progress.put("status", run.getStatus());
+        progress.put("lateFeeRate", run.getLateFeeRate());
+        progress.put("totalChunks", run.getTotalChunks());
+        progress.put("completedChunks", completedChunks);
+        progress.put("percentComplete", run.getTotalChunks() == 0 ? 100.0
+                : Math.round(completedChunks * 1000.0 / run.getTotalChunks()) / 10.0);
+        progress.put("finesCreated", finesCreated);
+        progress.put("amountsUpdated", amountsUpdated);
+        progress.put("startedAt", run.getStartedAt());
+        progress.put("finishedAt", run.getFinishedAt());
+        progress.put("elapsedSeconds", elapsedSeconds);
+        progress.put("chunksPerSecond", completedChunks / elapsedSeconds);
+        progress.put("finesWrittenPerSecond", (finesCreated + amountsUpdated) / elapsedSeconds);
+        progress.put("averageChunkMillis", completedChunks == 0 ? 0 : chunkMillis / completedChunks);
+        progress.put("lastError", run.getLastError());
+        return progress;
+    }
+
+    private String rootMessage(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Los tramos interrumpidos se deshacen y se retoman en el próximo inicio gracias al checkpoint
+        coordinator.shutdownNow();
+        workerPool.shutdownNow();
+    }
+}
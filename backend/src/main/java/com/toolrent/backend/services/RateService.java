@@ -2,89 +2,144 @@ package com.toolrent.backend.services;
 
 import com.toolrent.backend.entities.RateEntity;
 import com.toolrent.backend.repositories.RateRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.TreeSet;
 
 @Service
-public class RateService {
+@Slf4j
+public class RateService implements CommandLineRunner {
+
+    private static final BigDecimal DEFAULT_RENTAL_RATE = BigDecimal.valueOf(5000.0);
+    private static final BigDecimal DEFAULT_LATE_FEE_RATE = BigDecimal.valueOf(2000.0);
+    private static final BigDecimal DEFAULT_REPAIR_RATE = BigDecimal.valueOf(30.0);
 
     @Autowired
     private RateRepository rateRepository;
 
-    // MÉTODOS BÁSICOS PARA OBTENER TARIFAS ACTUALES - VERSIÓN CORREGIDA
+    // Línea de tiempo de tarifas activas por tipo, inmutable. Se reemplaza completa (volatile) después de
+    // cada commit de createRate/updateRate/deactivateRate; las lecturas no van a la base de datos.
+    private volatile Map<RateEntity.RateType, RateTimeline> timelines;
 
-    @Transactional(readOnly = true)
-    public BigDecimal getCurrentRentalRate() {
+    // IMPLEMENTACIÓN DE CommandLineRunner: cargar la línea de tiempo al iniciar
+    @Override
+    public void run(String... args) {
         try {
-            System.out.println("Buscando tarifa de arriendo actual...");
-
-            Optional<RateEntity> rate = rateRepository.findCurrentActiveRateByType(RateEntity.RateType.RENTAL_RATE);
-            if (rate.isPresent()) {
-                System.out.println("Tarifa encontrada: $" + rate.get().getDailyAmount());
-                return rate.get().getDailyAmount();
-            } else {
-                System.out.println("No se encontró tarifa de arriendo, retornando valor por defecto");
-                // Retornar valor por defecto - NO crear aquí para evitar rollback
-                return BigDecimal.valueOf(5000.0);
-            }
-        } catch (Exception e) {
-            System.err.println("Error obteniendo tarifa de arriendo: " + e.getMessage());
-            e.printStackTrace();
-            // Retornar valor por defecto en caso de error
-            return BigDecimal.valueOf(5000.0);
+            reloadTimelines();
+        } catch (RuntimeException e) {
+            // Sin línea de tiempo publicada: la primera consulta de tarifa vuelve a intentar la carga
+            log.warn("No se pudo cargar la línea de tiempo de tarifas al iniciar: {}", e.getMessage());
         }
     }
 
-    @Transactional(readOnly = true)
+    // MÉTODOS BÁSICOS PARA OBTENER TARIFAS ACTUALES
+
+    public BigDecimal getCurrentRentalRate() {
+        return getRateAt(RateEntity.RateType.RENTAL_RATE, LocalDate.now());
+    }
+
     public BigDecimal getCurrentLateFeeRate() {
-        try {
-            System.out.println("Buscando tarifa de multa actual...");
+        return getRateAt(RateEntity.RateType.LATE_FEE_RATE, LocalDate.now());
+    }
 
-            Optional<RateEntity> rate = rateRepository.findCurrentActiveRateByType(RateEntity.RateType.LATE_FEE_RATE);
-            if (rate.isPresent()) {
-                System.out.println("Tarifa de multa encontrada: $" + rate.get().getDailyAmount());
-                return rate.get().getDailyAmount();
-            } else {
-                System.out.println("No se encontró tarifa de multa, retornando valor por defecto");
-                // Retornar valor por defecto - NO crear aquí para evitar rollback
-                return BigDecimal.valueOf(2000.0);
-            }
-        } catch (Exception e) {
-            System.err.println("Error obteniendo tarifa de multa: " + e.getMessage());
-            e.printStackTrace();
-            return BigDecimal.valueOf(2000.0);
+    public BigDecimal getCurrentRepairRate() {
+        return getRateAt(RateEntity.RateType.REPAIR_RATE, LocalDate.now());
+    }
+
+    // Tarifa vigente en una fecha (también fechas pasadas, para multas calculadas con fecha retroactiva).
+    // Si no hay tarifa para esa fecha se retorna el valor por defecto del tipo.
+    public BigDecimal getRateAt(RateEntity.RateType type, LocalDate date) {
+        Map<RateEntity.RateType, RateTimeline> current = timelines;
+        if (current == null) {
+            current = reloadTimelines();
         }
+        BigDecimal amount = current.get(type).amountAt(date);
+        return amount != null ? amount : getDefaultRate(type);
     }
 
-    @Transactional(readOnly = true)
-    public BigDecimal getCurrentRepairRate() {
-        try {
-            System.out.println("Buscando tarifa de reparación actual...");
+    // Valores por defecto cuando no hay tarifa configurada - NO crear aquí para evitar rollback
+    private BigDecimal getDefaultRate(RateEntity.RateType type) {
+        switch (type) {
+            case RENTAL_RATE:
+                return DEFAULT_RENTAL_RATE;
+            case LATE_FEE_RATE:
+                return DEFAULT_LATE_FEE_RATE;
+            default:
+                return DEFAULT_REPAIR_RATE; // 30% como valor decimal
+        }
+    }
 
-            Optional<RateEntity> rate = rateRepository.findCurrentActiveRateByType(RateEntity.RateType.REPAIR_RATE);
-            if (rate.isPresent()) {
-                System.out.println("Tarifa de reparación encontrada: " + rate.get().getDailyAmount());
-                return rate.get().getDailyAmount();
-            } else {
-                System.out.println("No se encontró tarifa de reparación, retornando valor por defecto");
-                // Retornar valor por defecto - NO crear aquí para evitar rollback
-                return BigDecimal.valueOf(30.0); // 30% como valor decimal
+    // Reconstruir la línea de tiempo desde las tarifas activas. synchronized: si dos commits recargan
+    // a la vez, la última carga en publicarse es también la que leyó el estado más reciente.
+    // Si la carga falla no se publica nada: se mantiene la línea de tiempo anterior y, si no hay ninguna,
+    // se propaga el error para no calcular con los valores por defecto (la próxima consulta reintenta).
+    public synchronized Map<RateEntity.RateType, RateTimeline> reloadTimelines() {
+        Map<RateEntity.RateType, List<RateEntity>> ratesByType = new EnumMap<>(RateEntity.RateType.class);
+        for (RateEntity.RateType type : RateEntity.RateType.values()) {
+            ratesByType.put(type, new ArrayList<>());
+        }
+        try {
+            for (RateEntity rate : rateRepository.findByActive(true)) {
+                ratesByType.get(rate.getType()).add(rate);
             }
         } catch (Exception e) {
-            System.err.println("Error obteniendo tarifa de reparación: " + e.getMessage());
-            e.printStackTrace();
-            return BigDecimal.valueOf(30.0);
+            Map<RateEntity.RateType, RateTimeline> previous = timelines;
+            if (previous == null) {
+                throw new RuntimeException("Error cargando tarifas: " + e.getMessage(), e);
+            }
+            log.warn("Error cargando tarifas, se mantiene la línea de tiempo anterior: {}", e.getMessage());
+            return previous;
         }
+
+        Map<RateEntity.RateType, RateTimeline> loaded = new EnumMap<>(RateEntity.RateType.class);
+        for (Map.Entry<RateEntity.RateType, List<RateEntity>> entry : ratesByType.entrySet()) {
+            loaded.put(entry.getKey(), RateTimeline.build(entry.getValue()));
+        }
+        Map<RateEntity.RateType, RateTimeline> published = Collections.unmodifiableMap(loaded);
+        timelines = published;
+        return published;
     }
 
+    // Recargar cuando la transacción actual haga commit (si no hay transacción, recargar ahora)
+    private void reloadTimelinesAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshTimelines();
+                }
+            });
+        } else {
+            refreshTimelines();
+        }
+    }
 
+    // La línea de tiempo anterior ya no refleja el cambio: se descarta antes de recargar para que, si la
+    // carga falla, la próxima consulta de tarifa vuelva a intentarla en vez de usar datos obsoletos
+    private synchronized void refreshTimelines() {
+        timelines = null;
+        try {
+            reloadTimelines();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo recargar la línea de tiempo de tarifas: {}", e.getMessage());
+        }
+    }
 
     // MÉTODOS CRUD BÁSICOS
 
@@ -122,9 +177,11 @@ public class RateService {
                 rate.setActive(true);
             }
 
-            return rateRepository.save(rate);
+            RateEntity savedRate = rateRepository.save(rate);
+            reloadTimelinesAfterCommit();
+            return savedRate;
         } catch (Exception e) {
-            System.err.println("Error creando tarifa: " + e.getMessage());
+            log.warn("Error creando tarifa: {}", e.getMessage());
             throw new RuntimeException("Error al crear tarifa: " + e.getMessage());
         }
     }
@@ -147,9 +204,11 @@ public class RateService {
                 rate.setActive(rateDetails.getActive());
             }
 
-            return rateRepository.save(rate);
+            RateEntity savedRate = rateRepository.save(rate);
+            reloadTimelinesAfterCommit();
+            return savedRate;
         } catch (Exception e) {
-            System.err.println("Error actualizando tarifa: " + e.getMessage());
+            log.warn("Error actualizando tarifa: {}", e.getMessage());
             throw new RuntimeException("Error al actualizar tarifa: " + e.getMessage());
         }
     }
@@ -159,9 +218,11 @@ public class RateService {
         try {
             RateEntity rate = getRateById(id);
             rate.setActive(false);
-            return rateRepository.save(rate);
+            RateEntity savedRate = rateRepository.save(rate);
+            reloadTimelinesAfterCommit();
+            return savedRate;
         } catch (Exception e) {
-            System.err.println("Error desactivando tarifa: " + e.getMessage());
+            log.warn("Error desactivando tarifa: {}", e.getMessage());
             throw new RuntimeException("Error al desactivar tarifa: " + e.getMessage());
         }
     }
@@ -183,7 +244,7 @@ public class RateService {
             // Dividir entre 100 para convertir a decimal
             return replacementValue.multiply(repairRate.divide(new BigDecimal("100")));
         } catch (Exception e) {
-            System.err.println("Error calculando costo de reparación: " + e.getMessage());
+            log.warn("Error calculando costo de reparación: {}", e.getMessage());
             throw new RuntimeException("Error al calcular costo de reparación: " + e.getMessage());
         }
     }
@@ -195,5 +256,69 @@ public class RateService {
     public List<RateEntity> getRateHistory(RateEntity.RateType type) {
         return rateRepository.findByType(type);
     }
-}
 
+    // Tarifas de un tipo como tramos consecutivos: starts[i] es el primer día (epochDay) del tramo i y
+    // amounts[i] su monto, o null si en ese tramo no hay tarifa vigente. Buscar una fecha es una
+    // búsqueda binaria sobre arreglos, sin crear objetos.
+    public static final class RateTimeline {
+        private final long[] starts;
+        private final BigDecimal[] amounts;
+
+        private RateTimeline(long[] starts, BigDecimal[] amounts) {
+            this.starts = starts;
+            this.amounts = amounts;
+        }
+
+        public BigDecimal amountAt(LocalDate date) {
+            int index = Arrays.binarySearch(starts, date.toEpochDay());
+            if (index < 0) {
+                // Tramo que empieza antes de la fecha (-1 si la fecha es anterior a todos)
+                index = -index - 2;
+            }
+            return index >= 0 ? amounts[index] : null;
+        }
+
+        // Si dos tarifas se superponen gana la de effectiveFrom más reciente (y con empate, la de mayor ID),
+        // igual que una tarifa nueva reemplaza a la anterior
+        static RateTimeline build(List<RateEntity> rates) {
+            TreeSet<Long> boundaries = new TreeSet<>();
+            for (RateEntity rate : rates) {
+                boundaries.add(rate.getEffectiveFrom().toEpochDay());
+                if (rate.getEffectiveTo() != null) {
+                    // effectiveTo es inclusivo: el tramo siguiente empieza un día después
+                    boundaries.add(rate.getEffectiveTo().toEpochDay() + 1);
+                }
+            }
+
+            List<RateEntity> byPriority = new ArrayList<>(rates);
+            byPriority.sort(Comparator.comparing(RateEntity::getEffectiveFrom)
+                    .thenComparing(RateEntity::getId, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .reversed());
+
+            List<Long> starts = new ArrayList<>();
+            List<BigDecimal> amounts = new ArrayList<>();
+            for (Long day : boundaries) {
+                BigDecimal amount = null;
+                for (RateEntity rate : byPriority) {
+                    if (rate.getEffectiveFrom().toEpochDay() <= day &&
+                            (rate.getEffectiveTo() == null || rate.getEffectiveTo().toEpochDay() >= day)) {
+                        amount = rate.getDailyAmount();
+                        break;
+                    }
+                }
+                // Tramos consecutivos con el mismo monto se unen
+                if (!amounts.isEmpty() && java.util.Objects.equals(amounts.get(amounts.size() - 1), amount)) {
+                    continue;
+                }
+                starts.add(day);
+                amounts.add(amount);
+            }
+
+            long[] startArray = new long[starts.size()];
+            for (int i = 0; i < startArray.length; i++) {
+                startArray[i] = starts.get(i);
+            }
+            return new RateTimeline(startArray, amounts.toArray(new BigDecimal[0]));
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.toolrent.backend.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Exportación de reportes fila a fila (CSV o NDJSON) directo desde la base de datos.
+// La consulta se lee con un cursor de solo avance (fetch size, transacción de solo lectura) por JDBC,
+// sin contexto de persistencia, y cada fila se escribe al OutputStream de la respuesta apenas llega:
+// la memoria usada no depende de cuántos préstamos o movimientos se exporten.
+@Service
+@Slf4j
+public class ReportExportService {
+
+    public static final int FETCH_SIZE = 1000;
+
+    public enum Dataset {
+        LOANS("loans"),
+        ACTIVE_LOANS("active-loans"),
+        KARDEX("kardex");
+
+        private final String path;
+
+        Dataset(String path) {
+            this.path = path;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public static Dataset fromPath(String value) {
+            for (Dataset dataset : values()) {
+                if (dataset.path.equalsIgnoreCase(value)) {
+                    return dataset;
+                }
+            }
+            throw new IllegalArgumentException("Reporte no exportable: " + value + " (loans, active-loans, kardex)");
+        }
+    }
+
+    public enum Format {
+        CSV("text/csv;charset=UTF-8", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format fromParam(String value) {
+            try {
+                return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("Formato de exportación inválido: " + value + " (csv, ndjson)");
+            }
+        }
+    }
+
+    private static final String LOAN_COLUMNS =
+            "SELECT l.id, l.loan_date, l.agreed_return_date, l.actual_return_date, l.status, l.quantity, l.daily_rate, " +
+            "c.id AS client_id, c.name AS client_name, c.rut AS client_rut, " +
+            "t.id AS tool_id, t.name AS tool_name, cat.name AS category_name, " +
+            "CASE WHEN l.actual_return_date IS NULL AND l.agreed_return_date < CAST(? AS date) " +
+            "THEN CAST(? AS date) - l.agreed_return_date ELSE 0 END AS days_overdue " +
+            "FROM loans l JOIN clients c ON c.id = l.client_id JOIN tools t ON t.id = l.tool_id " +
+            "LEFT JOIN categories cat ON cat.id = t.category_id WHERE 1 = 1";
+
+    private static final String KARDEX_COLUMNS =
+            "SELECT k.id, k.created_at, k.type, k.tool_id, t.name AS tool_name, k.quantity, " +
+            "k.stock_before, k.stock_after, k.related_loan_id, k.description " +
+            "FROM kardex_movements k JOIN tools t ON t.id = k.tool_id WHERE 1 = 1";
+
+    // Columnas numéricas: en NDJSON van como número, el resto como texto
+    private static final List<String> NUMERIC_COLUMNS = List.of("id", "quantity", "daily_rate", "client_id",
+            "tool_id", "days_overdue", "stock_before", "stock_after", "related_loan_id");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MetricsService metricsService;
+
+    @Autowired
+    public ReportExportService(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        // PostgreSQL solo usa cursor (respeta el fetch size) con autocommit desactivado: dentro de una transacción
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    // Escribe el reporte completo en out; retorna la cantidad de filas exportadas
+    public long export(Dataset dataset, Format format, LocalDate startDate, LocalDate endDate, OutputStream out) {
+        return metricsService.time(MetricsService.REPORT, () -> {
+            List<Object> params = new ArrayList<>();
+            String sql = buildQuery(dataset, startDate, endDate, params);
+
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+            AtomicLong rows = new AtomicLong();
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                    try {
+                        if (rows.get() == 0) {
+                            rowWriter.header(columnNames(rs));
+                        }
+                        rowWriter.row(rs);
+                        rows.incrementAndGet();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, params.toArray()));
+                if (rows.get() == 0 && format == Format.CSV) {
+                    rowWriter.header(emptyHeader(dataset));
+                }
+                rowWriter.finish();
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            log.debug("Exportación {} ({}): {} filas", dataset.getPath(), format.getExtension(), rows.get());
+            return rows.get();
+        }, "report", "export_" + dataset.name().toLowerCase(Locale.ROOT));
+    }
+
+    private String buildQuery(Dataset dataset, LocalDate startDate, LocalDate endDate, List<Object> params) {
+        StringBuilder sql = new StringBuilder();
+        if (dataset == Dataset.KARDEX) {
+            sql.append(KARDEX_COLUMNS);
+            if (startDate != null) {
+                sql.append(" AND k.created_at >= ?");
+                params.add(Date.valueOf(startDate));
+            }
+            if (endDate != null) {
+                sql.append(" AND k.created_at < ?");
+                params.add(Date.valueOf(endDate.plusDays(1)));
+            }
+            return sql.append(" ORDER BY k.created_at, k.id").toString();
+        }
+
+        Date today = Date.valueOf(LocalDate.now());
+        params.add(today);
+        params.add(today);
+        sql.append(LOAN_COLUMNS);
+        if (dataset == Dataset.ACTIVE_LOANS) {
+            sql.append(" AND l.actual_return_date IS NULL");
+        }
+        if (startDate != null) {
+            sql.append(" AND l.loan_date >= ?");
+            params.add(Date.valueOf(startDate));
+        }
+        if (endDate != null) {
+            sql.append(" AND l.loan_date <= ?");
+            params.add(Date.valueOf(endDate));
+        }
+        return sql.append(" ORDER BY l.loan_date, l.id").toString();
+    }
+
+    private static List<String> columnNames(ResultSet rs) throws SQLException {
+        int count = rs.getMetaData().getColumnCount();
+        List<String> names = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            names.add(rs.getMetaData().getColumnLabel(i));
+        }
+        return names;
+    }
+
+    // Sin filas no hay metadatos que leer: cabecera fija para que el CSV vacío siga siendo válido
+    private static List<String> emptyHeader(Dataset dataset) {
+        if (dataset == Dataset.KARDEX) {
+            return List.of("id", "created_at", "type", "tool_id", "tool_name", "quantity",
+                    "stock_before", "stock_after", "related_loan_id", "description");
+        }
+        return List.of("id", "loan_date", "agreed_return_date", "actual_return_date", "status", "quantity",
+                "daily_rate", "client_id", "client_name", "client_rut", "tool_id", "tool_name", "category_name",
+                "days_overdue");
+    }
+
+    // ========== FORMATOS ==========
+
+    private interface RowWriter {
+        void header(List<String> columns) throws IOException;
+
+        void row(ResultSet rs) throws IOException, SQLException;
+
+        default void finish() throws IOException {
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+        private int columnCount;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void header(List<String> columns) throws IOException {
+            columnCount = columns.size();
+            writer.write(String.join(",", columns));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void row(ResultSet rs) throws IOException, SQLException {
+            for (int i = 1; i <= columnCount; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                String value = rs.getString(i);
+                if (value != null) {
+                    writer.write(escape(value));
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        private static String escape(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private List<String> columns;
+
+        NdjsonRowWriter(Writer writer) {
+            try {
+                this.generator = objectMapper.getFactory().createGenerator(writer)
+                        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                        .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void header(List<String> columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public void row(ResultSet rs) throws IOException, SQLException {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.size(); i++) {
+                String name = columns.get(i);
+                String value = rs.getString(i + 1);
+                generator.writeFieldName(name);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (NUMERIC_COLUMNS.contains(name)) {
+                    generator.writeNumber(value);
+                } else {
+                    generator.writeString(value);
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+}
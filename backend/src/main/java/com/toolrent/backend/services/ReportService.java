@@ -1,8 +1,6 @@
 package com.toolrent.backend.services;
 
 import com.toolrent.backend.dto.*;
-import com.toolrent.backend.entities.LoanEntity;
-import com.toolrent.backend.entities.ClientEntity;
 import com.toolrent.backend.repositories.LoanRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -15,39 +13,40 @@ import java.util.stream.Collectors;
 @Service
 public class ReportService {
 
+    // Extremos abiertos del período como fechas centinela: la consulta siempre usa BETWEEN sobre loan_date
+    private static final LocalDate MIN_LOAN_DATE = LocalDate.of(1970, 1, 1);
+    private static final LocalDate MAX_LOAN_DATE = LocalDate.of(9999, 12, 31);
+
     @Autowired
     private LoanRepository loanRepository;
 
     @Autowired
     private RateService rateService;
 
+    @Autowired
+    private MetricsService metricsService;
+
+    @Autowired
+    private LoanDailyRollupService loanDailyRollupService;
+
     /**
      * RF6.1: Generar reporte de préstamos activos
      */
     public ActiveLoansReportDTO getActiveLoansReport(LocalDate startDate, LocalDate endDate) {
-        List<LoanEntity> loans = getLoansInPeriod(startDate, endDate);
+        return metricsService.time(MetricsService.REPORT,
+                () -> buildActiveLoansReport(startDate, endDate), "report", "active_loans");
+    }
 
-        // Filtrar solo préstamos activos (no devueltos)
-        List<LoanEntity> activeLoans = loans.stream()
-                .filter(loan -> loan.getActualReturnDate() == null)
-                .collect(Collectors.toList());
+    private ActiveLoansReportDTO buildActiveLoansReport(LocalDate startDate, LocalDate endDate) {
+        LocalDate today = LocalDate.now();
 
-        List<ActiveLoansReportDTO.ActiveLoanDTO> activeLoanDTOs = activeLoans.stream()
+        // Préstamos no devueltos ya proyectados a las columnas del reporte (sin cargar entidades)
+        List<ActiveLoansReportDTO.ActiveLoanDTO> activeLoanDTOs = loanRepository
+                .findActiveLoanRows(lowerBound(startDate), upperBound(endDate), today).stream()
                 .map(this::mapToActiveLoanDTO)
                 .collect(Collectors.toList());
 
-        // Calcular resumen
-        int total = activeLoanDTOs.size();
-        int active = (int) activeLoanDTOs.stream().filter(loan -> !loan.isOverdue()).count();
-        int overdue = (int) activeLoanDTOs.stream().filter(ActiveLoansReportDTO.ActiveLoanDTO::isOverdue).count();
-        double avgDaysOverdue = activeLoanDTOs.stream()
-                .filter(ActiveLoansReportDTO.ActiveLoanDTO::isOverdue)
-                .mapToInt(ActiveLoansReportDTO.ActiveLoanDTO::getDaysOverdue)
-                .average()
-                .orElse(0.0);
-
-        ActiveLoansReportDTO.ActiveLoansSummaryDTO summary =
-                new ActiveLoansReportDTO.ActiveLoansSummaryDTO(total, active, overdue, avgDaysOverdue);
+        ActiveLoansReportDTO.ActiveLoansSummaryDTO summary = summarizeActiveLoans(startDate, endDate, today);
 
         // Información del período
         Integer totalDays = (startDate != null && endDate != null) ?
@@ -58,29 +57,48 @@ public class ReportService {
         return new ActiveLoansReportDTO(activeLoanDTOs, summary, period);
     }
 
+    // Conteos del reporte de préstamos activos calculados por la base de datos (una sola fila)
+    private ActiveLoansReportDTO.ActiveLoansSummaryDTO summarizeActiveLoans(LocalDate startDate, LocalDate endDate,
+                                                                           LocalDate today) {
+        Object[] row = loanRepository.summarizeActiveLoans(lowerBound(startDate), upperBound(endDate), today).get(0);
+        int total = toInt(row[0]);
+        int overdue = toInt(row[1]);
+        return new ActiveLoansReportDTO.ActiveLoansSummaryDTO(total, total - overdue, overdue, toDouble(row[2]));
+    }
+
     /**
      * RF6.2: Generar reporte de clientes con atrasos
      */
     public OverdueClientsReportDTO getOverdueClientsReport(LocalDate startDate, LocalDate endDate) {
-        List<LoanEntity> loans = getLoansInPeriod(startDate, endDate);
-
-        // Filtrar préstamos atrasados
-        List<LoanEntity> overdueLoans = loans.stream()
-                .filter(loan -> loan.getActualReturnDate() == null && isLoanOverdue(loan))
-                .collect(Collectors.toList());
+        return metricsService.time(MetricsService.REPORT,
+                () -> buildOverdueClientsReport(startDate, endDate), "report", "overdue_clients");
+    }
 
-        // Agrupar por cliente
-        Map<ClientEntity, List<LoanEntity>> loansByClient = overdueLoans.stream()
-                .collect(Collectors.groupingBy(LoanEntity::getClient));
+    private OverdueClientsReportDTO buildOverdueClientsReport(LocalDate startDate, LocalDate endDate) {
+        LocalDate today = LocalDate.now();
+        double lateFeeRate = rateService.getCurrentLateFeeRate().doubleValue();
 
-        List<OverdueClientsReportDTO.OverdueClientDTO> overdueClients = loansByClient.entrySet().stream()
-                .map(entry -> mapToOverdueClientDTO(entry.getKey(), entry.getValue()))
-                .sorted((a, b) -> Integer.compare(b.getMaxDaysOverdue(), a.getMaxDaysOverdue()))
-                .collect(Collectors.toList());
+        // Una fila por cliente, ya ordenada por máximo de días de atraso
+        List<OverdueClientsReportDTO.OverdueClientDTO> overdueClients =
+                aggregateOverdueClients(startDate, endDate, today, lateFeeRate);
+
+        // Detalle de préstamos atrasados, asociado a cada cliente
+        Map<Long, List<OverdueClientsReportDTO.OverdueLoanDTO>> loansByClient = new HashMap<>();
+        for (Object[] row : loanRepository.findOverdueLoanRows(lowerBound(startDate), upperBound(endDate), today)) {
+            int daysOverdue = toInt(row[3]);
+            String toolName = row[2] != null ? (String) row[2] : "Herramienta desconocida";
+            loansByClient.computeIfAbsent(toLong(row[0]), id -> new ArrayList<>())
+                    .add(new OverdueClientsReportDTO.OverdueLoanDTO(toLong(row[1]), toolName,
+                            daysOverdue, daysOverdue * lateFeeRate));
+        }
+        overdueClients.forEach(client ->
+                client.setOverdueLoans(loansByClient.getOrDefault(client.getId(), new ArrayList<>())));
 
         // Calcular resumen
         int totalClients = overdueClients.size();
-        int totalOverdueLoans = overdueLoans.size();
+        int totalOverdueLoans = overdueClients.stream()
+                .mapToInt(OverdueClientsReportDTO.OverdueClientDTO::getLoansCount)
+                .sum();
         double totalOverdueAmount = overdueClients.stream()
                 .mapToDouble(OverdueClientsReportDTO.OverdueClientDTO::getTotalOverdueAmount)
                 .sum();
@@ -95,26 +113,46 @@ public class ReportService {
         return new OverdueClientsReportDTO(overdueClients, summary);
     }
 
+    // Agregados por cliente (sin el detalle de préstamos); el monto es días de atraso acumulados * tarifa de multa
+    private List<OverdueClientsReportDTO.OverdueClientDTO> aggregateOverdueClients(LocalDate startDate, LocalDate endDate,
+                                                                                  LocalDate today, double lateFeeRate) {
+        return loanRepository.aggregateOverdueClients(lowerBound(startDate), upperBound(endDate), today).stream()
+                .map(row -> new OverdueClientsReportDTO.OverdueClientDTO(
+                        toLong(row[0]),
+                        (String) row[1],
+                        (String) row[2],
+                        (String) row[3],
+                        toInt(row[4]),
+                        toInt(row[5]),
+                        toDouble(row[6]),
+                        toDouble(row[7]) * lateFeeRate,
+                        new ArrayList<>()))
+                .collect(Collectors.toList());
+    }
+
     /**
      * RF6.3: Generar reporte de herramientas más prestadas
      */
     public PopularToolsReportDTO getPopularToolsReport(LocalDate startDate, LocalDate endDate, int limit) {
-        List<LoanEntity> loans = getLoansInPeriod(startDate, endDate);
+        return metricsService.time(MetricsService.REPORT,
+                () -> buildPopularToolsReport(startDate, endDate, limit), "report", "popular_tools");
+    }
 
-        // Agrupar por herramienta y calcular estadísticas
-        Map<String, List<LoanEntity>> loansByTool = loans.stream()
-                .filter(loan -> loan.getTool() != null)
-                .collect(Collectors.groupingBy(loan -> loan.getTool().getName()));
+    private PopularToolsReportDTO buildPopularToolsReport(LocalDate startDate, LocalDate endDate, int limit) {
+        // Una fila por herramienta desde loan_daily_rollup (días cerrados) y los préstamos de hoy;
+        // los totales del período vienen en cada fila. Se pide al menos una fila para obtener esos totales
+        // aunque limit sea 0.
+        List<Object[]> rows = loanDailyRollupService.aggregatePopularTools(lowerBound(startDate), upperBound(endDate),
+                Math.max(limit, 1));
 
-        List<PopularToolsReportDTO.PopularToolDTO> popularTools = loansByTool.entrySet().stream()
-                .map(entry -> mapToPopularToolDTO(entry.getKey(), entry.getValue()))
-                .sorted((a, b) -> Integer.compare(b.getTotalLoans(), a.getTotalLoans()))
-                .limit(limit)
+        List<PopularToolsReportDTO.PopularToolDTO> popularTools = rows.stream()
+                .limit(Math.max(limit, 0))
+                .map(this::mapToPopularToolDTO)
                 .collect(Collectors.toList());
 
         // Calcular resumen
-        int totalToolsAnalyzed = loansByTool.size();
-        int totalLoansAnalyzed = loans.size();
+        int totalToolsAnalyzed = rows.isEmpty() ? 0 : toInt(rows.get(0)[7]);
+        int totalLoansAnalyzed = rows.isEmpty() ? 0 : toInt(rows.get(0)[8]);
         PopularToolsReportDTO.MostPopularToolDTO mostPopularTool = popularTools.isEmpty() ? null :
                 new PopularToolsReportDTO.MostPopularToolDTO(
                         popularTools.get(0).getId(),
@@ -135,14 +173,43 @@ public class ReportService {
         return new PopularToolsReportDTO(popularTools, summary, period);
     }
 
+    /**
+     * Serie diaria de préstamos, devoluciones e ingresos (dashboards de rangos largos)
+     */
+    public List<DailyLoanStatsDTO> getDailyStats(LocalDate startDate, LocalDate endDate) {
+        return metricsService.time(MetricsService.REPORT,
+                () -> buildDailyStats(startDate, endDate), "report", "daily_stats");
+    }
+
+    private List<DailyLoanStatsDTO> buildDailyStats(LocalDate startDate, LocalDate endDate) {
+        return loanDailyRollupService.findDailyTotals(lowerBound(startDate), upperBound(endDate)).stream()
+                .map(row -> new DailyLoanStatsDTO(
+                        toLocalDate(row[0]),
+                        toInt(row[1]),
+                        toInt(row[2]),
+                        toInt(row[3]),
+                        toInt(row[4]),
+                        toDouble(row[5]),
+                        toDouble(row[6]),
+                        LoanDailyRollupService.estimateDistinct(toInt(row[7]))))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Generar resumen general de reportes
      */
     public ReportSummaryDTO getGeneralSummary(LocalDate startDate, LocalDate endDate) {
-        // Obtener datos de todos los reportes
-        ActiveLoansReportDTO activeLoansReport = getActiveLoansReport(startDate, endDate);
-        OverdueClientsReportDTO overdueClientsReport = getOverdueClientsReport(startDate, endDate);
-        PopularToolsReportDTO popularToolsReport = getPopularToolsReport(startDate, endDate, 5);
+        return metricsService.time(MetricsService.REPORT,
+                () -> buildGeneralSummary(startDate, endDate), "report", "summary");
+    }
+
+    private ReportSummaryDTO buildGeneralSummary(LocalDate startDate, LocalDate endDate) {
+        // Solo agregados: no hace falta proyectar préstamos individuales para el resumen
+        LocalDate today = LocalDate.now();
+        ActiveLoansReportDTO.ActiveLoansSummaryDTO activeLoans = summarizeActiveLoans(startDate, endDate, today);
+        List<OverdueClientsReportDTO.OverdueClientDTO> overdueClients = aggregateOverdueClients(startDate, endDate,
+                today, rateService.getCurrentLateFeeRate().doubleValue());
+        PopularToolsReportDTO popularToolsReport = buildPopularToolsReport(startDate, endDate, 5);
 
         // Construir período
         boolean isCustomRange = (startDate != null && endDate != null);
@@ -152,15 +219,17 @@ public class ReportService {
         // Resúmenes simplificados
         ReportSummaryDTO.ActiveLoansSummaryDTO activeLoansSum =
                 new ReportSummaryDTO.ActiveLoansSummaryDTO(
-                        activeLoansReport.getSummary().getTotal(),
-                        activeLoansReport.getSummary().getActive(),
-                        activeLoansReport.getSummary().getOverdue()
+                        activeLoans.getTotal(),
+                        activeLoans.getActive(),
+                        activeLoans.getOverdue()
                 );
 
         ReportSummaryDTO.OverdueClientsSummaryDTO overdueClientsSum =
                 new ReportSummaryDTO.OverdueClientsSummaryDTO(
-                        overdueClientsReport.getSummary().getTotalClients(),
-                        overdueClientsReport.getSummary().getTotalOverdueAmount()
+                        overdueClients.size(),
+                        overdueClients.stream()
+                                .mapToDouble(OverdueClientsReportDTO.OverdueClientDTO::getTotalOverdueAmount)
+                                .sum()
                 );
 
         ReportSummaryDTO.MostPopularToolDTO mostPopularTool = null;
@@ -174,13 +243,13 @@ public class ReportService {
                 new ReportSummaryDTO.PopularToolsSummaryDTO(mostPopularTool);
 
         // Alertas
-        int criticalOverdue = (int) overdueClientsReport.getClients().stream()
+        int criticalOverdue = (int) overdueClients.stream()
                 .filter(client -> client.getMaxDaysOverdue() > 7)
                 .count();
         int highDemandTools = (int) popularToolsReport.getTools().stream()
                 .filter(tool -> tool.getTotalLoans() > 20)
                 .count();
-        int riskyClients = (int) overdueClientsReport.getClients().stream()
+        int riskyClients = (int) overdueClients.stream()
                 .filter(client -> client.getLoansCount() > 1)
                 .count();
 
@@ -192,137 +261,80 @@ public class ReportService {
 
     // Métodos auxiliares privados
 
-    private List<LoanEntity> getLoansInPeriod(LocalDate startDate, LocalDate endDate) {
-        if (startDate != null && endDate != null) {
-            return loanRepository.findByLoanDateBetween(startDate, endDate);
-        } else if (startDate != null) {
-            // Si solo hay fecha de inicio, obtener todos y filtrar en el servicio
-            return loanRepository.findAll().stream()
-                    .filter(loan -> !loan.getLoanDate().isBefore(startDate))
-                    .collect(Collectors.toList());
-        } else if (endDate != null) {
-            // Si solo hay fecha de fin, obtener todos y filtrar en el servicio
-            return loanRepository.findAll().stream()
-                    .filter(loan -> !loan.getLoanDate().isAfter(endDate))
-                    .collect(Collectors.toList());
-        } else {
-            return loanRepository.findAll();
-        }
-    }
-
-    private boolean isLoanOverdue(LoanEntity loan) {
-        return loan.getAgreedReturnDate() != null &&
-               loan.getAgreedReturnDate().isBefore(LocalDate.now());
+    private LocalDate lowerBound(LocalDate startDate) {
+        return startDate != null ? startDate : MIN_LOAN_DATE;
     }
 
-    private int calculateDaysOverdue(LoanEntity loan) {
-        if (!isLoanOverdue(loan)) return 0;
-        return (int) ChronoUnit.DAYS.between(loan.getAgreedReturnDate(), LocalDate.now());
+    private LocalDate upperBound(LocalDate endDate) {
+        return endDate != null ? endDate : MAX_LOAN_DATE;
     }
 
-    private ActiveLoansReportDTO.ActiveLoanDTO mapToActiveLoanDTO(LoanEntity loan) {
-        boolean overdue = isLoanOverdue(loan);
-        int daysOverdue = calculateDaysOverdue(loan);
+    // Fila de findActiveLoanRows: id, cliente, herramienta, categoría, cantidad, fecha préstamo,
+    // fecha acordada, días de atraso, notas
+    private ActiveLoansReportDTO.ActiveLoanDTO mapToActiveLoanDTO(Object[] row) {
+        int daysOverdue = toInt(row[7]);
+        boolean overdue = daysOverdue > 0;
         String status = overdue ? "OVERDUE" : "ACTIVE";
 
-        String clientName = loan.getClient() != null ?
-                loan.getClient().getName() : "Cliente desconocido";
-        String toolName = loan.getTool() != null ? loan.getTool().getName() : "Herramienta desconocida";
-        String categoryName = (loan.getTool() != null && loan.getTool().getCategory() != null) ?
-                loan.getTool().getCategory().getName() : "Categoría desconocida";
+        String clientName = row[1] != null ? (String) row[1] : "Cliente desconocido";
+        String toolName = row[2] != null ? (String) row[2] : "Herramienta desconocida";
+        String categoryName = row[3] != null ? (String) row[3] : "Categoría desconocida";
 
         return new ActiveLoansReportDTO.ActiveLoanDTO(
-                loan.getId(),
+                toLong(row[0]),
                 clientName,
                 toolName,
                 categoryName,
-                loan.getQuantity(),
-                loan.getLoanDate(),
-                loan.getAgreedReturnDate(),
+                row[4] != null ? toInt(row[4]) : null,
+                toLocalDate(row[5]),
+                toLocalDate(row[6]),
                 status,
                 overdue,
                 daysOverdue,
-                loan.getNotes()
-        );
-    }
-
-    private OverdueClientsReportDTO.OverdueClientDTO mapToOverdueClientDTO(ClientEntity client, List<LoanEntity> overdueLoans) {
-        String clientName = client.getName();
-
-        // Obtener tarifa actual de multas del sistema
-        double lateFeeRate = rateService.getCurrentLateFeeRate().doubleValue();
-
-        List<OverdueClientsReportDTO.OverdueLoanDTO> overdueLoanDTOs = overdueLoans.stream()
-                .map(loan -> {
-                    int daysOverdue = calculateDaysOverdue(loan);
-                    double fineAmount = daysOverdue * lateFeeRate;
-                    String toolName = loan.getTool() != null ? loan.getTool().getName() : "Herramienta desconocida";
-                    return new OverdueClientsReportDTO.OverdueLoanDTO(loan.getId(), toolName, daysOverdue, fineAmount);
-                })
-                .collect(Collectors.toList());
-
-        int loansCount = overdueLoans.size();
-        int maxDaysOverdue = overdueLoanDTOs.stream()
-                .mapToInt(OverdueClientsReportDTO.OverdueLoanDTO::getDaysOverdue)
-                .max()
-                .orElse(0);
-        double avgDaysOverdue = overdueLoanDTOs.stream()
-                .mapToInt(OverdueClientsReportDTO.OverdueLoanDTO::getDaysOverdue)
-                .average()
-                .orElse(0.0);
-        double totalOverdueAmount = overdueLoanDTOs.stream()
-                .mapToDouble(OverdueClientsReportDTO.OverdueLoanDTO::getFineAmount)
-                .sum();
-
-        return new OverdueClientsReportDTO.OverdueClientDTO(
-                client.getId(),
-                clientName,
-                client.getEmail(),
-                client.getPhone(),
-                loansCount,
-                maxDaysOverdue,
-                avgDaysOverdue,
-                totalOverdueAmount,
-                overdueLoanDTOs
+                (String) row[8]
         );
     }
 
-    private PopularToolsReportDTO.PopularToolDTO mapToPopularToolDTO(String toolName, List<LoanEntity> toolLoans) {
-        // Obtener datos de la primera herramienta (asumiendo que todas tienen el mismo nombre)
-        LoanEntity firstLoan = toolLoans.get(0);
-        Long toolId = firstLoan.getTool().getId();
-        String categoryName = (firstLoan.getTool().getCategory() != null) ?
-                firstLoan.getTool().getCategory().getName() : "Categoría desconocida";
-
-        int totalLoans = toolLoans.size();
-        int totalQuantity = toolLoans.stream()
-                .mapToInt(loan -> loan.getQuantity() != null ? loan.getQuantity() : 1)
-                .sum();
-
-        Set<Long> uniqueClientIds = toolLoans.stream()
-                .map(loan -> loan.getClient().getId())
-                .collect(Collectors.toSet());
-        int uniqueClients = uniqueClientIds.size();
-
-        // Calcular duración promedio de préstamos
-        double avgLoanDuration = toolLoans.stream()
-                .filter(loan -> loan.getActualReturnDate() != null)
-                .mapToLong(loan -> ChronoUnit.DAYS.between(loan.getLoanDate(), loan.getActualReturnDate()))
-                .average()
-                .orElse(0.0);
+    // Fila de aggregatePopularTools: id, nombre, categoría, préstamos, unidades, bits del sketch de clientes,
+    // duración promedio de las devoluciones del período
+    private PopularToolsReportDTO.PopularToolDTO mapToPopularToolDTO(Object[] row) {
+        String categoryName = row[2] != null ? (String) row[2] : "Categoría desconocida";
+        int totalLoans = toInt(row[3]);
+        // Clientes distintos estimados con el sketch de la rollup (exacto en la práctica para conteos bajos)
+        int uniqueClients = Math.min(LoanDailyRollupService.estimateDistinct(toInt(row[5])), totalLoans);
 
         // Calcular score de popularidad (fórmula: totalLoans * 2 + uniqueClients * 1.5)
         double popularityScore = totalLoans * 2.0 + uniqueClients * 1.5;
 
         return new PopularToolsReportDTO.PopularToolDTO(
-                toolId,
-                toolName,
+                toLong(row[0]),
+                (String) row[1],
                 categoryName,
                 totalLoans,
-                totalQuantity,
+                toInt(row[4]),
                 uniqueClients,
-                avgLoanDuration,
+                toDouble(row[6]),
                 popularityScore
         );
     }
+
+    // Conversión de columnas nativas (el driver entrega Integer/Long/BigDecimal según la expresión)
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
+    }
+
+    private static int toInt(Object value) {
+        return value != null ? ((Number) value).intValue() : 0;
+    }
+
+    private static double toDouble(Object value) {
+        return value != null ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        return (LocalDate) value;
+    }
 }
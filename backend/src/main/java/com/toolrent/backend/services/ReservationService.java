@@ -0,0 +1,203 @@
+package com.toolrent.backend.services;
+
+import com.toolrent.backend.entities.ClientEntity;
+import com.toolrent.backend.entities.LoanEntity;
+import com.toolrent.backend.entities.ReservationEntity;
+import com.toolrent.backend.entities.ToolEntity;
+import com.toolrent.backend.repositories.ClientRepository;
+import com.toolrent.backend.repositories.ReservationRepository;
+import com.toolrent.backend.repositories.ToolRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Reservas de herramientas para fechas futuras. Cada reserva confirmada ocupa sus unidades en
+// ToolAvailabilityIndexService, así ni otra reserva ni un préstamo inmediato pueden tomarlas.
+// Al retirarla (fulfill) se convierte en un préstamo normal con la fecha de término como devolución acordada.
+@Service
+@Slf4j
+public class ReservationService {
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private ToolRepository toolRepository;
+
+    @Autowired
+    private ClientEligibilityService clientEligibilityService;
+
+    @Autowired
+    private ToolAvailabilityIndexService toolAvailabilityIndexService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Transactional(readOnly = true)
+    public ReservationEntity getReservationById(Long id) {
+        return reservationRepository.findById(id).orElse(null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ReservationEntity> getUpcomingReservations() {
+        return reservationRepository.findUpcoming(LocalDate.now());
+    }
+
+    @Transactional(readOnly = true)
+    public List<ReservationEntity> getUpcomingReservationsByTool(Long toolId) {
+        return reservationRepository.findUpcomingByTool(toolId, LocalDate.now());
+    }
+
+    @Transactional(readOnly = true)
+    public List<ReservationEntity> getReservationsByClient(Long clientId) {
+        return reservationRepository.findByClientId(clientId);
+    }
+
+    // Crear una reserva: mismas reglas de cliente que un préstamo y unidades libres en todo el rango
+    @Transactional
+    public ReservationEntity createReservation(Long clientId, Long toolId, LocalDate startDate, LocalDate endDate,
+                                               Integer quantity, String notes) {
+        LocalDate today = LocalDate.now();
+        if (startDate == null || endDate == null) {
+            throw new RuntimeException("Fecha de inicio y fecha de término son requeridas");
+        }
+        if (startDate.isBefore(today)) {
+            throw new RuntimeException("La fecha de inicio no puede ser anterior a hoy");
+        }
+        if (!endDate.isAfter(startDate)) {
+            throw new RuntimeException("La fecha de término debe ser posterior a la fecha de inicio");
+        }
+        if (endDate.isAfter(today.plusDays(ToolAvailabilityIndexService.MAX_DAYS_AHEAD))) {
+            throw new RuntimeException("Solo se puede reservar hasta " + ToolAvailabilityIndexService.MAX_DAYS_AHEAD
+                    + " días hacia adelante");
+        }
+        if (quantity == null || quantity != 1) {
+            throw new RuntimeException("Solo se permite reservar 1 unidad por reserva");
+        }
+
+        ClientEntity client = clientRepository.findById(clientId)
+                .orElseThrow(() -> new RuntimeException("Cliente no encontrado con ID: " + clientId));
+        if (client.getStatus() != ClientEntity.ClientStatus.ACTIVE) {
+            throw new RuntimeException("Cliente está restringido y no puede reservar herramientas");
+        }
+        ClientEligibilityService.EligibilitySnapshot eligibility = clientEligibilityService.getSnapshot(clientId);
+        if (eligibility != null && eligibility.hasOverdueLoans(today)) {
+            throw new RuntimeException("Cliente tiene préstamos vencidos y no puede reservar herramientas");
+        }
+        if (eligibility != null && eligibility.hasUnpaidFines()) {
+            throw new RuntimeException("Cliente tiene multas impagas y no puede reservar herramientas");
+        }
+
+        ToolEntity tool = toolRepository.findById(toolId)
+                .orElseThrow(() -> new RuntimeException("Herramienta no encontrada con ID: " + toolId));
+        if (tool.getStatus() == ToolEntity.ToolStatus.DECOMMISSIONED) {
+            throw new RuntimeException("Herramienta dada de baja, no se puede reservar");
+        }
+        if (reservationRepository.existsOverlappingForClient(clientId, toolId, startDate, endDate)) {
+            throw new RuntimeException("Cliente ya tiene una reserva de esta herramienta en ese período");
+        }
+
+        ReservationEntity reservation = new ReservationEntity();
+        reservation.setClient(client);
+        reservation.setTool(tool);
+        reservation.setQuantity(quantity);
+        reservation.setStartDate(startDate);
+        reservation.setEndDate(endDate);
+        reservation.setStatus(ReservationEntity.ReservationStatus.CONFIRMED);
+        reservation.setNotes(notes != null ? notes.trim() : "");
+        reservation.setCreatedAt(LocalDateTime.now());
+        ReservationEntity saved = reservationRepository.save(reservation);
+
+        // La capacidad se lee con la herramienta bloqueada (FOR UPDATE), igual que reserveStock en los
+        // préstamos: un préstamo simultáneo de la misma herramienta espera a que esta transacción termine
+        int stockInShop = toolRepository.lockCurrentStockById(toolId);
+
+        // Verificar y ocupar las unidades en un solo paso (dos reservas de la última unidad no pasan ambas)
+        if (!toolAvailabilityIndexService.tryBook(ToolAvailabilityIndexService.reservationKey(saved.getId()),
+                toolId, startDate, endDate, quantity, stockInShop, false)) {
+            throw new RuntimeException("No quedan unidades libres de " + tool.getName() + " entre "
+                    + startDate + " y " + endDate);
+        }
+        return saved;
+    }
+
+    @Transactional
+    public ReservationEntity cancelReservation(Long id) {
+        ReservationEntity reservation = reservationRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new RuntimeException("Reserva no encontrada con ID: " + id));
+        if (reservation.getStatus() != ReservationEntity.ReservationStatus.CONFIRMED) {
+            throw new RuntimeException("Solo se pueden cancelar reservas confirmadas. Estado actual: "
+                    + reservation.getStatus());
+        }
+        reservation.setStatus(ReservationEntity.ReservationStatus.CANCELLED);
+        ReservationEntity saved = reservationRepository.save(reservation);
+        toolAvailabilityIndexService.releaseAfterCommit(ToolAvailabilityIndexService.reservationKey(id));
+        return saved;
+    }
+
+    // Retirar la reserva: se libera su unidad y en la misma transacción se crea el préstamo que la usa
+    @Transactional
+    public LoanEntity fulfillReservation(Long id) {
+        // Bloqueo de la fila: un retiro o cancelación simultáneo espera y luego ve la reserva ya no confirmada
+        ReservationEntity reservation = reservationRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new RuntimeException("Reserva no encontrada con ID: " + id));
+        if (reservation.getStatus() != ReservationEntity.ReservationStatus.CONFIRMED) {
+            throw new RuntimeException("La reserva no está confirmada. Estado actual: " + reservation.getStatus());
+        }
+        LocalDate today = LocalDate.now();
+        if (today.isBefore(reservation.getStartDate())) {
+            throw new RuntimeException("La reserva comienza el " + reservation.getStartDate());
+        }
+        if (!today.isBefore(reservation.getEndDate())) {
+            throw new RuntimeException("La reserva terminó el " + reservation.getEndDate());
+        }
+
+        toolAvailabilityIndexService.releaseNow(ToolAvailabilityIndexService.reservationKey(id));
+
+        LoanEntity loan = new LoanEntity();
+        loan.setClient(reservation.getClient());
+        loan.setTool(reservation.getTool());
+        loan.setQuantity(reservation.getQuantity());
+        loan.setAgreedReturnDate(reservation.getEndDate());
+        loan.setNotes(("Reserva #" + id + " " + (reservation.getNotes() != null ? reservation.getNotes() : "")).trim());
+        LoanEntity createdLoan = loanService.createLoan(loan);
+
+        reservation.setStatus(ReservationEntity.ReservationStatus.FULFILLED);
+        reservation.setLoanId(createdLoan.getId());
+        reservationRepository.save(reservation);
+        return createdLoan;
+    }
+
+    // Mantención diaria: vencer reservas no retiradas y reconstruir el índice (corrige cualquier desvío
+    // por cambios hechos directamente en la base de datos)
+    @Scheduled(cron = "${toolrent.reservations.maintenance-cron:0 5 0 * * *}")
+    @Transactional
+    public int expireReservations() {
+        int expired = reservationRepository.expireEnded(LocalDate.now());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    toolAvailabilityIndexService.rebuild();
+                }
+            });
+        } else {
+            toolAvailabilityIndexService.rebuild();
+        }
+        if (expired > 0) {
+            log.info("Reservations expired: {}", expired);
+        }
+        return expired;
+    }
+}
@@ -0,0 +1,463 @@
+package com.toolrent.backend.services;
+
+import com.toolrent.backend.repositories.LoanRepository;
+import com.toolrent.backend.repositories.ReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Índice en memoria de unidades comprometidas por herramienta y por día: préstamos activos
+// (loanDate → agreedReturnDate) y reservas confirmadas (startDate → endDate).
+// Responde "cuántas unidades de la herramienta X están libres entre D1 y D2" en O(log n) sin leer
+// loans ni reservations: cada herramienta tiene un árbol de segmentos (suma por rango, máximo por rango)
+// sobre los días y un árbol de Fenwick con el día de término de sus préstamos (para los vencidos).
+// Se carga al iniciar y se actualiza con cada préstamo, devolución y reserva; cada cambio se deshace
+// si su transacción no confirma.
+@Service
+@Slf4j
+public class ToolAvailabilityIndexService implements CommandLineRunner {
+
+    // Días cubiertos por el índice desde su origen (unos 2,8 años). Al acercarse el final se reconstruye.
+    private static final int DAYS = 1024;
+    // El origen queda unos días antes de hoy, así los préstamos ya vencidos caen antes de "hoy"
+    private static final int ORIGIN_OFFSET_DAYS = 7;
+    // Horizonte máximo de una consulta o reserva (ver ReservationService)
+    public static final int MAX_DAYS_AHEAD = 365;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    // Las operaciones por herramienta toman el lock de lectura (y el monitor de la herramienta);
+    // la reconstrucción completa toma el de escritura
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    private volatile long originDay;
+    private final Map<Long, ToolTimeline> timelines = new ConcurrentHashMap<>();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Reservas de unidades hechas en transacciones que aún no terminan (sobreviven a una reconstrucción)
+    private final Map<String, Entry> pending = new ConcurrentHashMap<>();
+    private final Set<String> pendingRemovals = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void run(String... args) {
+        rebuild();
+    }
+
+    public static String loanKey(Long loanId) {
+        return "L" + loanId;
+    }
+
+    public static String reservationKey(Long reservationId) {
+        return "R" + reservationId;
+    }
+
+    // Clave para registrar unidades antes de que el préstamo tenga ID (préstamo múltiple).
+    // Se cambia por la definitiva con rekey o se descarta con cancelBooking.
+    public static String provisionalKey() {
+        return "P" + UUID.randomUUID();
+    }
+
+    // Unidades libres de la herramienta en todo el rango [from, to] (ambos inclusive).
+    // stockInShop es el stock actual de la herramienta (tools.current_stock): la capacidad es ese stock
+    // más las unidades que hoy están prestadas.
+    public Availability getAvailability(Long toolId, int stockInShop, LocalDate from, LocalDate to) {
+        ensureFresh();
+        rebuildLock.readLock().lock();
+        try {
+            ToolTimeline timeline = timelines.get(toolId);
+            if (timeline == null) {
+                return new Availability(stockInShop, 0, 0, Math.max(0, stockInShop));
+            }
+            synchronized (timeline) {
+                return timeline.availability(stockInShop, checkFrom(from), dayIndex(to), today());
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    // Comprometer unidades si quedan libres en todo el rango (verificación y registro atómicos por herramienta).
+    // Si la transacción actual no confirma, el registro se deshace.
+    public boolean tryBook(String key, Long toolId, LocalDate from, LocalDate to, int quantity,
+                           int stockInShop, boolean loan) {
+        ensureFresh();
+        Entry entry = new Entry(toolId, from.toEpochDay(), to.toEpochDay(), quantity, loan);
+        rebuildLock.readLock().lock();
+        try {
+            ToolTimeline timeline = timeline(toolId);
+            synchronized (timeline) {
+                if (entries.containsKey(key)) {
+                    return true;
+                }
+                if (timeline.availability(stockInShop, checkFrom(from), dayIndex(to), today()).getFreeUnits() < quantity) {
+                    return false;
+                }
+                entries.put(key, entry);
+                timeline.apply(entry, +1, originDay);
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending.put(key, entry);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    pending.remove(key);
+                    if (status != STATUS_COMMITTED) {
+                        remove(key, entry);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    // Cambiar el rango de un préstamo o reserva ya registrado (p. ej. nueva fecha acordada).
+    // Falla sin cambiar nada si el nuevo rango no cabe; si la transacción no confirma, vuelve al rango anterior.
+    public boolean tryMove(String key, LocalDate from, LocalDate to, int stockInShop) {
+        ensureFresh();
+        Entry moved;
+        Entry previous;
+        rebuildLock.readLock().lock();
+        try {
+            previous = entries.get(key);
+            if (previous == null) {
+                return true;
+            }
+            ToolTimeline timeline = timeline(previous.toolId);
+            synchronized (timeline) {
+                moved = new Entry(previous.toolId, from.toEpochDay(), to.toEpochDay(), previous.quantity, previous.loan);
+                // Sin el registro anterior, sus unidades prestadas ya no cuentan en la capacidad: sumarlas al stock
+                timeline.apply(previous, -1, originDay);
+                int stock = stockInShop + (previous.loan ? previous.quantity : 0);
+                if (timeline.availability(stock, checkFrom(from), dayIndex(to), today()).getFreeUnits() < previous.quantity) {
+                    timeline.apply(previous, +1, originDay);
+                    return false;
+                }
+                timeline.apply(moved, +1, originDay);
+                entries.put(key, moved);
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending.put(key, moved);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    pending.remove(key);
+                    if (status != STATUS_COMMITTED) {
+                        replace(key, moved, previous);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    // Asignar la clave definitiva a un registro hecho con clave provisional en la transacción actual.
+    // Si la transacción no confirma, el registro se deshace bajo la nueva clave.
+    public void rekey(String provisionalKey, String key) {
+        Entry entry;
+        rebuildLock.readLock().lock();
+        try {
+            entry = entries.get(provisionalKey);
+            if (entry == null) {
+                return;
+            }
+            synchronized (timeline(entry.toolId)) {
+                if (!entries.remove(provisionalKey, entry)) {
+                    return;
+                }
+                entries.put(key, entry);
+                if (pending.remove(provisionalKey) != null) {
+                    pending.put(key, entry);
+                }
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    pending.remove(key);
+                    if (status != STATUS_COMMITTED) {
+                        remove(key, entry);
+                    }
+                }
+            });
+        }
+    }
+
+    // Descartar un registro hecho con tryBook en la transacción actual, sin esperar a que termine
+    // (p. ej. la línea del préstamo múltiple no obtuvo stock). No se restaura si la transacción no confirma.
+    public void cancelBooking(String key) {
+        pending.remove(key);
+        remove(key, null);
+    }
+
+    // Liberar las unidades de un préstamo devuelto o una reserva cancelada, cuando la transacción confirma.
+    // Hasta entonces siguen ocupadas (lo conservador si la devolución se revierte).
+    public void releaseAfterCommit(String key) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(key, null);
+                }
+            });
+        } else {
+            remove(key, null);
+        }
+    }
+
+    // Liberar ya (para que otra operación de la misma transacción use las unidades) y restaurar si no confirma
+    public void releaseNow(String key) {
+        Entry removed = remove(key, null);
+        if (removed != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingRemovals.add(key);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    pendingRemovals.remove(key);
+                    if (status != STATUS_COMMITTED) {
+                        replace(key, null, removed);
+                    }
+                }
+            });
+        }
+    }
+
+    // Reconstruir desde la base de datos: préstamos activos y reservas confirmadas que no han terminado
+    public void rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            long origin = LocalDate.now().toEpochDay() - ORIGIN_OFFSET_DAYS;
+            Map<String, Entry> loaded = new HashMap<>();
+            for (Object[] row : loanRepository.findActiveIntervals()) {
+                loaded.put(loanKey((Long) row[0]), fromRow(row, true));
+            }
+            for (Object[] row : reservationRepository.findConfirmedIntervals(LocalDate.now())) {
+                loaded.put(reservationKey((Long) row[0]), fromRow(row, false));
+            }
+            // Lo registrado o liberado por transacciones en curso aún no está en la base de datos
+            loaded.putAll(pending);
+            loaded.keySet().removeAll(pendingRemovals);
+
+            originDay = origin;
+            timelines.clear();
+            entries.clear();
+            for (Map.Entry<String, Entry> loadedEntry : loaded.entrySet()) {
+                Entry entry = loadedEntry.getValue();
+                entries.put(loadedEntry.getKey(), entry);
+                timelines.computeIfAbsent(entry.toolId, id -> new ToolTimeline()).apply(entry, +1, origin);
+            }
+            log.info("Tool availability index loaded: {} entries, {} tools", entries.size(), timelines.size());
+        } catch (Exception e) {
+            log.warn("Error loading tool availability index: {}", e.getMessage());
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    // El índice cubre DAYS días desde su origen: reconstruir antes de que hoy + MAX_DAYS_AHEAD se salga
+    private void ensureFresh() {
+        long today = LocalDate.now().toEpochDay();
+        if (today - originDay + MAX_DAYS_AHEAD + 1 >= DAYS) {
+            synchronized (this) {
+                if (LocalDate.now().toEpochDay() - originDay + MAX_DAYS_AHEAD + 1 >= DAYS) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    private Entry remove(String key, Entry expected) {
+        rebuildLock.readLock().lock();
+        try {
+            Entry current = entries.get(key);
+            if (current == null || (expected != null && current != expected)) {
+                return null;
+            }
+            ToolTimeline timeline = timeline(current.toolId);
+            synchronized (timeline) {
+                if (entries.remove(key, current)) {
+                    timeline.apply(current, -1, originDay);
+                    return current;
+                }
+                return null;
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private void replace(String key, Entry expected, Entry restored) {
+        rebuildLock.readLock().lock();
+        try {
+            ToolTimeline timeline = timeline(restored.toolId);
+            synchronized (timeline) {
+                Entry current = entries.get(key);
+                if (current != expected) {
+                    return;
+                }
+                if (current != null) {
+                    timeline.apply(current, -1, originDay);
+                }
+                timeline.apply(restored, +1, originDay);
+                entries.put(key, restored);
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private ToolTimeline timeline(Long toolId) {
+        return timelines.computeIfAbsent(toolId, id -> new ToolTimeline());
+    }
+
+    // Los días anteriores a hoy no limitan una nueva reserva ni préstamo
+    private int checkFrom(LocalDate from) {
+        return Math.max(dayIndex(from), today());
+    }
+
+    private int today() {
+        return dayIndex(LocalDate.now());
+    }
+
+    private int dayIndex(LocalDate date) {
+        return clamp(date.toEpochDay() - originDay);
+    }
+
+    private static int clamp(long index) {
+        return (int) Math.max(0, Math.min(DAYS - 1, index));
+    }
+
+    private static Entry fromRow(Object[] row, boolean loan) {
+        LocalDate from = (LocalDate) row[2];
+        LocalDate to = (LocalDate) row[3];
+        int quantity = row[4] != null ? ((Number) row[4]).intValue() : 1;
+        return new Entry((Long) row[1], from.toEpochDay(), to.toEpochDay(), quantity, loan);
+    }
+
+    private static class Entry {
+        private final Long toolId;
+        private final long fromDay;
+        private final long toDay;
+        private final int quantity;
+        private final boolean loan;
+
+        Entry(Long toolId, long fromDay, long toDay, int quantity, boolean loan) {
+            this.toolId = toolId;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.quantity = quantity;
+            this.loan = loan;
+        }
+    }
+
+    // Unidades comprometidas de una herramienta por día.
+    // usage: árbol de segmentos con suma por rango y máximo por rango (sin propagación: cada nodo guarda
+    // lo sumado a todo su rango). loanEnds: Fenwick con la cantidad de préstamos por día de término.
+    private static class ToolTimeline {
+        private static final int NONE = Integer.MIN_VALUE / 2;
+
+        private final int[] max = new int[2 * DAYS];
+        private final int[] added = new int[2 * DAYS];
+        private final int[] loanEnds = new int[DAYS + 1];
+        private int loanedUnits;
+
+        void apply(Entry entry, int sign, long originDay) {
+            int units = sign * entry.quantity;
+            long from = Math.max(entry.fromDay - originDay, 0);
+            long to = entry.toDay - originDay;
+            // Los días anteriores al origen nunca se consultan
+            if (to >= 0) {
+                add(1, 0, DAYS - 1, clamp(from), clamp(to), units);
+            }
+            if (entry.loan) {
+                loanedUnits += units;
+                for (int i = clamp(to) + 1; i <= DAYS; i += i & -i) {
+                    loanEnds[i] += units;
+                }
+            }
+        }
+
+        Availability availability(int stockInShop, int from, int to, int today) {
+            // Préstamos activos con fecha acordada anterior a hoy: siguen fuera hasta que se devuelvan
+            int overdueUnits = 0;
+            for (int i = today; i > 0; i -= i & -i) {
+                overdueUnits += loanEnds[i];
+            }
+            int peakUsage = Math.max(0, query(1, 0, DAYS - 1, from, to));
+            int capacity = stockInShop + loanedUnits;
+            int freeUnits = Math.max(0, capacity - peakUsage - overdueUnits);
+            return new Availability(capacity, peakUsage, overdueUnits, freeUnits);
+        }
+
+        private void add(int node, int nodeFrom, int nodeTo, int from, int to, int units) {
+            if (to < nodeFrom || nodeTo < from) {
+                return;
+            }
+            if (from <= nodeFrom && nodeTo <= to) {
+                added[node] += units;
+                max[node] += units;
+                return;
+            }
+            int mid = (nodeFrom + nodeTo) >>> 1;
+            add(2 * node, nodeFrom, mid, from, to, units);
+            add(2 * node + 1, mid + 1, nodeTo, from, to, units);
+            max[node] = added[node] + Math.max(max[2 * node], max[2 * node + 1]);
+        }
+
+        private int query(int node, int nodeFrom, int nodeTo, int from, int to) {
+            if (to < nodeFrom || nodeTo < from) {
+                return NONE;
+            }
+            if (from <= nodeFrom && nodeTo <= to) {
+                return max[node];
+            }
+            int mid = (nodeFrom + nodeTo) >>> 1;
+            return added[node] + Math.max(query(2 * node, nodeFrom, mid, from, to),
+                    query(2 * node + 1, mid + 1, nodeTo, from, to));
+        }
+    }
+
+    public static class Availability {
+        private final int capacity;
+        private final int peakUsage;
+        private final int overdueUnits;
+        private final int freeUnits;
+
+        public Availability(int capacity, int peakUsage, int overdueUnits, int freeUnits) {
+            this.capacity = capacity;
+            this.peakUsage = peakUsage;
+            this.overdueUnits = overdueUnits;
+            this.freeUnits = freeUnits;
+        }
+
+        public int getCapacity() { return capacity; }
+        public int getPeakUsage() { return peakUsage; }
+        public int getOverdueUnits() { return overdueUnits; }
+        public int getFreeUnits() { return freeUnits; }
+    }
+}
@@ -5,47 +5,63 @@ import com.toolrent.backend.entities.ToolInstanceEntity;
 import com.toolrent.backend.entities.ToolInstanceEntity.ToolInstanceStatus;
 import com.toolrent.backend.repositories.ToolInstanceRepository;
 import com.toolrent.backend.repositories.ToolRepository;
+import com.toolrent.backend.repositories.ToolStockCounterRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 @Transactional
-public class ToolInstanceService {
+@Slf4j
+public class ToolInstanceService implements CommandLineRunner {
 
     private final ToolInstanceRepository toolInstanceRepository;
     private final ToolRepository toolRepository;
+    private final ToolStockCounterRepository toolStockCounterRepository;
 
     @Autowired
     public ToolInstanceService(
             ToolInstanceRepository toolInstanceRepository,
-            ToolRepository toolRepository) {
+            ToolRepository toolRepository,
+            ToolStockCounterRepository toolStockCounterRepository) {
         this.toolInstanceRepository = toolInstanceRepository;
         this.toolRepository = toolRepository;
+        this.toolStockCounterRepository = toolStockCounterRepository;
     }
 
-    // Create multiple instances when a tool is created
-    public List<ToolInstanceEntity> createInstances(ToolEntity tool, int quantity) {
+    // Al iniciar, reconstruir los contadores por si hubo cambios fuera de la aplicación
+    @Override
+    public void run(String... args) {
+        int rebuilt = rebuildAllCounters();
+        log.debug("=== CONTADORES DE INSTANCIAS RECONSTRUIDOS: {} herramientas ===", rebuilt);
+    }
+
+    // Create multiple instances when a tool is created or restocked: one INSERT for all units,
+    // counters updated once. Returns the new instance ids in ascending order.
+    public List<Long> createInstances(ToolEntity tool, int quantity) {
         if (quantity <= 0) {
             throw new RuntimeException("Quantity must be greater than 0");
         }
 
-        List<ToolInstanceEntity> instances = new java.util.ArrayList<>();
+        List<Long> instanceIds = new java.util.ArrayList<>(
+                toolInstanceRepository.insertAvailableInstances(tool.getId(), quantity));
+        java.util.Collections.sort(instanceIds);
+        recordStatusChange(tool.getId(), null, ToolInstanceStatus.AVAILABLE, quantity);
 
-        for (int i = 1; i <= quantity; i++) {
-            ToolInstanceEntity instance = new ToolInstanceEntity(tool);
-            instances.add(toolInstanceRepository.save(instance));
-        }
-
-        return instances;
+        return instanceIds;
     }
 
     // Get available count for a tool
     public Long getAvailableCount(Long toolId) {
-        return toolInstanceRepository.countAvailableByToolId(toolId);
+        return countInstancesByStatus(toolId).getAvailable();
     }
 
     // Get first available instance of a tool
@@ -58,6 +74,7 @@ public class ToolInstanceService {
         ToolInstanceEntity instance = toolInstanceRepository.findById(instanceId)
                 .orElseThrow(() -> new RuntimeException("Tool instance not found with ID: " + instanceId));
 
+        recordStatusChange(instance.getTool().getId(), instance.getStatus(), status, 1);
         instance.setStatus(status);
         return toolInstanceRepository.save(instance);
     }
@@ -72,6 +89,7 @@ public class ToolInstanceService {
 
         ToolInstanceEntity instance = availableInstance.get();
         instance.setStatus(ToolInstanceStatus.LOANED);
+        recordStatusChange(toolId, ToolInstanceStatus.AVAILABLE, ToolInstanceStatus.LOANED, 1);
 
         return toolInstanceRepository.save(instance);
     }
@@ -88,6 +106,7 @@ public class ToolInstanceService {
         // Set status based on condition
         ToolInstanceStatus newStatus = isDamaged ? ToolInstanceStatus.UNDER_REPAIR : ToolInstanceStatus.AVAILABLE;
         instance.setStatus(newStatus);
+        recordStatusChange(instance.getTool().getId(), ToolInstanceStatus.LOANED, newStatus, 1);
 
         return toolInstanceRepository.save(instance);
     }
@@ -97,6 +116,7 @@ public class ToolInstanceService {
         ToolInstanceEntity instance = toolInstanceRepository.findById(instanceId)
                 .orElseThrow(() -> new RuntimeException("Tool instance not found with ID: " + instanceId));
 
+        recordStatusChange(instance.getTool().getId(), instance.getStatus(), ToolInstanceStatus.DECOMMISSIONED, 1);
         instance.setStatus(ToolInstanceStatus.DECOMMISSIONED);
         return toolInstanceRepository.save(instance);
     }
@@ -119,14 +139,49 @@ public class ToolInstanceService {
 
     // Get statistics for a tool
     public ToolInstanceStats getToolInstanceStats(Long toolId) {
-        List<ToolInstanceEntity> instances = getInstancesByTool(toolId);
+        return countInstancesByStatus(toolId);
+    }
 
-        long available = instances.stream().mapToLong(i -> i.isAvailable() ? 1 : 0).sum();
-        long loaned = instances.stream().mapToLong(i -> i.isLoaned() ? 1 : 0).sum();
-        long underRepair = instances.stream().mapToLong(i -> i.isUnderRepair() ? 1 : 0).sum();
-        long decommissioned = instances.stream().mapToLong(i -> i.isDecommissioned() ? 1 : 0).sum();
+    // Conteos por estado desde tool_stock_counters (una fila por herramienta).
+    // Si la herramienta aún no tiene fila se cuenta desde tool_instances, sin escribir: también se llama
+    // desde transacciones de solo lectura. La fila la crean las escrituras de instancias y rebuildAllCounters al iniciar.
+    public ToolInstanceStats countInstancesByStatus(Long toolId) {
+        List<Object[]> counts = toolStockCounterRepository.findCountsByToolId(toolId);
+        if (counts.isEmpty()) {
+            return countInstancesFromTable(toolId);
+        }
 
-        return new ToolInstanceStats(available, loaned, underRepair, decommissioned, instances.size());
+        Object[] row = counts.get(0);
+        long available = ((Number) row[0]).longValue();
+        long loaned = ((Number) row[1]).longValue();
+        long underRepair = ((Number) row[2]).longValue();
+        long decommissioned = ((Number) row[3]).longValue();
+        return new ToolInstanceStats(available, loaned, underRepair, decommissioned,
+                available + loaned + underRepair + decommissioned);
+    }
+
+    // Conteos calculados directamente desde tool_instances (un GROUP BY), sin pasar por los contadores
+    public ToolInstanceStats countInstancesFromTable(Long toolId) {
+        long available = 0, loaned = 0, underRepair = 0, decommissioned = 0;
+        for (Object[] row : toolInstanceRepository.getStatusCountsByTool(toolId)) {
+            long count = ((Number) row[1]).longValue();
+            switch ((ToolInstanceStatus) row[0]) {
+                case AVAILABLE:
+                    available = count;
+                    break;
+                case LOANED:
+                    loaned = count;
+                    break;
+                case UNDER_REPAIR:
+                    underRepair = count;
+                    break;
+                case DECOMMISSIONED:
+                    decommissioned = count;
+                    break;
+            }
+        }
+        return new ToolInstanceStats(available, loaned, underRepair, decommissioned,
+                available + loaned + underRepair + decommissioned);
     }
 
     // Reserve multiple instances for batch operations
@@ -147,10 +202,41 @@ public class ToolInstanceService {
             instance.setStatus(ToolInstanceStatus.LOANED);
             reservedInstances.add(toolInstanceRepository.save(instance));
         }
+        recordStatusChange(toolId, ToolInstanceStatus.AVAILABLE, ToolInstanceStatus.LOANED, quantity);
 
         return reservedInstances;
     }
 
+    // Batch loans: reserve instances of several tools in one statement, without throwing. Returns the
+    // claimed instance ids by tool; tools without enough free instances are left out (and keep theirs)
+    public Map<Long, List<Long>> tryReserveInstancesForLoans(Collection<Long> toolIds, int quantity) {
+        Map<Long, List<Long>> claimedByTool = new HashMap<>();
+        if (toolIds.isEmpty()) {
+            return claimedByTool;
+        }
+        for (Object[] row : toolInstanceRepository.claimAvailableInstancesForTools(toolIds, quantity)) {
+            claimedByTool.computeIfAbsent(((Number) row[1]).longValue(), id -> new java.util.ArrayList<>())
+                    .add(((Number) row[0]).longValue());
+        }
+
+        // Igual que tryReserveInstancesForLoan: si no alcanzan, devolver las que se alcanzaron a tomar
+        List<Long> partial = new java.util.ArrayList<>();
+        for (java.util.Iterator<List<Long>> it = claimedByTool.values().iterator(); it.hasNext(); ) {
+            List<Long> ids = it.next();
+            if (ids.size() < quantity) {
+                partial.addAll(ids);
+                it.remove();
+            }
+        }
+        if (!partial.isEmpty()) {
+            toolInstanceRepository.releaseInstances(partial);
+        }
+        if (!claimedByTool.isEmpty()) {
+            toolStockCounterRepository.moveAvailableToLoaned(claimedByTool.keySet(), quantity);
+        }
+        return claimedByTool;
+    }
+
     // Return multiple instances from loan
     public List<ToolInstanceEntity> returnMultipleInstances(List<Long> instanceIds, boolean isDamaged) {
         List<ToolInstanceEntity> returnedInstances = new java.util.ArrayList<>();
@@ -184,6 +270,7 @@ public class ToolInstanceService {
 
         instance.setStatus(ToolInstanceStatus.AVAILABLE);
         ToolInstanceEntity repairedInstance = toolInstanceRepository.save(instance);
+        recordStatusChange(instance.getTool().getId(), ToolInstanceStatus.UNDER_REPAIR, ToolInstanceStatus.AVAILABLE, 1);
 
         // 🔧 NUEVO: Actualizar el stock de la herramienta y su estado
         try {
@@ -196,15 +283,15 @@ public class ToolInstanceService {
                 Long availableCount = getAvailableCount(tool.getId());
                 if (availableCount > 0) {
                     tool.setStatus(ToolEntity.ToolStatus.AVAILABLE);
-                    System.out.println("Tool " + tool.getName() + " status updated to AVAILABLE after repair (available instances: " + availableCount + ")");
+                    log.debug("Tool {} status updated to AVAILABLE after repair (available instances: {})", tool.getName(), availableCount);
                 }
 
                 // Guardar la herramienta actualizada
                 toolRepository.save(tool);
-                System.out.println("Tool " + tool.getName() + " stock updated: " + tool.getCurrentStock());
+                log.debug("Tool {} stock updated: {}", tool.getName(), tool.getCurrentStock());
             }
         } catch (Exception e) {
-            System.err.println("Error updating tool status after repair: " + e.getMessage());
+            log.warn("Error updating tool status after repair: {}", e.getMessage());
             // No fallar la reparación por esto
         }
 
@@ -214,6 +301,7 @@ public class ToolInstanceService {
     // Delete all instances of a tool (for cascade deletion)
     public void deleteAllInstancesByTool(Long toolId) {
         toolInstanceRepository.deleteByToolId(toolId);
+        toolStockCounterRepository.rebuildForTool(toolId);
     }
 
     // Delete individual instance
@@ -221,6 +309,7 @@ public class ToolInstanceService {
         ToolInstanceEntity instance = toolInstanceRepository.findById(instanceId)
                 .orElseThrow(() -> new RuntimeException("Tool instance not found with ID: " + instanceId));
 
+        recordStatusChange(instance.getTool().getId(), instance.getStatus(), null, 1);
         toolInstanceRepository.delete(instance);
     }
 
@@ -248,6 +337,7 @@ public class ToolInstanceService {
             instance.setStatus(ToolInstanceStatus.DECOMMISSIONED);
             decommissionedInstances.add(toolInstanceRepository.save(instance));
         }
+        recordStatusChange(toolId, ToolInstanceStatus.AVAILABLE, ToolInstanceStatus.DECOMMISSIONED, quantity);
 
         return decommissionedInstances;
     }
@@ -259,19 +349,34 @@ public class ToolInstanceService {
             throw new RuntimeException("Quantity must be greater than 0");
         }
 
-        List<ToolInstanceEntity> availableInstances = toolInstanceRepository.findAvailableInstancesByToolId(toolId);
-
-        if (availableInstances.size() < quantity) {
-            throw new RuntimeException("Not enough available instances for loan. Requested: " + quantity + ", Available: " + availableInstances.size());
+        List<ToolInstanceEntity> reservedInstances = tryReserveInstancesForLoan(toolId, quantity);
+        if (reservedInstances.isEmpty()) {
+            throw new RuntimeException("Not enough available instances for loan. Requested: " + quantity +
+                    ", Available: " + toolInstanceRepository.countAvailableByToolId(toolId));
         }
 
-        List<ToolInstanceEntity> reservedInstances = new java.util.ArrayList<>();
-        for (int i = 0; i < quantity; i++) {
-            ToolInstanceEntity instance = availableInstances.get(i);
-            instance.setStatus(ToolInstanceStatus.LOANED);
-            reservedInstances.add(toolInstanceRepository.save(instance));
+        return reservedInstances;
+    }
+
+    // Reserve instances without throwing: returns an empty list when there are not enough free
+    // instances, so a batch loan can keep going with the rest of its lines
+    public List<ToolInstanceEntity> tryReserveInstancesForLoan(Long toolId, int quantity) {
+        // Tomar y marcar como LOANED exactamente N instancias en un solo UPDATE (FOR UPDATE SKIP LOCKED)
+        List<Long> reservedIds = toolInstanceRepository.claimAvailableInstances(toolId, quantity);
+
+        if (reservedIds.size() < quantity) {
+            // No alcanzan las instancias libres: devolver las que se alcanzaron a tomar
+            if (!reservedIds.isEmpty()) {
+                toolInstanceRepository.releaseInstances(reservedIds);
+            }
+            return List.of();
         }
 
+        List<ToolInstanceEntity> reservedInstances = toolInstanceRepository.findAllById(reservedIds);
+        // Instances already in the persistence context may still hold the old status
+        reservedInstances.forEach(instance -> instance.setStatus(ToolInstanceStatus.LOANED));
+        recordStatusChange(toolId, ToolInstanceStatus.AVAILABLE, ToolInstanceStatus.LOANED, reservedIds.size());
+
         return reservedInstances;
     }
 
@@ -296,6 +401,7 @@ public class ToolInstanceService {
             instance.setStatus(newStatus);
             returnedInstances.add(toolInstanceRepository.save(instance));
         }
+        recordStatusChange(toolId, ToolInstanceStatus.LOANED, newStatus, quantity);
 
         return returnedInstances;
     }
@@ -311,7 +417,7 @@ public class ToolInstanceService {
             toolId, ToolInstanceStatus.UNDER_REPAIR);
 
         if (underRepairInstances.isEmpty()) {
-            System.out.println("No instances under repair for tool ID: " + toolId);
+            log.debug("No instances under repair for tool ID: {}", toolId);
             return List.of();
         }
 
@@ -323,8 +429,9 @@ public class ToolInstanceService {
             ToolInstanceEntity instance = underRepairInstances.get(i);
             instance.setStatus(ToolInstanceStatus.AVAILABLE);
             repairedInstances.add(toolInstanceRepository.save(instance));
-            System.out.println("Instance ID " + instance.getId() + " repaired and marked as AVAILABLE");
+            log.debug("Instance ID {} repaired and marked as AVAILABLE", instance.getId());
         }
+        recordStatusChange(toolId, ToolInstanceStatus.UNDER_REPAIR, ToolInstanceStatus.AVAILABLE, toRepair);
 
         return repairedInstances;
     }
@@ -350,7 +457,7 @@ public class ToolInstanceService {
         instancesToDecommission.addAll(underRepairInstances);
 
         if (instancesToDecommission.isEmpty()) {
-            System.out.println("No instances available to decommission for tool ID: " + toolId);
+            log.debug("No instances available to decommission for tool ID: {}", toolId);
             return List.of();
         }
 
@@ -362,13 +469,81 @@ public class ToolInstanceService {
             ToolInstanceEntity instance = instancesToDecommission.get(i);
             ToolInstanceStatus previousStatus = instance.getStatus();
             instance.setStatus(ToolInstanceStatus.DECOMMISSIONED);
+            recordStatusChange(toolId, previousStatus, ToolInstanceStatus.DECOMMISSIONED, 1);
+            decommissionedInstances.add(toolInstanceRepository.save(instance));
+            log.debug("Instance ID {} decommissioned (irreparable damage) - previous status: {}", instance.getId(), previousStatus);
+        }
+
+        return decommissionedInstances;
+    }
+
+    // Dar de baja solo instancias prestadas (devolución con daño irreparable): a diferencia de decommissionInstances,
+    // no toma instancias en reparación, que pertenecen a otros préstamos devueltos con daño
+    @Transactional
+    public List<ToolInstanceEntity> decommissionLoanedInstances(Long toolId, int quantity) {
+        if (quantity <= 0) {
+            throw new RuntimeException("Quantity must be greater than 0");
+        }
+
+        List<ToolInstanceEntity> loanedInstances = toolInstanceRepository.findLoanedInstancesByToolId(toolId);
+        int toDecommission = Math.min(quantity, loanedInstances.size());
+        List<ToolInstanceEntity> decommissionedInstances = new java.util.ArrayList<>();
+
+        for (int i = 0; i < toDecommission; i++) {
+            ToolInstanceEntity instance = loanedInstances.get(i);
+            instance.setStatus(ToolInstanceStatus.DECOMMISSIONED);
             decommissionedInstances.add(toolInstanceRepository.save(instance));
-            System.out.println("Instance ID " + instance.getId() + " decommissioned (irreparable damage) - previous status: " + previousStatus);
         }
+        recordStatusChange(toolId, ToolInstanceStatus.LOANED, ToolInstanceStatus.DECOMMISSIONED, toDecommission);
 
         return decommissionedInstances;
     }
 
+    // ========== CONTADORES POR HERRAMIENTA (tool_stock_counters) ==========
+
+    // Registrar que `count` instancias pasaron de `from` a `to` (from = null: instancias nuevas, to = null: eliminadas).
+    // Se aplica como un UPDATE atómico de deltas, en la misma transacción que el cambio de estado.
+    public void recordStatusChange(Long toolId, ToolInstanceStatus from, ToolInstanceStatus to, int count) {
+        if (toolId == null || count <= 0 || from == to) {
+            return;
+        }
+        long[] deltas = new long[ToolInstanceStatus.values().length];
+        if (from != null) {
+            deltas[from.ordinal()] -= count;
+        }
+        if (to != null) {
+            deltas[to.ordinal()] += count;
+        }
+        toolStockCounterRepository.addToCounters(toolId,
+                deltas[ToolInstanceStatus.AVAILABLE.ordinal()],
+                deltas[ToolInstanceStatus.LOANED.ordinal()],
+                deltas[ToolInstanceStatus.UNDER_REPAIR.ordinal()],
+                deltas[ToolInstanceStatus.DECOMMISSIONED.ordinal()]);
+    }
+
+    // Herramientas cuyos contadores no coinciden con tool_instances
+    @Transactional(readOnly = true)
+    public List<Long> findInconsistentCounters() {
+        return toolStockCounterRepository.findInconsistentToolIds();
+    }
+
+    // Reconstruir todos los contadores desde tool_instances
+    public int rebuildAllCounters() {
+        toolStockCounterRepository.deleteOrphans();
+        return toolStockCounterRepository.rebuildAll();
+    }
+
+    // Reconstruir los contadores de una herramienta
+    public ToolInstanceStats rebuildCounters(Long toolId) {
+        toolStockCounterRepository.rebuildForTool(toolId);
+        return countInstancesByStatus(toolId);
+    }
+
+    // Borrar los contadores de una herramienta eliminada
+    public void deleteCounters(Long toolId) {
+        toolStockCounterRepository.deleteByToolId(toolId);
+    }
+
     // Inner class for statistics
     public static class ToolInstanceStats {
         private final long available;
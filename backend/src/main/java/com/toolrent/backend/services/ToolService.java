@@ -6,6 +6,7 @@ import com.toolrent.backend.entities.ToolInstanceEntity;
 import com.toolrent.backend.repositories.ToolRepository;
 import com.toolrent.backend.repositories.CategoryRepository;
 import com.toolrent.backend.repositories.ToolInstanceRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
@@ -16,6 +17,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Service
+@Slf4j
 public class ToolService {
 
     @Autowired
@@ -27,6 +29,9 @@ public class ToolService {
     @Autowired
     private ToolInstanceRepository toolInstanceRepository;
 
+    @Autowired
+    private ToolInstanceService toolInstanceService;
+
     @Autowired
     @Lazy
     private KardexMovementService kardexMovementService;
@@ -52,7 +57,7 @@ public class ToolService {
     }
 
     // Validar datos de herramienta
-    private void validateToolData(ToolEntity tool) {
+    void validateToolData(ToolEntity tool) {
         // Validar nombre
         if (tool.getName() == null || tool.getName().trim().isEmpty()) {
             throw new IllegalArgumentException("El nombre de la herramienta es requerido");
@@ -129,13 +134,8 @@ public class ToolService {
         // Save tool
         ToolEntity savedTool = toolRepository.save(tool);
 
-        // Create tool instances
-        for (int i = 0; i < savedTool.getInitialStock(); i++) {
-            ToolInstanceEntity instance = new ToolInstanceEntity();
-            instance.setTool(savedTool);
-            instance.setStatus(ToolInstanceEntity.ToolInstanceStatus.AVAILABLE);
-            toolInstanceRepository.save(instance);
-        }
+        // Create tool instances (una sola sentencia para todas las unidades)
+        toolInstanceService.createInstances(savedTool, savedTool.getInitialStock());
 
         // Registrar movimiento inicial en el kardex
         kardexMovementService.createInitialStockMovement(
@@ -237,6 +237,7 @@ public class ToolService {
 
         // Delete all instances first
         toolInstanceRepository.deleteByToolId(id);
+        toolInstanceService.deleteCounters(id);
 
         // Delete tool
         toolRepository.delete(tool);
@@ -278,25 +279,20 @@ public class ToolService {
         if (newCurrentStock > 0 && (tool.getStatus() == ToolEntity.ToolStatus.LOANED ||
                                      tool.getStatus() == ToolEntity.ToolStatus.DECOMMISSIONED)) {
             tool.setStatus(ToolEntity.ToolStatus.AVAILABLE);
-            System.out.println("Tool " + tool.getName() + " status changed to AVAILABLE after adding stock (new stock: " + newCurrentStock + ")");
+            log.debug("Tool {} status changed to AVAILABLE after adding stock (new stock: {})", tool.getName(), newCurrentStock);
         }
 
-        // Create new instances
-        for (int i = 0; i < quantity; i++) {
-            ToolInstanceEntity instance = new ToolInstanceEntity();
-            instance.setTool(tool);
-            instance.setStatus(ToolInstanceEntity.ToolInstanceStatus.AVAILABLE);
-            toolInstanceRepository.save(instance);
-        }
+        // Create new instances (una sola vez por reposición; el kardex solo registra el movimiento)
+        List<Long> instanceIds = toolInstanceService.createInstances(tool, quantity);
 
         ToolEntity savedTool = toolRepository.save(tool);
 
         // Create Kardex movement for restock
         try {
             String description = String.format("Reposición de stock desde gestión de inventario - %d unidad(es)", quantity);
-            kardexMovementService.createRestockMovement(savedTool, quantity, description);
+            kardexMovementService.createRestockMovement(savedTool, quantity, description, instanceIds);
         } catch (Exception e) {
-            System.err.println("Error creando movimiento Kardex para reposición: " + e.getMessage());
+            log.warn("Error creando movimiento Kardex para reposición: {}", e.getMessage());
             // No lanzar excepción para no afectar el proceso principal
         }
 
@@ -336,6 +332,8 @@ public class ToolService {
             instance.setStatus(ToolInstanceEntity.ToolInstanceStatus.DECOMMISSIONED);
             toolInstanceRepository.save(instance);
         }
+        toolInstanceService.recordStatusChange(toolId, ToolInstanceEntity.ToolInstanceStatus.AVAILABLE,
+                ToolInstanceEntity.ToolInstanceStatus.DECOMMISSIONED, quantity);
 
         // Update current stock
         tool.setCurrentStock(tool.getCurrentStock() - quantity);
@@ -344,9 +342,9 @@ public class ToolService {
 
         // Create Kardex movement for decommission - MEJORADO
         String description = String.format("Baja de herramienta desde gestión de inventario - %d unidad(es)", quantity);
-        System.out.println("=== DEBUG: Registrando movimiento DECOMMISSION en kardex para herramienta ID " + savedTool.getId() + " ===");
+        log.debug("=== DEBUG: Registrando movimiento DECOMMISSION en kardex para herramienta ID {} ===", savedTool.getId());
         kardexMovementService.createDecommissionMovement(savedTool, quantity, description, instanceIds);
-        System.out.println("=== DEBUG: Movimiento DECOMMISSION registrado exitosamente ===");
+        log.debug("=== DEBUG: Movimiento DECOMMISSION registrado exitosamente ===");
 
         // Reload tool with category to return complete object
         return toolRepository.findByIdWithCategory(savedTool.getId())
@@ -369,6 +367,7 @@ public class ToolService {
         }
 
         // Delete instance
+        toolInstanceService.recordStatusChange(tool.getId(), instance.getStatus(), null, 1);
         toolInstanceRepository.delete(instance);
     }
 
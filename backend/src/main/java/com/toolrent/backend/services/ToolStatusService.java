@@ -0,0 +1,48 @@
+package com.toolrent.backend.services;
+
+import com.toolrent.backend.entities.ToolEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+// Deriva el estado de una herramienta a partir de los conteos de sus instancias.
+// Los conteos vienen de tool_stock_counters (una fila por herramienta), así el costo no depende
+// del tamaño total de tool_instances.
+@Service
+public class ToolStatusService {
+
+    private final ToolInstanceService toolInstanceService;
+
+    @Autowired
+    public ToolStatusService(ToolInstanceService toolInstanceService) {
+        this.toolInstanceService = toolInstanceService;
+    }
+
+    // Conteos de instancias por estado para una herramienta
+    public ToolInstanceService.ToolInstanceStats getStatusCounts(Long toolId) {
+        return toolInstanceService.countInstancesByStatus(toolId);
+    }
+
+    // Estado de la herramienta según sus instancias
+    public ToolEntity.ToolStatus deriveStatus(Long toolId) {
+        return deriveStatus(getStatusCounts(toolId));
+    }
+
+    public ToolEntity.ToolStatus deriveStatus(ToolInstanceService.ToolInstanceStats stats) {
+        if (stats.getAvailable() > 0) {
+            return ToolEntity.ToolStatus.AVAILABLE;
+        } else if (stats.getLoaned() > 0) {
+            return ToolEntity.ToolStatus.LOANED;
+        } else if (stats.getUnderRepair() > 0) {
+            // Solo en reparación, o algunas dadas de baja pero otras aún operativas
+            return ToolEntity.ToolStatus.UNDER_REPAIR;
+        }
+        // Todas dadas de baja, o sin instancias
+        return ToolEntity.ToolStatus.DECOMMISSIONED;
+    }
+
+    // true si ninguna instancia puede volver a prestarse (ni disponible ni prestada)
+    public boolean hasNoOperationalInstances(Long toolId) {
+        ToolInstanceService.ToolInstanceStats stats = getStatusCounts(toolId);
+        return stats.getAvailable() == 0 && stats.getLoaned() == 0;
+    }
+}
@@ -0,0 +1,91 @@
+package com.toolrent.backend.loadtest;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Latencias por endpoint de la prueba de carga: guarda cada muestra (en nanosegundos) y al final
+// calcula throughput y percentiles p50/p95/p99 por rango más cercano sobre las muestras ordenadas
+class LatencyRecorder {
+
+    private final Map<String, EndpointSamples> samples = new ConcurrentHashMap<>();
+
+    void record(String endpoint, long elapsedNanos, boolean ok) {
+        samples.computeIfAbsent(endpoint, k -> new EndpointSamples()).add(elapsedNanos, ok);
+    }
+
+    List<EndpointReport> report(double elapsedSeconds) {
+        List<EndpointReport> reports = new ArrayList<>();
+        new TreeMap<>(samples).forEach((endpoint, s) -> reports.add(s.toReport(endpoint, elapsedSeconds)));
+        return reports;
+    }
+
+    static String format(List<EndpointReport> reports) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-34s %8s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (EndpointReport r : reports) {
+            sb.append(String.format("%-34s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    r.endpoint(), r.requests(), r.errors(), r.throughput(),
+                    r.p50Ms(), r.p95Ms(), r.p99Ms(), r.maxMs()));
+        }
+        return sb.toString();
+    }
+
+    static void writeCsv(List<EndpointReport> reports, Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println("endpoint,requests,errors,throughput_rps,p50_ms,p95_ms,p99_ms,max_ms");
+            for (EndpointReport r : reports) {
+                out.printf(java.util.Locale.ROOT, "%s,%d,%d,%.2f,%.3f,%.3f,%.3f,%.3f%n",
+                        r.endpoint(), r.requests(), r.errors(), r.throughput(),
+                        r.p50Ms(), r.p95Ms(), r.p99Ms(), r.maxMs());
+            }
+        }
+    }
+
+    record EndpointReport(String endpoint, int requests, int errors, double throughput,
+                          double p50Ms, double p95Ms, double p99Ms, double maxMs) {
+    }
+
+    private static final class EndpointSamples {
+        private long[] nanos = new long[1024];
+        private int count;
+        private int errors;
+
+        synchronized void add(long elapsedNanos, boolean ok) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = elapsedNanos;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        synchronized EndpointReport toReport(String endpoint, double elapsedSeconds) {
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            return new EndpointReport(endpoint, count, errors,
+                    elapsedSeconds > 0 ? count / elapsedSeconds : 0,
+                    percentileMs(sorted, 50), percentileMs(sorted, 95), percentileMs(sorted, 99),
+                    count == 0 ? 0 : sorted[count - 1] / 1_000_000.0);
+        }
+
+        private static double percentileMs(long[] sorted, int percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            return sorted[Math.max(rank, 1) - 1] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package com.toolrent.backend.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.toolrent.backend.entities.CategoryEntity;
+import com.toolrent.backend.entities.ClientEntity;
+import com.toolrent.backend.entities.RateEntity;
+import com.toolrent.backend.entities.ToolEntity;
+import com.toolrent.backend.repositories.CategoryRepository;
+import com.toolrent.backend.repositories.ClientRepository;
+import com.toolrent.backend.services.LoanDailyRollupService;
+import com.toolrent.backend.services.RateService;
+import com.toolrent.backend.services.ToolService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de carga de punta a punta: levanta la aplicación completa sobre PostgreSQL embebido (o una
+ * instancia local con -Dloadtest.jdbc-url), siembra un conjunto de datos con historia y ejecuta una mezcla
+ * de operaciones contra los endpoints REST reales: préstamo y devolución, disponibilidad, reportes,
+ * kardex y listado de préstamos. Al terminar imprime throughput y p50/p95/p99 por endpoint y los deja en
+ * target/loadtest/report.csv.
+ *
+ * Se excluye del build normal; se corre con:
+ *   mvn -Ploadtest test
+ *   mvn -Ploadtest test -Dloadtest.users=32 -Dloadtest.duration-seconds=120 -Dloadtest.history-loans=200000
+ */
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LoadTest {
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 16);
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration-seconds", 60);
+    private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmup-seconds", 10);
+    private static final int TOOLS = Integer.getInteger("loadtest.tools", 120);
+    private static final int STOCK_PER_TOOL = Integer.getInteger("loadtest.stock-per-tool", 25);
+    private static final int CLIENTS = Integer.getInteger("loadtest.clients", 2000);
+    private static final int HISTORY_LOANS = Integer.getInteger("loadtest.history-loans", 50000);
+    private static final int HISTORY_DAYS = Integer.getInteger("loadtest.history-days", 730);
+    private static final double MAX_ERROR_RATE =
+            Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+
+    // Un préstamo activo por cliente y herramienta, y a lo más 5 por cliente: cada usuario virtual
+    // deja margen para no chocar con las restricciones de negocio
+    private static final int MAX_ACTIVE_PER_CLIENT = 3;
+
+    private static EmbeddedPostgres embeddedPostgres;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        String jdbcUrl = System.getProperty("loadtest.jdbc-url");
+        if (jdbcUrl != null && !jdbcUrl.isBlank()) {
+            registry.add("spring.datasource.url", () -> jdbcUrl);
+            registry.add("spring.datasource.username", () -> System.getProperty("loadtest.jdbc-username", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getProperty("loadtest.jdbc-password", ""));
+        } else {
+            embeddedPostgres = EmbeddedPostgres.start();
+            registry.add("spring.datasource.url", () -> embeddedPostgres.getJdbcUrl("postgres", "postgres"));
+            registry.add("spring.datasource.username", () -> "postgres");
+            registry.add("spring.datasource.password", () -> "");
+        }
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> Math.max(10, USERS + 4));
+        registry.add("spring.jpa.show-sql", () -> "false");
+        registry.add("logging.level.com.toolrent.backend", () -> "WARN");
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        if (embeddedPostgres != null) {
+            embeddedPostgres.close();
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ToolService toolService;
+
+    @Autowired
+    private RateService rateService;
+
+    @Autowired
+    private LoanDailyRollupService loanDailyRollupService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newFixedThreadPool(4))
+            .build();
+
+    private List<Long> toolIds;
+    private List<Long> clientIds;
+
+    @Test
+    void mixedWorkload() throws Exception {
+        seed();
+
+        LatencyRecorder warmup = new LatencyRecorder();
+        runWorkload(warmup, WARMUP_SECONDS);
+
+        LatencyRecorder recorder = new LatencyRecorder();
+        long started = System.nanoTime();
+        runWorkload(recorder, DURATION_SECONDS);
+        double elapsedSeconds = (System.nanoTime() - started) / 1_000_000_000.0;
+
+        List<LatencyRecorder.EndpointReport> reports = recorder.report(elapsedSeconds);
+        System.out.printf("%nPrueba de carga: %d usuarios, %ds, %d herramientas, %d clientes, %d préstamos históricos%n",
+                USERS, DURATION_SECONDS, TOOLS, CLIENTS, HISTORY_LOANS);
+        System.out.println(LatencyRecorder.format(reports));
+        LatencyRecorder.writeCsv(reports, Path.of("target", "loadtest", "report.csv"));
+
+        assertFalse(reports.isEmpty(), "La prueba de carga no registró requests");
+        long requests = reports.stream().mapToLong(LatencyRecorder.EndpointReport::requests).sum();
+        long errors = reports.stream().mapToLong(LatencyRecorder.EndpointReport::errors).sum();
+        assertTrue(errors <= requests * MAX_ERROR_RATE,
+                "Tasa de error sobre el máximo: " + errors + " de " + requests + " requests");
+    }
+
+    // =============================================================================
+    // DATOS DE PRUEBA
+    // =============================================================================
+
+    private void seed() {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDate today = LocalDate.now();
+
+        for (RateEntity.RateType type : RateEntity.RateType.values()) {
+            if (!rateService.hasActiveRate(type)) {
+                RateEntity rate = new RateEntity();
+                rate.setType(type);
+                rate.setDailyAmount(type == RateEntity.RateType.REPAIR_RATE
+                        ? new BigDecimal("30.00") : new BigDecimal("5000.00"));
+                rate.setEffectiveFrom(today.minusDays(HISTORY_DAYS + 1L));
+                rate.setCreatedBy("loadtest");
+                rateService.createRate(rate);
+            }
+        }
+
+        // Herramientas por el servicio, para que instancias, contadores y kardex queden consistentes
+        List<CategoryEntity> categories = categoryRepository.findAll();
+        toolIds = new ArrayList<>(TOOLS);
+        for (int i = 0; i < TOOLS; i++) {
+            ToolEntity tool = new ToolEntity();
+            tool.setName("Herramienta carga " + i);
+            tool.setCategory(categories.get(i % categories.size()));
+            tool.setInitialStock(STOCK_PER_TOOL);
+            tool.setReplacementValue(BigDecimal.valueOf(20000 + random.nextInt(200) * 1000L));
+            tool.setRentalRate(BigDecimal.valueOf(2000 + random.nextInt(20) * 500L));
+            toolIds.add(toolService.createTool(tool).getId());
+        }
+
+        List<ClientEntity> clients = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            ClientEntity client = new ClientEntity();
+            client.setName("Cliente carga " + i);
+            client.setRut(rut(10_000_000 + i));
+            client.setPhone(String.format("+569%08d", 10_000_000 + i));
+            client.setEmail("cliente" + i + "@loadtest.cl");
+            client.setStatus(ClientEntity.ClientStatus.ACTIVE);
+            clients.add(client);
+        }
+        clientIds = clientRepository.saveAll(clients).stream().map(ClientEntity::getId).toList();
+
+        // Historia de préstamos ya devueltos: alimenta reportes y listados sin tocar el stock actual
+        List<Object[]> batch = new ArrayList<>(1000);
+        for (int i = 0; i < HISTORY_LOANS; i++) {
+            LocalDate loanDate = today.minusDays(1 + random.nextInt(HISTORY_DAYS));
+            LocalDate agreed = loanDate.plusDays(1 + random.nextInt(14));
+            int late = random.nextInt(10) == 0 ? 1 + random.nextInt(20) : 0;
+            LocalDate actual = agreed.plusDays(late);
+            if (actual.isAfter(today)) {
+                actual = today;
+            }
+            String status = late > 0 ? "OVERDUE" : (random.nextInt(50) == 0 ? "DAMAGED" : "RETURNED");
+            batch.add(new Object[]{
+                    clientIds.get(random.nextInt(clientIds.size())),
+                    toolIds.get(random.nextInt(toolIds.size())),
+                    1, Date.valueOf(loanDate), Date.valueOf(agreed), Date.valueOf(actual),
+                    new BigDecimal("5000.00"), "historial", status});
+            if (batch.size() == 1000) {
+                insertLoans(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insertLoans(batch);
+        }
+        // La historia se insertó por JDBC: reconstruir loan_daily_rollup como lo haría el backfill
+        loanDailyRollupService.rebuild(today.minusDays(HISTORY_DAYS), today);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    private void insertLoans(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("INSERT INTO loans (client_id, tool_id, quantity, loan_date, agreed_return_date, " +
+                "actual_return_date, daily_rate, notes, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", batch);
+    }
+
+    private static String rut(int number) {
+        int sum = 0;
+        int factor = 2;
+        for (int n = number; n > 0; n /= 10) {
+            sum += (n % 10) * factor;
+            factor = factor == 7 ? 2 : factor + 1;
+        }
+        int dv = 11 - (sum % 11);
+        return number + (dv == 11 ? "0" : dv == 10 ? "K" : String.valueOf(dv));
+    }
+
+    // =============================================================================
+    // CARGA
+    // =============================================================================
+
+    private void runWorkload(LatencyRecorder recorder, int seconds) throws Exception {
+        if (seconds <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService executor = Executors.newFixedThreadPool(USERS);
+        try {
+            List<Future<?>> users = new ArrayList<>();
+            for (int u = 0; u < USERS; u++) {
+                VirtualUser user = new VirtualUser(u, recorder);
+                users.add(executor.submit(() -> user.run(deadline)));
+            }
+            for (Future<?> user : users) {
+                user.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private record ActiveLoan(long loanId, long clientId, long toolId) {
+    }
+
+    // Cada usuario virtual trabaja con su propio subconjunto de clientes y devuelve sus propios préstamos,
+    // así la mezcla no depende de coordinación entre hilos
+    private final class VirtualUser {
+        private final SplittableRandom random;
+        private final LatencyRecorder recorder;
+        private final List<Long> ownClients = new ArrayList<>();
+        private final Deque<ActiveLoan> activeLoans = new ArrayDeque<>();
+
+        VirtualUser(int index, LatencyRecorder recorder) {
+            this.random = new SplittableRandom(1000L + index);
+            this.recorder = recorder;
+            for (int i = index; i < clientIds.size(); i += USERS) {
+                ownClients.add(clientIds.get(i));
+            }
+        }
+
+        void run(long deadline) {
+            while (System.nanoTime() < deadline) {
+                int roll = random.nextInt(100);
+                try {
+                    if (roll < 15) {
+                        createLoan();
+                    } else if (roll < 27) {
+                        returnLoan();
+                    } else if (roll < 42) {
+                        get("loan.availability", "/api/v1/loans/tool/" + randomTool() + "/availability?quantity=1");
+                    } else if (roll < 50) {
+                        bulkAvailability();
+                    } else if (roll < 55) {
+                        get("report.summary", "/api/v1/reports/summary" + randomPeriod());
+                    } else if (roll < 60) {
+                        get("report.popular-tools", "/api/v1/reports/popular-tools" + randomPeriod() + "&limit=10");
+                    } else if (roll < 65) {
+                        get("report.overdue-clients", "/api/v1/reports/overdue-clients" + randomPeriod());
+                    } else if (roll < 70) {
+                        get("report.active-loans", "/api/v1/reports/active-loans" + randomPeriod());
+                    } else if (roll < 80) {
+                        get("kardex.tool", "/api/kardex-movements/tool/" + randomTool());
+                    } else if (roll < 85) {
+                        LocalDate end = LocalDate.now();
+                        get("kardex.date-range", "/api/kardex-movements/date-range?startDate="
+                                + end.minusDays(7) + "&endDate=" + end);
+                    } else if (roll < 95) {
+                        get("loan.page", "/api/v1/loans/page?size=50&status="
+                                + (random.nextBoolean() ? "RETURNED" : "ACTIVE"));
+                    } else {
+                        get("loan.summary", "/api/v1/loans/reports/summary");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            // Devolver lo pendiente para que la siguiente fase parta con el stock completo
+            try {
+                while (!activeLoans.isEmpty()) {
+                    returnLoan();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void createLoan() throws InterruptedException {
+            long clientId = ownClients.get(random.nextInt(ownClients.size()));
+            Set<Long> toolsInUse = new HashSet<>();
+            for (ActiveLoan loan : activeLoans) {
+                if (loan.clientId() == clientId) {
+                    toolsInUse.add(loan.toolId());
+                }
+            }
+            if (toolsInUse.size() >= MAX_ACTIVE_PER_CLIENT) {
+                returnLoan();
+                return;
+            }
+            long toolId = randomTool();
+            if (toolsInUse.contains(toolId)) {
+                return;
+            }
+            String body = json(Map.of(
+                    "clientId", clientId,
+                    "toolId", toolId,
+                    "quantity", 1,
+                    "agreedReturnDate", LocalDate.now().plusDays(1 + random.nextInt(10)).toString(),
+                    "notes", "loadtest"));
+            HttpResponse<String> response = send("loan.create", HttpRequest.newBuilder(uri("/api/v1/loans/"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body)));
+            if (response != null && response.statusCode() == 200) {
+                JsonNode created = readTree(response.body());
+                if (created != null && created.hasNonNull("id")) {
+                    activeLoans.addLast(new ActiveLoan(created.get("id").asLong(), clientId, toolId));
+                }
+            }
+        }
+
+        private void returnLoan() throws InterruptedException {
+            ActiveLoan loan = activeLoans.pollFirst();
+            if (loan == null) {
+                get("loan.availability", "/api/v1/loans/tool/" + randomTool() + "/availability?quantity=1");
+                return;
+            }
+            send("loan.return", HttpRequest.newBuilder(uri("/api/v1/loans/" + loan.loanId() + "/return?damaged=false"))
+                    .PUT(HttpRequest.BodyPublishers.noBody()));
+        }
+
+        private void bulkAvailability() throws InterruptedException {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                ids.add(randomTool());
+            }
+            send("loan.availability-bulk", HttpRequest.newBuilder(uri("/api/v1/loans/availability"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(json(Map.of("toolIds", ids)))));
+        }
+
+        private void get(String endpoint, String path) throws InterruptedException {
+            send(endpoint, HttpRequest.newBuilder(uri(path)).GET());
+        }
+
+        private HttpResponse<String> send(String endpoint, HttpRequest.Builder request) throws InterruptedException {
+            long start = System.nanoTime();
+            try {
+                HttpResponse<String> response = http.send(request.timeout(Duration.ofSeconds(30)).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                recorder.record(endpoint, System.nanoTime() - start, response.statusCode() < 400);
+                return response;
+            } catch (IOException e) {
+                recorder.record(endpoint, System.nanoTime() - start, false);
+                return null;
+            }
+        }
+
+        private long randomTool() {
+            return toolIds.get(random.nextInt(toolIds.size()));
+        }
+
+        // Período de 30, 90 o 365 días hacia atrás desde hoy
+        private String randomPeriod() {
+            int[] spans = {30, 90, 365};
+            LocalDate end = LocalDate.now();
+            return "?startDate=" + end.minusDays(spans[random.nextInt(spans.length)]) + "&endDate=" + end;
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private JsonNode readTree(String body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
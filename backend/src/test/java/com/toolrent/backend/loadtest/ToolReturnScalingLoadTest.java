@@ -0,0 +1,246 @@
+package com.toolrent.backend.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.toolrent.backend.entities.CategoryEntity;
+import com.toolrent.backend.entities.ClientEntity;
+import com.toolrent.backend.entities.RateEntity;
+import com.toolrent.backend.entities.ToolEntity;
+import com.toolrent.backend.repositories.CategoryRepository;
+import com.toolrent.backend.repositories.ClientRepository;
+import com.toolrent.backend.services.RateService;
+import com.toolrent.backend.services.ToolInstanceService;
+import com.toolrent.backend.services.ToolService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Latencia de la devolución de un préstamo (PUT /api/v1/loans/{id}/return) a medida que crece
+ * tool_instances. Las instancias de relleno pertenecen a otra herramienta: el estado de la herramienta
+ * devuelta se deriva de sus propios conteos (ToolStatusService), así que la latencia no debería depender
+ * del tamaño de la tabla. Por cada tamaño se completa la tabla hasta ese total de filas y se mide una serie
+ * de ciclos préstamo + devolución sobre la herramienta medida; imprime p50/p95/p99 por tamaño y los deja en
+ * target/loadtest/return-scaling.csv.
+ *
+ * Se corre con el perfil de carga:
+ *   mvn -Ploadtest test -Dtest=ToolReturnScalingLoadTest
+ *   mvn -Ploadtest test -Dtest=ToolReturnScalingLoadTest -Dloadtest.return-scaling.sizes=1000,1000000
+ */
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ToolReturnScalingLoadTest {
+
+    private static final int[] SIZES = Arrays.stream(
+                    System.getProperty("loadtest.return-scaling.sizes", "1000,10000,100000,1000000").split(","))
+            .map(String::trim).mapToInt(Integer::parseInt).sorted().toArray();
+    private static final int ITERATIONS = Integer.getInteger("loadtest.return-scaling.iterations", 200);
+    private static final int WARMUP = Integer.getInteger("loadtest.return-scaling.warmup", 50);
+    // p50 del tamaño mayor, como múltiplo del p50 del menor, que todavía cuenta como "plano"
+    private static final double MAX_GROWTH =
+            Double.parseDouble(System.getProperty("loadtest.return-scaling.max-growth", "3.0"));
+
+    private static EmbeddedPostgres embeddedPostgres;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        String jdbcUrl = System.getProperty("loadtest.jdbc-url");
+        if (jdbcUrl != null && !jdbcUrl.isBlank()) {
+            registry.add("spring.datasource.url", () -> jdbcUrl);
+            registry.add("spring.datasource.username", () -> System.getProperty("loadtest.jdbc-username", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getProperty("loadtest.jdbc-password", ""));
+        } else {
+            embeddedPostgres = EmbeddedPostgres.start();
+            registry.add("spring.datasource.url", () -> embeddedPostgres.getJdbcUrl("postgres", "postgres"));
+            registry.add("spring.datasource.username", () -> "postgres");
+            registry.add("spring.datasource.password", () -> "");
+        }
+        registry.add("spring.jpa.show-sql", () -> "false");
+        registry.add("logging.level.com.toolrent.backend", () -> "WARN");
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        if (embeddedPostgres != null) {
+            embeddedPostgres.close();
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ToolService toolService;
+
+    @Autowired
+    private ToolInstanceService toolInstanceService;
+
+    @Autowired
+    private RateService rateService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @Test
+    void returnLatencyStaysFlatAsInstancesGrow() throws Exception {
+        seedRates();
+        List<CategoryEntity> categories = categoryRepository.findAll();
+        long measuredToolId = createTool("Herramienta medida", categories.get(0), 5);
+        long fillerToolId = createTool("Herramienta relleno", categories.get(0), 1);
+        long clientId = createClient();
+
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int size : SIZES) {
+            fillInstances(fillerToolId, size);
+            runCycles(new LatencyRecorder(), clientId, measuredToolId, WARMUP);
+            runCycles(recorder, clientId, measuredToolId, ITERATIONS, endpoint(size));
+        }
+
+        List<LatencyRecorder.EndpointReport> reports = recorder.report(0);
+        System.out.printf("%nDevolución vs. tamaño de tool_instances: %d ciclos por tamaño (%d de calentamiento)%n",
+                ITERATIONS, WARMUP);
+        System.out.println(LatencyRecorder.format(reports));
+        LatencyRecorder.writeCsv(reports, Path.of("target", "loadtest", "return-scaling.csv"));
+
+        Map<String, LatencyRecorder.EndpointReport> byEndpoint = new HashMap<>();
+        for (LatencyRecorder.EndpointReport report : reports) {
+            byEndpoint.put(report.endpoint(), report);
+            assertEquals(0, report.errors(), "Devoluciones con error en " + report.endpoint());
+        }
+        LatencyRecorder.EndpointReport smallest = byEndpoint.get(endpoint(SIZES[0]));
+        LatencyRecorder.EndpointReport largest = byEndpoint.get(endpoint(SIZES[SIZES.length - 1]));
+        assertNotNull(smallest);
+        assertNotNull(largest);
+        assertTrue(largest.p50Ms() <= smallest.p50Ms() * MAX_GROWTH,
+                "La devolución no es plana: p50 " + smallest.p50Ms() + " ms con " + SIZES[0] + " instancias, "
+                        + largest.p50Ms() + " ms con " + SIZES[SIZES.length - 1]);
+    }
+
+    // Nombre con ancho fijo para que el reporte quede ordenado por tamaño
+    private static String endpoint(int size) {
+        return String.format("loan.return@%09d instancias", size);
+    }
+
+    // =============================================================================
+    // DATOS DE PRUEBA
+    // =============================================================================
+
+    private void seedRates() {
+        for (RateEntity.RateType type : RateEntity.RateType.values()) {
+            if (!rateService.hasActiveRate(type)) {
+                RateEntity rate = new RateEntity();
+                rate.setType(type);
+                rate.setDailyAmount(type == RateEntity.RateType.REPAIR_RATE
+                        ? new BigDecimal("30.00") : new BigDecimal("5000.00"));
+                rate.setEffectiveFrom(LocalDate.now().minusDays(1));
+                rate.setCreatedBy("loadtest");
+                rateService.createRate(rate);
+            }
+        }
+    }
+
+    private long createTool(String name, CategoryEntity category, int stock) {
+        ToolEntity tool = new ToolEntity();
+        tool.setName(name);
+        tool.setCategory(category);
+        tool.setInitialStock(stock);
+        tool.setReplacementValue(new BigDecimal("50000"));
+        tool.setRentalRate(new BigDecimal("3000"));
+        return toolService.createTool(tool).getId();
+    }
+
+    private long createClient() {
+        ClientEntity client = new ClientEntity();
+        client.setName("Cliente devoluciones");
+        client.setRut("111111111");
+        client.setPhone("+56911111111");
+        client.setEmail("devoluciones@loadtest.cl");
+        client.setStatus(ClientEntity.ClientStatus.ACTIVE);
+        return clientRepository.save(client).getId();
+    }
+
+    // Completar tool_instances hasta el total pedido con instancias de la herramienta de relleno,
+    // repartidas entre los estados que la derivación del estado consulta
+    private void fillInstances(long fillerToolId, int totalRows) {
+        Long current = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tool_instances", Long.class);
+        long missing = totalRows - (current != null ? current : 0);
+        if (missing > 0) {
+            jdbcTemplate.update("INSERT INTO tool_instances (tool_id, status) " +
+                    "SELECT ?, (ARRAY['LOANED', 'UNDER_REPAIR', 'DECOMMISSIONED', 'AVAILABLE'])[1 + g % 4] " +
+                    "FROM generate_series(1, ?) g", fillerToolId, missing);
+            toolInstanceService.rebuildAllCounters();
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    // =============================================================================
+    // CICLOS PRÉSTAMO + DEVOLUCIÓN
+    // =============================================================================
+
+    private void runCycles(LatencyRecorder recorder, long clientId, long toolId, int cycles) throws Exception {
+        runCycles(recorder, clientId, toolId, cycles, "warmup");
+    }
+
+    private void runCycles(LatencyRecorder recorder, long clientId, long toolId, int cycles, String endpoint)
+            throws Exception {
+        for (int i = 0; i < cycles; i++) {
+            String body = objectMapper.writeValueAsString(Map.of(
+                    "clientId", clientId,
+                    "toolId", toolId,
+                    "quantity", 1,
+                    "agreedReturnDate", LocalDate.now().plusDays(7).toString(),
+                    "notes", "loadtest devolución"));
+            HttpResponse<String> created = http.send(HttpRequest.newBuilder(uri("/api/v1/loans/"))
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofSeconds(30))
+                    .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, created.statusCode(), "No se pudo crear el préstamo: " + created.body());
+            JsonNode loan = objectMapper.readTree(created.body());
+
+            long start = System.nanoTime();
+            HttpResponse<String> returned = http.send(HttpRequest.newBuilder(
+                            uri("/api/v1/loans/" + loan.get("id").asLong() + "/return?damaged=false"))
+                    .timeout(Duration.ofSeconds(30))
+                    .PUT(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+            recorder.record(endpoint, System.nanoTime() - start, returned.statusCode() < 400);
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
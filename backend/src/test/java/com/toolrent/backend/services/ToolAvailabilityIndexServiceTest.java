@@ -0,0 +1,294 @@
+package com.toolrent.backend.services;
+
+import com.toolrent.backend.repositories.LoanRepository;
+import com.toolrent.backend.repositories.ReservationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Índice de disponibilidad sin base de datos: los repositorios son mocks que entregan los intervalos
+// de préstamos activos y reservas confirmadas que carga rebuild()
+class ToolAvailabilityIndexServiceTest {
+
+    // Mismo tamaño de ventana que ToolAvailabilityIndexService.DAYS (privado)
+    private static final int DAYS = 1024;
+    private static final long TOOL = 1L;
+
+    private final LocalDate today = LocalDate.now();
+    private final List<Object[]> activeLoans = new ArrayList<>();
+    private final List<Object[]> confirmedReservations = new ArrayList<>();
+    private ToolAvailabilityIndexService index;
+
+    @BeforeEach
+    void setUp() {
+        LoanRepository loanRepository = mock(LoanRepository.class);
+        ReservationRepository reservationRepository = mock(ReservationRepository.class);
+        when(loanRepository.findActiveIntervals()).thenReturn(activeLoans);
+        when(reservationRepository.findConfirmedIntervals(any(LocalDate.class))).thenReturn(confirmedReservations);
+
+        index = new ToolAvailabilityIndexService();
+        ReflectionTestUtils.setField(index, "loanRepository", loanRepository);
+        ReflectionTestUtils.setField(index, "reservationRepository", reservationRepository);
+        index.rebuild();
+    }
+
+    @AfterEach
+    void clearTransaction() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    // ========== RESERVAS QUE SE CRUZAN ==========
+
+    @Test
+    void overlappingBookingsShareTheStock() {
+        assertTrue(book("R1", 10, 15, false, 2));
+        assertTrue(book("R2", 12, 20, false, 2));
+
+        // Días 12 a 15: las dos unidades están comprometidas
+        assertFalse(book("R3", 14, 14, false, 2));
+        assertEquals(0, free(2, 12, 15));
+        // Días 16 a 20 solo los ocupa R2
+        assertTrue(book("R4", 16, 20, false, 2));
+        assertEquals(0, free(2, 16, 20));
+        assertEquals(2, free(2, 21, 30));
+        // Un rango que toca el pico por un solo día tampoco cabe
+        assertFalse(book("R5", 5, 12, false, 2));
+    }
+
+    @Test
+    void loanCapacityIncludesUnitsAlreadyOut() {
+        // El préstamo se registra con el stock anterior al movimiento (2); después quedan 1 en tienda
+        assertTrue(book("L1", 0, 5, true, 2));
+        ToolAvailabilityIndexService.Availability availability = availability(1, 0, 5);
+        assertEquals(2, availability.getCapacity());
+        assertEquals(1, availability.getPeakUsage());
+        assertEquals(1, availability.getFreeUnits());
+        // Después del término del préstamo vuelven las dos unidades
+        assertEquals(2, free(1, 6, 10));
+    }
+
+    @Test
+    void overdueLoansKeepTheirUnitsOutOfFutureRanges() {
+        activeLoans.add(new Object[]{7L, TOOL, today.minusDays(10), today.minusDays(3), 1});
+        index.rebuild();
+
+        ToolAvailabilityIndexService.Availability availability = availability(1, 1, 3);
+        assertEquals(2, availability.getCapacity());
+        assertEquals(1, availability.getOverdueUnits());
+        assertEquals(1, availability.getFreeUnits());
+    }
+
+    @Test
+    void pastDaysDoNotLimitNewBookings() {
+        // Un préstamo atrasado que empezó antes de hoy no cuenta dos veces (rango y atraso)
+        activeLoans.add(new Object[]{7L, TOOL, today.minusDays(5), today.minusDays(1), 1});
+        index.rebuild();
+        assertEquals(1, free(1, -3, 2));
+    }
+
+    // ========== LIBERACIÓN ==========
+
+    @Test
+    void releaseWithoutTransactionFreesImmediately() {
+        assertTrue(book("R1", 1, 3, false, 1));
+        index.releaseAfterCommit("R1");
+        assertEquals(1, free(1, 1, 3));
+
+        assertTrue(book("R2", 1, 3, false, 1));
+        index.releaseNow("R2");
+        assertEquals(1, free(1, 1, 3));
+    }
+
+    @Test
+    void releaseAfterCommitKeepsUnitsUntilCommit() {
+        assertTrue(book("R1", 1, 3, false, 1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        index.releaseAfterCommit("R1");
+        assertEquals(0, free(1, 1, 3));
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(1, free(1, 1, 3));
+    }
+
+    @Test
+    void releaseNowIsRestoredOnRollback() {
+        assertTrue(book("R1", 1, 3, false, 1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        index.releaseNow("R1");
+        assertEquals(1, free(1, 1, 3));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(0, free(1, 1, 3));
+    }
+
+    @Test
+    void bookingIsUndoneOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(book("R1", 1, 3, false, 1));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(1, free(1, 1, 3));
+    }
+
+    @Test
+    void moveIsRevertedOnRollback() {
+        assertTrue(book("L1", 0, 3, true, 1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(index.tryMove("L1", today, today.plusDays(8), 0));
+        assertEquals(0, free(0, 6, 8));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(1, free(0, 6, 8));
+        assertEquals(0, free(0, 1, 3));
+    }
+
+    @Test
+    void moveFailsWithoutChangesWhenTheNewRangeDoesNotFit() {
+        assertTrue(book("L1", 0, 3, true, 1));
+        assertTrue(book("R1", 6, 8, false, 0));
+        assertFalse(index.tryMove("L1", today, today.plusDays(8), 0));
+        assertEquals(0, free(0, 1, 3));
+        assertEquals(1, free(0, 4, 5));
+    }
+
+    // ========== CLAVE PROVISIONAL (PRÉSTAMO MÚLTIPLE) ==========
+
+    @Test
+    void rekeyMovesTheBookingToTheLoanKey() {
+        String provisional = ToolAvailabilityIndexService.provisionalKey();
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(book(provisional, 0, 5, true, 1));
+        index.rekey(provisional, ToolAvailabilityIndexService.loanKey(42L));
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        // La clave provisional ya no existe: liberarla no cambia nada
+        index.releaseAfterCommit(provisional);
+        assertEquals(0, free(0, 1, 5));
+        // La devolución libera por la clave del préstamo y la unidad vuelve a la tienda
+        index.releaseAfterCommit(ToolAvailabilityIndexService.loanKey(42L));
+        assertEquals(1, free(1, 1, 5));
+    }
+
+    @Test
+    void rekeyedBookingIsUndoneOnRollback() {
+        String provisional = ToolAvailabilityIndexService.provisionalKey();
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(book(provisional, 0, 5, true, 1));
+        index.rekey(provisional, ToolAvailabilityIndexService.loanKey(42L));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(1, free(1, 0, 5));
+    }
+
+    @Test
+    void rekeyedBookingSurvivesARebuildBeforeCommit() {
+        String provisional = ToolAvailabilityIndexService.provisionalKey();
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(book(provisional, 0, 5, true, 1));
+        index.rekey(provisional, ToolAvailabilityIndexService.loanKey(42L));
+
+        // La base de datos aún no tiene el préstamo: se conserva desde las reservas pendientes
+        index.rebuild();
+        assertEquals(0, free(0, 1, 5));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(1, free(1, 1, 5));
+    }
+
+    @Test
+    void cancelledBookingIsNotRestoredOnRollback() {
+        String provisional = ToolAvailabilityIndexService.provisionalKey();
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(book(provisional, 0, 5, true, 1));
+        index.cancelBooking(provisional);
+        assertEquals(1, free(1, 0, 5));
+
+        // La línea descartada no vuelve al índice aunque la transacción se revierta
+        index.rebuild();
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(1, free(1, 0, 5));
+    }
+
+    // ========== BORDE DE LA VENTANA DE DAYS DÍAS ==========
+
+    @Test
+    void bookingAtTheMaximumHorizonIsTracked() {
+        int last = ToolAvailabilityIndexService.MAX_DAYS_AHEAD;
+        assertTrue(book("R1", last, last, false, 1));
+        assertFalse(book("R2", last - 1, last, false, 1));
+        assertEquals(1, free(1, last - 1, last - 1));
+    }
+
+    @Test
+    void rangesPastTheWindowAreClampedToItsLastDay() {
+        // Origen = hoy - 7, así que el último día de la ventana es hoy + DAYS - 8
+        int lastDay = DAYS - 8;
+        assertTrue(book("R1", lastDay - 2, lastDay + 4000, false, 1));
+        assertEquals(0, free(1, lastDay, lastDay));
+        assertEquals(0, free(1, lastDay + 100, lastDay + 200));
+        assertEquals(1, free(1, lastDay - 10, lastDay - 3));
+    }
+
+    @Test
+    void indexIsRebuiltBeforeTheHorizonLeavesTheWindow() {
+        confirmedReservations.add(new Object[]{5L, TOOL, today.plusDays(2), today.plusDays(4), 1});
+        index.rebuild();
+        long origin = originDay();
+        assertEquals(today.toEpochDay() - 7, origin);
+
+        // Un día antes del borde: hoy + MAX_DAYS_AHEAD todavía cabe en la ventana, no se reconstruye
+        long safeOrigin = today.toEpochDay() + ToolAvailabilityIndexService.MAX_DAYS_AHEAD + 2 - DAYS;
+        ReflectionTestUtils.setField(index, "originDay", safeOrigin);
+        free(1, 0, 1);
+        assertEquals(safeOrigin, originDay());
+
+        // En el borde se reconstruye con un origen nuevo y las reservas se vuelven a cargar
+        ReflectionTestUtils.setField(index, "originDay", safeOrigin - 1);
+        assertEquals(0, free(1, 2, 4));
+        assertNotEquals(safeOrigin - 1, originDay());
+        assertEquals(today.toEpochDay() - 7, originDay());
+        assertEquals(1, free(1, 5, 6));
+    }
+
+    // ========== AUXILIARES ==========
+
+    private boolean book(String key, int fromOffset, int toOffset, boolean loan, int stockInShop) {
+        return index.tryBook(key, TOOL, today.plusDays(fromOffset), today.plusDays(toOffset), 1, stockInShop, loan);
+    }
+
+    private ToolAvailabilityIndexService.Availability availability(int stockInShop, int fromOffset, int toOffset) {
+        return index.getAvailability(TOOL, stockInShop, today.plusDays(fromOffset), today.plusDays(toOffset));
+    }
+
+    private int free(int stockInShop, int fromOffset, int toOffset) {
+        return availability(stockInShop, fromOffset, toOffset).getFreeUnits();
+    }
+
+    private long originDay() {
+        return (long) ReflectionTestUtils.getField(index, "originDay");
+    }
+
+    // Fin de la transacción simulada: afterCommit y afterCompletion como los llama Spring
+    private void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
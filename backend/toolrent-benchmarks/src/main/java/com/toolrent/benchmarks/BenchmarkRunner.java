@@ -0,0 +1,27 @@
+package com.toolrent.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Punto de entrada de benchmarks.jar. Acepta las mismas opciones que el Main de JMH
+// (filtro por nombre, -wi, -i, -f, -prof, ...); si no se indica -rf, los resultados quedan
+// en formato JSON en jmh-result.json para compararlos entre versiones.
+public class BenchmarkRunner {
+
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmdOptions);
+        if (!cmdOptions.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+            if (!cmdOptions.getResult().hasValue()) {
+                builder.result(DEFAULT_RESULT_FILE);
+            }
+        }
+        new Runner(builder.build()).run();
+    }
+}
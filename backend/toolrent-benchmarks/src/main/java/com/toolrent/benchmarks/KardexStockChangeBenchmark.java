@@ -0,0 +1,46 @@
+package com.toolrent.benchmarks;
+
+import com.toolrent.backend.entities.KardexMovementEntity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// KardexMovementEntity.calculateStockChange sobre una mezcla de tipos de movimiento
+// (se usa al recalcular stock y en los filtros de entradas/salidas del kardex)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KardexStockChangeBenchmark {
+
+    @Param({"1000"})
+    public int movements;
+
+    private KardexMovementEntity[] data;
+
+    @Setup
+    public void setup() {
+        KardexMovementEntity.MovementType[] types = KardexMovementEntity.MovementType.values();
+        SplittableRandom random = new SplittableRandom(42);
+        data = new KardexMovementEntity[movements];
+        for (int i = 0; i < movements; i++) {
+            KardexMovementEntity movement = new KardexMovementEntity();
+            movement.setType(types[random.nextInt(types.length)]);
+            movement.setQuantity(1 + random.nextInt(5));
+            data[i] = movement;
+        }
+    }
+
+    // Suma de los cambios de stock de todos los movimientos
+    @Benchmark
+    public int calculateStockChange() {
+        int total = 0;
+        for (KardexMovementEntity movement : data) {
+            total += movement.calculateStockChange();
+        }
+        return total;
+    }
+}
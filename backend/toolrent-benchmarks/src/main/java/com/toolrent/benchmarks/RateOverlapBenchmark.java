@@ -0,0 +1,57 @@
+package com.toolrent.benchmarks;
+
+import com.toolrent.backend.entities.RateEntity;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// RateEntity.overlapsWith con tarifas abiertas (sin effectiveTo) y cerradas
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateOverlapBenchmark {
+
+    @Param({"1000"})
+    public int rates;
+
+    private RateEntity[] data;
+    private LocalDate[] starts;
+    private LocalDate[] ends;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDate base = LocalDate.of(2025, 1, 1);
+        data = new RateEntity[rates];
+        starts = new LocalDate[rates];
+        ends = new LocalDate[rates];
+        for (int i = 0; i < rates; i++) {
+            RateEntity rate = new RateEntity();
+            rate.setType(RateEntity.RateType.RENTAL_RATE);
+            LocalDate from = base.plusDays(random.nextInt(365));
+            rate.setEffectiveFrom(from);
+            rate.setEffectiveTo(random.nextInt(4) == 0 ? null : from.plusDays(1 + random.nextInt(90)));
+            data[i] = rate;
+
+            LocalDate start = base.plusDays(random.nextInt(365));
+            starts[i] = start;
+            ends[i] = start.plusDays(random.nextInt(30));
+        }
+    }
+
+    @Benchmark
+    public int overlapsWith() {
+        int overlapping = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i].overlapsWith(starts[i], ends[i])) {
+                overlapping++;
+            }
+        }
+        return overlapping;
+    }
+}
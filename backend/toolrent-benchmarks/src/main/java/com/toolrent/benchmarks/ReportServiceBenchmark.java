@@ -0,0 +1,213 @@
+package com.toolrent.benchmarks;
+
+import com.toolrent.backend.repositories.LoanDailyRollupRepository;
+import com.toolrent.backend.repositories.LoanRepository;
+import com.toolrent.backend.repositories.RateRepository;
+import com.toolrent.backend.services.LoanDailyRollupService;
+import com.toolrent.backend.services.MetricsService;
+import com.toolrent.backend.services.RateService;
+import com.toolrent.backend.services.ReportService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Lado Java de los reportes agregados en SQL: ReportService recibe las filas de las consultas nativas
+// (LoanRepository y LoanDailyRollupRepository) y las convierte en los DTOs de cada reporte.
+// Los repositorios son proxies en memoria que entregan filas con los tipos que entrega el driver
+// (Long, Integer, BigDecimal, java.sql.Date): se mide el mapeo de filas y los resúmenes, no la consulta.
+// "rows" es la cantidad de filas que entrega cada consulta (préstamos activos, clientes atrasados,
+// herramientas y días).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportServiceBenchmark {
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private ReportService reportService;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    @Setup
+    public void setup() throws Exception {
+        endDate = LocalDate.now();
+        startDate = endDate.minusDays(365);
+        SplittableRandom random = new SplittableRandom(42);
+
+        Map<String, List<Object[]>> loanRows = new HashMap<>();
+        loanRows.put("findActiveLoanRows", activeLoanRows(random, rows));
+        loanRows.put("summarizeActiveLoans", Collections.singletonList(
+                new Object[]{(long) rows, (long) rows / 2, BigDecimal.valueOf(6.5)}));
+        List<Object[]> overdueClients = overdueClientRows(random, rows);
+        loanRows.put("aggregateOverdueClients", overdueClients);
+        loanRows.put("findOverdueLoanRows", overdueLoanRows(random, overdueClients));
+
+        Map<String, List<Object[]>> rollupRows = new HashMap<>();
+        rollupRows.put("aggregatePopularTools", popularToolRows(random, rows));
+        rollupRows.put("findDailyTotals", dailyTotalRows(random, rows, endDate));
+
+        RateService rateService = new RateService();
+        inject(rateService, "rateRepository", repository(RateRepository.class, Collections.emptyMap()));
+
+        LoanDailyRollupService loanDailyRollupService = new LoanDailyRollupService(null, false);
+        inject(loanDailyRollupService, "rollupRepository", repository(LoanDailyRollupRepository.class, rollupRows));
+
+        reportService = new ReportService();
+        inject(reportService, "loanRepository", repository(LoanRepository.class, loanRows));
+        inject(reportService, "rateService", rateService);
+        inject(reportService, "metricsService", new MetricsService(new SimpleMeterRegistry()));
+        inject(reportService, "loanDailyRollupService", loanDailyRollupService);
+    }
+
+    @Benchmark
+    public Object activeLoansReport() {
+        return reportService.getActiveLoansReport(startDate, endDate);
+    }
+
+    @Benchmark
+    public Object overdueClientsReport() {
+        return reportService.getOverdueClientsReport(startDate, endDate);
+    }
+
+    @Benchmark
+    public Object popularToolsReport() {
+        return reportService.getPopularToolsReport(startDate, endDate, rows);
+    }
+
+    @Benchmark
+    public Object dailyStats() {
+        return reportService.getDailyStats(startDate, endDate);
+    }
+
+    @Benchmark
+    public Object generalSummary() {
+        return reportService.getGeneralSummary(startDate, endDate);
+    }
+
+    // findActiveLoanRows: id, cliente, herramienta, categoría, cantidad, fecha préstamo, fecha acordada,
+    // días de atraso, notas
+    private static List<Object[]> activeLoanRows(SplittableRandom random, int count) {
+        LocalDate today = LocalDate.now();
+        List<Object[]> result = new ArrayList<>(count);
+        for (long i = 1; i <= count; i++) {
+            LocalDate loanDate = today.minusDays(random.nextInt(60));
+            LocalDate agreed = loanDate.plusDays(1 + random.nextInt(14));
+            int daysOverdue = agreed.isBefore(today) ? (int) (today.toEpochDay() - agreed.toEpochDay()) : 0;
+            result.add(new Object[]{i, "Cliente " + random.nextInt(count), "Herramienta " + random.nextInt(200),
+                    random.nextInt(10) == 0 ? null : "Categoría " + random.nextInt(8), 1,
+                    Date.valueOf(loanDate), Date.valueOf(agreed), daysOverdue, i % 3 == 0 ? "notas" : null});
+        }
+        return result;
+    }
+
+    // aggregateOverdueClients: id, nombre, email, teléfono, préstamos, máximo, promedio y suma de días de atraso
+    private static List<Object[]> overdueClientRows(SplittableRandom random, int count) {
+        List<Object[]> result = new ArrayList<>(count);
+        for (long i = 1; i <= count; i++) {
+            int loans = 1 + random.nextInt(4);
+            int maxDays = 1 + random.nextInt(30);
+            long totalDays = (long) loans * (1 + maxDays) / 2;
+            result.add(new Object[]{i, "Cliente " + i, "cliente" + i + "@correo.cl", "+5691234" + (1000 + i % 9000),
+                    (long) loans, maxDays, BigDecimal.valueOf(totalDays).divide(BigDecimal.valueOf(loans),
+                    4, RoundingMode.HALF_UP), totalDays});
+        }
+        return result;
+    }
+
+    // findOverdueLoanRows: client_id, id, herramienta, días de atraso (los préstamos de cada cliente)
+    private static List<Object[]> overdueLoanRows(SplittableRandom random, List<Object[]> clients) {
+        List<Object[]> result = new ArrayList<>();
+        long loanId = 1;
+        for (Object[] client : clients) {
+            long loans = (Long) client[4];
+            for (int j = 0; j < loans; j++) {
+                result.add(new Object[]{client[0], loanId++, "Herramienta " + random.nextInt(200),
+                        1 + random.nextInt((Integer) client[5])});
+            }
+        }
+        return result;
+    }
+
+    // aggregatePopularTools: id, nombre, categoría, préstamos, unidades, bits del sketch de clientes,
+    // duración promedio, herramientas y préstamos del período (ventana, igual en todas las filas)
+    private static List<Object[]> popularToolRows(SplittableRandom random, int count) {
+        List<Object[]> result = new ArrayList<>(count);
+        long totalLoans = 0;
+        long[] loans = new long[count];
+        for (int i = 0; i < count; i++) {
+            // Orden descendente, como lo entrega la consulta
+            loans[i] = Math.max(1, (long) count * 5 / (i + 1));
+            totalLoans += loans[i];
+        }
+        for (int i = 0; i < count; i++) {
+            result.add(new Object[]{(long) i + 1, "Herramienta " + (i + 1),
+                    random.nextInt(10) == 0 ? null : "Categoría " + random.nextInt(8),
+                    BigDecimal.valueOf(loans[i]), BigDecimal.valueOf(loans[i]),
+                    (int) Math.min(1023, loans[i]), BigDecimal.valueOf(1 + random.nextInt(140), 1),
+                    (long) count, BigDecimal.valueOf(totalLoans)});
+        }
+        return result;
+    }
+
+    // findDailyTotals: día, préstamos, devoluciones, devoluciones atrasadas y con daño, ingresos por arriendo
+    // y por multas, bits del sketch de clientes
+    private static List<Object[]> dailyTotalRows(SplittableRandom random, int count, LocalDate endDate) {
+        List<Object[]> result = new ArrayList<>(count);
+        for (int i = count - 1; i >= 0; i--) {
+            long started = random.nextInt(200);
+            long returned = random.nextInt(200);
+            result.add(new Object[]{Date.valueOf(endDate.minusDays(i)), BigDecimal.valueOf(started),
+                    BigDecimal.valueOf(returned), BigDecimal.valueOf(returned / 10), BigDecimal.valueOf(returned / 50),
+                    BigDecimal.valueOf(returned * 15000), BigDecimal.valueOf(random.nextInt(50) * 2000L),
+                    (int) Math.min(1023, started)});
+        }
+        return result;
+    }
+
+    // Repositorio en memoria: cada método con filas configuradas las entrega; el resto de los métodos
+    // que retornan List entregan una lista vacía
+    @SuppressWarnings("unchecked")
+    private static <R> R repository(Class<R> type, Map<String, List<Object[]>> rowsByMethod) {
+        return (R) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return type.getSimpleName() + "(benchmark)";
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    if (rowsByMethod.containsKey(method.getName())) {
+                        return rowsByMethod.get(method.getName());
+                    }
+                    if (List.class.isAssignableFrom(method.getReturnType())) {
+                        return Collections.emptyList();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static void inject(Object target, String fieldName, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
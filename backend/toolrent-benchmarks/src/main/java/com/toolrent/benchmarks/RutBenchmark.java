@@ -0,0 +1,65 @@
+package com.toolrent.benchmarks;
+
+import com.toolrent.backend.services.ClientService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+// Validación y normalización de RUT (ClientService.isValidRut / normalizeRut), que corren en cada
+// alta, edición y búsqueda de cliente. Son privados: se invocan con MethodHandles guardados en
+// campos static final, que el JIT trata como constantes.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RutBenchmark {
+
+    private static final MethodHandle IS_VALID_RUT;
+    private static final MethodHandle NORMALIZE_RUT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(ClientService.class, MethodHandles.lookup());
+            IS_VALID_RUT = lookup.findVirtual(ClientService.class, "isValidRut",
+                    MethodType.methodType(boolean.class, String.class));
+            NORMALIZE_RUT = lookup.findVirtual(ClientService.class, "normalizeRut",
+                    MethodType.methodType(String.class, String.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Formatos que llegan desde el frontend: con puntos y guion, solo guion, sin formato, K minúscula,
+    // dígito verificador incorrecto y texto inválido
+    private static final String[] RUTS = {
+            "12.345.678-5", "12345678-5", "123456785", "7.654.321-6", "20.123.456-k",
+            "11.111.111-2", "abc.def.ghi-j", " 9.876.543-3 "
+    };
+
+    private ClientService clientService;
+
+    @Setup
+    public void setup() {
+        clientService = new ClientService();
+    }
+
+    @Benchmark
+    public void isValidRut(Blackhole bh) throws Throwable {
+        for (String rut : RUTS) {
+            bh.consume((boolean) IS_VALID_RUT.invokeExact(clientService, rut));
+        }
+    }
+
+    @Benchmark
+    public void normalizeRut(Blackhole bh) throws Throwable {
+        for (String rut : RUTS) {
+            bh.consume((String) NORMALIZE_RUT.invokeExact(clientService, rut));
+        }
+    }
+}
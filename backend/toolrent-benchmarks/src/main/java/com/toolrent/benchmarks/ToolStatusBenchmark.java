@@ -0,0 +1,51 @@
+package com.toolrent.benchmarks;
+
+import com.toolrent.backend.entities.ToolEntity;
+import com.toolrent.backend.services.ToolInstanceService;
+import com.toolrent.backend.services.ToolStatusService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Derivación del estado de una herramienta desde los conteos de sus instancias
+// (ToolStatusService.deriveStatus(ToolInstanceStats), sin pasar por la base de datos)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ToolStatusBenchmark {
+
+    @Param({"1000"})
+    public int tools;
+
+    private ToolStatusService toolStatusService;
+    private ToolInstanceService.ToolInstanceStats[] stats;
+
+    @Setup
+    public void setup() {
+        toolStatusService = new ToolStatusService(null);
+        SplittableRandom random = new SplittableRandom(42);
+        stats = new ToolInstanceService.ToolInstanceStats[tools];
+        for (int i = 0; i < tools; i++) {
+            // Con frecuencia alguno de los conteos es 0, para recorrer todas las ramas
+            long available = random.nextInt(3) == 0 ? 0 : random.nextInt(10);
+            long loaned = random.nextInt(2) == 0 ? 0 : random.nextInt(10);
+            long underRepair = random.nextInt(2) == 0 ? 0 : random.nextInt(3);
+            long decommissioned = random.nextInt(3);
+            stats[i] = new ToolInstanceService.ToolInstanceStats(available, loaned, underRepair, decommissioned,
+                    available + loaned + underRepair + decommissioned);
+        }
+    }
+
+    @Benchmark
+    public void deriveStatus(Blackhole bh) {
+        for (ToolInstanceService.ToolInstanceStats toolStats : stats) {
+            ToolEntity.ToolStatus status = toolStatusService.deriveStatus(toolStats);
+            bh.consume(status);
+        }
+    }
+}
@@ -31,7 +31,9 @@ const LoanManagement = () => {
         activeLoans,
         overdueLoans,
         loading,
+        hasMoreLoans,
         loadLoans,
+        loadMoreLoans,
         loadActiveLoans,
         loadOverdueLoans,
         createLoan,
@@ -207,6 +209,8 @@ const LoanManagement = () => {
                         onReturnTool={handleReturnTool}
                         onRefresh={loadLoans}
                         showReturnButton={true}
+                        hasMore={hasMoreLoans}
+                        onLoadMore={loadMoreLoans}
                     />
                 )}
 
@@ -229,6 +233,8 @@ const LoanManagement = () => {
                         emptyMessage="No hay préstamos en el historial"
                         onRefresh={loadLoans}
                         showReturnButton={false}
+                        hasMore={hasMoreLoans}
+                        onLoadMore={loadMoreLoans}
                     />
                 )}
             </div>
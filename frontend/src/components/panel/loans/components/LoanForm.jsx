@@ -55,13 +55,29 @@ const LoanForm = ({ onSubmit, onClose, onSuccess }) => {
             const availableTools = response.data.filter(tool =>
                 tool.status === 'AVAILABLE' && tool.currentStock > 0
             );
-            setTools(availableTools);
+            setTools(await filterByAvailability(availableTools));
         } catch (err) {
             console.error('Error loading tools:', err);
             setError('Error al cargar las herramientas');
         }
     };
 
+    // Una sola llamada para todas las herramientas: descarta las que tienen sus unidades reservadas hoy
+    const filterByAvailability = async (candidateTools) => {
+        if (candidateTools.length === 0) return candidateTools;
+        try {
+            const response = await httpClient.post('/api/v1/loans/availability', {
+                toolIds: candidateTools.map(tool => tool.id)
+            });
+            const results = response.data?.tools || {};
+            return candidateTools.filter(tool => results[tool.id]?.available !== false);
+        } catch (err) {
+            // Si falla, se mantiene el filtro por stock; ToolAvailability valida la herramienta elegida
+            console.error('Error checking tools availability:', err);
+            return candidateTools;
+        }
+    };
+
     const validateComprehensive = async () => {
         setValidating(true);
         try {
@@ -355,6 +371,7 @@ const LoanForm = ({ onSubmit, onClose, onSuccess }) => {
                                     toolId={parseInt(formData.toolId)}
                                     quantity={1}
                                     clientId={formData.clientId ? parseInt(formData.clientId) : null}
+                                    agreedReturnDate={formData.agreedReturnDate || undefined}
                                     onAvailabilityChange={handleToolAvailabilityChange}
                                 />
                             )}
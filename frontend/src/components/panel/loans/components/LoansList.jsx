@@ -22,7 +22,9 @@ const LoansList = ({
                        emptyMessage = "No hay préstamos",
                        onReturnTool,
                        onRefresh,
-                       showReturnButton = false
+                       showReturnButton = false,
+                       hasMore = false,
+                       onLoadMore
                    }) => {
     const [searchTerm, setSearchTerm] = useState('');
     const [statusFilter, setStatusFilter] = useState('all');
@@ -321,6 +323,24 @@ const LoansList = ({
                     })
                 )}
             </div>
+
+            {/* Paginación: el historial se carga por páginas desde el servidor */}
+            {hasMore && onLoadMore && (
+                <div className="p-4 border-t border-gray-700 text-center">
+                    <button
+                        onClick={onLoadMore}
+                        disabled={loading}
+                        className="inline-flex items-center px-4 py-2 bg-gray-700 text-white rounded hover:bg-gray-600 transition-colors text-sm disabled:opacity-50"
+                    >
+                        {loading ? (
+                            <Loader className="h-4 w-4 mr-2 animate-spin" />
+                        ) : (
+                            <RefreshCw className="h-4 w-4 mr-2" />
+                        )}
+                        Cargar más
+                    </button>
+                </div>
+            )}
         </div>
     );
 };
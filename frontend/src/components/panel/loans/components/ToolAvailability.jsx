@@ -12,7 +12,7 @@ import {
 } from 'lucide-react';
 import httpClient from "../../../../http-common";
 
-const ToolAvailability = ({ toolId, quantity = 1, clientId, onAvailabilityChange }) => {
+const ToolAvailability = ({ toolId, quantity = 1, clientId, agreedReturnDate, onAvailabilityChange }) => {
     const [availability, setAvailability] = useState(null);
     const [clientToolCheck, setClientToolCheck] = useState(null);
     const [loading, setLoading] = useState(false);
@@ -28,16 +28,16 @@ const ToolAvailability = ({ toolId, quantity = 1, clientId, onAvailabilityChange
                 onAvailabilityChange(null);
             }
         }
-    }, [toolId, quantity, clientId]);
+    }, [toolId, quantity, clientId, agreedReturnDate]);
 
     const validateToolAvailability = async () => {
         setLoading(true);
         setError('');
 
         try {
-            // Verificar disponibilidad de la herramienta
+            // Verificar disponibilidad de la herramienta hasta la fecha acordada (descuenta reservas futuras)
             const toolResponse = await httpClient.get(`/api/v1/loans/tool/${toolId}/availability`, {
-                params: { quantity }
+                params: agreedReturnDate ? { quantity, to: agreedReturnDate } : { quantity }
             });
             const toolAvailability = toolResponse.data;
             setAvailability(toolAvailability);
@@ -91,6 +91,8 @@ const ToolAvailability = ({ toolId, quantity = 1, clientId, onAvailabilityChange
                 return 'Herramienta no disponible';
             } else if (availability.issueType === 'INSUFFICIENT_STOCK') {
                 return 'Stock insuficiente';
+            } else if (availability.issueType === 'RESERVED') {
+                return 'Reservada en ese período';
             } else {
                 return 'No disponible';
             }
@@ -199,6 +201,13 @@ const ToolAvailability = ({ toolId, quantity = 1, clientId, onAvailabilityChange
                             </div>
                         )}
 
+                        {availability.freeUnits !== undefined && availability.periodEnd && (
+                            <div>
+                                <span className="text-gray-400">Libres hasta {availability.periodEnd}:</span>
+                                <p className="text-white font-medium">{availability.freeUnits}</p>
+                            </div>
+                        )}
+
                         {availability.issue && (
                             <div className="md:col-span-2">
                                 <span className="text-gray-400">Problema:</span>
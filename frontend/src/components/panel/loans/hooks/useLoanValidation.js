@@ -50,6 +50,19 @@ export const useLoanValidation = () => {
         }
     }, []);
 
+    // Disponibilidad de varias herramientas en una sola llamada
+    const checkToolsAvailability = useCallback(async (toolIds, { quantity = 1, from, to } = {}) => {
+        try {
+            const response = await httpClient.post('/api/v1/loans/availability', {
+                toolIds, quantity, from, to
+            });
+            return response.data;
+        } catch (err) {
+            console.error('Error checking tools availability:', err);
+            throw new Error(err.response?.data?.message || err.message || 'Error al verificar disponibilidad de herramientas');
+        }
+    }, []);
+
     // Verificar si cliente ya tiene préstamo de herramienta específica
     const checkClientToolLoan = useCallback(async (clientId, toolId) => {
         try {
@@ -293,6 +306,7 @@ export const useLoanValidation = () => {
         validateLoanRequest,
         checkClientRestrictions,
         checkToolAvailability,
+        checkToolsAvailability,
         checkClientToolLoan,
         getActiveLoanCount,
         checkClientFineRestrictions,
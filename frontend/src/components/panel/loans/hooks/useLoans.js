@@ -1,35 +1,107 @@
 // hooks/useLoans.js - VERSION CORREGIDA para manejar errores del backend
-import { useState, useCallback } from 'react';
+import { useState, useCallback, useRef } from 'react';
 import httpClient from "../../../../http-common";
 
+const LOANS_PAGE_SIZE = 50;
+
+const generateIdempotencyKey = () => {
+    if (typeof crypto !== 'undefined' && crypto.randomUUID) {
+        return crypto.randomUUID();
+    }
+    return `${Date.now()}-${Math.random().toString(36).slice(2)}`;
+};
+
+// Recorre todas las páginas de /api/v1/loans/page con los filtros dados (usado por los fallbacks)
+const fetchAllLoanPages = async (filters) => {
+    const allLoans = [];
+    let cursor = null;
+    do {
+        const response = await httpClient.get('/api/v1/loans/page', {
+            params: { ...filters, size: 200, cursor: cursor || undefined }
+        });
+        allLoans.push(...(response.data?.items || []));
+        cursor = response.data?.hasMore ? response.data.nextCursor : null;
+    } while (cursor);
+    return allLoans;
+};
+
 export const useLoans = () => {
     const [loans, setLoans] = useState([]);
     const [activeLoans, setActiveLoans] = useState([]);
     const [overdueLoans, setOverdueLoans] = useState([]);
     const [loading, setLoading] = useState(false);
     const [error, setError] = useState(null);
+    const [loansCursor, setLoansCursor] = useState(null);
+    const [hasMoreLoans, setHasMoreLoans] = useState(false);
+
+    // Idempotency-Key por operación pendiente: si la solicitud falla (p. ej. timeout) y se reintenta
+    // la misma operación, se reutiliza la clave y el backend no la ejecuta dos veces
+    const pendingKeysRef = useRef(new Map());
+    const getIdempotencyKey = (operation) => {
+        if (!pendingKeysRef.current.has(operation)) {
+            pendingKeysRef.current.set(operation, generateIdempotencyKey());
+        }
+        return pendingKeysRef.current.get(operation);
+    };
 
-    // Load all loans (history)
+    // Load loans (history) - paginado por cursor, la primera página reemplaza la lista
     const loadLoans = useCallback(async () => {
         setLoading(true);
         setError(null);
         try {
-            const response = await httpClient.get('/api/v1/loans/');
-            console.log('All loans response:', response.data);
-            setLoans(response.data || []);
+            const response = await httpClient.get('/api/v1/loans/page', {
+                params: { size: LOANS_PAGE_SIZE }
+            });
+            console.log('Loans page response:', response.data);
+            setLoans(response.data?.items || []);
+            setLoansCursor(response.data?.nextCursor || null);
+            setHasMoreLoans(Boolean(response.data?.hasMore));
         } catch (err) {
             console.error('Error loading loans:', err);
-            const errorMsg = err.response?.data?.message ||
+            const errorMsg = err.response?.data?.error ||
+                err.response?.data?.message ||
                 err.response?.data ||
                 err.message ||
                 'Error al cargar préstamos';
             setError(errorMsg);
             setLoans([]);
+            setLoansCursor(null);
+            setHasMoreLoans(false);
         } finally {
             setLoading(false);
         }
     }, []);
 
+    // Load next page of loans and append it
+    const loadMoreLoans = useCallback(async () => {
+        if (!loansCursor) {
+            return;
+        }
+        setLoading(true);
+        setError(null);
+        try {
+            const response = await httpClient.get('/api/v1/loans/page', {
+                params: { size: LOANS_PAGE_SIZE, cursor: loansCursor }
+            });
+            const items = response.data?.items || [];
+            setLoans(prev => {
+                const loadedIds = new Set(prev.map(loan => loan.id));
+                return [...prev, ...items.filter(loan => !loadedIds.has(loan.id))];
+            });
+            setLoansCursor(response.data?.nextCursor || null);
+            setHasMoreLoans(Boolean(response.data?.hasMore));
+        } catch (err) {
+            console.error('Error loading more loans:', err);
+            const errorMsg = err.response?.data?.error ||
+                err.response?.data?.message ||
+                err.message ||
+                'Error al cargar más préstamos';
+            setError(errorMsg);
+        } finally {
+            setLoading(false);
+        }
+    }, [loansCursor]);
+
     // Load active loans - VERSIÓN MEJORADA
     const loadActiveLoans = useCallback(async () => {
         setLoading(true);
@@ -60,20 +132,12 @@ export const useLoans = () => {
                 'Error al cargar préstamos activos';
             setError(errorMsg);
 
-            // Fallback: try to get all loans and filter manually
+            // Fallback: pedir al listado paginado solo los préstamos activos
             try {
                 console.log('Trying fallback method for active loans...');
-                const fallbackResponse = await httpClient.get('/api/v1/loans/');
-                const allLoans = fallbackResponse.data || [];
-                console.log('Fallback - all loans:', allLoans.length);
-
-                const activeLoansFiltered = allLoans.filter(loan => {
-                    const isActive = loan.status === 'ACTIVE' || loan.status === 'active';
-                    console.log(`Loan ${loan.id}: status=${loan.status}, isActive=${isActive}`);
-                    return isActive;
-                });
+                const activeLoansFiltered = await fetchAllLoanPages({ status: 'ACTIVE' });
 
-                console.log('Fallback - filtered active loans:', activeLoansFiltered.length);
+                console.log('Fallback - active loans:', activeLoansFiltered.length);
                 setActiveLoans(activeLoansFiltered);
                 setError(null); // Clear error if fallback works
 
@@ -106,18 +170,10 @@ export const useLoans = () => {
                 'Error al cargar préstamos atrasados';
             setError(errorMsg);
 
-            // Fallback: try to get all loans and filter manually
+            // Fallback: pedir al listado paginado solo los préstamos atrasados
             try {
                 console.log('Trying fallback method for overdue loans...');
-                const fallbackResponse = await httpClient.get('/api/v1/loans/');
-                const allLoans = fallbackResponse.data || [];
-                const today = new Date().toISOString().split('T')[0];
-
-                const overdueLoansFiltered = allLoans.filter(loan => {
-                    const isActive = loan.status === 'ACTIVE' || loan.status === 'active';
-                    const isOverdue = loan.agreedReturnDate <= today;
-                    return isActive && isOverdue;
-                });
+                const overdueLoansFiltered = await fetchAllLoanPages({ overdue: true });
 
                 console.log('Fallback - filtered overdue loans:', overdueLoansFiltered.length);
                 setOverdueLoans(overdueLoansFiltered);
@@ -189,7 +245,11 @@ export const useLoans = () => {
             console.log('Sending clean loan data:', cleanLoanData);
 
             // Hacer la petición con manejo de errores específicos
-            const response = await httpClient.post('/api/v1/loans/', cleanLoanData);
+            const operation = `create:${JSON.stringify(cleanLoanData)}`;
+            const response = await httpClient.post('/api/v1/loans/', cleanLoanData, {
+                headers: { 'Idempotency-Key': getIdempotencyKey(operation) }
+            });
+            pendingKeysRef.current.delete(operation);
 
             if (!response.data) {
                 throw new Error('Respuesta vacía del servidor');
@@ -262,9 +322,12 @@ export const useLoans = () => {
             const { damaged = false, damageType = 'MINOR', notes = '' } = returnData;
             console.log('Returning loan:', loanId, { damaged, damageType, notes });
 
+            const operation = `return:${loanId}:${damaged}:${damageType}:${notes}`;
             const response = await httpClient.put(`/api/v1/loans/${loanId}/return`, null, {
-                params: { damaged, damageType, notes }
+                params: { damaged, damageType, notes },
+                headers: { 'Idempotency-Key': getIdempotencyKey(operation) }
             });
+            pendingKeysRef.current.delete(operation);
 
             const returnedLoan = response.data;
             console.log('Loan returned successfully:', returnedLoan);
@@ -481,9 +544,11 @@ export const useLoans = () => {
         overdueLoans,
         loading,
         error,
+        hasMoreLoans,
 
         // CRUD operations
         loadLoans,
+        loadMoreLoans,
         loadActiveLoans,
         loadOverdueLoans,
         createLoan,
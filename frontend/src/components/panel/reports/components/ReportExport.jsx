@@ -1,16 +1,25 @@
-// ReportExport.jsx - Exportar reportes (frontend puro)
+// ReportExport.jsx - Exportar reportes
+// Préstamos activos se exportan desde el backend en streaming (/api/v1/reports/export/active-loans);
+// los reportes agrupados (clientes, herramientas) son pequeños y se siguen armando en el navegador.
 import React, { useState } from 'react';
+import api from '../../../../http-common';
 import { useReports } from '../hooks/useReports';
 import { getTodayDate } from '../../../../utils/dateUtils';
 
-const ReportExport = ({ reportData, activeTab }) => {
+// Pestañas con exportación en el servidor y su dataset
+const SERVER_EXPORTS = {
+    'active-loans': 'active-loans'
+};
+
+const ReportExport = ({ reportData, activeTab, dateFilters = {} }) => {
     const [isExporting, setIsExporting] = useState(false);
     const [exportFormat, setExportFormat] = useState('csv');
     const { exportToCSV } = useReports();
 
     const exportOptions = [
         { value: 'csv', label: 'CSV', icon: '📄' },
-        { value: 'json', label: 'JSON', icon: '📋' }
+        { value: 'json', label: 'JSON', icon: '📋' },
+        { value: 'ndjson', label: 'NDJSON', icon: '📋', serverOnly: true }
     ];
 
     const getExportData = () => {
@@ -40,7 +49,25 @@ const ReportExport = ({ reportData, activeTab }) => {
         }
     };
 
+    // El navegador descarga el archivo directamente: no se carga el reporte completo en memoria
+    const exportFromServer = (dataset) => {
+        const params = new URLSearchParams({ format: exportFormat === 'json' ? 'ndjson' : exportFormat });
+        if (dateFilters.startDate) params.append('startDate', dateFilters.startDate);
+        if (dateFilters.endDate) params.append('endDate', dateFilters.endDate);
+
+        const link = document.createElement('a');
+        link.href = `${api.defaults.baseURL}/api/v1/reports/export/${dataset}?${params.toString()}`;
+        link.click();
+    };
+
     const handleExport = async () => {
+        const serverDataset = SERVER_EXPORTS[activeTab];
+        if (serverDataset) {
+            exportFromServer(serverDataset);
+            showSuccessMessage('✅ Descarga iniciada');
+            return;
+        }
+
         const exportData = getExportData();
         if (!exportData || !exportData.data || exportData.data.length === 0) {
             alert('No hay datos disponibles para exportar');
@@ -104,7 +131,7 @@ const ReportExport = ({ reportData, activeTab }) => {
                 disabled={isExporting || !hasData}
                 className="px-3 py-2 text-sm border border-gray-300 rounded-md focus:outline-none focus:ring-2 focus:ring-blue-500 disabled:bg-gray-100 disabled:cursor-not-allowed"
             >
-                {exportOptions.map(option => (
+                {exportOptions.filter(option => !option.serverOnly || SERVER_EXPORTS[activeTab]).map(option => (
                     <option key={option.value} value={option.value}>
                         {option.icon} {option.label}
                     </option>